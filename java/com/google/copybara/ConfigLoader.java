@@ -19,6 +19,7 @@ package com.google.cooperbara;
 import com.google.common.base.Preconditions;
 import com.google.cooperbara.config.Config;
 import com.google.cooperbara.config.ConfigFile;
+import com.google.cooperbara.config.ProgramCache;
 import com.google.cooperbara.config.SkylarkParser;
 import com.google.cooperbara.config.SkylarkParser.ConfigWithDependencies;
 import com.google.cooperbara.exception.RepoException;
@@ -28,6 +29,7 @@ import com.google.cooperbara.revision.Revision;
 import com.google.cooperbara.util.console.Console;
 import com.google.cooperbara.util.console.StarlarkMode;
 import java.io.IOException;
+import javax.annotation.Nullable;
 
 /**
  * Loads the configuration from a given config file.
@@ -39,8 +41,18 @@ public class ConfigLoader {
   private final ModuleSet moduleSet;
 
   public ConfigLoader(ModuleSet moduleSet, ConfigFile configFile, StarlarkMode validateStarlark) {
+    this(moduleSet, configFile, validateStarlark, /*programCache=*/ null);
+  }
+
+  /**
+   * Creates a loader that reuses the compiled config files from {@code programCache}, if not
+   * null.
+   */
+  public ConfigLoader(ModuleSet moduleSet, ConfigFile configFile, StarlarkMode validateStarlark,
+      @Nullable ProgramCache programCache) {
     this.moduleSet = moduleSet;
-    this.skylarkParser = new SkylarkParser(this.moduleSet.getStaticModules(), validateStarlark);
+    this.skylarkParser =
+        new SkylarkParser(this.moduleSet.getStaticModules(), validateStarlark, programCache);
     this.configFile = Preconditions.checkNotNull(configFile);
   }
 
@@ -24,7 +24,6 @@ import com.google.cooperbara.util.Glob;
 import java.io.IOException;
 import java.nio.charset.Charset;
 import java.nio.file.Files;
-import java.nio.file.Path;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -46,9 +45,8 @@ public class ConvertEncoding implements Transformation {
   @Override
   public TransformationStatus transform(TransformWork work)
       throws IOException, ValidationException, RepoException {
-    Path checkoutDir = work.getCheckoutDir();
     Set<FileState> files = new HashSet<>();
-    for (FileState f : work.getTreeState().find(paths.relativeTo(checkoutDir))) {
+    for (FileState f : work.getTreeState().find(paths)) {
       Files.writeString(f.getPath(), Files.readString(f.getPath(), before), after);
       files.add(f);
     }
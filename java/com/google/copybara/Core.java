@@ -53,6 +53,7 @@ import com.google.cooperbara.exception.ValidationException;
 import com.google.cooperbara.folder.FolderModule;
 import com.google.cooperbara.revision.Revision;
 import com.google.cooperbara.templatetoken.Parser;
+import com.google.cooperbara.templatetoken.RegexEngine;
 import com.google.cooperbara.templatetoken.Token;
 import com.google.cooperbara.templatetoken.Token.TokenType;
 import com.google.cooperbara.transform.CopyOrMove;
@@ -1171,6 +1172,16 @@ public class Core implements LabelsAwareModule, StarlarkValue {
                     + " match `before`, the `ignore` regex can refer to text outside the span that"
                     + " would be replaced.",
             defaultValue = "[]"),
+        @Param(
+            name = "regex_engine",
+            named = true,
+            doc =
+                "How to search for `before`. All the engines run in linear time. `AUTO` uses a"
+                    + " plain text search when `before` has no `regex_groups` references, and"
+                    + " RE2J otherwise. `RE2J` always uses RE2J. `LITERAL` always uses a plain"
+                    + " text search, and fails if `before` contains references to"
+                    + " `regex_groups`.",
+            defaultValue = "'AUTO'"),
       },
       useStarlarkThread = true)
   @DocDefault(field = "paths", value = "glob([\"**\"])")
@@ -1316,6 +1327,7 @@ public class Core implements LabelsAwareModule, StarlarkValue {
       Boolean multiline,
       Boolean repeatedGroups,
       net.starlark.java.eval.Sequence<?> ignore, // <String>
+      String regexEngine,
       StarlarkThread thread)
       throws EvalException {
     return Replace.create(
@@ -1328,6 +1340,7 @@ public class Core implements LabelsAwareModule, StarlarkValue {
         multiline,
         repeatedGroups,
         convertStringList(ignore, "patterns_to_ignore"),
+        stringToEnum("regex_engine", regexEngine, RegexEngine.class),
         workflowOptions);
   }
 
@@ -2412,7 +2425,9 @@ public class Core implements LabelsAwareModule, StarlarkValue {
                 "The strategy to use for merging files. DIFF3 shells out to diff3 with the -m flag"
                     + " to perform a 3-way merge. PATCH_MERGE creates a patch file by diffing the"
                     + " baseline and destination files, and then applies the patch to the origin"
-                    + " file.",
+                    + " file. BUILTIN_DIFF3 produces the same result as DIFF3, including the"
+                    + " conflict markers, but merges the files in process, which is much faster"
+                    + " when many files need to be merged.",
             defaultValue = "'DIFF3'",
             named = true,
             positional = false)
@@ -113,6 +113,31 @@ public interface Destination<R extends Revision> extends ConfigItemDescription,
       return Optional.empty();
     }
 
+    /**
+     * Allows the next calls to {@link #write} to return before their result is published (for
+     * example, before a git push finishes), so that the caller can start migrating the next
+     * change.
+     *
+     * <p>Writes are still published in order, and up to {@code batchSize} consecutive writes can
+     * be published together. The effects returned by {@code write} describe the result once it is
+     * published. A publishing failure is thrown by a later {@code write} or by
+     * {@link #flush(Console)}, that must be called once the caller is done writing.
+     *
+     * @return false if the writer doesn't support it, in which case writes stay synchronous
+     */
+    default boolean deferPublishing(int batchSize) throws ValidationException {
+      return false;
+    }
+
+    /**
+     * Publishes the pending writes, if {@link #deferPublishing(int)} was enabled, and waits for
+     * them to finish.
+     *
+     * @throws ValidationException if an user attributable error happens during the publishing
+     * @throws RepoException if there was an issue with the destination repository
+     */
+    default void flush(Console console) throws ValidationException, RepoException {}
+
     /**
      * Returns the {@link DestinationInfo} object for this destination.
      *
@@ -72,6 +72,7 @@ public final class GeneralOptions implements Option {
   public static final String CONFIG_ROOT_FLAG = "--config-root";
   public static final String OUTPUT_ROOT_FLAG = "--output-root";
   public static final String OUTPUT_LIMIT_FLAG = "--output-limit";
+  public static final String ISOLATED_TEMP_DIR_FLAG = "--isolated-temp-dir";
   public static final String DRY_RUN_FLAG = "--dry-run";
   public static final String SQUASH_FLAG = "--squash";
   static final Duration DEFAULT_CONSOLE_FILE_FLUSH_INTERVAL = Duration.ofSeconds(30);
@@ -109,13 +110,17 @@ public final class GeneralOptions implements Option {
   }
 
   public GeneralOptions withForce(boolean force) throws ValidationException {
-    return new GeneralOptions(environment, fileSystem, verbose, console, getConfigRoot(),
-        getOutputRoot(), noCleanup, disableReversibleCheck, force, outputLimit);
+    GeneralOptions result = new GeneralOptions(environment, fileSystem, verbose, console,
+        getConfigRoot(), getOutputRoot(), noCleanup, disableReversibleCheck, force, outputLimit);
+    result.isolatedTempDir = isolatedTempDir;
+    return result;
   }
 
   public GeneralOptions withConsole(Console console) throws ValidationException {
-    return new GeneralOptions(environment, fileSystem, verbose, console, getConfigRoot(),
-        getOutputRoot(), noCleanup, disableReversibleCheck, force, outputLimit);
+    GeneralOptions result = new GeneralOptions(environment, fileSystem, verbose, console,
+        getConfigRoot(), getOutputRoot(), noCleanup, disableReversibleCheck, force, outputLimit);
+    result.isolatedTempDir = isolatedTempDir;
+    return result;
   }
 
   public Map<String, String> getEnvironment() {
@@ -249,10 +254,10 @@ public final class GeneralOptions implements Option {
    */
   public DirFactory getDirFactory() {
     if (getOutputRoot() != null) {
-      return new DirFactory(getOutputRoot());
+      return new DirFactory(getOutputRoot(), isolatedTempDir);
     } else {
       String home = checkNotNull(environment.get("HOME"), "$HOME environment var is not set");
-      return new DirFactory(fileSystem.getPath(home).resolve("cooperbara"));
+      return new DirFactory(fileSystem.getPath(home).resolve("cooperbara"), isolatedTempDir);
     }
   }
 
@@ -397,6 +402,15 @@ public final class GeneralOptions implements Option {
               + "necessary.")
   String outputRoot = null;
 
+  @Parameter(
+      names = ISOLATED_TEMP_DIR_FLAG,
+      description =
+          "If set, temporary files are created in their own directory with this name under the"
+              + " output root, and only that directory is cleaned up. Used by 'serve' to run"
+              + " concurrent commands.",
+      hidden = true)
+  String isolatedTempDir = null;
+
   @Parameter(
       names = OUTPUT_LIMIT_FLAG,
       description =
@@ -450,6 +464,33 @@ public final class GeneralOptions implements Option {
     return diffBin;
   }
 
+  @Parameter(
+      names = "--profile-trace",
+      description =
+          "Write the profiler tasks to this file in Chrome Trace Event format, with the thread, CPU"
+              + " time and allocated bytes of each task. The file can be opened in"
+              + " chrome://tracing or https://ui.perfetto.dev.")
+  private String profileTrace = null;
+
+  @Parameter(
+      names = "--profile-jfr",
+      description =
+          "Emit a JFR event for each profiler task, with its CPU time and allocated bytes. They"
+              + " are only recorded when running with a JFR recording (-XX:StartFlightRecording).")
+  private boolean profileJfr = false;
+
+  /**
+   * Returns the file where to write the profiler trace, or null if not requested.
+   */
+  @Nullable
+  public Path getProfileTrace() {
+    return profileTrace == null ? null : getCwd().resolve(profileTrace);
+  }
+
+  public boolean isProfileJfr() {
+    return profileJfr;
+  }
+
   public static final String PATCH_BIN_FLAG = "--patch-bin";
 
   @Parameter(names = PATCH_BIN_FLAG, description = "Path for GNU Patch command")
@@ -20,32 +20,56 @@ import static com.google.common.base.Throwables.throwIfInstanceOf;
 import static com.google.common.base.Throwables.throwIfUnchecked;
 
 import com.google.common.base.Preconditions;
+import com.google.common.base.Suppliers;
+import com.google.common.base.Ticker;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
-import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.ListeningExecutorService;
 import com.google.common.util.concurrent.MoreExecutors;
 import com.google.cooperbara.exception.ValidationException;
+import com.google.cooperbara.profiler.Profiler;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
 
 /**
  * A class that allows to run a list of things in parallel batches.
+ *
+ * <p>The elements are split in several small batches per thread, balanced by the cost of each
+ * element. Batches are queued from the most expensive to the cheapest and idle threads take the
+ * next one, so a few expensive elements don't leave the rest of the threads waiting.
  */
 public class LocalParallelizer {
 
+  /** More batches balance the load better, but each one has some overhead. */
+  private static final int BATCHES_PER_THREAD = 4;
+
   private final int threads;
   private final int minSize;
+  private final Supplier<Profiler> profiler;
   private final ListeningExecutorService executor;
 
   public LocalParallelizer(int threads, int minSize) {
+    this(threads, minSize, Suppliers.ofInstance(new Profiler(Ticker.systemTicker())));
+  }
+
+  /**
+   * @param profiler profiler where the timing of each batch is reported, as a child of the task
+   *     calling {@link #run}
+   */
+  public LocalParallelizer(int threads, int minSize, Supplier<Profiler> profiler) {
     this.threads = threads;
     this.minSize = minSize;
+    this.profiler = Preconditions.checkNotNull(profiler);
     Preconditions.checkState(threads >= 1, "Threads need to be positive");
     Preconditions.checkState(threads < 1000, "Too many threads (max: 1000)");
     executor = threads == 1
@@ -54,25 +78,65 @@ public class LocalParallelizer {
   }
 
   /**
-   * Run a list of things in batches, calling {@code func} for each batch.
+   * Run a list of things in batches, calling {@code func} for each batch. All the elements are
+   * considered to have the same cost.
    */
   public <K, V> List<V> run(Iterable<K> list, TransformFunc<K, V> func)
       throws IOException, ValidationException {
+    return run(list, e -> 1, func);
+  }
+
+  /**
+   * Run a list of things in batches, calling {@code func} for each batch.
+   *
+   * <p>Batches contain consecutive elements of {@code list} and the results are returned in the
+   * same order, regardless of the order in which the batches were executed.
+   *
+   * @param cost relative cost of processing each element, for example the size of a file
+   */
+  public <K, V> List<V> run(Iterable<K> list, ToLongFunction<K> cost, TransformFunc<K, V> func)
+      throws IOException, ValidationException {
     if (threads == 1 || Iterables.size(list) < minSize) {
       return ImmutableList.of(func.run(list));
     }
-    List<ListenableFuture<V>> results = new ArrayList<>(threads);
-    List<K> newList = Lists.newArrayList(list);
-    for (List<K> batch : Lists.partition(newList, Math.max(1, newList.size() / threads))) {
-      results.add(executor.submit(() -> func.run(batch)));
+    List<Batch<K>> batches = partition(Lists.newArrayList(list), cost);
+    List<Batch<K>> byCost = new ArrayList<>(batches);
+    byCost.sort(Comparator.comparingLong((Batch<K> b) -> b.cost).reversed());
+
+    List<ListenableFuture<V>> results =
+        new ArrayList<>(Collections.nCopies(batches.size(), null));
+    for (Batch<K> batch : byCost) {
+      results.set(batch.index, executor.submit(() -> {
+        batch.thread = Thread.currentThread();
+        batch.startNanos = System.nanoTime();
+        try {
+          return func.run(batch.elements);
+        } finally {
+          batch.endNanos = System.nanoTime();
+        }
+      }));
     }
     try {
-      return Futures.allAsList(results).get();
+      List<V> values = new ArrayList<>(results.size());
+      for (ListenableFuture<V> result : results) {
+        values.add(result.get());
+      }
+      for (Batch<K> batch : batches) {
+        profiler.get().simpleTask(
+            String.format("batch_%d (%d elements)", batch.index, batch.elements.size()),
+            batch.startNanos, batch.endNanos, batch.thread);
+      }
+      return values;
     } catch (InterruptedException e) {
+      cancel(results);
       Thread.currentThread().interrupt();
-      //TODO We cannot do much here. We might expose InterruptedException all the way up to Main...
-      throw new RuntimeException("Interrupted", e);
+      InterruptedIOException interrupted =
+          new InterruptedIOException("Interrupted while waiting for parallel batches");
+      interrupted.initCause(e);
+      throw interrupted;
     } catch (ExecutionException e) {
+      // Don't keep working on the remaining batches if one of them failed
+      cancel(results);
       throwIfInstanceOf(e.getCause(), IOException.class);
       throwIfInstanceOf(e.getCause(), ValidationException.class);
       throwIfUnchecked(e.getCause());
@@ -80,6 +144,60 @@ public class LocalParallelizer {
     }
   }
 
+  /**
+   * Splits {@code elements} in consecutive batches of similar cost. An element more expensive than
+   * the target cost gets a batch of its own.
+   */
+  private <K> List<Batch<K>> partition(List<K> elements, ToLongFunction<K> cost) {
+    long[] costs = new long[elements.size()];
+    long totalCost = 0;
+    for (int i = 0; i < elements.size(); i++) {
+      costs[i] = Math.max(1, cost.applyAsLong(elements.get(i)));
+      totalCost += costs[i];
+    }
+    int maxBatches = threads * BATCHES_PER_THREAD;
+    long targetCost = Math.max(1, totalCost / maxBatches);
+    // Also bound the number of elements, so that many cheap elements are still spread.
+    int targetSize = Math.max(1, elements.size() / maxBatches);
+
+    List<Batch<K>> batches = new ArrayList<>();
+    int start = 0;
+    long batchCost = 0;
+    for (int i = 0; i < elements.size(); i++) {
+      if (i > start && (batchCost + costs[i] > targetCost || i - start >= targetSize)) {
+        batches.add(new Batch<>(batches.size(), elements.subList(start, i), batchCost));
+        start = i;
+        batchCost = 0;
+      }
+      batchCost += costs[i];
+    }
+    batches.add(new Batch<>(batches.size(), elements.subList(start, elements.size()), batchCost));
+    return batches;
+  }
+
+  private static void cancel(List<? extends ListenableFuture<?>> futures) {
+    for (ListenableFuture<?> future : futures) {
+      future.cancel(/*mayInterruptIfRunning=*/ true);
+    }
+  }
+
+  private static final class Batch<K> {
+
+    private final int index;
+    private final List<K> elements;
+    private final long cost;
+    // Written by the thread running the batch, read after its future completes
+    private volatile long startNanos;
+    private volatile long endNanos;
+    private volatile Thread thread;
+
+    private Batch(int index, List<K> elements, long cost) {
+      this.index = index;
+      this.elements = elements;
+      this.cost = cost;
+    }
+  }
+
   /** Transforms a collection of K elements into T. */
   public interface TransformFunc<K, T> {
 
@@ -34,6 +34,7 @@ import com.google.common.collect.Maps;
 import com.google.common.flogger.FluentLogger;
 import com.google.cooperbara.MainArguments.CommandWithArgs;
 import com.google.cooperbara.config.ConfigValidator;
+import com.google.cooperbara.config.ProgramCache;
 import com.google.cooperbara.config.Migration;
 import com.google.cooperbara.config.PathBasedConfigFile;
 import com.google.cooperbara.exception.CommandLineException;
@@ -47,6 +48,7 @@ import com.google.cooperbara.profiler.ConsoleProfilerListener;
 import com.google.cooperbara.profiler.Listener;
 import com.google.cooperbara.profiler.LogProfilerListener;
 import com.google.cooperbara.profiler.Profiler;
+import com.google.cooperbara.profiler.TimelineProfilerListener;
 import com.google.cooperbara.regenerate.RegenerateCmd;
 import com.google.cooperbara.util.ExitCode;
 import com.google.cooperbara.util.console.AnsiConsole;
@@ -57,6 +59,7 @@ import com.google.cooperbara.util.console.LogConsole;
 import com.google.cooperbara.util.console.NoPromptConsole;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.PrintStream;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.FileSystem;
 import java.nio.file.FileSystems;
@@ -67,6 +70,7 @@ import java.time.Duration;
 import java.util.Arrays;
 import java.util.Map;
 import java.util.Optional;
+import java.util.UUID;
 import java.util.function.Consumer;
 import java.util.logging.Level;
 import java.util.logging.LogManager;
@@ -125,7 +129,7 @@ public class Main {
 
     console.startupMessage(getVersion());
 
-    CommandResult result = runInternal(args, console, fs);
+    CommandResult result = runInternal(args, console, fs, /*programCache=*/ null);
     try {
       shutdown(result);
     } catch (InterruptedException e) {
@@ -197,12 +201,50 @@ public class Main {
       return command;
     }
   }
+  /**
+   * Runs a command sent to a {@link ServeCmd} server, writing its output to {@code output}.
+   *
+   * <p>Unlike {@link #run(String[])}, this can be called concurrently: each command gets its own
+   * options, console and temporary directory, and only the compiled config files are shared.
+   */
+  ExitCode runRequest(String id, ImmutableList<String> args, PrintStream output,
+      ProgramCache programCache) {
+    String[] requestArgs = ImmutableList.<String>builder()
+        .addAll(args)
+        // Ids are only unique in this server, and other servers can share the output root
+        .add(GeneralOptions.ISOLATED_TEMP_DIR_FLAG + "=" + id + "-" + UUID.randomUUID())
+        .build()
+        .toArray(new String[0]);
+    logger.atInfo().log("Running request %s: %s", id, Joiner.on(' ').join(args));
+    Console console =
+        withNoPrompt(LogConsole.writeOnlyConsole(output, isVerbose(requestArgs)), requestArgs);
+    CommandResult result =
+        runInternal(requestArgs, console, FileSystems.getDefault(), programCache);
+    CommandEnv commandEnv = result.getCommandEnv();
+    if (commandEnv != null) {
+      GeneralOptions generalOptions = commandEnv.getOptions().get(GeneralOptions.class);
+      generalOptions.profiler().stop();
+      if (!generalOptions.isNoCleanup()) {
+        try {
+          generalOptions.getDirFactory().cleanupTempDirs();
+        } catch (IOException e) {
+          logger.atWarning().withCause(e).log("Cannot delete the temp files of request %s", id);
+        }
+      }
+    }
+    console.close();
+    return result.getExitCode();
+  }
+
   /**
    * Runs the command and returns the {@link ExitCode}.
    *
    * <p>This method is also responsible for the exception handling/logging.
+   *
+   * @param programCache cache for the compiled config files, only used by {@link ServeCmd}
    */
-  private CommandResult runInternal(String[] args, Console console, FileSystem fs) {
+  private CommandResult runInternal(String[] args, Console console, FileSystem fs,
+      @Nullable ProgramCache programCache) {
     CommandEnv commandEnv = null;
     CopybaraCmd subcommand = null;
 
@@ -211,10 +253,12 @@ public class Main {
 
       final MainArguments mainArgs = new MainArguments(ImmutableList.cooperOf(args));
       Options options = moduleSet.getOptions();
-      jCommander = new JCommander(ImmutableList.builder()
+      // A local, since requests to a server are parsed concurrently
+      JCommander jCommander = new JCommander(ImmutableList.builder()
           .addAll(options.getAll())
           .add(mainArgs)
           .build());
+      this.jCommander = jCommander;
       jCommander.setProgramName("cooperbara");
 
       String version = getVersion();
@@ -222,7 +266,9 @@ public class Main {
       jCommander.parse(args);
 
 
-      ConfigLoaderProvider configLoaderProvider = newConfigLoaderProvider(moduleSet);
+      ConfigLoaderProvider configLoaderProvider = programCache == null
+          ? newConfigLoaderProvider(moduleSet)
+          : newConfigLoaderProvider(moduleSet, programCache);
 
       ImmutableMap<String, CopybaraCmd> commands =
           Maps.uniqueIndex(getCommands(moduleSet, configLoaderProvider, jCommander),
@@ -234,6 +280,9 @@ public class Main {
       }
       CommandWithArgs cmdToRun = mainArgs.parseCommand(commands, commands.get("migrate"));
       subcommand = cmdToRun.getSubcommand();
+      if (programCache != null && subcommand instanceof ServeCmd) {
+        throw new CommandLineException("'serve' cannot be sent to a server");
+      }
 
       initEnvironment(options, cmdToRun.getSubcommand(), ImmutableList.cooperOf(args));
 
@@ -293,7 +342,8 @@ public class Main {
         new OnboardCmd(),
         new GeneratorCmd(moduleSet),
         new VersionCmd(),
-        new RegenerateCmd(configLoaderProvider));
+        new RegenerateCmd(configLoaderProvider),
+        new ServeCmd(this::runRequest));
   }
 
   /**
@@ -332,6 +382,18 @@ public class Main {
             generalOptions.getConfigRoot()), generalOptions.getStarlarkMode());
   }
 
+  /**
+   * Returns a provider for the commands run by {@link ServeCmd}, that reuses the compiled config
+   * files from {@code programCache}.
+   */
+  protected ConfigLoaderProvider newConfigLoaderProvider(ModuleSet moduleSet,
+      ProgramCache programCache) {
+    GeneralOptions generalOptions = moduleSet.getOptions().get(GeneralOptions.class);
+    return (configPath, sourceRef) -> new ConfigLoader(moduleSet,
+        createConfigFileWithHeuristic(validateLocalConfig(generalOptions, configPath),
+            generalOptions.getConfigRoot()), generalOptions.getStarlarkMode(), programCache);
+  }
+
   protected ContextProvider newInfoContextProvider() {
     return (config, configFileArgs, configLoaderProvider, console) ->
         ImmutableMap.of("cooperbara_config", config.getLocation());
@@ -408,10 +470,7 @@ public class Main {
     } else {
       console = new AnsiConsole(System.in, System.err, verbose);
     }
-    Optional<String> noPrompt = findFlagValue(args, NOPROMPT);
-    if (noPrompt.isPresent() && noPrompt.get().equals("true")) {
-      console = new NoPromptConsole(console, true);
-    }
+    console = withNoPrompt(console, args);
     Optional<String> maybeConsoleFilePath = findFlagValue(args, GeneralOptions.CONSOLE_FILE_PATH);
     if (!maybeConsoleFilePath.isPresent()) {
       return console;
@@ -428,6 +487,14 @@ public class Main {
     return new FileConsole(console, consoleFilePath, getConsoleFlushRate(args));
   }
 
+  private static Console withNoPrompt(Console console, String[] args) {
+    Optional<String> noPrompt = findFlagValue(args, NOPROMPT);
+    if (noPrompt.isPresent() && noPrompt.get().equals("true")) {
+      return new NoPromptConsole(console, true);
+    }
+    return console;
+  }
+
   /**
    * Returns the console flush rate from the flag, if present and valid, or 0 (no flush) otherwise.
    */
@@ -471,6 +538,10 @@ public class Main {
     ImmutableList.Builder<Listener> profilerListeners = ImmutableList.builder();
     profilerListeners.add(
         new LogProfilerListener(), new ConsoleProfilerListener(generalOptions.console()));
+    if (generalOptions.getProfileTrace() != null || generalOptions.isProfileJfr()) {
+      profilerListeners.add(new TimelineProfilerListener(
+          generalOptions.getProfileTrace(), generalOptions.isProfileJfr()));
+    }
     profiler.init(profilerListeners.build());
     cleanupOutputDir(generalOptions);
   }
@@ -500,6 +571,10 @@ public class Main {
     if (console != null) {
       console.close();
     }
+    // The field might belong to a command run by 'serve'
+    Profiler profiler = result.getCommandEnv() != null
+        ? result.getCommandEnv().getOptions().get(GeneralOptions.class).profiler()
+        : this.profiler;
     if (profiler != null) {
       profiler.stop();
     }
@@ -33,11 +33,13 @@ public abstract class MergeImportConfiguration implements StarlarkValue {
    *
    * <p>DIFF3 shells out to diff3 with the -m flag to perform a 3-way merge. PATCH_MERGE creates a
    * patch file by diffing the baseline and destination files, and then applies the patch to the
-   * origin file.
+   * origin file. BUILTIN_DIFF3 does the same merge as DIFF3, but in process instead of running
+   * diff3 for each file.
    */
   public enum MergeStrategy {
     DIFF3,
     PATCH_MERGE,
+    BUILTIN_DIFF3,
     UNKNOWN
   }
 
@@ -150,6 +150,7 @@ public class ModuleSupplier {
         new GitDestinationOptions(generalOptions, gitOptions);
     BuildifierOptions buildifierOptions = new BuildifierOptions();
     WorkflowOptions workflowOptions = new WorkflowOptions();
+    workflowOptions.setProfiler(generalOptions::profiler);
     return new Options(
         ImmutableList.of(
             generalOptions,
@@ -169,12 +170,13 @@ public class ModuleSupplier {
             new HgOriginOptions(),
             new PatchingOptions(generalOptions),
             workflowOptions,
-            new RemoteFileOptions(),
+            new RemoteFileOptions(generalOptions),
             new DebugOptions(generalOptions),
             new GeneratorOptions(),
             new HttpOptions(),
             new RegenerateOptions(),
-            new CredentialOptions()));
+            new CredentialOptions(),
+            new ServerOptions()));
   }
 
   /**
@@ -0,0 +1,312 @@
+/*
+ * Copyright (C) 2026 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a cooper of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.google.cooperbara;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.beust.jcommander.Parameters;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.flogger.FluentLogger;
+import com.google.common.io.BaseEncoding;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.cooperbara.config.ProgramCache;
+import com.google.cooperbara.exception.CommandLineException;
+import com.google.cooperbara.exception.RepoException;
+import com.google.cooperbara.exception.ValidationException;
+import com.google.cooperbara.util.ExitCode;
+import com.google.cooperbara.util.console.Console;
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs Copybara as a server that executes the commands sent to it, so that many migrations can
+ * share a warm JVM and the compiled config files.
+ *
+ * <p>The server listens in a loopback port. Each connection sends one request, a line with a JSON
+ * object like {@code {"token": "...", "args": ["migrate", "copy.bara.sky", "workflow"]}}, where
+ * the port and the token are read from the {@code --serve-file}. The server replies with the
+ * console output of the command and a last line with the exit code, like {@code exit-code: 0}.
+ * Commands are queued and run concurrently, each one with its own options, console and temporary
+ * directory.
+ *
+ * <p>The {@code server-stats} command replies with the server statistics in JSON instead, and
+ * {@code server-shutdown} stops the server once the queued commands finish.
+ */
+@Parameters(separators = "=",
+    commandDescription = "Runs a server that executes the commands sent over a local socket.")
+public class ServeCmd implements CopybaraCmd {
+
+  static final String STATS = "server-stats";
+  static final String SHUTDOWN = "server-shutdown";
+  static final String EXIT_CODE_PREFIX = "exit-code: ";
+
+  private static final FluentLogger logger = FluentLogger.forEnclosingClass();
+  private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+  private static final Gson GSON = new Gson();
+
+  /** Runs a command received by the server. */
+  interface CommandRunner {
+
+    /**
+     * Runs {@code args} like the command line of a Copybara invocation, writing the console output
+     * to {@code output}. Needs to be thread-safe.
+     *
+     * @param id unique id of the command in this server
+     */
+    ExitCode run(String id, ImmutableList<String> args, PrintStream output,
+        ProgramCache programCache);
+  }
+
+  private final CommandRunner runner;
+
+  ServeCmd(CommandRunner runner) {
+    this.runner = checkNotNull(runner);
+  }
+
+  @Override
+  public ExitCode run(CommandEnv commandEnv)
+      throws ValidationException, IOException, RepoException {
+    ServerOptions serverOptions = commandEnv.getOptions().get(ServerOptions.class);
+    GeneralOptions generalOptions = commandEnv.getOptions().get(GeneralOptions.class);
+    if (serverOptions.serveFile == null) {
+      throw new CommandLineException("--serve-file is required for 'serve'");
+    }
+    if (!commandEnv.getArgs().isEmpty()) {
+      throw new CommandLineException("'serve' doesn't take arguments: " + commandEnv.getArgs());
+    }
+    Path serveFile = generalOptions.getFileSystem().getPath(serverOptions.serveFile);
+    Server server = new Server(serverOptions, generalOptions.console());
+    try {
+      server.serve(serveFile, serverOptions.port);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return ExitCode.INTERRUPTED;
+    } finally {
+      Files.deleteIfExists(serveFile);
+    }
+    return ExitCode.SUCCESS;
+  }
+
+  @Override
+  public String name() {
+    return "serve";
+  }
+
+  private final class Server {
+
+    private final Console console;
+    private final int threads;
+    private final String token = newToken();
+    private final ProgramCache programCache;
+    private final ThreadPoolExecutor commandExecutor;
+    // Reads the requests, so that a slow client doesn't block the others
+    private final ExecutorService connectionExecutor;
+    private final AtomicLong received = new AtomicLong();
+    private final Map<ExitCode, AtomicLong> finished = new ConcurrentHashMap<>();
+    private volatile boolean shuttingDown;
+    private ServerSocket socket;
+
+    private Server(ServerOptions serverOptions, Console console) {
+      this.console = checkNotNull(console);
+      this.threads = serverOptions.threads;
+      this.programCache = new ProgramCache(serverOptions.configCacheSize);
+      this.commandExecutor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+          new LinkedBlockingQueue<>(),
+          new ThreadFactoryBuilder().setNameFormat("serve-command-%d").setDaemon(true).build());
+      this.connectionExecutor = Executors.newCachedThreadPool(
+          new ThreadFactoryBuilder().setNameFormat("serve-connection-%d").setDaemon(true).build());
+    }
+
+    private void serve(Path serveFile, int port) throws IOException, InterruptedException {
+      try (ServerSocket socket =
+          new ServerSocket(port, /*backlog=*/ 50, InetAddress.getLoopbackAddress())) {
+        this.socket = socket;
+        writeServeFile(serveFile, socket.getLocalPort());
+        console.infoFmt("Serving on port %d with %d threads", socket.getLocalPort(), threads);
+        while (!shuttingDown) {
+          Socket connection;
+          try {
+            connection = socket.accept();
+          } catch (SocketException e) {
+            if (shuttingDown) {
+              // Closed by the shutdown request
+              break;
+            }
+            throw e;
+          }
+          connectionExecutor.execute(() -> handle(connection));
+        }
+      } finally {
+        connectionExecutor.shutdown();
+        commandExecutor.shutdown();
+      }
+      console.info("Waiting for the queued commands to finish");
+      while (!commandExecutor.awaitTermination(1, TimeUnit.MINUTES)) {
+        logger.atInfo().log("Waiting for %d queued commands", commandExecutor.getQueue().size());
+      }
+    }
+
+    private void writeServeFile(Path serveFile, int port) throws IOException {
+      Files.deleteIfExists(serveFile);
+      if (serveFile.getFileSystem().supportedFileAttributeViews().contains("posix")) {
+        Files.createFile(serveFile,
+            PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+      }
+      Files.write(serveFile, GSON.toJson(ImmutableMap.of("port", port, "token", token))
+          .getBytes(UTF_8));
+    }
+
+    private void handle(Socket connection) {
+      ImmutableList<String> args;
+      try {
+        connection.setSoTimeout((int) REQUEST_TIMEOUT.toMillis());
+        BufferedReader reader =
+            new BufferedReader(new InputStreamReader(connection.getInputStream(), UTF_8));
+        args = parseRequest(reader.readLine());
+        connection.setSoTimeout(0);
+      } catch (IOException | CommandLineException e) {
+        logger.atWarning().withCause(e).log("Invalid request");
+        reply(connection, "ERROR: Invalid request: " + e.getMessage(),
+            ExitCode.COMMAND_LINE_ERROR);
+        return;
+      }
+      if (args.equals(ImmutableList.of(STATS))) {
+        reply(connection, GSON.toJson(stats()), ExitCode.SUCCESS);
+      } else if (args.equals(ImmutableList.of(SHUTDOWN))) {
+        logger.atInfo().log("Shutdown requested");
+        shuttingDown = true;
+        reply(connection, "Shutting down", ExitCode.SUCCESS);
+        try {
+          socket.close();
+        } catch (IOException e) {
+          logger.atWarning().withCause(e).log("Cannot close the server socket");
+        }
+      } else {
+        String id = Long.toString(received.incrementAndGet());
+        try {
+          commandExecutor.execute(() -> runCommand(id, args, connection));
+        } catch (RejectedExecutionException e) {
+          reply(connection, "ERROR: The server is shutting down", ExitCode.ENVIRONMENT_ERROR);
+          return;
+        }
+        logger.atInfo().log("Queued command %s (%d queued, %d running): %s",
+            id, commandExecutor.getQueue().size(), commandExecutor.getActiveCount(), args);
+      }
+    }
+
+    private ImmutableList<String> parseRequest(String line) throws CommandLineException {
+      if (line == null) {
+        throw new CommandLineException("Empty request");
+      }
+      try {
+        JsonObject request = JsonParser.parseString(line).getAsJsonObject();
+        JsonElement requestToken = request.get("token");
+        if (requestToken == null || !MessageDigest.isEqual(
+            requestToken.getAsString().getBytes(UTF_8), token.getBytes(UTF_8))) {
+          throw new CommandLineException("Wrong token");
+        }
+        ImmutableList.Builder<String> args = ImmutableList.builder();
+        for (JsonElement arg : request.getAsJsonArray("args")) {
+          args.add(arg.getAsString());
+        }
+        return args.build();
+      } catch (JsonParseException | IllegalStateException | ClassCastException
+          | NullPointerException e) {
+        throw new CommandLineException("Expected {\"token\": ..., \"args\": [...]}", e);
+      }
+    }
+
+    private void runCommand(String id, ImmutableList<String> args, Socket connection) {
+      try (Socket c = connection;
+          PrintStream output = new PrintStream(c.getOutputStream(), /*autoFlush=*/ true, UTF_8)) {
+        ExitCode exitCode;
+        try {
+          exitCode = runner.run(id, args, output, programCache);
+        } catch (RuntimeException e) {
+          logger.atSevere().withCause(e).log("Command %s failed", id);
+          output.println("ERROR: Unexpected error: " + e);
+          exitCode = ExitCode.INTERNAL_ERROR;
+        }
+        finished.computeIfAbsent(exitCode, k -> new AtomicLong()).incrementAndGet();
+        output.println(EXIT_CODE_PREFIX + exitCode.getCode());
+      } catch (IOException e) {
+        logger.atWarning().withCause(e).log("Cannot reply to command %s", id);
+      }
+    }
+
+    private void reply(Socket connection, String message, ExitCode exitCode) {
+      try (Socket c = connection;
+          PrintStream output = new PrintStream(c.getOutputStream(), /*autoFlush=*/ true, UTF_8)) {
+        output.println(message);
+        output.println(EXIT_CODE_PREFIX + exitCode.getCode());
+      } catch (IOException e) {
+        logger.atWarning().withCause(e).log("Cannot reply to the request");
+      }
+    }
+
+    private ImmutableMap<String, Object> stats() {
+      Map<String, Long> exitCodes = new TreeMap<>();
+      finished.forEach((k, v) -> exitCodes.put(k.name(), v.get()));
+      return ImmutableMap.of(
+          "queued", commandExecutor.getQueue().size(),
+          "running", commandExecutor.getActiveCount(),
+          "threads", threads,
+          "received", received.get(),
+          "finished", exitCodes,
+          "config_cache", ImmutableMap.of(
+              "size", programCache.size(),
+              "hits", programCache.stats().hitCount(),
+              "misses", programCache.stats().missCount()));
+    }
+  }
+
+  private static String newToken() {
+    byte[] bytes = new byte[32];
+    new SecureRandom().nextBytes(bytes);
+    return BaseEncoding.base16().lowerCase().encode(bytes);
+  }
+}
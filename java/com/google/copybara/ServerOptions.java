@@ -0,0 +1,50 @@
+/*
+ * Copyright (C) 2026 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a cooper of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.google.cooperbara;
+
+import com.beust.jcommander.Parameter;
+import com.beust.jcommander.Parameters;
+import com.google.cooperbara.jcommander.GreaterThanZeroValidator;
+
+/**
+ * Arguments for {@link ServeCmd}.
+ */
+@Parameters(separators = "=")
+public class ServerOptions implements Option {
+
+  @Parameter(names = "--serve-file",
+      description = "File where 'serve' writes the port and the access token of the server,"
+          + " readable only by the current user. Clients need both to send commands. Required"
+          + " for 'serve'.")
+  public String serveFile = null;
+
+  @Parameter(names = "--serve-port",
+      description = "Loopback port where 'serve' listens for commands. By default any free port"
+          + " is used.")
+  public int port = 0;
+
+  @Parameter(names = "--serve-threads",
+      description = "Number of commands that 'serve' runs concurrently. The rest are queued.",
+      validateWith = GreaterThanZeroValidator.class)
+  public int threads = Runtime.getRuntime().availableProcessors();
+
+  @Parameter(names = "--serve-config-cache-size",
+      description = "Number of compiled config files that 'serve' keeps for the next commands.",
+      validateWith = GreaterThanZeroValidator.class)
+  public int configCacheSize = 1000;
+}
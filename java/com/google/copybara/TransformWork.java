@@ -137,7 +137,8 @@ public final class TransformWork extends CheckoutFileSystem
         originApi,
         destinationApi,
         destinationReader,
-        /* destinationInfo= */ null);
+        /* destinationInfo= */ null,
+        SEQUENTIAL);
   }
 
   private TransformWork(
@@ -155,8 +156,9 @@ public final class TransformWork extends CheckoutFileSystem
       LazyResourceLoader<Endpoint> originApi,
       LazyResourceLoader<Endpoint> destinationApi,
       ResourceSupplier<DestinationReader> destinationReader,
-      @Nullable DestinationInfo destinationInfo) {
-    super(checkoutDir);
+      @Nullable DestinationInfo destinationInfo,
+      LocalParallelizer parallelizer) {
+    super(checkoutDir, treeState, parallelizer);
     this.metadata = Preconditions.checkNotNull(metadata);
     this.changes = changes;
     this.console = console;
@@ -610,7 +612,8 @@ public final class TransformWork extends CheckoutFileSystem
         originApi,
         destinationApi,
         destinationReader,
-        destinationInfo);
+        destinationInfo,
+        getParallelizer());
   }
 
   /**
@@ -638,7 +641,8 @@ public final class TransformWork extends CheckoutFileSystem
         originApi,
         destinationApi,
         destinationReader,
-        destinationInfo);
+        destinationInfo,
+        getParallelizer());
   }
 
   @VisibleForTesting
@@ -659,7 +663,8 @@ public final class TransformWork extends CheckoutFileSystem
         originApi,
         destinationApi,
         destinationReader,
-        destinationInfo);
+        destinationInfo,
+        getParallelizer());
   }
 
   @VisibleForTesting
@@ -679,7 +684,8 @@ public final class TransformWork extends CheckoutFileSystem
         originApi,
         destinationApi,
         destinationReader,
-        destinationInfo);
+        destinationInfo,
+        getParallelizer());
   }
 
   @VisibleForTesting
@@ -700,7 +706,8 @@ public final class TransformWork extends CheckoutFileSystem
         originApi,
         destinationApi,
         destinationReader,
-        destinationInfo);
+        destinationInfo,
+        getParallelizer());
   }
 
   public TransformWork insideExplicitTransform() {
@@ -720,7 +727,8 @@ public final class TransformWork extends CheckoutFileSystem
         originApi,
         destinationApi,
         destinationReader,
-        destinationInfo);
+        destinationInfo,
+        getParallelizer());
   }
 
   public TransformWork withCurrentRev(Revision currentRev) {
@@ -740,7 +748,8 @@ public final class TransformWork extends CheckoutFileSystem
         originApi,
         destinationApi,
         destinationReader,
-        destinationInfo);
+        destinationInfo,
+        getParallelizer());
   }
 
   public TransformWork withDestinationInfo(@Nullable DestinationInfo newDestinationInfo) {
@@ -759,7 +768,55 @@ public final class TransformWork extends CheckoutFileSystem
         originApi,
         destinationApi,
         destinationReader,
-        newDestinationInfo);
+        newDestinationInfo,
+        getParallelizer());
+  }
+
+  /**
+   * Create a clone of the transform work that uses {@code parallelizer} for the batch file
+   * operations.
+   */
+  public TransformWork withParallelizer(LocalParallelizer parallelizer) {
+    return new TransformWork(
+        getCheckoutDir(),
+        metadata,
+        changes,
+        console,
+        migrationInfo,
+        resolvedReference,
+        treeState,
+        insideExplicitTransform,
+        lastRev,
+        currentRev,
+        skylarkTransformParams,
+        originApi,
+        destinationApi,
+        destinationReader,
+        destinationInfo,
+        Preconditions.checkNotNull(parallelizer));
+  }
+
+  /**
+   * Create a clone of the transform work that works on the files of a different directory.
+   */
+  TransformWork withCheckoutDir(Path newCheckoutDir) {
+    return new TransformWork(
+        Preconditions.checkNotNull(newCheckoutDir),
+        metadata,
+        changes,
+        console,
+        migrationInfo,
+        resolvedReference,
+        new TreeState(newCheckoutDir),
+        insideExplicitTransform,
+        lastRev,
+        currentRev,
+        skylarkTransformParams,
+        originApi,
+        destinationApi,
+        destinationReader,
+        destinationInfo,
+        getParallelizer());
   }
 
   /**
@@ -65,6 +65,19 @@ public interface Transformation extends StarlarkValue {
     return Location.BUILTIN;
   }
 
+  /**
+   * Whether the changes this transformation makes to a file only depend on the path and content of
+   * that file, and the file either keeps its path or is deleted. Transformations that don't touch
+   * the files at all (e.g. the ones that only modify the metadata) are path-local too.
+   *
+   * <p>Path-local transformations can be rerun on just the files that changed since a previous
+   * run. Note that such runs don't detect no-ops reliably, since most of the files are missing.
+   * Transformations that are always path-local implement {@link PathLocalTransformation}.
+   */
+  default boolean isPathLocal() {
+    return false;
+  }
+
   default boolean canJoin(Transformation transformation) {
     return false;
   }
@@ -51,6 +51,7 @@ import com.google.cooperbara.revision.Revision;
 import com.google.cooperbara.templatetoken.Token;
 import com.google.cooperbara.templatetoken.Token.TokenType;
 import com.google.cooperbara.transform.SkylarkConsole;
+import com.google.cooperbara.util.FileHasher;
 import com.google.cooperbara.util.Glob;
 import com.google.cooperbara.util.Identity;
 import com.google.cooperbara.util.console.Console;
@@ -717,6 +718,11 @@ public class Workflow<O extends Revision, D extends Revision> implements Migrati
     return consistencyFilePath;
   }
 
+  /** Hasher for the files listed in the consistency file. Hashes are computed in parallel. */
+  public FileHasher getConsistencyFileHasher() {
+    return new FileHasher(getDestination().getHashFunction(), workflowOptions.parallelizer());
+  }
+
   @Nullable
   public AutoPatchfileConfiguration getAutoPatchfileConfiguration() {
     return autoPatchfileConfiguration;
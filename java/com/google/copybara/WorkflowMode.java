@@ -33,6 +33,7 @@ import com.google.common.collect.ImmutableSetMultimap;
 import com.google.common.collect.Iterables;
 import com.google.common.flogger.FluentLogger;
 import com.google.cooperbara.ChangeVisitable.VisitResult;
+import com.google.cooperbara.Destination.Writer;
 import com.google.cooperbara.Origin.Baseline;
 import com.google.cooperbara.Origin.Reader.ChangesResponse;
 import com.google.cooperbara.Origin.Reader.ChangesResponse.EmptyReason;
@@ -49,6 +50,7 @@ import com.google.cooperbara.profiler.Profiler.ProfilerTask;
 import com.google.cooperbara.revision.Change;
 import com.google.cooperbara.revision.Changes;
 import com.google.cooperbara.revision.Revision;
+import com.google.cooperbara.util.console.Console;
 import com.google.cooperbara.util.console.PrefixConsole;
 import java.io.IOException;
 import java.util.ArrayDeque;
@@ -172,64 +174,87 @@ public enum WorkflowMode {
 
       runHelper.maybeValidateRepoInLastRevState(/*metadata=*/null);
 
+      Writer<D> writer = runHelper.getDestinationWriter();
+      boolean pipelined = false;
+      if (runHelper.workflowOptions().iterativePipeline && limit > 1) {
+        pipelined = writer.deferPublishing(runHelper.workflowOptions().iterativePushBatch);
+        if (!pipelined) {
+          runHelper.getConsole().warn(
+              "The destination doesn't support --iterative-pipeline, changes will be migrated"
+                  + " one after the other");
+        }
+      }
+
       Deque<Change<O>> migrated = new ArrayDeque<>();
       int migratedChanges = 0;
-      while (changesIterator.hasNext() && migratedChanges < limit) {
-        Change<O> change = changesIterator.next();
-        String prefix = String.format(
-            "Change %d of %d (%s): ",
-            changeNumber, Math.min(changes.size(), limit), change.getRevision().asString());
-        ImmutableList<DestinationEffect> result;
-
-        boolean errors = false;
-        try (ProfilerTask ignored = runHelper.profiler().start(change.getRef())) {
-          ImmutableList<Change<O>> current = ImmutableList.of(change);
-          ChangeMigrator<O, D> migrator = runHelper.getMigratorForChange(change);
-          if (migrator.skipChange(change)) {
-            continue;
+      try {
+        while (changesIterator.hasNext() && migratedChanges < limit) {
+          Change<O> change = changesIterator.next();
+          String prefix = String.format(
+              "Change %d of %d (%s): ",
+              changeNumber, Math.min(changes.size(), limit), change.getRevision().asString());
+          ImmutableList<DestinationEffect> result;
+
+          boolean errors = false;
+          try (ProfilerTask ignored = runHelper.profiler().start(change.getRef())) {
+            ImmutableList<Change<O>> current = ImmutableList.of(change);
+            ChangeMigrator<O, D> migrator = runHelper.getMigratorForChange(change);
+            if (migrator.skipChange(change)) {
+              continue;
+            }
+            migrator.setIncrementalWorkdir(runHelper.getIncrementalWorkdir());
+            result =
+                migrator.migrate(
+                    change.getRevision(),
+                    lastRev,
+                    new PrefixConsole(prefix, runHelper.getConsole()),
+                    new Metadata(
+                        runHelper.getChangeMessage(change.getMessage()),
+                        runHelper.getFinalAuthor(change.getAuthor()),
+                        ImmutableSetMultimap.of()),
+                    new Changes(current, migrated),
+                    /*destinationBaseline=*/ null,
+                    // Use the current change since we might want to create different
+                    // reviews in the destination. Will not work if we want to group
+                    // all the changes in the same Github PR
+                    change.getRevision(),
+                    null);
+            migratedChanges++;
+            for (DestinationEffect effect : result) {
+              if (effect.getType() != Type.NOOP) {
+                errors |= !effect.getErrors().isEmpty();
+              }
+            }
+          } catch (EmptyChangeException e) {
+            runHelper.getConsole().warnFmt("Migration of origin revision '%s' resulted in an empty"
+                + " change in the destination: %s", change.getRevision().asString(), e.getMessage());
+          } catch (ValidationException | RepoException e) {
+            runHelper.getConsole().errorFmt("Migration of origin revision '%s' failed with error: %s",
+                change.getRevision().asString(), e.getMessage());
+            throw e;
           }
-          result =
-              migrator.migrate(
-                  change.getRevision(),
-                  lastRev,
-                  new PrefixConsole(prefix, runHelper.getConsole()),
-                  new Metadata(
-                      runHelper.getChangeMessage(change.getMessage()),
-                      runHelper.getFinalAuthor(change.getAuthor()),
-                      ImmutableSetMultimap.of()),
-                  new Changes(current, migrated),
-                  /*destinationBaseline=*/ null,
-                  // Use the current change since we might want to create different
-                  // reviews in the destination. Will not work if we want to group
-                  // all the changes in the same Github PR
-                  change.getRevision(),
-                  null);
-          migratedChanges++;
-          for (DestinationEffect effect : result) {
-            if (effect.getType() != Type.NOOP) {
-              errors |= !effect.getErrors().isEmpty();
+          migrated.addFirst(change);
+
+          if (errors && changesIterator.hasNext()) {
+            // Use the regular console to log prompt and final message, it will be easier to spot
+            if (!runHelper.getConsole()
+                .promptConfirmation("Continue importing next change?")) {
+              String message = String.format("Iterative workflow aborted by user after: %s", prefix);
+              runHelper.getConsole().warn(message);
+              throw new ChangeRejectedException(message);
             }
           }
-        } catch (EmptyChangeException e) {
-          runHelper.getConsole().warnFmt("Migration of origin revision '%s' resulted in an empty"
-              + " change in the destination: %s", change.getRevision().asString(), e.getMessage());
-        } catch (ValidationException | RepoException e) {
-          runHelper.getConsole().errorFmt("Migration of origin revision '%s' failed with error: %s",
-              change.getRevision().asString(), e.getMessage());
-          throw e;
+          changeNumber++;
         }
-        migrated.addFirst(change);
-
-        if (errors && changesIterator.hasNext()) {
-          // Use the regular console to log prompt and final message, it will be easier to spot
-          if (!runHelper.getConsole()
-              .promptConfirmation("Continue importing next change?")) {
-            String message = String.format("Iterative workflow aborted by user after: %s", prefix);
-            runHelper.getConsole().warn(message);
-            throw new ChangeRejectedException(message);
-          }
+      } catch (RepoException | ValidationException | IOException | RuntimeException e) {
+        if (pipelined) {
+          // Publish the changes migrated before the failure, as a synchronous write would
+          flushAfterFailure(writer, runHelper.getConsole(), e);
         }
-        changeNumber++;
+        throw e;
+      }
+      if (pipelined) {
+        writer.flush(runHelper.getConsole());
       }
       if (migratedChanges == 0) {
         throw new EmptyChangeException(
@@ -494,6 +519,14 @@ public enum WorkflowMode {
     }
   }
 
+  private static void flushAfterFailure(Writer<?> writer, Console console, Exception failure) {
+    try {
+      writer.flush(console);
+    } catch (RepoException | ValidationException | RuntimeException e) {
+      failure.addSuppressed(e);
+    }
+  }
+
   public static boolean isHistorySupported(WorkflowRunHelper<?, ?> helper) {
     return helper.destinationSupportsPreviousRef() && helper.getOriginReader().supportsHistory();
   }
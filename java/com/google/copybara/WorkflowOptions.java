@@ -19,13 +19,17 @@ package com.google.cooperbara;
 import com.beust.jcommander.Parameter;
 import com.beust.jcommander.Parameters;
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
 import com.google.common.base.Suppliers;
+import com.google.common.base.Ticker;
 import com.google.common.collect.Lists;
 import com.google.common.flogger.FluentLogger;
 import com.google.cooperbara.authoring.Author;
 import com.google.cooperbara.jcommander.AuthorConverter;
 import com.google.cooperbara.jcommander.GlobConverter;
 import com.google.cooperbara.jcommander.GreaterThanZeroListValidator;
+import com.google.cooperbara.jcommander.GreaterThanZeroValidator;
+import com.google.cooperbara.profiler.Profiler;
 import com.google.cooperbara.util.Glob;
 import java.util.List;
 import java.util.Objects;
@@ -83,6 +87,26 @@ public class WorkflowOptions implements Option {
       description = "Import just a number of changes instead of all the pending ones")
   public int iterativeLimitChanges = Integer.MAX_VALUE;
 
+  @Parameter(names = "--iterative-incremental",
+      description = "For 'ITERATIVE' workflows, reuse the transformed tree of the previous change"
+          + " and only rerun the transformations on the files that changed in the origin. Only"
+          + " used when all the transformations are path-local (e.g. core.replace), otherwise"
+          + " the change is migrated from scratch. No-op transformations are only detected on the"
+          + " changes migrated from scratch.")
+  public boolean iterativeIncremental = false;
+
+  @Parameter(names = "--iterative-pipeline",
+      description = "For 'ITERATIVE' workflows, migrate the next change while the previous one is"
+          + " being pushed, if the destination supports it. Changes are still pushed in order."
+          + " A push failure stops the migration after the change being migrated at the time.")
+  public boolean iterativePipeline = false;
+
+  @Parameter(names = "--iterative-push-batch",
+      description = "With --iterative-pipeline, push up to this number of changes together. Each"
+          + " change is still a separate commit in the destination.",
+      validateWith = GreaterThanZeroValidator.class)
+  public int iterativePushBatch = 1;
+
   @Parameter(names = "--ignore-noop",
       description = "Only warn about operations/transforms that didn't have any effect."
           + " For example: A transform that didn't modify any file, non-existent origin"
@@ -134,6 +158,13 @@ public class WorkflowOptions implements Option {
           + " no-op in the destination")
   public int changeRequestFromSotLimit = 500;
 
+  @Parameter(
+      names = "--replace-streaming-min-size",
+      description = "Files of at least this size in bytes are rewritten line by line by"
+          + " core.replace transformations that are not multiline, instead of being loaded in"
+          + " memory")
+  public long replaceStreamingMinSize = 64L * 1024 * 1024;
+
   @Parameter(names = "--threads-min-size",
       description = "Minimum size of the lists to process to run them in parallel")
   public int threadsMinSize = 100;
@@ -181,6 +212,9 @@ public class WorkflowOptions implements Option {
     this.lastRevision = other.lastRevision;
     this.initHistory = other.initHistory;
     this.iterativeLimitChanges = other.iterativeLimitChanges;
+    this.iterativeIncremental = other.iterativeIncremental;
+    this.iterativePipeline = other.iterativePipeline;
+    this.iterativePushBatch = other.iterativePushBatch;
     this.ignoreNoop = other.ignoreNoop;
     this.squashSkipHistory = other.squashSkipHistory;
     this.migrateNoopChanges = other.migrateNoopChanges;
@@ -189,7 +223,9 @@ public class WorkflowOptions implements Option {
     this.threads = other.threads;
     this.changeRequestFromSotLimit = other.changeRequestFromSotLimit;
     this.threadsMinSize = other.threadsMinSize;
+    this.replaceStreamingMinSize = other.replaceStreamingMinSize;
     this.noTransformationJoin = other.noTransformationJoin;
+    this.profiler = other.profiler;
     this.readConfigFromChange = other.readConfigFromChange;
     this.disableReadConfigFromChange = other.disableReadConfigFromChange;
     this.readConfigFromChangePaths = other.readConfigFromChangePaths;
@@ -281,8 +317,10 @@ public class WorkflowOptions implements Option {
     return readConfigFromChange && !disableReadConfigFromChange;
   }
 
+  private Supplier<Profiler> profiler = Suppliers.ofInstance(new Profiler(Ticker.systemTicker()));
+
   private final Supplier<LocalParallelizer> parallelizerSupplier =
-      Suppliers.memoize(() -> new LocalParallelizer(getThreads(), threadsMinSize));
+      Suppliers.memoize(() -> new LocalParallelizer(getThreads(), threadsMinSize, profiler));
 
   private int getThreads() {
     logger.atInfo().log("Using %d thread(s) for transformations", threads);
@@ -293,6 +331,11 @@ public class WorkflowOptions implements Option {
     return parallelizerSupplier.get();
   }
 
+  /** Sets the profiler where the parallelizer reports the timing of its batches. */
+  public void setProfiler(Supplier<Profiler> profiler) {
+    this.profiler = Preconditions.checkNotNull(profiler);
+  }
+
   public boolean joinTransformations() {
     return !noTransformationJoin;
   }
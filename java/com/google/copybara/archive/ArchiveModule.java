@@ -25,8 +25,6 @@ import com.google.cooperbara.remotefile.extractutil.ExtractType;
 import com.google.cooperbara.remotefile.extractutil.ExtractUtil;
 import com.google.cooperbara.util.Glob;
 import java.io.IOException;
-import java.io.InputStream;
-import java.nio.file.Files;
 import net.starlark.java.annot.Param;
 import net.starlark.java.annot.ParamType;
 import net.starlark.java.annot.StarlarkBuiltin;
@@ -102,9 +100,9 @@ public class ArchiveModule implements StarlarkValue {
     CheckoutPath destination = SkylarkUtil.convertFromNoneable(maybeDestination,
         archivePath.resolve(".."));
 
-    try (InputStream contents = Files.newInputStream(archivePath.fullPath())) {
+    try {
       ExtractUtil.extractArchive(
-          contents,
+          archivePath.fullPath(),
           destination.fullPath(),
           type,
           SkylarkUtil.convertFromNoneable(paths, null));
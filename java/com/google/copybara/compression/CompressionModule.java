@@ -22,8 +22,6 @@ import com.google.cooperbara.remotefile.extractutil.ExtractType;
 import com.google.cooperbara.remotefile.extractutil.ExtractUtil;
 import com.google.cooperbara.util.Glob;
 import java.io.IOException;
-import java.io.InputStream;
-import java.nio.file.Files;
 import net.starlark.java.annot.Param;
 import net.starlark.java.annot.ParamType;
 import net.starlark.java.annot.StarlarkBuiltin;
@@ -66,7 +64,7 @@ public class CompressionModule implements StarlarkValue {
   public void unzipPath(CheckoutPath source, CheckoutPath destination, Object filter)
       throws IOException, ValidationException, EvalException {
     Glob filterGlob = Glob.wrapGlob(filter, null);
-    InputStream contents = Files.newInputStream(source.fullPath());
-    ExtractUtil.extractArchive(contents, destination.fullPath(), ExtractType.ZIP, filterGlob);
+    ExtractUtil.extractArchive(
+        source.fullPath(), destination.fullPath(), ExtractType.ZIP, filterGlob);
   }
 }
@@ -37,6 +37,7 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.function.Supplier;
+import javax.annotation.Nullable;
 import net.starlark.java.annot.StarlarkAnnotations;
 import net.starlark.java.annot.StarlarkBuiltin;
 import net.starlark.java.eval.EvalException;
@@ -61,12 +62,22 @@ public class SkylarkParser {
   // For now all the modules are namespaces. We don't use variables except for 'core'.
   private final Iterable<Class<?>> modules;
   private final StarlarkMode validation;
+  @Nullable private final ProgramCache programCache;
 
   public SkylarkParser(Set<Class<?>> staticModules, StarlarkMode validation) {
+    this(staticModules, validation, /*programCache=*/ null);
+  }
+
+  /**
+   * @param programCache if not null, compiled config files are reused from this cache
+   */
+  public SkylarkParser(Set<Class<?>> staticModules, StarlarkMode validation,
+      @Nullable ProgramCache programCache) {
     this.modules = ImmutableSet.<Class<?>>builder()
         .add(GlobalMigrations.class)
         .addAll(staticModules).build();
     this.validation = validation;
+    this.programCache = programCache;
   }
 
   public Config loadConfig(ConfigFile config, ModuleSet moduleSet, Console console)
@@ -208,7 +219,7 @@ public class SkylarkParser {
       module = Module.withPredeclared(semantics, environment);
 
       // parse & compile
-      ParserInput input = ParserInput.fromUTF8(content.readContentBytes(), content.path());
+      byte[] bytes = content.readContentBytes();
       FileOptions options =
           FileOptions.DEFAULT.toBuilder()
               // Ordinarily, load statements should create file-local variables.
@@ -220,7 +231,10 @@ public class SkylarkParser {
 
       Program prog;
       try {
-        prog = Program.compileFile(StarlarkFile.parse(input, options), module);
+        prog = programCache != null
+            ? programCache.compile(content.path(), bytes, options, module)
+            : Program.compileFile(
+                StarlarkFile.parse(ParserInput.fromUTF8(bytes, content.path()), options), module);
       } catch (SyntaxError.Exception ex) {
         for (SyntaxError error : ex.errors()) {
           console.error(error.toString());
@@ -0,0 +1,143 @@
+/*
+ * Copyright (C) 2026 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a cooper of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.google.cooperbara.git;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableList;
+import com.google.common.flogger.FluentLogger;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.cooperbara.exception.RepoException;
+import com.google.cooperbara.exception.ValidationException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import javax.annotation.Nullable;
+
+/**
+ * Pushes the commits of a migration in a background thread, so that the next change can be
+ * migrated while the previous one is being pushed.
+ *
+ * <p>There is at most one push in flight and pushes happen in the order of the commits. Up to
+ * {@code batchSize} commits are pushed together: each commit is a descendant of the previous one,
+ * so pushing the last one publishes all of them.
+ */
+final class BackgroundPusher {
+
+  private static final FluentLogger logger = FluentLogger.forEnclosingClass();
+
+  /** Runs a push of {@code refspecs}. */
+  @FunctionalInterface
+  interface PushAction {
+    void push(ImmutableList<Refspec> refspecs) throws RepoException, ValidationException;
+  }
+
+  private final int batchSize;
+  private final PushAction action;
+  private final ExecutorService executor;
+
+  @Nullable private Future<?> inFlight;
+  @Nullable private Refspec head;
+  private final List<Refspec> tags = new ArrayList<>();
+  private int commits;
+
+  BackgroundPusher(int batchSize, PushAction action) {
+    checkArgument(batchSize > 0, "batchSize must be greater than zero: %s", batchSize);
+    this.batchSize = batchSize;
+    this.action = checkNotNull(action);
+    this.executor = Executors.newSingleThreadExecutor(
+        new ThreadFactoryBuilder().setNameFormat("git-push-%d").setDaemon(true).build());
+  }
+
+  /**
+   * Adds a commit to the next push.
+   *
+   * @param head refspec for the commit, replaces the one of the previous commit
+   * @param tag refspec for a tag created for the commit, if any
+   * @throws RepoException if a previous push failed
+   * @throws ValidationException if a previous push failed
+   */
+  void add(Refspec head, @Nullable Refspec tag) throws RepoException, ValidationException {
+    if (inFlight != null && inFlight.isDone()) {
+      // Report failures as soon as possible
+      awaitInFlight();
+    }
+    this.head = checkNotNull(head);
+    if (tag != null) {
+      tags.add(tag);
+    }
+    commits++;
+    if (commits >= batchSize) {
+      submit();
+    }
+  }
+
+  /** Pushes the pending commits and waits for all the pushes to finish. */
+  void flush() throws RepoException, ValidationException {
+    try {
+      if (head != null) {
+        submit();
+      }
+      awaitInFlight();
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  private void submit() throws RepoException, ValidationException {
+    awaitInFlight();
+    ImmutableList<Refspec> refspecs =
+        ImmutableList.<Refspec>builder().add(checkNotNull(head)).addAll(tags).build();
+    logger.atInfo().log("Pushing %d commit(s) in the background: %s", commits, refspecs);
+    head = null;
+    tags.clear();
+    commits = 0;
+    inFlight = executor.submit(() -> {
+      action.push(refspecs);
+      return null;
+    });
+  }
+
+  private void awaitInFlight() throws RepoException, ValidationException {
+    if (inFlight == null) {
+      return;
+    }
+    Future<?> push = inFlight;
+    inFlight = null;
+    try {
+      push.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RepoException("Interrupted while waiting for a push", e);
+    } catch (ExecutionException e) {
+      // The pending commits are descendants of the one that failed, don't push them
+      head = null;
+      tags.clear();
+      commits = 0;
+      Throwables.throwIfInstanceOf(e.getCause(), RepoException.class);
+      Throwables.throwIfInstanceOf(e.getCause(), ValidationException.class);
+      Throwables.throwIfUnchecked(e.getCause());
+      throw new RepoException("Error pushing in the background", e.getCause());
+    }
+  }
+}
@@ -30,6 +30,7 @@ import com.google.cooperbara.exception.RepoException;
 import com.google.cooperbara.exception.ValidationException;
 import com.google.cooperbara.git.GitRepository.GitLogEntry;
 import com.google.cooperbara.git.GitRepository.LogCmd;
+import com.google.cooperbara.git.GitRepository.LogConsumer;
 import com.google.cooperbara.revision.Change;
 import com.google.cooperbara.util.Glob;
 import com.google.cooperbara.util.console.Console;
@@ -112,7 +113,10 @@ class ChangeReader {
     // Log command does not filter by roots here because of how git log works. Some commits (e.g.
     // fake merges) might not include the files in the log, and filtering here would return
     // incorrect results. We do filter later on the changes to match the actual glob.
-    return parseChanges(logCmd.includeFiles(true).includeMergeDiff(true).run(), labels);
+    ImmutableList.Builder<Change<GitRevision>> result = ImmutableList.builder();
+    // Changes are created while git log runs, so that the output is never fully in memory
+    logCmd.includeFiles(true).includeMergeDiff(true).stream(new ChangeParser(labels, result));
+    return result.build().reverse();
   }
 
   static final String BRANCH_COMMIT_LOG_HEADING = "-- Branch commit log --";
@@ -154,16 +158,24 @@ class ChangeReader {
             .collect(Collectors.toList()));
   }
 
-  private ImmutableList<Change<GitRevision>> parseChanges(
-      ImmutableList<GitLogEntry> logEntries,
-      ImmutableMap<String, ImmutableListMultimap<String, String>> labels)
-      throws RepoException {
-    ImmutableList.Builder<Change<GitRevision>> result = ImmutableList.builder();
-    GitRevision last = null;
-    for (GitLogEntry e : logEntries) {
+  /** Creates a {@link Change} for each commit in the log. */
+  private class ChangeParser implements LogConsumer {
+
+    private final ImmutableMap<String, ImmutableListMultimap<String, String>> labels;
+    private final ImmutableList.Builder<Change<GitRevision>> result;
+    @Nullable private GitRevision last;
+
+    private ChangeParser(ImmutableMap<String, ImmutableListMultimap<String, String>> labels,
+        ImmutableList.Builder<Change<GitRevision>> result) {
+      this.labels = labels;
+      this.result = result;
+    }
+
+    @Override
+    public boolean accept(GitLogEntry e) throws RepoException {
       // Keep the first commit if repeated (merge commits).
       if (last != null && last.equals(e.getCommit())) {
-        continue;
+        return true;
       }
       last = e.getCommit();
       ImmutableListMultimap<String, String> labelsToCopy =
@@ -178,8 +190,8 @@ class ChangeReader {
               e.getFiles(),
               e.getParents().size() > 1,
               e.getParents()));
+      return true;
     }
-    return result.build().reverse();
   }
 
   private Author filterAuthor(Author author) {
@@ -0,0 +1,538 @@
+/*
+ * Copyright (C) 2026 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a cooper of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cooperbara.git;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.attribute.PosixFilePermission.OWNER_EXECUTE;
+
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableList;
+import com.google.common.flogger.FluentLogger;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.common.io.BaseEncoding;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.cooperbara.exception.CannotResolveRevisionException;
+import com.google.cooperbara.exception.RepoException;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.PosixFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import javax.annotation.Nullable;
+
+/**
+ * Builds the tree of a destination commit directly in the object database, instead of staging the
+ * whole work tree with {@code git add --all}.
+ *
+ * <p>The new tree has the files of the transformed work tree, plus the files of HEAD that don't
+ * match {@code destination_files}. Files are hashed in parallel and only the ones that are not in
+ * HEAD are written as blobs. Only the directories that changed are written as trees, so the git
+ * work is proportional to the size of the change.
+ *
+ * <p>Files are stored as they are, without applying git attributes or filters. When the
+ * repository might use them, or when the tree cannot be represented (like a file of the work tree
+ * in a directory excluded from {@code destination_files}), {@link #build} returns null and the
+ * caller should stage the files with git.
+ */
+final class DirectTreeBuilder {
+
+  private static final FluentLogger logger = FluentLogger.forEnclosingClass();
+
+  private static final String REGULAR = "100644";
+  private static final String EXECUTABLE = "100755";
+  private static final String SYMLINK = "120000";
+  private static final String GITLINK = "160000";
+  private static final String TREE = "040000";
+  private static final int MAX_READ_AT_ONCE = 1024 * 1024;
+
+  private final GitRepository repo;
+  private final PathMatcher destinationFiles;
+  private final Path workTree;
+  private final int threads;
+
+  /**
+   * @param repo repository with HEAD pointing to the baseline
+   * @param destinationFiles matcher for the files that the migration owns, relative to the work
+   *     tree of {@code repo}
+   */
+  DirectTreeBuilder(GitRepository repo, PathMatcher destinationFiles, int threads) {
+    this.repo = checkNotNull(repo);
+    this.workTree = checkNotNull(repo.getWorkTree());
+    this.destinationFiles = checkNotNull(destinationFiles);
+    this.threads = threads;
+  }
+
+  /**
+   * Writes the tree for the files in {@code workdir} and returns its SHA-1, or null if it cannot
+   * be built directly.
+   */
+  @Nullable
+  String build(Path workdir) throws RepoException, IOException {
+    if (mightStageDifferently()) {
+      logger.atInfo().log("Repository config affects staging, not building the tree directly");
+      return null;
+    }
+    Map<String, Entry> headFiles = new HashMap<>();
+    Map<String, String> headTrees = new HashMap<>();
+    readHead(headFiles, headTrees);
+
+    // Files excluded from destination_files are kept as they are in HEAD
+    TreeMap<String, Entry> files = new TreeMap<>();
+    for (Map.Entry<String, Entry> file : headFiles.entrySet()) {
+      if (!destinationFiles.matches(workTree.resolve(file.getKey()))) {
+        files.put(file.getKey(), file.getValue());
+      }
+    }
+    List<WorkFile> toHash = listFiles(workdir, files);
+    if (toHash == null) {
+      return null;
+    }
+    List<Path> toWrite = new ArrayList<>();
+    List<String> toWriteSha1s = new ArrayList<>();
+    List<Entry> hashed = hash(workdir, toHash);
+    // Directories with added, modified or deleted files. The rest are the same as in HEAD.
+    Set<String> changedDirs = new HashSet<>();
+    changedDirs.add("");
+    for (int i = 0; i < toHash.size(); i++) {
+      WorkFile file = toHash.get(i);
+      Entry entry = hashed.get(i);
+      files.put(file.relative, entry);
+      if (!entry.equals(headFiles.get(file.relative))) {
+        toWrite.add(file.path);
+        toWriteSha1s.add(entry.sha1);
+        addParents(changedDirs, file.relative);
+      }
+    }
+    for (String path : headFiles.keySet()) {
+      if (!files.containsKey(path)) {
+        addParents(changedDirs, path);
+      }
+    }
+    if (hasAttributes(files) || hasConflicts(files) || !writeBlobs(toWrite, toWriteSha1s)) {
+      return null;
+    }
+    return writeTrees(files, headTrees, changedDirs);
+  }
+
+  /**
+   * Attributes, filters and some config change what {@code git add} stores, in those cases let git
+   * stage the files.
+   */
+  private boolean mightStageDifferently() throws RepoException {
+    return !isConfigFalseOrUnset("core.autocrlf")
+        || isConfigFalse("core.filemode")
+        || isConfigFalse("core.symlinks")
+        || Files.exists(repo.getGitDir().resolve("info/attributes"));
+  }
+
+  private boolean isConfigFalseOrUnset(String field) throws RepoException {
+    String value = repo.getConfigField(field, /*configFile=*/ null);
+    return value == null || value.equalsIgnoreCase("false");
+  }
+
+  private boolean isConfigFalse(String field) throws RepoException {
+    String value = repo.getConfigField(field, /*configFile=*/ null);
+    return value != null && value.equalsIgnoreCase("false");
+  }
+
+  private void readHead(Map<String, Entry> files, Map<String, String> trees)
+      throws RepoException {
+    GitRevision head;
+    try {
+      head = repo.resolveReference("HEAD");
+    } catch (CannotResolveRevisionException e) {
+      // Empty destination
+      return;
+    }
+    trees.put("", repo.simpleCommand("rev-parse", head.getSha1() + "^{tree}").getStdout().trim());
+    String output = repo.simpleCommand("ls-tree", "-r", "-t", "-z", head.getSha1()).getStdout();
+    for (String line : Splitter.on('\0').omitEmptyStrings().split(output)) {
+      // <mode> SP <type> SP <object> TAB <file>
+      int tab = line.indexOf('\t');
+      List<String> fields = Splitter.on(' ').splitToList(line.substring(0, tab));
+      String path = line.substring(tab + 1);
+      if (fields.get(0).equals(TREE)) {
+        trees.put(path, fields.get(2));
+      } else {
+        files.put(path, new Entry(fields.get(0), fields.get(2)));
+      }
+    }
+  }
+
+  /**
+   * Returns the regular files and symlinks of {@code workdir}, except the ones already in
+   * {@code files}, or null if there is a nested repository.
+   */
+  @Nullable
+  private List<WorkFile> listFiles(Path workdir, Map<String, Entry> files) throws IOException {
+    List<WorkFile> result = new ArrayList<>();
+    boolean[] nestedRepo = {false};
+    Files.walkFileTree(workdir, new SimpleFileVisitor<>() {
+      @Override
+      public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+        if (dir.getFileName().toString().equals(".git")) {
+          // git add would store it as a submodule
+          nestedRepo[0] = true;
+          return FileVisitResult.TERMINATE;
+        }
+        return FileVisitResult.CONTINUE;
+      }
+
+      @Override
+      public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+        String relative = relativePath(workdir, file);
+        if ((attrs.isRegularFile() || attrs.isSymbolicLink()) && !files.containsKey(relative)) {
+          result.add(new WorkFile(file, relative, attrs));
+        }
+        return FileVisitResult.CONTINUE;
+      }
+    });
+    return nestedRepo[0] ? null : result;
+  }
+
+  /** Hashes {@code files}, split in one batch per thread. */
+  private List<Entry> hash(Path workdir, List<WorkFile> files) throws IOException {
+    Entry[] result = new Entry[files.size()];
+    int batches = Math.max(1, Math.min(threads, files.size() / 64));
+    if (batches == 1) {
+      for (int i = 0; i < result.length; i++) {
+        result[i] = hashFile(files.get(i));
+      }
+      return Arrays.asList(result);
+    }
+    ExecutorService executor = Executors.newFixedThreadPool(batches,
+        new ThreadFactoryBuilder().setNameFormat("hash-blobs-%d").setDaemon(true).build());
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int batch = 0; batch < batches; batch++) {
+        int first = batch;
+        futures.add(executor.submit(() -> {
+          for (int i = first; i < result.length; i += batches) {
+            result[i] = hashFile(files.get(i));
+          }
+          return null;
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+      return Arrays.asList(result);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while hashing " + workdir);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof IOException) {
+        throw (IOException) e.getCause();
+      }
+      throw new IOException("Error hashing " + workdir, e.getCause());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /** Computes the git blob SHA-1 of {@code file}, as {@code git hash-object} would. */
+  private static Entry hashFile(WorkFile file) throws IOException {
+    if (file.symlink) {
+      return new Entry(SYMLINK,
+          blobSha1(Files.readSymbolicLink(file.path).toString().getBytes(UTF_8)));
+    }
+    String mode = file.executable ? EXECUTABLE : REGULAR;
+    if (file.size <= MAX_READ_AT_ONCE) {
+      return new Entry(mode, blobSha1(Files.readAllBytes(file.path)));
+    }
+    Hasher hasher = Hashing.sha1().newHasher()
+        .putBytes(("blob " + file.size + "\0").getBytes(UTF_8));
+    byte[] buffer = new byte[64 * 1024];
+    long read = 0;
+    try (InputStream in = Files.newInputStream(file.path)) {
+      int n;
+      while ((n = in.read(buffer)) != -1) {
+        hasher.putBytes(buffer, 0, n);
+        read += n;
+      }
+    }
+    if (read != file.size) {
+      throw new IOException(String.format("%s changed while hashing it", file.path));
+    }
+    return new Entry(mode, hasher.hash().toString());
+  }
+
+  private static String blobSha1(byte[] content) {
+    return Hashing.sha1().newHasher()
+        .putBytes(("blob " + content.length + "\0").getBytes(UTF_8))
+        .putBytes(content)
+        .hash().toString();
+  }
+
+  private static boolean hasAttributes(TreeMap<String, Entry> files) {
+    for (String path : files.keySet()) {
+      if (path.equals(".gitattributes") || path.endsWith("/.gitattributes")) {
+        logger.atInfo().log("Found '%s', not building the tree directly", path);
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /** A file and a directory with the same path, like a work tree file in an excluded directory. */
+  private static boolean hasConflicts(TreeMap<String, Entry> files) {
+    for (String path : files.keySet()) {
+      for (int i = path.indexOf('/'); i != -1; i = path.indexOf('/', i + 1)) {
+        if (files.containsKey(path.substring(0, i))) {
+          logger.atInfo().log("'%s' is both a file and a directory", path.substring(0, i));
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Writes the regular files and symlinks in {@code toWrite} as blobs. Returns false if git
+   * hashed them differently, for example because a file changed while writing it.
+   */
+  private boolean writeBlobs(List<Path> toWrite, List<String> expected)
+      throws RepoException, IOException {
+    List<Path> paths = new ArrayList<>();
+    List<Path> tempFiles = new ArrayList<>();
+    try {
+      for (Path file : toWrite) {
+        if (Files.isSymbolicLink(file)) {
+          // hash-object would follow the symlink, write its target instead
+          Path temp = Files.createTempFile("symlink", ".blob");
+          tempFiles.add(temp);
+          Files.write(temp, Files.readSymbolicLink(file).toString().getBytes(UTF_8));
+          paths.add(temp);
+        } else {
+          paths.add(file);
+        }
+      }
+      ImmutableList<String> written = repo.writeBlobs(paths);
+      if (!written.equals(expected)) {
+        logger.atWarning().log("Blobs written by git don't match the work tree");
+        return false;
+      }
+      return true;
+    } finally {
+      for (Path temp : tempFiles) {
+        Files.deleteIfExists(temp);
+      }
+    }
+  }
+
+  private static void addParents(Set<String> dirs, String path) {
+    for (String dir = parent(path); dirs.add(dir) && !dir.isEmpty(); dir = parent(dir)) {}
+  }
+
+  /**
+   * Writes the trees of {@code changedDirs} and returns the SHA-1 of the root tree. Tree SHA-1s
+   * are computed here, so that all the trees can be written by a single git process.
+   */
+  private String writeTrees(TreeMap<String, Entry> files, Map<String, String> headTrees,
+      Set<String> changedDirs) throws RepoException {
+    // Entries of each changed directory, by name
+    Map<String, Map<String, Entry>> dirs = new HashMap<>();
+    for (String dir : changedDirs) {
+      dirs.put(dir, new HashMap<>());
+    }
+    for (Map.Entry<String, Entry> file : files.entrySet()) {
+      // Add the file, or the unchanged directory that contains it, to the closest changed one
+      String child = file.getKey();
+      String dir = parent(child);
+      while (!changedDirs.contains(dir)) {
+        child = dir;
+        dir = parent(dir);
+      }
+      String name = dir.isEmpty() ? child : child.substring(dir.length() + 1);
+      if (child.equals(file.getKey())) {
+        dirs.get(dir).put(name, file.getValue());
+      } else {
+        dirs.get(dir).putIfAbsent(name, new Entry(TREE, checkNotNull(headTrees.get(child))));
+      }
+    }
+    // Children before their parents
+    List<String> ordered = new ArrayList<>(changedDirs);
+    ordered.sort(Comparator.comparingInt(DirectTreeBuilder::depth).reversed());
+
+    ByteArrayOutputStream batch = new ByteArrayOutputStream();
+    List<String> expected = new ArrayList<>();
+    String root = null;
+    for (String dir : ordered) {
+      Map<String, Entry> entries = dirs.get(dir);
+      if (entries.isEmpty() && !dir.isEmpty()) {
+        // All the files were deleted, git doesn't store empty directories
+        continue;
+      }
+      byte[] tree = treeObject(entries);
+      String sha1 = Hashing.sha1().newHasher()
+          .putBytes(("tree " + tree.length + "\0").getBytes(UTF_8))
+          .putBytes(tree)
+          .hash().toString();
+      if (!sha1.equals(headTrees.get(dir))) {
+        for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+          batch.writeBytes(String.format("%s %s %s\t%s\0", entry.getValue().mode,
+              entry.getValue().type(), entry.getValue().sha1, entry.getKey()).getBytes(UTF_8));
+        }
+        batch.write(0);
+        expected.add(sha1);
+      }
+      if (dir.isEmpty()) {
+        root = sha1;
+      } else {
+        dirs.get(parent(dir)).put(dir.substring(dir.lastIndexOf('/') + 1), new Entry(TREE, sha1));
+      }
+    }
+    ImmutableList<String> written = repo.writeTrees(batch.toByteArray(), expected.size());
+    if (!written.equals(expected)) {
+      throw new RepoException(
+          String.format("Trees written by git don't match: expected %s, got %s", expected,
+              written));
+    }
+    return checkNotNull(root);
+  }
+
+  private static String parent(String dir) {
+    int slash = dir.lastIndexOf('/');
+    return slash == -1 ? "" : dir.substring(0, slash);
+  }
+
+  private static int depth(String dir) {
+    if (dir.isEmpty()) {
+      return 0;
+    }
+    int depth = 1;
+    for (int i = dir.indexOf('/'); i != -1; i = dir.indexOf('/', i + 1)) {
+      depth++;
+    }
+    return depth;
+  }
+
+  /** The content of the tree object with {@code entries}, sorted as git does. */
+  private static byte[] treeObject(Map<String, Entry> entries) {
+    List<byte[]> names = new ArrayList<>();
+    Map<byte[], Entry> byName = new HashMap<>();
+    for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+      byte[] name = entry.getKey().getBytes(UTF_8);
+      names.add(name);
+      byName.put(name, entry.getValue());
+    }
+    // Directories are sorted as if their name ended with '/'
+    names.sort((a, b) -> compareNames(a, byName.get(a).mode.equals(TREE),
+        b, byName.get(b).mode.equals(TREE)));
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    for (byte[] name : names) {
+      Entry entry = byName.get(name);
+      // Tree objects store the mode without leading zeros
+      out.writeBytes(entry.mode.replaceFirst("^0", "").getBytes(UTF_8));
+      out.write(' ');
+      out.writeBytes(name);
+      out.write(0);
+      out.writeBytes(BaseEncoding.base16().lowerCase().decode(entry.sha1));
+    }
+    return out.toByteArray();
+  }
+
+  private static int compareNames(byte[] a, boolean aIsTree, byte[] b, boolean bIsTree) {
+    int length = Math.min(a.length, b.length);
+    int cmp = Arrays.compareUnsigned(a, 0, length, b, 0, length);
+    if (cmp != 0) {
+      return cmp;
+    }
+    int aNext = a.length > length ? a[length] & 0xff : aIsTree ? '/' : 0;
+    int bNext = b.length > length ? b[length] & 0xff : bIsTree ? '/' : 0;
+    return Integer.compare(aNext, bNext);
+  }
+
+  private static String relativePath(Path root, Path file) {
+    return root.relativize(file).toString().replace(root.getFileSystem().getSeparator(), "/");
+  }
+
+  /** A regular file or symlink of the work tree. */
+  private static final class WorkFile {
+
+    private final Path path;
+    private final String relative;
+    private final boolean symlink;
+    private final boolean executable;
+    private final long size;
+
+    private WorkFile(Path path, String relative, BasicFileAttributes attrs) {
+      this.path = path;
+      this.relative = relative;
+      this.symlink = attrs.isSymbolicLink();
+      // Same as git, only the owner bit counts
+      this.executable = attrs instanceof PosixFileAttributes
+          ? ((PosixFileAttributes) attrs).permissions().contains(OWNER_EXECUTE)
+          : Files.isExecutable(path);
+      this.size = attrs.size();
+    }
+  }
+
+  /** Mode and SHA-1 of a tree entry. */
+  private static final class Entry {
+
+    private final String mode;
+    private final String sha1;
+
+    private Entry(String mode, String sha1) {
+      this.mode = mode;
+      this.sha1 = sha1;
+    }
+
+    private String type() {
+      switch (mode) {
+        case TREE:
+          return "tree";
+        case GITLINK:
+          return "commit";
+        default:
+          return "blob";
+      }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return o instanceof Entry && ((Entry) o).mode.equals(mode) && ((Entry) o).sha1.equals(sha1);
+    }
+
+    @Override
+    public int hashCode() {
+      return mode.hashCode() * 31 + sha1.hashCode();
+    }
+  }
+}
@@ -251,6 +251,9 @@ public class GitDestination implements Destination<GitRevision> {
     private final boolean gitTagOverwrite;
     @Nullable private final Checker checker;
     private final GitDestinationOptions destinationOptions;
+    // Greater than zero if pushes happen in the background, see deferPublishing
+    private int pushBatchSize = 0;
+    @Nullable private BackgroundPusher pusher;
 
     /** Create a new git.destination writer */
     WriterImpl(
@@ -415,6 +418,29 @@ public class GitDestination implements Destination<GitRevision> {
       return true;
     }
 
+    @Override
+    public boolean deferPublishing(int batchSize) throws ValidationException {
+      checkCondition(batchSize > 0, "Push batch size must be greater than zero: %s", batchSize);
+      if (skipPush || !writeHook.canDeferPush()) {
+        return false;
+      }
+      pushBatchSize = batchSize;
+      return true;
+    }
+
+    @Override
+    public void flush(Console console) throws ValidationException, RepoException {
+      if (pusher == null) {
+        return;
+      }
+      console.progressFmt("Git Destination: Waiting for the pushes to %s", repoUrl);
+      try (ProfilerTask ignored = generalOptions.profiler().start("wait_for_push")) {
+        pusher.flush();
+      } finally {
+        pusher = null;
+      }
+    }
+
     /**
      * A write hook allows us to customize the behavior or git.destination writer for other
      * implementations.
@@ -444,6 +470,14 @@ public class GitDestination implements Destination<GitRevision> {
           GitRepository primaryBranch, String pushToRefsFor, TransformResult transformResult)
           throws ValidationException;
 
+      /**
+       * Whether the push can happen after {@link #afterPush} is called, because neither
+       * {@code afterPush} nor the following writes depend on its result.
+       */
+      default boolean canDeferPush() {
+        return false;
+      }
+
       /**
        * Process the server response from the push command and compute the effects that happened
        */
@@ -465,6 +499,11 @@ public class GitDestination implements Destination<GitRevision> {
      */
     public static class DefaultWriteHook implements WriteHook {
 
+      @Override
+      public boolean canDeferPush() {
+        return true;
+      }
+
       @Override
       public MessageInfo generateMessageInfo(TransformResult transformResult) {
         Revision rev = transformResult.getCurrentRevision();
@@ -527,7 +566,8 @@ public class GitDestination implements Destination<GitRevision> {
         }
         state.firstWrite = false;
       } else {
-        if (!skipPush) {
+        // With pushes in the background the remote is behind our local branch anyway
+        if (!skipPush && pushBatchSize == 0) {
           // Should be a no-op, but an iterative migration could take several minutes between
           // migrations so lets fetch the latest first.
           fetchFromRemote(console, scratchClone, repoUrl, remoteFetch);
@@ -538,23 +578,37 @@ public class GitDestination implements Destination<GitRevision> {
         }
       }
       PathMatcher pathMatcher = destinationFiles.relativeTo(scratchClone.getWorkTree());
-      // Get the submodules before we stage them for deletion with
-      // repo.simpleCommand(add --all)
-      AddExcludedFilesToIndex excludedAdder =
-          new AddExcludedFilesToIndex(scratchClone, pathMatcher);
-      excludedAdder.prepare(transformResult.getPath());
-      excludedAdder.findSubmodules(console);
-
       GitRepository alternate = scratchClone.withWorkTree(transformResult.getPath());
 
-      console.progress("Git Destination: Adding all files");
-      try (ProfilerTask ignored = generalOptions.profiler().start("add_files")) {
-        alternate.add().force().all().run();
+      String tree = null;
+      if (destinationOptions.directTree) {
+        console.progress("Git Destination: Building the tree");
+        try (ProfilerTask ignored = generalOptions.profiler().start("build_tree")) {
+          tree = new DirectTreeBuilder(
+                  scratchClone, pathMatcher, Runtime.getRuntime().availableProcessors())
+              .build(transformResult.getPath());
+        }
       }
+      if (tree != null) {
+        // Stage the tree, so that the commit is created as usual
+        alternate.simpleCommand("read-tree", tree);
+      } else {
+        // Get the submodules before we stage them for deletion with
+        // repo.simpleCommand(add --all)
+        AddExcludedFilesToIndex excludedAdder =
+            new AddExcludedFilesToIndex(scratchClone, pathMatcher);
+        excludedAdder.prepare(transformResult.getPath());
+        excludedAdder.findSubmodules(console);
+
+        console.progress("Git Destination: Adding all files");
+        try (ProfilerTask ignored = generalOptions.profiler().start("add_files")) {
+          alternate.add().force().all().run();
+        }
 
-      console.progress("Git Destination: Excluding files");
-      try (ProfilerTask ignored = generalOptions.profiler().start("exclude_files")) {
-        excludedAdder.add();
+        console.progress("Git Destination: Excluding files");
+        try (ProfilerTask ignored = generalOptions.profiler().start("exclude_files")) {
+          excludedAdder.add();
+        }
       }
 
       console.progress("Git Destination: Creating a local commit");
@@ -675,6 +729,28 @@ public class GitDestination implements Destination<GitRevision> {
           || !Objects.equals(remoteFetch, remotePush), "non fast-forward push is only"
           + " allowed when fetch != push");
 
+      if (pushBatchSize > 0) {
+        // Push the commit and not HEAD, the next write can move HEAD before the push happens
+        Refspec headRefspec = scratchClone.createRefSpec(
+            (nonFastForwardPush ? "+" : "") + head.getSha1() + ":" + push);
+        Refspec tagRefspec = tagName != null
+            ? scratchClone.createRefSpec((gitTagOverwrite ? "+" : "") + tagName)
+            : null;
+        if (pusher == null) {
+          pusher = new BackgroundPusher(pushBatchSize,
+              refspecs -> generalOptions.repoTask(
+                  "push",
+                  () -> scratchClone
+                      .push()
+                      .withRefspecs(repoUrl, refspecs)
+                      .withPushOptions(ImmutableList.cooperOf(gitOptions.gitPushOptions))
+                      .run()));
+        }
+        console.progressFmt("Git Destination: Queued push to %s %s", repoUrl, push);
+        pusher.add(headRefspec, tagRefspec);
+        return writeHook.afterPush(/*serverResponse=*/ "", messageInfo, head, originChanges);
+      }
+
       String serverResponse =
           generalOptions.repoTask(
               "push",
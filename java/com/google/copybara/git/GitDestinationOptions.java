@@ -111,6 +111,13 @@ public final class GitDestinationOptions implements Option {
       description = "If an integration error occurs, ignore it and continue without the integrate")
   boolean ignoreIntegrationErrors = false;
 
+  @Parameter(names = "--git-destination-direct-tree",
+      description = "Build the tree of the destination commit directly from the baseline tree and"
+          + " the changed files, instead of staging the whole checkout with 'git add'. Falls back"
+          + " to 'git add' when the repository uses git attributes or config that change what is"
+          + " staged.")
+  boolean directTree = false;
+
   @Parameter(names = "--nogit-destination-rebase",
       description = "Don't rebase the change automatically for workflows CHANGE_REQUEST mode")
   public boolean noRebase = false;
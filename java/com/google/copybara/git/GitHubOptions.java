@@ -22,7 +22,11 @@ import com.google.api.client.http.HttpTransport;
 import com.google.api.client.http.javanet.NetHttpTransport;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+import com.google.common.base.Ticker;
 import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.cooperbara.GeneralOptions;
 import com.google.cooperbara.LazyResourceLoader;
 import com.google.cooperbara.Option;
@@ -30,19 +34,28 @@ import com.google.cooperbara.checks.ApiChecker;
 import com.google.cooperbara.checks.Checker;
 import com.google.cooperbara.exception.RepoException;
 import com.google.cooperbara.exception.ValidationException;
+import com.google.cooperbara.git.github.api.CredentialCache;
 import com.google.cooperbara.git.github.api.GitHubApi;
 import com.google.cooperbara.git.github.api.GitHubApiTransport;
 import com.google.cooperbara.git.github.api.GitHubApiTransportImpl;
 import com.google.cooperbara.git.github.api.GitHubApiTransportWithChecker;
 import com.google.cooperbara.git.github.api.GitHubGraphQLApi;
+import com.google.cooperbara.git.github.api.GitHubRateLimiter;
+import com.google.cooperbara.git.github.api.HttpResponseCache;
 import com.google.cooperbara.git.github.util.GitHubHost;
 import com.google.cooperbara.jcommander.DurationConverter;
 import com.google.cooperbara.jcommander.GreaterThanZeroListValidator;
+import com.google.cooperbara.jcommander.GreaterThanZeroValidator;
 import com.google.cooperbara.jcommander.SemicolonSeparatedListSplitter;
 import com.google.cooperbara.util.console.Console;
 import java.io.IOException;
 import java.time.Duration;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import javax.annotation.Nullable;
 
 /**
@@ -86,6 +99,58 @@ public class GitHubOptions implements Option {
       arity = 1)
   public boolean gitHubApiBearerAuth = false;
 
+  @Parameter(
+      names = "--github-api-credentials-ttl",
+      description = "How long to reuse the credentials returned by the git credential helper for"
+          + " GitHub API requests. Use 0s to ask the helper on every request.",
+      converter = DurationConverter.class)
+  public Duration gitHubApiCredentialsTtl = Duration.ofMinutes(5);
+
+  @Parameter(
+      names = "--github-api-response-cache",
+      description = "Cache GitHub API GET responses on disk and revalidate them with conditional"
+          + " requests, which don't count against the rate limit.",
+      arity = 1)
+  public boolean gitHubApiResponseCache = true;
+
+  @Parameter(
+      names = "--github-api-response-cache-max-size-mb",
+      description = "Size in MB over which the least recently used GitHub API responses are"
+          + " deleted from the cache.",
+      validateWith = GreaterThanZeroValidator.class)
+  public int gitHubApiResponseCacheMaxSizeMb = 256;
+
+  @Parameter(
+      names = "--github-api-response-cache-max-age",
+      description = "Cached GitHub API responses not used for this long are deleted, e.g. 7d.",
+      converter = DurationConverter.class)
+  public Duration gitHubApiResponseCacheMaxAge = Duration.ofDays(7);
+
+  @Parameter(
+      names = "--github-api-rate-limit-max-wait",
+      description = "Maximum time to wait for the GitHub API rate limit to reset before retrying"
+          + " a request. Requests that would need to wait longer fail.",
+      converter = DurationConverter.class)
+  public Duration gitHubApiRateLimitMaxWait = Duration.ofMinutes(1);
+
+  @Parameter(
+      names = "--github-api-page-concurrency",
+      description = "Number of pages of GitHub API list calls to request concurrently.",
+      validateWith = GreaterThanZeroValidator.class)
+  public int gitHubApiPageConcurrency = 4;
+
+  // Keyed by credentials repo, store path and credential file handler
+  private final Map<List<Object>, CredentialCache> credentialCaches = new ConcurrentHashMap<>();
+
+  @Nullable private HttpResponseCache responseCache;
+
+  // Shared by all the API instances, since the rate limit is per user
+  private final Supplier<GitHubRateLimiter> rateLimiter =
+      Suppliers.memoize(() -> new GitHubRateLimiter(gitHubApiRateLimitMaxWait));
+
+  private final Supplier<ExecutorService> pageExecutor =
+      Suppliers.memoize(() -> Executors.newFixedThreadPool(gitHubApiPageConcurrency,
+          new ThreadFactoryBuilder().setNameFormat("github-api-page-%d").setDaemon(true).build()));
 
   public GitHubOptions(GeneralOptions generalOptions, GitOptions gitOptions) {
     this.generalOptions = Preconditions.checkNotNull(generalOptions);
@@ -144,11 +209,11 @@ public class GitHubOptions implements Option {
     if (storePath == null) {
       storePath = "~/.git-credentials";
     }
-    GitHubApiTransport transport = newTransport(repo, storePath, console);
+    GitHubApiTransport transport = newTransport(repo, storePath, credentials, console);
     if (checker != null) {
       transport = new GitHubApiTransportWithChecker(transport, new ApiChecker(checker, console));
     }
-    return new GitHubApi(transport, generalOptions.profiler());
+    return new GitHubApi(transport, generalOptions.profiler(), pageExecutor.get());
   }
 
   /**
@@ -180,7 +245,7 @@ public class GitHubOptions implements Option {
     if (storePath == null) {
       storePath = "~/.git-credentials";
     }
-    GitHubApiTransport transport = newTransport(repo, storePath, console);
+    GitHubApiTransport transport = newTransport(repo, storePath, credentials, console);
     if (checker != null) {
       transport = new GitHubApiTransportWithChecker(transport, new ApiChecker(checker, console));
     }
@@ -211,9 +276,32 @@ public class GitHubOptions implements Option {
   }
 
   private GitHubApiTransport newTransport(
-      GitRepository repo, String storePath, Console console) {
-    return new GitHubApiTransportImpl(
-        repo, newHttpTransport(), storePath, gitHubApiBearerAuth, console);
+      GitRepository repo, String storePath, @Nullable CredentialFileHandler credentials,
+      Console console) throws RepoException {
+    CredentialCache credentialCache = credentialCaches.computeIfAbsent(
+        Arrays.asList(repo.getGitDir(), storePath, credentials),
+        unused -> new CredentialCache(gitHubApiCredentialsTtl, Ticker.systemTicker()));
+    return new GitHubApiTransportImpl(repo, newHttpTransport(), storePath, gitHubApiBearerAuth,
+        console, credentialCache, getResponseCache(), rateLimiter.get());
+  }
+
+  /** Returns the cache for GitHub API responses, or null if caching is disabled. */
+  @Nullable
+  private synchronized HttpResponseCache getResponseCache() throws RepoException {
+    if (!gitHubApiResponseCache) {
+      return null;
+    }
+    if (responseCache == null) {
+      try {
+        responseCache = new HttpResponseCache(
+            generalOptions.getDirFactory().getCacheDir("github_api_responses"),
+            gitHubApiResponseCacheMaxSizeMb * 1024L * 1024L,
+            gitHubApiResponseCacheMaxAge);
+      } catch (IOException e) {
+        throw new RepoException("Cannot create the GitHub API response cache", e);
+      }
+    }
+    return responseCache;
   }
 
   protected HttpTransport newHttpTransport() {
@@ -122,6 +122,12 @@ public class GitHubWriteHook extends DefaultWriteHook {
     }
   }
 
+  @Override
+  public boolean canDeferPush() {
+    // afterPush deletes the PR branch, that needs the commit to be pushed
+    return false;
+  }
+
   @Override
   public ImmutableList<DestinationEffect> afterPush(String serverResponse, MessageInfo messageInfo,
       GitRevision pushedRevision, List<? extends Change<?>> originChanges)
@@ -0,0 +1,148 @@
+/*
+ * Copyright (C) 2026 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a cooper of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cooperbara.git;
+
+import com.google.common.base.Preconditions;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import javax.annotation.Nullable;
+
+/**
+ * An {@link OutputStream} that splits the output of a command in entries delimited by a separator
+ * and hands them to a reader thread as they are written.
+ *
+ * <p>Entries are passed through a small bounded queue: if the reader doesn't keep up, writes block
+ * and so does the command writing to its stdout, instead of its output piling up in memory. Only
+ * one entry and the entries in the queue are kept in memory at any time.
+ */
+final class GitLogStream extends OutputStream {
+
+  private static final byte[] END = new byte[0];
+
+  private final byte[] separator;
+  private final BlockingQueue<byte[]> entries;
+  private byte[] pending = new byte[8192];
+  private int pendingLength;
+  // Position of pending from where to look for the separator
+  private int searchFrom;
+  private volatile boolean cancelled;
+
+  /**
+   * @param separator bytes between entries, not included in them
+   * @param capacity max number of entries waiting for the reader
+   */
+  GitLogStream(byte[] separator, int capacity) {
+    Preconditions.checkArgument(separator.length > 0);
+    this.separator = separator.clone();
+    this.entries = new ArrayBlockingQueue<>(capacity);
+  }
+
+  @Override
+  public void write(int b) throws IOException {
+    write(new byte[] {(byte) b}, 0, 1);
+  }
+
+  @Override
+  public void write(byte[] b, int off, int len) throws IOException {
+    checkNotCancelled();
+    if (pendingLength + len > pending.length) {
+      pending = Arrays.copyOf(pending, Math.max(pending.length * 2, pendingLength + len));
+    }
+    System.arraycopy(b, off, pending, pendingLength, len);
+    pendingLength += len;
+
+    int entryStart = 0;
+    int found;
+    while ((found = indexOfSeparator(Math.max(searchFrom, entryStart))) != -1) {
+      put(Arrays.copyOfRange(pending, entryStart, found));
+      entryStart = found + separator.length;
+    }
+    // The separator might be split between this write and the next one
+    searchFrom = Math.max(entryStart, pendingLength - separator.length + 1) - entryStart;
+    if (entryStart > 0) {
+      System.arraycopy(pending, entryStart, pending, 0, pendingLength - entryStart);
+      pendingLength -= entryStart;
+    }
+  }
+
+  /**
+   * Signals that the command finished. If {@code success}, the remaining output is handed to the
+   * reader as the last entry.
+   */
+  void finish(boolean success) throws InterruptedException {
+    if (cancelled) {
+      return;
+    }
+    if (success && pendingLength > 0) {
+      entries.put(Arrays.copyOf(pending, pendingLength));
+    }
+    pending = null;
+    entries.put(END);
+  }
+
+  /**
+   * Returns the next entry, blocking until it is available, or null if there are no more
+   * entries.
+   */
+  @Nullable
+  byte[] next() throws InterruptedException {
+    byte[] entry = entries.take();
+    return entry == END ? null : entry;
+  }
+
+  /**
+   * Stops reading the output. Following writes fail, which closes the command stdout.
+   */
+  void cancel() {
+    cancelled = true;
+    // Unblock the writer if it is waiting for space in the queue
+    entries.clear();
+  }
+
+  private int indexOfSeparator(int from) {
+    outer:
+    for (int i = from; i <= pendingLength - separator.length; i++) {
+      for (int j = 0; j < separator.length; j++) {
+        if (pending[i + j] != separator[j]) {
+          continue outer;
+        }
+      }
+      return i;
+    }
+    return -1;
+  }
+
+  private void put(byte[] entry) throws IOException {
+    try {
+      entries.put(entry);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for the reader");
+    }
+    checkNotCancelled();
+  }
+
+  private void checkNotCancelled() throws IOException {
+    if (cancelled) {
+      throw new IOException("Reader is not interested in more output");
+    }
+  }
+}
@@ -0,0 +1,365 @@
+/*
+ * Copyright (C) 2026 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a cooper of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cooperbara.git;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.MoreObjects;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.flogger.FluentLogger;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.cooperbara.exception.RepoException;
+import com.google.cooperbara.git.GitRepository.GitObjectType;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+
+/**
+ * Reads objects of a repository using long-lived {@code git cat-file --batch} and
+ * {@code git cat-file --batch-check} processes, instead of starting a git process per object.
+ *
+ * <p>Objects can be anything that git can resolve to an object name, like a SHA-1, a reference or
+ * {@code <revision>:<path>}. There is one reader per git directory, shared by all the
+ * {@link GitRepository} instances that use it. Processes are pooled, so that the reader can be used
+ * from several threads. Processes that are idle for {@link #IDLE_TIMEOUT} are closed, so that a
+ * long-lived JVM doesn't accumulate them, and readers without processes are forgotten.
+ *
+ * <p>A running process might not see objects and packs added after it started. Callers should
+ * treat a missing object as a hint and confirm it with a regular git command if it matters.
+ */
+final class GitObjectReader {
+
+  private static final FluentLogger logger = FluentLogger.forEnclosingClass();
+  // Processes kept alive per mode when they are not being used
+  private static final int MAX_IDLE = 4;
+  static final Duration IDLE_TIMEOUT = Duration.ofSeconds(30);
+
+  private static final ConcurrentMap<ImmutableList<Object>, GitObjectReader> READERS =
+      new ConcurrentHashMap<>();
+  private static final ScheduledExecutorService REAPER =
+      Executors.newSingleThreadScheduledExecutor(
+          new ThreadFactoryBuilder().setNameFormat("git-cat-file-reaper-%d").setDaemon(true)
+              .build());
+
+  static {
+    REAPER.scheduleWithFixedDelay(
+        () -> closeIdle(IDLE_TIMEOUT), IDLE_TIMEOUT.toMillis(), IDLE_TIMEOUT.toMillis() / 2,
+        TimeUnit.MILLISECONDS);
+  }
+
+  private enum Mode {
+    BATCH("--batch"),
+    BATCH_CHECK("--batch-check");
+
+    private final String flag;
+
+    Mode(String flag) {
+      this.flag = flag;
+    }
+  }
+
+  private final ImmutableList<String> command;
+  private final ImmutableMap<String, String> environment;
+  private final Path cwd;
+  private final Pool pool = new Pool();
+
+  private GitObjectReader(ImmutableList<String> command, ImmutableMap<String, String> environment,
+      Path cwd) {
+    this.command = checkNotNull(command);
+    this.environment = checkNotNull(environment);
+    this.cwd = checkNotNull(cwd);
+  }
+
+  /**
+   * Returns the reader for a git directory, creating it if needed. Readers might be discarded
+   * once they are idle, so callers should not keep the reader around.
+   *
+   * @param gitBinaryAndParams the git binary and the params that go before the subcommand, like
+   *     {@code --git-dir}
+   */
+  static GitObjectReader shared(List<String> gitBinaryAndParams,
+      ImmutableMap<String, String> environment, Path cwd) {
+    ImmutableList<String> command = ImmutableList.cooperOf(gitBinaryAndParams);
+    return READERS.computeIfAbsent(
+        ImmutableList.of(command, environment, cwd),
+        k -> new GitObjectReader(command, environment, cwd));
+  }
+
+  /**
+   * Closes the processes idle for more than {@code maxIdle} and forgets the readers left without
+   * processes.
+   */
+  @VisibleForTesting
+  static void closeIdle(Duration maxIdle) {
+    long limit = System.nanoTime() - maxIdle.toNanos();
+    READERS.entrySet().removeIf(e -> e.getValue().pool.closeIdle(limit));
+  }
+
+  /** Returns the type and size of {@code object}, or null if it doesn't exist. */
+  @Nullable
+  ObjectInfo info(String object) throws RepoException {
+    return run(Mode.BATCH_CHECK, object, /*out=*/ null);
+  }
+
+  /**
+   * Writes the raw content of {@code object} to {@code out}. Returns the type and size of the
+   * object, or null, without writing anything, if it doesn't exist.
+   */
+  @Nullable
+  ObjectInfo read(String object, OutputStream out) throws RepoException {
+    return run(Mode.BATCH, object, checkNotNull(out));
+  }
+
+  @Nullable
+  private ObjectInfo run(Mode mode, String object, @Nullable OutputStream out)
+      throws RepoException {
+    // The batch protocol is line based
+    checkArgument(!object.isEmpty() && object.indexOf('\n') == -1 && object.indexOf('\r') == -1,
+        "Invalid object name: '%s'", object);
+    BatchProcess process = pool.take(mode);
+    boolean reusable = false;
+    try {
+      if (process == null) {
+        process = start(mode);
+      }
+      ObjectInfo info = process.request(object, out);
+      reusable = true;
+      return info;
+    } catch (IOException e) {
+      throw new RepoException(
+          String.format("Error reading '%s' with 'git cat-file %s'", object, mode.flag), e);
+    } finally {
+      if (process != null && !reusable) {
+        // The state of the stream is unknown, don't reuse it
+        process.close();
+        process = null;
+      }
+      pool.release(mode, process);
+    }
+  }
+
+  private BatchProcess start(Mode mode) throws IOException {
+    List<String> cmd = new ArrayList<>(command);
+    cmd.add("cat-file");
+    cmd.add(mode.flag);
+    ProcessBuilder builder = new ProcessBuilder(cmd)
+        .directory(cwd.toFile())
+        .redirectError(ProcessBuilder.Redirect.DISCARD);
+    builder.environment().clear();
+    builder.environment().putAll(environment);
+    logger.atInfo().log("Starting %s", cmd);
+    return new BatchProcess(builder.start());
+  }
+
+  /** Type and size of a git object. */
+  static final class ObjectInfo {
+
+    private final String sha1;
+    private final GitObjectType type;
+    private final long size;
+
+    private ObjectInfo(String sha1, GitObjectType type, long size) {
+      this.sha1 = sha1;
+      this.type = type;
+      this.size = size;
+    }
+
+    String getSha1() {
+      return sha1;
+    }
+
+    GitObjectType getType() {
+      return type;
+    }
+
+    long getSize() {
+      return size;
+    }
+
+    @Override
+    public String toString() {
+      return MoreObjects.toStringHelper(this)
+          .add("sha1", sha1)
+          .add("type", type)
+          .add("size", size)
+          .toString();
+    }
+  }
+
+  /** Idle processes of a reader. */
+  private static final class Pool {
+
+    private final Deque<BatchProcess> batch = new ArrayDeque<>();
+    private final Deque<BatchProcess> batchCheck = new ArrayDeque<>();
+    private int inUse;
+    private boolean closed;
+
+    @Nullable
+    synchronized BatchProcess take(Mode mode) {
+      inUse++;
+      return idle(mode).pollFirst();
+    }
+
+    void release(Mode mode, @Nullable BatchProcess process) {
+      synchronized (this) {
+        inUse--;
+        if (process == null) {
+          return;
+        }
+        Deque<BatchProcess> idle = idle(mode);
+        if (!closed && idle.size() < MAX_IDLE) {
+          process.lastUsed = System.nanoTime();
+          idle.addFirst(process);
+          return;
+        }
+      }
+      process.close();
+    }
+
+    private Deque<BatchProcess> idle(Mode mode) {
+      return mode == Mode.BATCH ? batch : batchCheck;
+    }
+
+    /**
+     * Closes the processes not used since {@code limit}. Returns true, and stops pooling, if the
+     * pool is left without processes.
+     */
+    boolean closeIdle(long limit) {
+      List<BatchProcess> toClose = new ArrayList<>();
+      boolean empty;
+      synchronized (this) {
+        for (Deque<BatchProcess> idle : ImmutableList.of(batch, batchCheck)) {
+          // The most recently used processes are at the front
+          while (!idle.isEmpty() && idle.peekLast().lastUsed - limit < 0) {
+            toClose.add(idle.pollLast());
+          }
+        }
+        empty = inUse == 0 && batch.isEmpty() && batchCheck.isEmpty();
+        closed = empty;
+      }
+      for (BatchProcess process : toClose) {
+        process.close();
+      }
+      return empty;
+    }
+  }
+
+  /** A running {@code git cat-file} process, used by one thread at a time. */
+  private static final class BatchProcess {
+
+    private final Process process;
+    private final OutputStream stdin;
+    private final InputStream stdout;
+    private final byte[] buffer = new byte[8192];
+    private long lastUsed;
+
+    private BatchProcess(Process process) {
+      this.process = process;
+      this.stdin = new BufferedOutputStream(process.getOutputStream());
+      this.stdout = new BufferedInputStream(process.getInputStream(), 64 * 1024);
+    }
+
+    /**
+     * Requests {@code object} and writes its content to {@code out} if not null. The process must
+     * have been started with --batch if {@code out} is not null and with --batch-check otherwise.
+     */
+    @Nullable
+    ObjectInfo request(String object, @Nullable OutputStream out) throws IOException {
+      stdin.write(object.getBytes(UTF_8));
+      stdin.write('\n');
+      stdin.flush();
+
+      // <sha1> SP <type> SP <size> LF, or <object> SP missing LF
+      String header = readLine();
+      if (header.endsWith(" missing") || header.endsWith(" ambiguous")) {
+        return null;
+      }
+      int typeEnd = header.lastIndexOf(' ');
+      int shaEnd = header.lastIndexOf(' ', typeEnd - 1);
+      if (shaEnd <= 0) {
+        throw new IOException("Unexpected 'git cat-file' output: " + header);
+      }
+      ObjectInfo info;
+      try {
+        info = new ObjectInfo(
+            header.substring(0, shaEnd),
+            GitObjectType.valueOf(header.substring(shaEnd + 1, typeEnd).toUpperCase(Locale.ROOT)),
+            Long.parseLong(header.substring(typeEnd + 1)));
+      } catch (IllegalArgumentException e) {
+        throw new IOException("Unexpected 'git cat-file' output: " + header, e);
+      }
+      if (out == null) {
+        return info;
+      }
+      long remaining = info.size;
+      while (remaining > 0) {
+        int read = stdout.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+        if (read == -1) {
+          throw new IOException("Unexpected end of 'git cat-file' output reading " + object);
+        }
+        out.write(buffer, 0, read);
+        remaining -= read;
+      }
+      if (stdout.read() != '\n') {
+        throw new IOException("Unexpected 'git cat-file' output after " + object);
+      }
+      return info;
+    }
+
+    private String readLine() throws IOException {
+      ByteArrayOutputStream line = new ByteArrayOutputStream(80);
+      int b;
+      while ((b = stdout.read()) != '\n') {
+        if (b == -1) {
+          throw new IOException("'git cat-file' exited unexpectedly");
+        }
+        line.write(b);
+      }
+      return line.toString(UTF_8.name());
+    }
+
+    void close() {
+      try {
+        // cat-file exits once its stdin is closed
+        stdin.close();
+      } catch (IOException e) {
+        logger.atInfo().withCause(e).log("Error closing 'git cat-file'");
+      }
+      process.destroy();
+    }
+  }
+}
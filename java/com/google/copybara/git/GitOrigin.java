@@ -42,7 +42,6 @@ import com.google.cooperbara.authoring.Authoring;
 import com.google.cooperbara.exception.EmptyChangeException;
 import com.google.cooperbara.exception.RepoException;
 import com.google.cooperbara.exception.ValidationException;
-import com.google.cooperbara.git.GitRepository.GitLogEntry;
 import com.google.cooperbara.git.GitRepository.Submodule;
 import com.google.cooperbara.git.GitRepository.TreeElement;
 import com.google.cooperbara.git.version.RefspecVersionList;
@@ -601,10 +600,7 @@ public class GitOrigin implements Origin<GitRevision> {
     public ImmutableList<Change<GitRevision>> getVersions() throws RepoException {
       ImmutableList.Builder<Change<GitRevision>> result = ImmutableList.builder();
 
-      ImmutableList<GitLogEntry> output =
-          getRepository().log("*").includeTags(true).noWalk(true).run();
-
-      for (GitLogEntry entry : output) {
+      getRepository().log("*").includeTags(true).noWalk(true).stream(entry -> {
         if (entry.getTag() != null) {
           result.add(
               new Change<>(
@@ -614,7 +610,8 @@ public class GitOrigin implements Origin<GitRevision> {
                   entry.getCommitDate(),
                   ImmutableListMultimap.of()));
         }
-      }
+        return true;
+      });
 
       return result.build();
     }
@@ -22,12 +22,14 @@ import static com.google.cooperbara.util.CommandRunner.DEFAULT_TIMEOUT;
 import static com.google.cooperbara.util.CommandRunner.NO_INPUT;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.CharMatcher;
 import com.google.common.base.Joiner;
 import com.google.common.base.MoreObjects;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Splitter;
 import com.google.common.base.StandardSystemProperty;
 import com.google.common.base.Strings;
+import com.google.common.base.Supplier;
 import com.google.common.base.Throwables;
 import com.google.common.base.Verify;
 import com.google.common.collect.ImmutableCollection;
@@ -50,6 +52,7 @@ import com.google.cooperbara.exception.EmptyChangeException;
 import com.google.cooperbara.exception.RepoException;
 import com.google.cooperbara.exception.ValidationException;
 import com.google.cooperbara.git.GitCredential.UserPassword;
+import com.google.cooperbara.git.GitObjectReader.ObjectInfo;
 import com.google.cooperbara.util.BadExitStatusWithOutputException;
 import com.google.cooperbara.util.CommandOutput;
 import com.google.cooperbara.util.CommandOutputWithStatus;
@@ -63,7 +66,9 @@ import com.google.cooperbara.shell.Command;
 import com.google.cooperbara.shell.CommandException;
 import com.google.re2j.Matcher;
 import com.google.re2j.Pattern;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.FileSystems;
 import java.nio.file.Files;
@@ -88,6 +93,10 @@ import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 import javax.annotation.Nullable;
@@ -183,6 +192,9 @@ public class GitRepository {
   private final Duration repoTimeout;
   protected final PushOptionsValidator pushOptionsValidator;
   protected final boolean noVerify;
+  // Shared by the instances with a different work tree, created on first use since the repository
+  // might not be initialized yet
+  private final Supplier<GitObjectReader> objectReader;
 
   private static final Map<Character, StatusCode> CHAR_TO_STATUS_CODE =
       Arrays.stream(StatusCode.values())
@@ -196,6 +208,19 @@ public class GitRepository {
       Duration repoTimeout,
       boolean noVerify,
       PushOptionsValidator pushOptionsValidator) {
+    this(gitDir, workTree, verbose, gitEnv, repoTimeout, noVerify, pushOptionsValidator,
+        /* objectReader= */ null);
+  }
+
+  private GitRepository(
+      Path gitDir,
+      @Nullable Path workTree,
+      boolean verbose,
+      GitEnvironment gitEnv,
+      Duration repoTimeout,
+      boolean noVerify,
+      PushOptionsValidator pushOptionsValidator,
+      @Nullable Supplier<GitObjectReader> objectReader) {
     this.gitDir = checkNotNull(gitDir);
     this.workTree = workTree;
     this.verbose = verbose;
@@ -203,6 +228,13 @@ public class GitRepository {
     this.repoTimeout = checkNotNull(repoTimeout);
     this.noVerify = noVerify;
     this.pushOptionsValidator = checkNotNull(pushOptionsValidator);
+    // Not memoized: readers are discarded when their processes are idle for a while
+    this.objectReader = objectReader != null
+        ? objectReader
+        : () -> GitObjectReader.shared(
+            ImmutableList.of(gitEnv.resolveGitBinary(), "--git-dir=" + gitDir),
+            gitEnv.getEnvironment(),
+            gitDir);
   }
 
   /** Creates a new repository in the given directory. The new repo is not bare. */
@@ -837,7 +869,8 @@ public class GitRepository {
         this.gitEnv,
         repoTimeout,
         this.noVerify,
-        this.pushOptionsValidator);
+        this.pushOptionsValidator,
+        this.objectReader);
   }
 
   /**
@@ -1088,7 +1121,7 @@ public class GitRepository {
    * TODO(malcon): Refactor this to work similar to LogCmd.
    */
   @Nullable
-  private String getConfigField(String field, @Nullable String configFile) throws RepoException {
+  String getConfigField(String field, @Nullable String configFile) throws RepoException {
     ImmutableList.Builder<String> params = ImmutableList.builder();
     params.add("config");
     if (configFile != null) {
@@ -1136,6 +1169,14 @@ public class GitRepository {
    * Resolves a git reference to the SHA-1 reference
    */
   public String parseRef(String ref) throws RepoException, CannotResolveRevisionException {
+    if (!ref.isEmpty() && !ref.startsWith("-") && CharMatcher.anyOf("\r\n").matchesNoneOf(ref)) {
+      // Same as 'rev-list -1', but without starting a process. Peeling to a commit returns
+      // missing for expressions like ranges, rev-list handles those.
+      ObjectInfo info = objectReader.get().info(ref + "^{commit}");
+      if (info != null) {
+        return info.getSha1();
+      }
+    }
     // Runs rev-list on the reference and remove the extra newline from the output.
     CommandOutputWithStatus result = gitAllowNonZeroExit(
         NO_INPUT, ImmutableList.of("rev-list", "-1", ref, "--"), DEFAULT_TIMEOUT);
@@ -1621,7 +1662,21 @@ public class GitRepository {
   }
 
   CommandOutput simpleCommandNoRedirectOutput(String... argv) throws RepoException {
-    Iterable<String> params = addGitDirAndWorkTreeParams(Arrays.asList(argv));
+    return simpleCommandNoRedirectOutput(Optional.empty(), Arrays.asList(argv));
+  }
+
+  /**
+   * Like {@link #simpleCommandNoRedirectOutput(String...)}, but git stdout is written to
+   * {@code stdout} while the command runs instead of being accumulated in memory.
+   */
+  void streamCommandNoRedirectOutput(OutputStream stdout, List<String> argv)
+      throws RepoException {
+    simpleCommandNoRedirectOutput(Optional.of(stdout), argv);
+  }
+
+  private CommandOutput simpleCommandNoRedirectOutput(
+      Optional<OutputStream> stdout, List<String> argv) throws RepoException {
+    Iterable<String> params = addGitDirAndWorkTreeParams(argv);
     try {
       // Use maxLoglines 0 and verbose=false to avoid redirection
       return executeGit(
@@ -1630,7 +1685,8 @@ public class GitRepository {
           gitEnv,
           /* verbose= */ false,
           /* maxLogLines= */ 0,
-          /** timeout= */ Optional.empty());
+          /** timeout= */ Optional.empty(),
+          stdout);
     } catch (BadExitStatusWithOutputException e) {
       CommandOutputWithStatus output = e.getOutput();
 
@@ -1800,6 +1856,19 @@ public class GitRepository {
       int maxLogLines,
       Optional<Duration> timeout)
       throws CommandException {
+    return executeGit(cwd, params, gitEnv, verbose, maxLogLines, timeout, Optional.empty());
+  }
+
+  @CanIgnoreReturnValue
+  private static CommandOutputWithStatus executeGit(
+      Path cwd,
+      Iterable<String> params,
+      GitEnvironment gitEnv,
+      boolean verbose,
+      int maxLogLines,
+      Optional<Duration> timeout,
+      Optional<OutputStream> stdout)
+      throws CommandException {
     List<String> allParams = new ArrayList<>(Iterables.size(params) + 1);
     allParams.add(gitEnv.resolveGitBinary());
     Iterables.addAll(allParams, params);
@@ -1810,6 +1879,9 @@ public class GitRepository {
     CommandRunner runner =
         (timeout.isPresent() ? new CommandRunner(cmd, timeout.get()) : new CommandRunner(cmd))
             .withVerbose(verbose);
+    if (stdout.isPresent()) {
+      runner = runner.withStdOutStream(stdout.get());
+    }
     return maxLogLines >= 0
         ? runner.withMaxStdOutLogLines(maxLogLines).execute()
         : runner.execute();
@@ -1868,6 +1940,10 @@ public class GitRepository {
    * Checks if a SHA-1 object exist in the repository
    */
   private boolean checkSha1Exists(String reference) throws RepoException {
+    if (objectReader.get().info(reference) != null) {
+      return true;
+    }
+    // Objects fetched after the reader started might not be visible to it
     ImmutableList<String> params = ImmutableList.of("cat-file", "-e", reference);
     CommandOutputWithStatus output = gitAllowNonZeroExit(NO_INPUT, params,
         DEFAULT_TIMEOUT);
@@ -1884,8 +1960,17 @@ public class GitRepository {
    * Reads a file at the given revision
    */
   public String readFile(String revision, String path) throws RepoException {
+    String object = String.format("%s:%s", revision, path);
+    if (CharMatcher.anyOf("\r\n").matchesNoneOf(object)) {
+      ByteArrayOutputStream content = new ByteArrayOutputStream();
+      ObjectInfo info = objectReader.get().read(object, content);
+      // 'git show' formats other types of objects, like directories
+      if (info != null && info.getType() == GitObjectType.BLOB) {
+        return new String(content.toByteArray(), StandardCharsets.UTF_8);
+      }
+    }
     CommandOutputWithStatus result = gitAllowNonZeroExit(NO_INPUT,
-        ImmutableList.of("--no-pager", "show", String.format("%s:%s", revision, path)),
+        ImmutableList.of("--no-pager", "show", object),
         DEFAULT_TIMEOUT, 0);
     if (!result.getTerminationStatus().success()) {
       throw new RepoException(String.format("Cannot read file '%s' in '%s'", path, revision));
@@ -1893,15 +1978,23 @@ public class GitRepository {
     return result.getStdout();
   }
 
+  /**
+   * Writes the files in {@code rev} that match {@code glob} into {@code destRoot}. Parent
+   * directories must exist.
+   *
+   * <p>Files are read with a single git process and written byte by byte, without decoding them.
+   */
   public void checkout(Glob glob, Path destRoot, GitRevision rev) throws RepoException {
     ImmutableList<TreeElement> treeElements = lsTree(rev, null, true, true);
     PathMatcher pathMatcher = glob.relativeTo(destRoot);
     for (TreeElement file : treeElements) {
       Path path = destRoot.resolve(file.getPath());
       if (pathMatcher.matches(path)) {
-        try {
-          Files.write(
-              path, readFile(rev.getSha1(), file.getPath()).getBytes(StandardCharsets.UTF_8));
+        try (OutputStream out = Files.newOutputStream(path)) {
+          if (objectReader.get().read(file.getRef(), out) == null) {
+            throw new RepoException(String.format(
+                "Cannot find object %s for '%s' in '%s'", file.getRef(), file.getPath(), rev));
+          }
         } catch (IOException e) {
           throw new RepoException(String
               .format("Cannot write '%s' from reference '%s' into '%s'", file.getPath(), rev,
@@ -1926,6 +2019,50 @@ public class GitRepository {
             .trim());
   }
 
+  /**
+   * Writes {@code files} as blobs with {@code git hash-object --stdin-paths}, without applying
+   * attributes or filters, and returns their SHA-1s in the same order.
+   */
+  ImmutableList<String> writeBlobs(List<Path> files) throws RepoException {
+    StringBuilder paths = new StringBuilder();
+    for (Path file : files) {
+      String path = file.toAbsolutePath().toString();
+      Preconditions.checkArgument(path.indexOf('\n') == -1, "Invalid path: %s", path);
+      paths.append(path).append('\n');
+    }
+    return writeObjects(paths.toString().getBytes(StandardCharsets.UTF_8),
+        ImmutableList.of("hash-object", "-w", "--no-filters", "--stdin-paths"), files.size());
+  }
+
+  /**
+   * Writes trees with {@code git mktree --batch -z} and returns their SHA-1s in the same order.
+   *
+   * @param batch the NUL terminated entries of the trees in {@code git ls-tree -z} format. An
+   *     empty entry ends each tree.
+   */
+  ImmutableList<String> writeTrees(byte[] batch, int count) throws RepoException {
+    return writeObjects(batch, ImmutableList.of("mktree", "--batch", "-z"), count);
+  }
+
+  private ImmutableList<String> writeObjects(byte[] stdin, ImmutableList<String> params,
+      int count) throws RepoException {
+    if (count == 0) {
+      return ImmutableList.of();
+    }
+    CommandOutputWithStatus output = gitAllowNonZeroExit(stdin, params, repoTimeout);
+    if (!output.getTerminationStatus().success()) {
+      throw new RepoException(
+          String.format("Error executing 'git %s':\n%s", params.get(0), output.getStderr()));
+    }
+    ImmutableList<String> sha1s = ImmutableList.cooperOf(
+        Splitter.on('\n').omitEmptyStrings().split(output.getStdout()));
+    if (sha1s.size() != count) {
+      throw new RepoException(String.format("Expected %d objects from 'git %s' but got %d",
+          count, params.get(0), sha1s.size()));
+    }
+    return sha1s;
+  }
+
   /**
    * Creates a reference from a complete SHA-1 string without any validation that it exists.
    */
@@ -2329,6 +2466,8 @@ public class GitRepository {
     private static final String COMMIT_SEPARATOR = "\u0001cooperbara\u0001";
     private static final Pattern UNINDENT = Pattern.compile("\n    ");
     private static final String GROUP = "--\n";
+    // Max number of entries read from git that are waiting to be processed
+    private static final int STREAM_CAPACITY = 16;
     private final int limit;
     private final ImmutableCollection<String> paths;
     private final String refExpr;
@@ -2624,6 +2763,23 @@ public class GitRepository {
      * Run 'git log' and returns zero or more {@link GitLogEntry}.
      */
     public ImmutableList<GitLogEntry> run() throws RepoException {
+      ImmutableList.Builder<GitLogEntry> res = ImmutableList.builder();
+      stream(
+          entry -> {
+            res.add(entry);
+            return true;
+          });
+      return res.build();
+    }
+
+    /**
+     * Run 'git log' and pass each {@link GitLogEntry} to {@code consumer} while it is read from
+     * the output of git, instead of reading the whole log first.
+     *
+     * <p>Git is paused while {@code consumer} processes the entries, and it is stopped if
+     * {@code consumer} returns false or fails.
+     */
+    public void stream(LogConsumer consumer) throws RepoException {
       List<String> cmd =
           Lists.newArrayList("log", "--no-color", createFormat(includeBody, includeTags));
 
@@ -2664,12 +2820,11 @@ public class GitRepository {
         cmd.addAll(paths);
       }
 
-      return runGitLog(cmd);
+      streamGitLog(cmd, consumer);
     }
 
-    private ImmutableList<GitLogEntry> runGitLog(List<String> cmd) throws RepoException {
-      ImmutableList.Builder<GitLogEntry> res = ImmutableList.builder();
-      ImmutableList<GitLogEntry> batchRes;
+    private void streamGitLog(List<String> cmd, LogConsumer consumer) throws RepoException {
+      BatchConsumer batchRes;
       int batchSkip = skip;
       int overallLimit = limit;
       do {
@@ -2689,97 +2844,181 @@ public class GitRepository {
         }
         ImmutableList<String> batchCmd = batchCmdBuilder.build();
         logger.atInfo().log("Executing: %s", batchCmd);
-        // Avoid logging since git log can return LOT of entries.
-        CommandOutput output =
-            limit > 0 && limit < 10
-                ? repo.simpleCommand(batchCmd)
-                : repo.simpleCommandNoRedirectOutput(batchCmd.toArray(new String[0]));
-        batchRes = parseLog(output.getStdout(), includeBody);
-        logger.atInfo().log("Log command returned %s entries", batchRes.size());
-        if (!batchRes.isEmpty()) {
-          logger.atInfo().log("First commit: %s", batchRes.get(0));
-          logger.atInfo().log("Last commit: %s", Iterables.getLast(batchRes));
+        batchRes = new BatchConsumer(consumer);
+        if (limit > 0 && limit < 10) {
+          // Small enough to be logged
+          for (String msg : splitLog(repo.simpleCommand(batchCmd).getStdout())) {
+            if (!batchRes.accept(parseEntry(msg))) {
+              break;
+            }
+          }
+        } else {
+          // Avoid logging and buffering since git log can return LOT of entries.
+          streamLog(batchCmd, batchRes);
+        }
+        logger.atInfo().log("Log command returned %s entries", batchRes.count);
+        if (batchRes.first != null) {
+          logger.atInfo().log("First commit: %s", batchRes.first);
+          logger.atInfo().log("Last commit: %s", batchRes.last);
+        }
+        if (batchRes.stopped) {
+          return;
         }
         if (batchSize > 0) {
           // Merge commit shows multiple entries when using -m and --name-only but first parent is
           // disabled. Each entry represents the parent file changes.
-          batchSkip =
-              (int)
-                  (batchSkip
-                      + batchRes.stream().map(e -> e.getCommit().getSha1()).distinct().count());
+          batchSkip = batchSkip + batchRes.commits.size();
           overallLimit -= batchSkip;
         }
-        res.addAll(batchRes);
-      } while (batchSize > 0 && (limit == 0 || overallLimit > 0) && !batchRes.isEmpty());
-      return res.build();
+      } while (batchSize > 0 && (limit == 0 || overallLimit > 0) && batchRes.count > 0);
     }
 
-    private ImmutableList<GitLogEntry> parseLog(String log, boolean includeBody)
-        throws RepoException {
+    /**
+     * Runs {@code batchCmd} in a different thread, parsing and passing the entries to
+     * {@code consumer} in this one as they are written by git.
+     */
+    private void streamLog(List<String> batchCmd, BatchConsumer consumer) throws RepoException {
+      GitLogStream output =
+          new GitLogStream(("\0" + COMMIT_SEPARATOR).getBytes(StandardCharsets.UTF_8),
+              STREAM_CAPACITY);
+      ExecutorService executor = Executors.newSingleThreadExecutor();
+      Future<?> command =
+          executor.submit(
+              () -> {
+                boolean success = false;
+                try {
+                  repo.streamCommandNoRedirectOutput(output, batchCmd);
+                  success = true;
+                } finally {
+                  output.finish(success);
+                }
+                return null;
+              });
+      executor.shutdown();
+      boolean completed = false;
+      try {
+        byte[] entry;
+        boolean first = true;
+        while ((entry = output.next()) != null) {
+          String msg = new String(entry, StandardCharsets.UTF_8);
+          if (first) {
+            msg = msg.substring(COMMIT_SEPARATOR.length());
+            first = false;
+          }
+          if (!consumer.accept(parseEntry(msg))) {
+            return;
+          }
+        }
+        completed = true;
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new RepoException("Interrupted while reading git log", e);
+      } finally {
+        if (!completed) {
+          // Makes git fail writing to stdout, we are not interested in its result anymore
+          output.cancel();
+        }
+      }
+      try {
+        command.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new RepoException("Interrupted while running git log", e);
+      } catch (ExecutionException e) {
+        Throwables.throwIfInstanceOf(e.getCause(), RepoException.class);
+        Throwables.throwIfUnchecked(e.getCause());
+        throw new RepoException("Error running git log", e.getCause());
+      }
+    }
+
+    private static Iterable<String> splitLog(String log) {
       // No changes. We cannot know until we run git log since fromRef can be null (HEAD)
       if (log.isEmpty()) {
         return ImmutableList.of();
       }
+      return Splitter.on("\0" + COMMIT_SEPARATOR).split(log.substring(COMMIT_SEPARATOR.length()));
+    }
 
-      ImmutableList.Builder<GitLogEntry> commits = ImmutableList.builder();
-      for (String msg : Splitter.on("\0" + COMMIT_SEPARATOR).
-          split(log.substring(COMMIT_SEPARATOR.length()))) {
+    private GitLogEntry parseEntry(String msg) throws RepoException {
+      List<String> groups = Splitter.on("\n" + GROUP).splitToList(msg);
 
-        List<String> groups = Splitter.on("\n" + GROUP).splitToList(msg);
+      Map<String, String> fields = Splitter.on("\n")
+          .withKeyValueSeparator(Splitter.on("=").limit(2))
+          .split(groups.get(0));
 
-        Map<String, String> fields = Splitter.on("\n")
-            .withKeyValueSeparator(Splitter.on("=").limit(2))
-            .split(groups.get(0));
+      String body = null;
+      if (includeBody) {
+        body = UNINDENT.matcher(groups.get(1)).replaceAll("\n");
+        body = body.substring(BEGIN_BODY.length() + 1, body.length() - END_BODY.length() - 1);
+        // Copybara assumes \n as a separator in many places.
+        body = body.replace("\r\n", "\n");
+      }
 
-        String body = null;
-        if (includeBody) {
-          body = UNINDENT.matcher(groups.get(1)).replaceAll("\n");
-          body = body.substring(BEGIN_BODY.length() + 1, body.length() - END_BODY.length() - 1);
-          // Copybara assumes \n as a separator in many places.
-          body = body.replace("\r\n", "\n");
+      ImmutableSet<String> files = null;
+      if (includeStat) {
+        String fileString = groups.get(2);
+        if (fileString.startsWith("\0\n")) {
+          fileString = fileString.substring(2);
         }
+        files = ImmutableSet.cooperOf(Splitter.on("\0").omitEmptyStrings().split(fileString));
+      }
+      ImmutableList.Builder<GitRevision> parents = ImmutableList.builder();
+      for (String parent : Splitter.on(" ").omitEmptyStrings()
+          .split(getField(fields, PARENTS_FIELD))) {
+        parents.add(repo.createReferenceFromCompleteSha1(parent));
+      }
 
-        ImmutableSet<String> files = null;
-        if (includeStat) {
-          String fileString = groups.get(2);
-          if (fileString.startsWith("\0\n")) {
-            fileString = fileString.substring(2);
-          }
-          files = ImmutableSet.cooperOf(Splitter.on("\0").omitEmptyStrings().split(fileString));
-        }
-        ImmutableList.Builder<GitRevision> parents = ImmutableList.builder();
-        for (String parent : Splitter.on(" ").omitEmptyStrings()
-            .split(getField(fields, PARENTS_FIELD))) {
-          parents.add(repo.createReferenceFromCompleteSha1(parent));
-        }
+      String tree = getField(fields, TREE_FIELD);
+      String commit = getField(fields, COMMIT_FIELD);
+
+      String tagString = includeTags ? getField(fields, TAG_FIELD) : null;
+      GitRevision tag =
+          tagString != null
+              ? repo.createReferenceFromCompleteSha1(commit).withTagReference(tagString)
+              : null;
 
-        String tree = getField(fields, TREE_FIELD);
-        String commit = getField(fields, COMMIT_FIELD);
-
-        String tagString = includeTags ? getField(fields, TAG_FIELD) : null;
-        GitRevision tag =
-            tagString != null
-                ? repo.createReferenceFromCompleteSha1(commit).withTagReference(tagString)
-                : null;
-
-        try {
-          commits.add(
-              new GitLogEntry(
-                  repo.createReferenceFromCompleteSha1(commit),
-                  parents.build(),
-                  tree,
-                  AuthorParser.parse(getField(fields, AUTHOR_FIELD)),
-                  AuthorParser.parse(getField(fields, COMMITTER_FIELD)),
-                  tryParseDate(fields, AUTHOR_DATE_FIELD, commit),
-                  tryParseDate(fields, COMMITTER_DATE, commit),
-                  body,
-                  files,
-                  tag));
-        } catch (InvalidAuthorException e) {
-          throw new RepoException("Error in commit '" + commit + "'. Invalid author.", e);
+      try {
+        return new GitLogEntry(
+            repo.createReferenceFromCompleteSha1(commit),
+            parents.build(),
+            tree,
+            AuthorParser.parse(getField(fields, AUTHOR_FIELD)),
+            AuthorParser.parse(getField(fields, COMMITTER_FIELD)),
+            tryParseDate(fields, AUTHOR_DATE_FIELD, commit),
+            tryParseDate(fields, COMMITTER_DATE, commit),
+            body,
+            files,
+            tag);
+      } catch (InvalidAuthorException e) {
+        throw new RepoException("Error in commit '" + commit + "'. Invalid author.", e);
+      }
+    }
+
+    /** Keeps the stats of a batch of entries passed to the consumer. */
+    private static final class BatchConsumer implements LogConsumer {
+
+      private final LogConsumer delegate;
+      private final Set<String> commits = new HashSet<>();
+      private int count;
+      @Nullable private GitLogEntry first;
+      @Nullable private GitLogEntry last;
+      private boolean stopped;
+
+      private BatchConsumer(LogConsumer delegate) {
+        this.delegate = delegate;
+      }
+
+      @Override
+      public boolean accept(GitLogEntry entry) throws RepoException {
+        count++;
+        commits.add(entry.getCommit().getSha1());
+        if (first == null) {
+          first = entry;
         }
+        last = entry;
+        stopped = !delegate.accept(entry);
+        return !stopped;
       }
-      return commits.build();
     }
 
     // Do not change this method since we could have old git commits that have incorrect date
@@ -2835,6 +3074,16 @@ public class GitRepository {
     }
   }
 
+  /** Receives the entries of a {@link LogCmd} while they are read. */
+  @FunctionalInterface
+  public interface LogConsumer {
+
+    /**
+     * Processes {@code entry}. Returns false if no more entries are needed.
+     */
+    boolean accept(GitLogEntry entry) throws RepoException;
+  }
+
   /**
    * An object that represent a commit as returned by 'git log'.
    */
@@ -0,0 +1,85 @@
+/*
+ * Copyright (C) 2026 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a cooper of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.google.cooperbara.git.github.api;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.base.Ticker;
+import com.google.cooperbara.exception.RepoException;
+import com.google.cooperbara.exception.ValidationException;
+import com.google.cooperbara.git.GitCredential.UserPassword;
+import java.time.Duration;
+import javax.annotation.Nullable;
+
+/**
+ * Remembers the credentials returned by the git credential helper for a limited time, so that
+ * each GitHub API request doesn't need to run {@code git credential fill}.
+ *
+ * <p>Failures to find credentials are also remembered, since read-only requests for public
+ * repositories are done without them.
+ */
+public final class CredentialCache {
+
+  /** Loads the credentials when they are not cached or expired. */
+  public interface Loader {
+    UserPassword load() throws RepoException, ValidationException;
+  }
+
+  private final long ttlNanos;
+  private final Ticker ticker;
+
+  private boolean loaded;
+  private long loadedNanos;
+  @Nullable private UserPassword credentials;
+  @Nullable private ValidationException failure;
+
+  public CredentialCache(Duration ttl, Ticker ticker) {
+    this.ttlNanos = ttl.toNanos();
+    this.ticker = checkNotNull(ticker);
+  }
+
+  /**
+   * Returns the cached credentials, or the ones returned by {@code loader} if they are not cached
+   * or expired. Concurrent callers wait for a single load.
+   */
+  public synchronized UserPassword get(Loader loader) throws RepoException, ValidationException {
+    if (!loaded || ticker.read() - loadedNanos >= ttlNanos) {
+      // RepoExceptions are not cached, they are usually transient
+      try {
+        credentials = loader.load();
+        failure = null;
+      } catch (ValidationException e) {
+        credentials = null;
+        failure = e;
+      }
+      loaded = true;
+      loadedNanos = ticker.read();
+    }
+    if (failure != null) {
+      throw failure;
+    }
+    return credentials;
+  }
+
+  /** Forgets the cached credentials, for example because the server rejected them. */
+  public synchronized void invalidate() {
+    loaded = false;
+    credentials = null;
+    failure = null;
+  }
+}
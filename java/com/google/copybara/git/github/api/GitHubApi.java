@@ -21,12 +21,15 @@ import static com.google.cooperbara.exception.ValidationException.checkCondition
 import static com.google.cooperbara.git.github.api.GitHubApiException.ResponseCode.CONFLICT;
 import static java.util.stream.Collectors.joining;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Ascii;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Strings;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableListMultimap;
 import com.google.common.reflect.TypeToken;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
 import com.google.cooperbara.exception.RepoException;
 import com.google.cooperbara.exception.ValidationException;
 import com.google.cooperbara.git.github.api.GitHubApiException.ResponseCode;
@@ -36,9 +39,15 @@ import com.google.cooperbara.profiler.Profiler.ProfilerTask;
 import com.google.errorprone.annotations.CanIgnoreReturnValue;
 import com.google.errorprone.annotations.FormatMethod;
 import com.google.errorprone.annotations.FormatString;
+import com.google.re2j.Matcher;
+import com.google.re2j.Pattern;
 import java.lang.reflect.Type;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.stream.Stream;
 import javax.annotation.Nullable;
 
@@ -49,13 +58,24 @@ public class GitHubApi {
 
   private final GitHubApiTransport transport;
   private final Profiler profiler;
+  private final ListeningExecutorService pageExecutor;
 
   public static final int MAX_PER_PAGE = 100;
   private static final int MAX_PAGES = 5;
+  private static final Pattern PAGE_PARAM = Pattern.compile("[?&]page=(\\d+)(?:&|$)");
 
   public GitHubApi(GitHubApiTransport transport, Profiler profiler) {
+    this(transport, profiler, MoreExecutors.newDirectExecutorService());
+  }
+
+  /**
+   * Creates an API that fetches the pages of list calls in {@code pageExecutor}, concurrently
+   * once the number of pages is known.
+   */
+  public GitHubApi(GitHubApiTransport transport, Profiler profiler, ExecutorService pageExecutor) {
     this.transport = Preconditions.checkNotNull(transport);
     this.profiler = Preconditions.checkNotNull(profiler);
+    this.pageExecutor = MoreExecutors.listeningDecorator(pageExecutor);
   }
 
   /**
@@ -292,19 +312,103 @@ public class GitHubApi {
     int pages = 0;
     String path = String.format(pathTemplate, pathArgs);
     while (path != null && pages < MAX_PAGES) {
+      PaginatedList<T> page;
       try (ProfilerTask ignore = profiler.start(String.format("%s_page_%d", profilerName, pages))) {
         R response = transport.get(path, type, headers, "GET " + pathTemplate);
-        PaginatedList<T> page = response.getPayload();
+        page = response.getPayload();
         builder.addAll(page.getPayload());
         path = page.getNextUrl();
         pages++;
       } catch (GitHubApiException e) {
         throw treatGitHubException(e, entity);
       }
+      ImmutableList<String> following = followingPages(page, MAX_PAGES - pages);
+      if (following != null) {
+        builder.addAll(this.<T, R>getPages(
+            following, pages, profilerName, type, entity, headers, pathTemplate));
+        break;
+      }
+    }
+    return builder.build();
+  }
+
+  /** Gets {@code paths} concurrently, and returns their elements in order. */
+  private <T, R extends PaginatedPayload<T>> ImmutableList<T> getPages(ImmutableList<String> paths,
+      int firstPage, String profilerName, Type type, String entity,
+      ImmutableListMultimap<String, String> headers, String pathTemplate)
+      throws RepoException, ValidationException {
+    List<Future<PaginatedList<T>>> futures = new ArrayList<>();
+    for (String path : paths) {
+      futures.add(pageExecutor.submit(() -> {
+        R response = transport.get(path, type, headers, "GET " + pathTemplate);
+        return response.getPayload();
+      }));
+    }
+    ImmutableList.Builder<T> builder = ImmutableList.builder();
+    try {
+      for (int i = 0; i < futures.size(); i++) {
+        long start = System.nanoTime();
+        builder.addAll(futures.get(i).get());
+        // Pool threads don't have the profiler stack, record how long the caller waited instead
+        profiler.simpleTask(String.format("%s_page_%d", profilerName, firstPage + i),
+            start, System.nanoTime());
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RepoException("Interrupted while getting " + entity, e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof GitHubApiException) {
+        throw treatGitHubException((GitHubApiException) cause, entity);
+      }
+      if (cause instanceof RepoException) {
+        throw (RepoException) cause;
+      }
+      if (cause instanceof ValidationException) {
+        throw (ValidationException) cause;
+      }
+      throw new RepoException("Error getting " + entity, cause);
+    } finally {
+      for (Future<?> future : futures) {
+        future.cancel(/*mayInterruptIfRunning=*/ true);
+      }
     }
     return builder.build();
   }
 
+  /**
+   * Returns the paths of the pages after {@code page}, up to {@code max} of them, if they can be
+   * computed from its 'next' and 'last' links. Returns null otherwise, for example for APIs that
+   * paginate with cursors instead of page numbers.
+   */
+  @Nullable
+  @VisibleForTesting
+  static ImmutableList<String> followingPages(PaginatedList<?> page, int max) {
+    String next = page.getNextUrl();
+    String last = page.getLastUrl();
+    if (next == null || last == null || max <= 0) {
+      return null;
+    }
+    Matcher nextMatcher = PAGE_PARAM.matcher(next);
+    Matcher lastMatcher = PAGE_PARAM.matcher(last);
+    if (!nextMatcher.find() || !lastMatcher.find()) {
+      return null;
+    }
+    int nextPage = Integer.parseInt(nextMatcher.group(1));
+    int lastPage = Integer.parseInt(lastMatcher.group(1));
+    String prefix = last.substring(0, lastMatcher.start(1));
+    String suffix = last.substring(lastMatcher.end(1));
+    // Only the page number can be different, otherwise we don't know how to build the paths
+    if (lastMatcher.find() || !next.equals(prefix + nextPage + suffix)) {
+      return null;
+    }
+    ImmutableList.Builder<String> paths = ImmutableList.builder();
+    for (int i = nextPage; i <= lastPage && i < nextPage + max; i++) {
+      paths.add(prefix + i + suffix);
+    }
+    return paths.build();
+  }
+
   /**
    * Create a pull request
    */
@@ -22,12 +22,14 @@ import com.google.api.client.http.HttpRequest;
 import com.google.api.client.http.HttpRequestFactory;
 import com.google.api.client.http.HttpResponse;
 import com.google.api.client.http.HttpResponseException;
+import com.google.api.client.http.HttpStatusCodes;
 import com.google.api.client.http.HttpTransport;
 import com.google.api.client.http.json.JsonHttpContent;
 import com.google.api.client.json.JsonFactory;
 import com.google.api.client.json.JsonObjectParser;
 import com.google.api.client.json.gson.GsonFactory;
 import com.google.common.base.Preconditions;
+import com.google.common.base.Ticker;
 import com.google.common.collect.ImmutableListMultimap;
 import com.google.common.collect.Iterables;
 import com.google.common.flogger.FluentLogger;
@@ -40,6 +42,7 @@ import com.google.cooperbara.util.console.Console;
 import java.io.IOException;
 import java.lang.reflect.Type;
 import java.net.URI;
+import java.nio.charset.Charset;
 import java.time.Duration;
 import java.util.Collection;
 import java.util.List;
@@ -57,20 +60,40 @@ public class GitHubApiTransportImpl implements GitHubApiTransport {
   private static final JsonFactory JSON_FACTORY = new GsonFactory();
   private static final String API_URL = "https://api.github.com";
   private static final String GITHUB_WEB_URL = "https://github.com";
+  private static final Duration DEFAULT_CREDENTIALS_TTL = Duration.ofMinutes(5);
 
   private final GitRepository repo;
   private final HttpTransport httpTransport;
   private final String storePath;
   private final Console console;
   private final boolean bearerAuth;
+  private final CredentialCache credentialCache;
+  @Nullable private final HttpResponseCache responseCache;
+  private final GitHubRateLimiter rateLimiter;
 
   public GitHubApiTransportImpl(GitRepository repo, HttpTransport httpTransport,
       String storePath, boolean bearerAuth, Console console) {
+    this(repo, httpTransport, storePath, bearerAuth, console,
+        new CredentialCache(DEFAULT_CREDENTIALS_TTL, Ticker.systemTicker()),
+        /* responseCache= */ null, new GitHubRateLimiter(/* maxWait= */ Duration.ZERO));
+  }
+
+  /**
+   * Creates a transport that gets the credentials through {@code credentialCache}, and that sends
+   * conditional GET requests for the responses in {@code responseCache}, if not null. Requests
+   * rejected by the rate limit are retried when {@code rateLimiter} allows it.
+   */
+  public GitHubApiTransportImpl(GitRepository repo, HttpTransport httpTransport,
+      String storePath, boolean bearerAuth, Console console, CredentialCache credentialCache,
+      @Nullable HttpResponseCache responseCache, GitHubRateLimiter rateLimiter) {
     this.repo = Preconditions.checkNotNull(repo);
     this.httpTransport = Preconditions.checkNotNull(httpTransport);
     this.storePath = storePath;
     this.console = Preconditions.checkNotNull(console);
     this.bearerAuth = bearerAuth;
+    this.credentialCache = Preconditions.checkNotNull(credentialCache);
+    this.responseCache = responseCache;
+    this.rateLimiter = Preconditions.checkNotNull(rateLimiter);
   }
 
   @SuppressWarnings("unchecked")
@@ -78,19 +101,50 @@ public class GitHubApiTransportImpl implements GitHubApiTransport {
   public <T> T get(String path, Type responseType, ImmutableListMultimap<String, String> headers,
       String requestType)
       throws RepoException, ValidationException {
-    HttpRequestFactory requestFactory = getHttpRequestFactory(getCredentialsIfPresent(), headers);
+    UserPassword credentials = getCredentialsIfPresent();
+    HttpRequestFactory requestFactory = getHttpRequestFactory(credentials, headers);
     GenericUrl url = getFullEndpointURL(path);
+    String cacheKey =
+        responseCache != null ? responseCache.key(url.build(), headers, credentials) : null;
+    HttpResponseCache.Entry cached = cacheKey != null ? responseCache.get(cacheKey) : null;
     try {
       console.verboseFmt("Executing %s", requestType);
       HttpRequest httpRequest = requestFactory.buildGetRequest(url);
-      HttpResponse response = httpRequest.execute();
-      Object responseObj = GsonParserUtil.parseHttpResponse(response, responseType, false);
+      if (cached != null) {
+        httpRequest.getHeaders()
+            .setIfNoneMatch(cached.getEtag())
+            .setIfModifiedSince(cached.getLastModified());
+      }
+      HttpResponse response = execute(httpRequest);
+      Object responseObj;
+      String link;
+      if (cached != null
+          && response.getStatusCode() == HttpStatusCodes.STATUS_CODE_NOT_MODIFIED) {
+        response.disconnect();
+        console.verboseFmt("%s not modified, using the cached response", requestType);
+        responseObj = GsonParserUtil.parseBytes(
+            cached.getContent(), cached.getCharset(), responseType, false);
+        link = cached.getLink();
+      } else if (!response.isSuccessStatusCode()) {
+        throw new HttpResponseException(response);
+      } else if (cacheKey != null && isCacheable(response)) {
+        byte[] content = response.getContent().readAllBytes();
+        Charset charset = response.getContentCharset();
+        link = maybeGetLinkHeader(response);
+        responseCache.put(cacheKey, new HttpResponseCache.Entry(
+            response.getHeaders().getETag(), response.getHeaders().getLastModified(), link,
+            charset, content));
+        responseObj = GsonParserUtil.parseBytes(content, charset, responseType, false);
+      } else {
+        responseObj = GsonParserUtil.parseHttpResponse(response, responseType, false);
+        link = maybeGetLinkHeader(response);
+      }
       if (responseObj instanceof PaginatedPayload) {
-        return (T)
-            ((PaginatedPayload) responseObj).annotatePayload(API_URL, maybeGetLinkHeader(response));
+        return (T) ((PaginatedPayload) responseObj).annotatePayload(API_URL, link);
       }
       return (T) responseObj;
     } catch (HttpResponseException e) {
+      maybeInvalidateCredentials(e);
       throw new GitHubApiException(
           e.getStatusCode(), parseErrorOrIgnore(e), "GET", path, null, e.getContent());
     } catch (IOException e) {
@@ -98,6 +152,54 @@ public class GitHubApiTransportImpl implements GitHubApiTransport {
     }
   }
 
+  /**
+   * Executes {@code request}, retrying it if it is rejected because of the rate limit. Returns
+   * the response if it is successful or a 304, and throws {@link HttpResponseException} otherwise.
+   */
+  private HttpResponse execute(HttpRequest request) throws IOException, RepoException {
+    request.setThrowExceptionOnExecuteError(false);
+    for (int attempt = 0; ; attempt++) {
+      rateLimiter.acquire();
+      HttpResponse response = request.execute();
+      HttpHeaders headers = response.getHeaders();
+      int status = response.getStatusCode();
+      if (rateLimiter.onResponse(status,
+          headers.getFirstHeaderStringValue("X-RateLimit-Remaining"),
+          headers.getFirstHeaderStringValue("X-RateLimit-Reset"),
+          headers.getRetryAfter(),
+          attempt)) {
+        response.disconnect();
+        console.verboseFmt("Rate limited by GitHub, retrying %s", request.getUrl());
+        continue;
+      }
+      if (!response.isSuccessStatusCode()
+          && status != HttpStatusCodes.STATUS_CODE_NOT_MODIFIED) {
+        throw new HttpResponseException(response);
+      }
+      return response;
+    }
+  }
+
+  /**
+   * Whether the response can be stored: the server sent validators that allow revalidating it
+   * later, and didn't forbid storing it.
+   */
+  private static boolean isCacheable(HttpResponse response) throws IOException {
+    String cacheControl = response.getHeaders().getCacheControl();
+    return response.getStatusCode() == HttpStatusCodes.STATUS_CODE_OK
+        && (cacheControl == null || !cacheControl.contains("no-store"))
+        && response.getContent() != null
+        && (response.getHeaders().getETag() != null
+            || response.getHeaders().getLastModified() != null);
+  }
+
+  /** Forgets the cached credentials if the server rejected them. */
+  private void maybeInvalidateCredentials(HttpResponseException e) {
+    if (e.getStatusCode() == HttpStatusCodes.STATUS_CODE_UNAUTHORIZED) {
+      credentialCache.invalidate();
+    }
+  }
+
   @SuppressWarnings("unchecked")
   @Nullable
   private static String maybeGetLinkHeader(HttpResponse response) {
@@ -147,7 +249,7 @@ public class GitHubApiTransportImpl implements GitHubApiTransport {
       console.verboseFmt("Executing %s", requestType);
       HttpRequest httpRequest =
           requestFactory.buildPostRequest(url, new JsonHttpContent(JSON_FACTORY, request));
-      HttpResponse response = httpRequest.execute();
+      HttpResponse response = execute(httpRequest);
       Object responseObj = GsonParserUtil.parseHttpResponse(
           response, responseType, false);
       if (responseObj instanceof PaginatedPayload) {
@@ -157,6 +259,7 @@ public class GitHubApiTransportImpl implements GitHubApiTransport {
       return (T) responseObj;
 
     } catch (HttpResponseException e) {
+      maybeInvalidateCredentials(e);
       try {
         throw new GitHubApiException(e.getStatusCode(), parseErrorOrIgnore(e),
             "POST", path, JSON_FACTORY.toPrettyString(request), e.getContent());
@@ -182,8 +285,9 @@ public class GitHubApiTransportImpl implements GitHubApiTransport {
     GenericUrl url = getFullEndpointURL(path);
     try {
       console.verboseFmt("Executing %s", requestType);
-      requestFactory.buildDeleteRequest(url).execute();
+      execute(requestFactory.buildDeleteRequest(url));
     } catch (HttpResponseException e) {
+      maybeInvalidateCredentials(e);
       throw new GitHubApiException(
           e.getStatusCode(),
           parseErrorOrIgnore(e),
@@ -230,6 +334,10 @@ public class GitHubApiTransportImpl implements GitHubApiTransport {
    * url, otherwise we use the github.com host one.
    */
   private UserPassword getCredentials() throws RepoException, ValidationException {
+    return credentialCache.get(this::fillCredentials);
+  }
+
+  private UserPassword fillCredentials() throws RepoException, ValidationException {
     try {
       return repo.credentialFill(API_URL);
     } catch (ValidationException e) {
@@ -0,0 +1,153 @@
+/*
+ * Copyright (C) 2026 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a cooper of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.google.cooperbara.git.github.api;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.flogger.FluentLogger;
+import com.google.common.primitives.Longs;
+import com.google.cooperbara.exception.RepoException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import javax.annotation.Nullable;
+
+/**
+ * Tracks the GitHub API rate limit across all the requests of a run, so that concurrent requests
+ * wait for the limit to reset instead of failing.
+ *
+ * <p>Works as a token bucket: GitHub reports the requests left in the current window with
+ * {@code X-RateLimit-Remaining} and when the window resets with {@code X-RateLimit-Reset}. Each
+ * request takes one token, and when there are none left requests wait for the reset. Secondary
+ * rate limits are reported with {@code Retry-After}, and stop all the requests for that time.
+ *
+ * <p>Waits longer than {@code maxWait} are not done: the request is sent and the error is
+ * reported to the caller, as if there was no limiter.
+ */
+public final class GitHubRateLimiter {
+
+  private static final FluentLogger logger = FluentLogger.forEnclosingClass();
+
+  /** Retries of a single request rejected because of the rate limit. */
+  static final int MAX_RETRIES = 3;
+
+  /** Sleeps the current thread. */
+  @VisibleForTesting
+  interface Sleeper {
+    void sleep(Duration duration) throws InterruptedException;
+  }
+
+  private final Duration maxWait;
+  private final Clock clock;
+  private final Sleeper sleeper;
+
+  // Requests left until the reset, or -1 if unknown
+  private long remaining = -1;
+  private Instant reset = Instant.MIN;
+  private Instant retryAfter = Instant.MIN;
+
+  public GitHubRateLimiter(Duration maxWait) {
+    this(maxWait, Clock.systemUTC(), duration -> Thread.sleep(duration.toMillis()));
+  }
+
+  @VisibleForTesting
+  GitHubRateLimiter(Duration maxWait, Clock clock, Sleeper sleeper) {
+    this.maxWait = checkNotNull(maxWait);
+    this.clock = checkNotNull(clock);
+    this.sleeper = checkNotNull(sleeper);
+  }
+
+  /** Waits, if needed, until a request can be sent, and takes a token for it. */
+  public void acquire() throws RepoException {
+    Duration wait;
+    synchronized (this) {
+      Instant now = clock.instant();
+      Instant until = retryAfter;
+      if (remaining == 0 && reset.isAfter(until)) {
+        until = reset;
+      }
+      wait = until.isAfter(now) ? Duration.between(now, until) : Duration.ZERO;
+      if (wait.compareTo(maxWait) > 0) {
+        // Let GitHub reject it
+        wait = Duration.ZERO;
+      } else if (remaining == 0 && !reset.isAfter(now.plus(wait))) {
+        // The window will have been reset by the time the request is sent
+        remaining = -1;
+      }
+      if (remaining > 0) {
+        remaining--;
+      }
+    }
+    if (wait.isZero()) {
+      return;
+    }
+    logger.atInfo().log("Waiting %s for the GitHub API rate limit", wait);
+    try {
+      sleeper.sleep(wait);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RepoException("Interrupted while waiting for the GitHub API rate limit", e);
+    }
+  }
+
+  /**
+   * Records the rate limit headers of a response, and returns whether the request should be
+   * retried because it was rejected by the rate limit.
+   *
+   * @param attempt the number of times the request has been retried already
+   */
+  public synchronized boolean onResponse(int statusCode, @Nullable String remainingHeader,
+      @Nullable String resetHeader, @Nullable String retryAfterHeader, int attempt) {
+    Instant now = clock.instant();
+    Long remainingValue = remainingHeader == null ? null : Longs.tryParse(remainingHeader.trim());
+    Long resetValue = resetHeader == null ? null : Longs.tryParse(resetHeader.trim());
+    Long retryAfterValue =
+        retryAfterHeader == null ? null : Longs.tryParse(retryAfterHeader.trim());
+    if (remainingValue != null) {
+      // Requests sent concurrently might have been answered out of order, keep the lowest
+      remaining = remaining < 0 ? remainingValue : Math.min(remaining, remainingValue);
+    }
+    if (resetValue != null) {
+      Instant newReset = Instant.ofEpochSecond(resetValue);
+      if (newReset.isAfter(reset)) {
+        // A new window
+        reset = newReset;
+        if (remainingValue != null) {
+          remaining = remainingValue;
+        }
+      }
+    }
+    if (statusCode != 403 && statusCode != 429) {
+      return false;
+    }
+    Instant until;
+    if (retryAfterValue != null) {
+      until = now.plusSeconds(retryAfterValue);
+      if (until.isAfter(retryAfter)) {
+        retryAfter = until;
+      }
+    } else if (remainingValue != null && remainingValue == 0) {
+      until = reset;
+    } else {
+      // Not a rate limit error, for example a permission error
+      return false;
+    }
+    return attempt < MAX_RETRIES && Duration.between(now, until).compareTo(maxWait) <= 0;
+  }
+}
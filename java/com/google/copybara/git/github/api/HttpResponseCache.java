@@ -0,0 +1,349 @@
+/*
+ * Copyright (C) 2026 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a cooper of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.google.cooperbara.git.github.api;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableListMultimap;
+import com.google.common.flogger.FluentLogger;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.cooperbara.git.GitCredential.UserPassword;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileAttribute;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.SecureRandom;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import javax.annotation.Nullable;
+
+/**
+ * On-disk cache of GitHub API GET responses, used to send conditional requests.
+ *
+ * <p>Responses are stored with their {@code ETag} and {@code Last-Modified} headers. A cached
+ * response is only returned after the server confirms with a {@code 304 Not Modified} that it is
+ * still valid, and those don't count against the GitHub rate limit.
+ *
+ * <p>Entries are keyed by the URL, the request headers and the identity of the credentials used,
+ * since the same URL can return different content for different users. Keys are HMACs with a
+ * random secret stored in the cache, so the file names cannot be used to guess the credentials.
+ *
+ * <p>Responses of private repositories are stored too, so on POSIX file systems the cache is only
+ * readable by its owner. Responses with {@code Cache-Control: no-store} are never stored. Entries
+ * not used for longer than the max age are deleted, and the least recently used ones are deleted
+ * when the cache is over its max size.
+ */
+public final class HttpResponseCache {
+
+  private static final FluentLogger logger = FluentLogger.forEnclosingClass();
+
+  private static final int FORMAT_VERSION = 1;
+  // Keys are hex strings, so they never clash with this name
+  private static final String SECRET_FILE = ".secret";
+  private static final int SECRET_BYTES = 32;
+  private static final boolean POSIX =
+      FileSystems.getDefault().supportedFileAttributeViews().contains("posix");
+  private static final FileAttribute<?>[] OWNER_ONLY_FILE = POSIX
+      ? new FileAttribute<?>[] {
+          PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------"))}
+      : new FileAttribute<?>[0];
+
+  private final Path dir;
+  private final long maxSizeBytes;
+  private final Duration maxAge;
+  private final Clock clock;
+  private final HashFunction keyFunction;
+  // Approximate size of the cache, to know when to evict without listing it on every put
+  private final AtomicLong size = new AtomicLong();
+
+  /**
+   * @param dir directory where the responses are stored
+   * @param maxSizeBytes size over which the least recently used responses are deleted
+   * @param maxAge responses not used for this long are deleted
+   */
+  public HttpResponseCache(Path dir, long maxSizeBytes, Duration maxAge) throws IOException {
+    this(dir, maxSizeBytes, maxAge, Clock.systemUTC());
+  }
+
+  @VisibleForTesting
+  HttpResponseCache(Path dir, long maxSizeBytes, Duration maxAge, Clock clock)
+      throws IOException {
+    checkArgument(maxSizeBytes > 0, "Invalid max size: %s", maxSizeBytes);
+    this.dir = checkNotNull(dir);
+    this.maxSizeBytes = maxSizeBytes;
+    this.maxAge = checkNotNull(maxAge);
+    this.clock = checkNotNull(clock);
+    Files.createDirectories(dir);
+    if (POSIX) {
+      Files.setPosixFilePermissions(dir, PosixFilePermissions.fromString("rwx------"));
+    }
+    this.keyFunction = Hashing.hmacSha256(loadSecret(dir.resolve(SECRET_FILE)));
+    evict();
+  }
+
+  /**
+   * Returns the random secret of the cache in {@code file}, creating it if it doesn't exist. Like
+   * the entries, it is only readable by the owner.
+   */
+  private static byte[] loadSecret(Path file) throws IOException {
+    try {
+      byte[] secret = Files.readAllBytes(file);
+      if (secret.length == SECRET_BYTES) {
+        return secret;
+      }
+      logger.atWarning().log("Replacing invalid GitHub API response cache secret %s", file);
+    } catch (NoSuchFileException e) {
+      // Created below
+    }
+    byte[] secret = new byte[SECRET_BYTES];
+    new SecureRandom().nextBytes(secret);
+    Path tmp = Files.createTempFile(file.getParent(), SECRET_FILE, ".tmp", OWNER_ONLY_FILE);
+    try {
+      Files.write(tmp, secret);
+      // If another run creates one concurrently, the entries stored with the replaced secret are
+      // never used again, and they expire.
+      Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } finally {
+      Files.deleteIfExists(tmp);
+    }
+    return secret;
+  }
+
+  /** Returns the key for a request. */
+  String key(
+      String url, ImmutableListMultimap<String, String> headers,
+      @Nullable UserPassword credentials) {
+    Hasher hasher = keyFunction.newHasher();
+    if (credentials != null) {
+      hasher.putString(credentials.getUsername(), UTF_8)
+          .putByte((byte) 0)
+          .putString(credentials.getPassword_BeCareful(), UTF_8);
+    }
+    hasher.putByte((byte) 0).putString(url, UTF_8);
+    for (Map.Entry<String, String> header : headers.entries()) {
+      hasher.putByte((byte) 0).putString(header.getKey(), UTF_8)
+          .putByte((byte) 0).putString(header.getValue(), UTF_8);
+    }
+    return hasher.hash().toString();
+  }
+
+  /** Returns the cached response for {@code key}, or null if there is none. */
+  @Nullable
+  Entry get(String key) {
+    Path file = dir.resolve(key);
+    try {
+      if (isExpired(Files.getLastModifiedTime(file))) {
+        Files.deleteIfExists(file);
+        return null;
+      }
+    } catch (NoSuchFileException e) {
+      return null;
+    } catch (IOException e) {
+      logger.atWarning().withCause(e).log("Cannot read cached response %s", key);
+      return null;
+    }
+    Entry entry;
+    try (DataInputStream in = new DataInputStream(Files.newInputStream(file))) {
+      if (in.readInt() != FORMAT_VERSION) {
+        return null;
+      }
+      String etag = readNullable(in);
+      String lastModified = readNullable(in);
+      String link = readNullable(in);
+      Charset charset = Charset.forName(in.readUTF());
+      byte[] content = new byte[in.readInt()];
+      in.readFully(content);
+      entry = new Entry(etag, lastModified, link, charset, content);
+    } catch (NoSuchFileException e) {
+      return null;
+    } catch (IOException | IllegalArgumentException e) {
+      logger.atWarning().withCause(e).log("Ignoring invalid cached response %s", key);
+      return null;
+    }
+    try {
+      // The modification time is the last use, for eviction
+      Files.setLastModifiedTime(file, FileTime.from(clock.instant()));
+    } catch (IOException e) {
+      logger.atInfo().withCause(e).log("Cannot update the last use of cached response %s", key);
+    }
+    return entry;
+  }
+
+  /** Stores {@code entry} for {@code key}. Failures are logged and ignored. */
+  void put(String key, Entry entry) {
+    try {
+      Files.createDirectories(dir);
+      Path tmp = Files.createTempFile(dir, key, ".tmp", OWNER_ONLY_FILE);
+      try {
+        try (OutputStream os = Files.newOutputStream(tmp);
+            DataOutputStream out = new DataOutputStream(os)) {
+          out.writeInt(FORMAT_VERSION);
+          writeNullable(out, entry.etag);
+          writeNullable(out, entry.lastModified);
+          writeNullable(out, entry.link);
+          out.writeUTF(entry.charset.name());
+          out.writeInt(entry.content.length);
+          out.write(entry.content);
+        }
+        Files.setLastModifiedTime(tmp, FileTime.from(clock.instant()));
+        long written = Files.size(tmp);
+        // Readers either see the old entry or the new one
+        Files.move(tmp, dir.resolve(key), StandardCopyOption.REPLACE_EXISTING,
+            StandardCopyOption.ATOMIC_MOVE);
+        if (size.addAndGet(written) > maxSizeBytes) {
+          evict();
+        }
+      } finally {
+        Files.deleteIfExists(tmp);
+      }
+    } catch (IOException e) {
+      logger.atWarning().withCause(e).log("Cannot cache response %s", key);
+    }
+  }
+
+  private boolean isExpired(FileTime lastUsed) {
+    return lastUsed.toInstant().plus(maxAge).isBefore(clock.instant());
+  }
+
+  /**
+   * Deletes the expired responses, and then the least recently used ones until the cache fits its
+   * max size.
+   */
+  private synchronized void evict() {
+    try {
+      List<CachedFile> files = new ArrayList<>();
+      long total = 0;
+      try (Stream<Path> children = Files.list(dir)) {
+        for (Path child : (Iterable<Path>) children::iterator) {
+          if (child.getFileName().toString().equals(SECRET_FILE)) {
+            continue;
+          }
+          BasicFileAttributes attrs = Files.readAttributes(child, BasicFileAttributes.class);
+          if (isExpired(attrs.lastModifiedTime())) {
+            Files.deleteIfExists(child);
+            continue;
+          }
+          files.add(new CachedFile(child, attrs.lastModifiedTime(), attrs.size()));
+          total += attrs.size();
+        }
+      }
+      files.sort(Comparator.comparing(f -> f.lastUsed));
+      for (CachedFile file : files) {
+        if (total <= maxSizeBytes) {
+          break;
+        }
+        Files.deleteIfExists(file.path);
+        total -= file.size;
+      }
+      size.set(total);
+    } catch (IOException e) {
+      // Entries might be deleted concurrently by another run. We will try again next time.
+      logger.atWarning().withCause(e).log("Cannot evict GitHub API responses from the cache");
+    }
+  }
+
+
+  @Nullable
+  private static String readNullable(DataInputStream in) throws IOException {
+    return in.readBoolean() ? in.readUTF() : null;
+  }
+
+  private static void writeNullable(DataOutputStream out, @Nullable String value)
+      throws IOException {
+    out.writeBoolean(value != null);
+    if (value != null) {
+      out.writeUTF(value);
+    }
+  }
+
+  private static final class CachedFile {
+
+    private final Path path;
+    private final FileTime lastUsed;
+    private final long size;
+
+    private CachedFile(Path path, FileTime lastUsed, long size) {
+      this.path = path;
+      this.lastUsed = lastUsed;
+      this.size = size;
+    }
+  }
+
+  /** A cached response. */
+  static final class Entry {
+
+    @Nullable private final String etag;
+    @Nullable private final String lastModified;
+    @Nullable private final String link;
+    private final Charset charset;
+    private final byte[] content;
+
+    Entry(@Nullable String etag, @Nullable String lastModified, @Nullable String link,
+        Charset charset, byte[] content) {
+      this.etag = etag;
+      this.lastModified = lastModified;
+      this.link = link;
+      this.charset = checkNotNull(charset);
+      this.content = checkNotNull(content);
+    }
+
+    @Nullable
+    String getEtag() {
+      return etag;
+    }
+
+    @Nullable
+    String getLastModified() {
+      return lastModified;
+    }
+
+    @Nullable
+    String getLink() {
+      return link;
+    }
+
+    Charset getCharset() {
+      return charset;
+    }
+
+    byte[] getContent() {
+      return content;
+    }
+  }
+}
@@ -16,8 +16,6 @@
 
 package com.google.cooperbara.go;
 
-import static java.nio.charset.StandardCharsets.UTF_8;
-
 import com.google.api.client.json.gson.GsonFactory;
 import com.google.common.base.Ascii;
 import com.google.common.base.Strings;
@@ -30,7 +28,6 @@ import com.google.cooperbara.remotefile.RemoteFileOptions;
 import com.google.cooperbara.version.VersionList;
 import com.google.re2j.Pattern;
 import java.io.IOException;
-import java.io.InputStream;
 import java.net.URL;
 import java.util.Optional;
 import javax.annotation.Nullable;
@@ -97,8 +94,8 @@ public class GoProxyVersionList implements VersionList, StarlarkValue, LabelsAwa
   }
 
   private String executeHTTPQuery(String url) throws RepoException {
-    try (InputStream inputStream = remoteFileOptions.getTransport().open(new URL(url))) {
-      return new String(inputStream.readAllBytes(), UTF_8);
+    try {
+      return remoteFileOptions.fetchVersionMetadata(new URL(url));
     } catch (IOException | ValidationException e) {
       throw new RepoException(
           String.format("Failed to query proxy.golang.org for version list at %s", url), e);
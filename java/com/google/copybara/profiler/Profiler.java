@@ -172,13 +172,23 @@ public final class Profiler {
    * Record a simple task metric. The user is in charge of providing its own time.
    */
   public void simpleTask(String description, long startNanos, long endNanos) {
+    simpleTask(description, startNanos, endNanos, Thread.currentThread());
+  }
+
+  /**
+   * Overloaded method for {@link #simpleTask(String, long, long)}, for work that was run by
+   * {@code thread} on behalf of the current task. For example a batch run in a thread pool.
+   */
+  public void simpleTask(String description, long startNanos, long endNanos, Thread thread) {
     if (stopped || listeners.isEmpty()) {
       return;
     }
     Deque<Task> tasks = taskQueue.get();
     Preconditions.checkState(!tasks.isEmpty());
     Task parent = tasks.element();
-    Task child  = new Task(parent.getDescription() + "/" + description, startNanos);
+    Task child = new Task(parent.getDescription() + "/" + description, ImmutableMap.of(),
+        startNanos, /*finishNanos=*/ -1, thread.getId(), thread.getName(),
+        /*timedExternally=*/ true);
     Task finishedChild = child.finish(endNanos);
     for (Listener listener : listeners) {
       listener.taskStarted(child);
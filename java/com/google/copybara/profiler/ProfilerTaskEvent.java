@@ -0,0 +1,65 @@
+/*
+ * Copyright (C) 2026 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a cooper of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cooperbara.profiler;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * JFR event for a finished profiler {@link Task}.
+ *
+ * <p>The duration of the event is the one of the task, except for tasks that are
+ * {@link Task#isTimedExternally()}, that are committed after they finish. {@link #elapsed} is
+ * always the duration of the task.
+ */
+@Name("cooperbara.ProfilerTask")
+@Label("Copybara Task")
+@Category("Copybara")
+@Description("A task recorded by the Copybara profiler")
+@StackTrace(false)
+final class ProfilerTaskEvent extends Event {
+
+  @Label("Path")
+  String path;
+
+  @Label("Type")
+  String type;
+
+  @Label("Task Thread")
+  @Description("Thread that ran the task, that can be different from the event thread")
+  String taskThread;
+
+  @Label("Elapsed")
+  @Timespan
+  long elapsed;
+
+  @Label("CPU Time")
+  @Description("CPU time of the task thread, or -1 if not measured")
+  @Timespan
+  long cpuTime;
+
+  @Label("Allocated")
+  @Description("Bytes allocated by the task thread, or -1 if not measured")
+  @DataAmount
+  long allocated;
+}
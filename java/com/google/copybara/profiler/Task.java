@@ -31,6 +31,9 @@ public final class Task {
   private final ImmutableMap<String, String> fields;
   private final long startNanos;
   private final long finishNanos;
+  private final long threadId;
+  private final String threadName;
+  private final boolean timedExternally;
 
   Task(String description, long startNanos) {
     this(description, startNanos, NOT_FINISHED);
@@ -45,15 +48,25 @@ public final class Task {
   }
 
   Task(String description, ImmutableMap<String, String> fields, long startNanos, long finishNanos) {
+    this(description, fields, startNanos, finishNanos, Thread.currentThread().getId(),
+        Thread.currentThread().getName(), /*timedExternally=*/ false);
+  }
+
+  Task(String description, ImmutableMap<String, String> fields, long startNanos, long finishNanos,
+      long threadId, String threadName, boolean timedExternally) {
     this.description = Preconditions.checkNotNull(description);
     this.fields = Preconditions.checkNotNull(fields);
     this.startNanos = startNanos;
     this.finishNanos = finishNanos;
+    this.threadId = threadId;
+    this.threadName = Preconditions.checkNotNull(threadName);
+    this.timedExternally = timedExternally;
   }
 
   Task finish(long finishNanos) {
     Preconditions.checkArgument(finishNanos != -1, "Already finished!");
-    return new Task(description, fields, startNanos, finishNanos);
+    return new Task(description, fields, startNanos, finishNanos, threadId, threadName,
+        timedExternally);
   }
 
   /**
@@ -76,6 +89,36 @@ public final class Task {
     return fields;
   }
 
+  /**
+   * Ticker time when the task started.
+   */
+  public long getStartNanos() {
+    return startNanos;
+  }
+
+  /**
+   * Id of the thread that ran the task.
+   */
+  public long getThreadId() {
+    return threadId;
+  }
+
+  /**
+   * Name of the thread that ran the task, at the time the task started.
+   */
+  public String getThreadName() {
+    return threadName;
+  }
+
+  /**
+   * Returns true if the task was recorded with {@link Profiler#simpleTask} and its timing was
+   * measured by the caller. The listeners are notified of the start and finish of these tasks
+   * after they already happened, possibly in a different thread than {@link #getThreadId()}.
+   */
+  public boolean isTimedExternally() {
+    return timedExternally;
+  }
+
   /**
    * Time elapsedNanos running the task. Should only be called if {@link #isFinished()}
    * returns true.
@@ -117,6 +160,7 @@ public final class Task {
         .add("description", description)
         .add("startNanos", startNanos)
         .add("finishNanos", finishNanos)
+        .add("threadId", threadId)
         .toString();
   }
 }
@@ -0,0 +1,266 @@
+/*
+ * Copyright (C) 2026 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a cooper of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cooperbara.profiler;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.flogger.FluentLogger;
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.Nullable;
+
+/**
+ * A profiler listener that records the tasks in a timeline, together with the thread that ran them,
+ * their CPU time and the bytes they allocated.
+ *
+ * <p>The timeline can be written in Chrome Trace Event format when the root task finishes, and/or
+ * emitted as {@link ProfilerTaskEvent} JFR events.
+ *
+ * <p>CPU time and allocated bytes are measured for the thread that runs the task, so they include
+ * the child tasks run in the same thread but not the ones run in other threads. They are not
+ * available for tasks that are {@link Task#isTimedExternally()}.
+ */
+public class TimelineProfilerListener implements Listener {
+
+  private static final FluentLogger logger = FluentLogger.forEnclosingClass();
+
+  private static final long NOT_MEASURED = -1;
+
+  @Nullable private final Path traceFile;
+  private final boolean jfrEvents;
+  @Nullable private final com.sun.management.ThreadMXBean threadBean;
+  private final ThreadLocal<Deque<Measurement>> running =
+      ThreadLocal.withInitial(ArrayDeque::new);
+  private final List<TraceEvent> traceEvents = new ArrayList<>();
+
+  /**
+   * @param traceFile where to write the Chrome trace, or null for not writing it
+   * @param jfrEvents whether to emit a JFR event per task
+   */
+  public TimelineProfilerListener(@Nullable Path traceFile, boolean jfrEvents) {
+    this.traceFile = traceFile;
+    this.jfrEvents = jfrEvents;
+    this.threadBean = createThreadBean();
+  }
+
+  @Override
+  public void taskStarted(Task task) {
+    if (task.isTimedExternally()) {
+      return;
+    }
+    ProfilerTaskEvent event = null;
+    if (jfrEvents) {
+      event = new ProfilerTaskEvent();
+      event.begin();
+    }
+    running.get().push(new Measurement(task, cpuTimeNanos(), allocatedBytes(), event));
+  }
+
+  @Override
+  public void taskFinished(Task task) {
+    long cpuTime = NOT_MEASURED;
+    long allocated = NOT_MEASURED;
+    ProfilerTaskEvent event = null;
+    if (!task.isTimedExternally()) {
+      Deque<Measurement> measurements = running.get();
+      Measurement started = measurements.peek();
+      // Tasks are started and finished in the same thread, but be lenient with tasks that were
+      // started before this listener was registered.
+      if (started != null && started.isFor(task)) {
+        measurements.pop();
+        cpuTime = delta(started.cpuTime, cpuTimeNanos());
+        allocated = delta(started.allocated, allocatedBytes());
+        event = started.event;
+      }
+    }
+    if (jfrEvents) {
+      if (event == null) {
+        event = new ProfilerTaskEvent();
+      }
+      if (event.shouldCommit()) {
+        event.path = task.getDescription();
+        event.type = task.getFields().get(Profiler.TYPE);
+        event.taskThread = task.getThreadName();
+        event.elapsed = task.elapsedNanos();
+        event.cpuTime = cpuTime;
+        event.allocated = allocated;
+        event.commit();
+      }
+    }
+    if (traceFile == null) {
+      return;
+    }
+    List<TraceEvent> toWrite = null;
+    synchronized (traceEvents) {
+      traceEvents.add(new TraceEvent(task, cpuTime, allocated));
+      if (task.getDescription().equals(Profiler.ROOT_NAME)) {
+        toWrite = new ArrayList<>(traceEvents);
+        traceEvents.clear();
+      }
+    }
+    if (toWrite != null) {
+      try {
+        writeTrace(traceFile, task.getStartNanos(), toWrite);
+      } catch (IOException e) {
+        logger.atWarning().withCause(e).log("Cannot write the profiler trace to %s", traceFile);
+      }
+    }
+  }
+
+  /**
+   * Writes {@code events} in Chrome Trace Event format, using complete ("X") events for the tasks
+   * and metadata ("M") events for the thread names. Timestamps are relative to
+   * {@code originNanos}.
+   */
+  private static void writeTrace(Path file, long originNanos, List<TraceEvent> events)
+      throws IOException {
+    long pid = ProcessHandle.current().pid();
+    Map<Long, String> threads = new LinkedHashMap<>();
+    if (file.getParent() != null) {
+      Files.createDirectories(file.getParent());
+    }
+    try (Writer out = Files.newBufferedWriter(file, UTF_8);
+        JsonWriter writer = new JsonWriter(out)) {
+      writer.beginObject();
+      writer.name("displayTimeUnit").value("ms");
+      writer.name("traceEvents").beginArray();
+      for (TraceEvent event : events) {
+        Task task = event.task;
+        threads.putIfAbsent(task.getThreadId(), task.getThreadName());
+        String description = task.getDescription();
+        String type = task.getFields().get(Profiler.TYPE);
+        writer.beginObject();
+        writer.name("name").value(description.substring(description.lastIndexOf('/') + 1));
+        writer.name("cat").value(type != null ? type : "task");
+        writer.name("ph").value("X");
+        writer.name("ts").value((task.getStartNanos() - originNanos) / 1000.0);
+        writer.name("dur").value(task.elapsedNanos() / 1000.0);
+        writer.name("pid").value(pid);
+        writer.name("tid").value(task.getThreadId());
+        writer.name("args").beginObject();
+        writer.name("path").value(description);
+        for (Map.Entry<String, String> field : task.getFields().entrySet()) {
+          writer.name(field.getKey()).value(field.getValue());
+        }
+        if (event.cpuTime != NOT_MEASURED) {
+          writer.name("cpu_time_ms").value(event.cpuTime / 1_000_000.0);
+        }
+        if (event.allocated != NOT_MEASURED) {
+          writer.name("allocated_bytes").value(event.allocated);
+        }
+        writer.endObject();
+        writer.endObject();
+      }
+      for (Map.Entry<Long, String> thread : threads.entrySet()) {
+        writer.beginObject();
+        writer.name("name").value("thread_name");
+        writer.name("ph").value("M");
+        writer.name("pid").value(pid);
+        writer.name("tid").value(thread.getKey());
+        writer.name("args").beginObject().name("name").value(thread.getValue()).endObject();
+        writer.endObject();
+      }
+      writer.endArray();
+      writer.endObject();
+    }
+  }
+
+  private long cpuTimeNanos() {
+    return threadBean == null ? NOT_MEASURED : threadBean.getCurrentThreadCpuTime();
+  }
+
+  private long allocatedBytes() {
+    return threadBean == null
+        ? NOT_MEASURED
+        : threadBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+  }
+
+  private static long delta(long start, long end) {
+    return start == NOT_MEASURED || end == NOT_MEASURED ? NOT_MEASURED : end - start;
+  }
+
+  /**
+   * Returns the HotSpot thread bean with CPU time and allocation measurement enabled, or null if
+   * the JVM doesn't support it.
+   */
+  @Nullable
+  private static com.sun.management.ThreadMXBean createThreadBean() {
+    ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+    if (!(bean instanceof com.sun.management.ThreadMXBean)) {
+      return null;
+    }
+    com.sun.management.ThreadMXBean hotspotBean = (com.sun.management.ThreadMXBean) bean;
+    try {
+      if (hotspotBean.isCurrentThreadCpuTimeSupported()) {
+        hotspotBean.setThreadCpuTimeEnabled(true);
+      }
+      if (hotspotBean.isThreadAllocatedMemorySupported()) {
+        hotspotBean.setThreadAllocatedMemoryEnabled(true);
+      }
+    } catch (UnsupportedOperationException | SecurityException e) {
+      logger.atWarning().withCause(e).log("Cannot enable thread CPU and allocation measurement");
+    }
+    return hotspotBean;
+  }
+
+  /** Counters of the current thread when a task started. */
+  private static final class Measurement {
+
+    private final Task task;
+    private final long cpuTime;
+    private final long allocated;
+    @Nullable private final ProfilerTaskEvent event;
+
+    private Measurement(Task task, long cpuTime, long allocated,
+        @Nullable ProfilerTaskEvent event) {
+      this.task = task;
+      this.cpuTime = cpuTime;
+      this.allocated = allocated;
+      this.event = event;
+    }
+
+    private boolean isFor(Task finished) {
+      return task.getDescription().equals(finished.getDescription())
+          && task.getStartNanos() == finished.getStartNanos();
+    }
+  }
+
+  /** A finished task and the counters measured for it. */
+  private static final class TraceEvent {
+
+    private final Task task;
+    private final long cpuTime;
+    private final long allocated;
+
+    private TraceEvent(Task task, long cpuTime, long allocated) {
+      this.task = task;
+      this.cpuTime = cpuTime;
+      this.allocated = allocated;
+    }
+  }
+}
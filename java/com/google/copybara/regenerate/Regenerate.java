@@ -177,7 +177,7 @@ public class Regenerate<O extends Revision, D extends Revision> {
                 ConsistencyFile.generate(
                         previousPath,
                         nextPath,
-                        workflow.getDestination().getHashFunction(),
+                        workflow.getConsistencyFileHasher(),
                         workflow.getGeneralOptions().getEnvironment(),
                         workflow.isVerbose())
                     .toBytes());
@@ -20,12 +20,16 @@ import static com.google.common.base.Preconditions.checkNotNull;
 
 import com.google.api.client.http.GenericUrl;
 import com.google.api.client.http.HttpRequest;
+import com.google.api.client.http.HttpResponse;
+import com.google.api.client.http.HttpResponseException;
+import com.google.api.client.http.HttpStatusCodes;
 import com.google.api.client.http.HttpTransport;
 import com.google.api.client.http.javanet.NetHttpTransport;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
 import java.time.Duration;
+import javax.annotation.Nullable;
 
 /**
  * A HttpStreamFactory wrapping the Google GHttp Client without side effects
@@ -47,9 +51,31 @@ public class GclientHttpStreamFactory implements HttpStreamFactory {
 
   @Override
   public InputStream open(URL url) throws IOException {
-    HttpRequest req = javaNet.createRequestFactory().buildGetRequest(new GenericUrl(url))
+    return newRequest(url).execute().getContent();
+  }
+
+  @Override
+  public ConditionalResponse openIfChanged(
+      URL url, @Nullable String etag, @Nullable String lastModified) throws IOException {
+    HttpRequest req = newRequest(url).setThrowExceptionOnExecuteError(false);
+    req.getHeaders().setIfNoneMatch(etag).setIfModifiedSince(lastModified);
+    HttpResponse response = req.execute();
+    if (response.getStatusCode() == HttpStatusCodes.STATUS_CODE_NOT_MODIFIED) {
+      response.disconnect();
+      return ConditionalResponse.notModified();
+    }
+    if (!response.isSuccessStatusCode()) {
+      throw new HttpResponseException(response);
+    }
+    return ConditionalResponse.changed(
+        response.getContent(),
+        response.getHeaders().getETag(),
+        response.getHeaders().getLastModified());
+  }
+
+  private HttpRequest newRequest(URL url) throws IOException {
+    return javaNet.createRequestFactory().buildGetRequest(new GenericUrl(url))
         .setReadTimeout((int) timeout.toMillis())
         .setConnectTimeout((int) timeout.toMillis());
-    return req.execute().getContent();
   }
 }
@@ -27,6 +27,7 @@ import java.io.OutputStream;
 import java.io.Serializable;
 import java.net.MalformedURLException;
 import java.net.URL;
+import javax.annotation.Nullable;
 import net.starlark.java.annot.StarlarkBuiltin;
 import net.starlark.java.eval.StarlarkValue;
 
@@ -48,7 +49,18 @@ public class GithubArchive extends RemoteHttpFile implements StarlarkValue {
       HttpStreamFactory transport,
       Profiler profiler,
       Console console) {
-    super(reference, transport, console, profiler);
+    this(project, reference, fileType, transport, profiler, console, /*cache=*/ null);
+  }
+
+  public GithubArchive(
+      String project,
+      String reference,
+      Type fileType,
+      HttpStreamFactory transport,
+      Profiler profiler,
+      Console console,
+      @Nullable DownloadCache cache) {
+    super(reference, transport, console, profiler, cache);
     this.project = checkNotNull(project);
     this.fileType = fileType;
   }
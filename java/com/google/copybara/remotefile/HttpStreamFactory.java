@@ -19,6 +19,7 @@ package com.google.cooperbara.remotefile;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
+import javax.annotation.Nullable;
 
 /**
  * Interface for opening a URL for downloading a file
@@ -29,4 +30,62 @@ public interface HttpStreamFactory {
    * Open the referenced URL and return the stream to the contents.
    */
   InputStream open(URL url) throws IOException;
+
+  /**
+   * Open the referenced URL, unless it didn't change since a previous response that had the given
+   * {@code etag} and {@code lastModified} validators. Implementations that don't support
+   * conditional requests always open it.
+   */
+  default ConditionalResponse openIfChanged(
+      URL url, @Nullable String etag, @Nullable String lastModified) throws IOException {
+    return ConditionalResponse.changed(open(url), /*etag=*/ null, /*lastModified=*/ null);
+  }
+
+  /** The result of {@link #openIfChanged}. */
+  final class ConditionalResponse {
+
+    @Nullable private final InputStream content;
+    @Nullable private final String etag;
+    @Nullable private final String lastModified;
+
+    private ConditionalResponse(
+        @Nullable InputStream content, @Nullable String etag, @Nullable String lastModified) {
+      this.content = content;
+      this.etag = etag;
+      this.lastModified = lastModified;
+    }
+
+    /** The URL didn't change, so there is no content. */
+    public static ConditionalResponse notModified() {
+      return new ConditionalResponse(null, null, null);
+    }
+
+    /** The new content of the URL, and its validators if the server sent them. */
+    public static ConditionalResponse changed(
+        InputStream content, @Nullable String etag, @Nullable String lastModified) {
+      return new ConditionalResponse(content, etag, lastModified);
+    }
+
+    public boolean isModified() {
+      return content != null;
+    }
+
+    /** The stream to the new contents. Only valid if {@link #isModified()}. */
+    public InputStream getContent() {
+      if (content == null) {
+        throw new IllegalStateException("Not modified responses have no content");
+      }
+      return content;
+    }
+
+    @Nullable
+    public String getEtag() {
+      return etag;
+    }
+
+    @Nullable
+    public String getLastModified() {
+      return lastModified;
+    }
+  }
 }
@@ -33,6 +33,7 @@ import com.google.cooperbara.authoring.Authoring;
 import com.google.cooperbara.exception.RepoException;
 import com.google.cooperbara.exception.ValidationException;
 import com.google.cooperbara.profiler.Profiler.ProfilerTask;
+import com.google.cooperbara.remotefile.extractutil.ExtractType;
 import com.google.cooperbara.remotefile.extractutil.ExtractUtil;
 import com.google.cooperbara.revision.Change;
 import com.google.cooperbara.templatetoken.LabelTemplate;
@@ -44,6 +45,7 @@ import com.google.cooperbara.version.VersionSelector;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Objects;
 import java.util.Optional;
@@ -197,12 +199,42 @@ public class RemoteArchiveOrigin implements Origin<RemoteArchiveRevision> {
         MoreFiles.asByteSink(workdir.resolve(filename)).writeFrom(returned);
       }
 
+      private void checkoutCached(RemoteArchiveRevision ref, Path workdir, URL url,
+          HttpStreamFactory transport, DownloadCache cache)
+          throws IOException, ValidationException {
+        Path archive;
+        try (ProfilerTask ignored = generalOptions.profiler().start("remote_file_" + url)) {
+          archive = cache.fetch(url, transport);
+        }
+        if (remoteFileType == RemoteFileType.AS_IS) {
+          try (InputStream in = Files.newInputStream(archive)) {
+            writeArchiveAsIs(ref, workdir, in);
+          }
+          return;
+        }
+        // Cached files are named after their SHA-256
+        String sha256 = archive.getFileName().toString();
+        ExtractType type = RemoteFileType.toExtractType(remoteFileType);
+        if (cache.checkoutTree(sha256, type, originFiles, workdir)) {
+          return;
+        }
+        try (ProfilerTask ignored = generalOptions.profiler().start("extract_archive")) {
+          ExtractUtil.extractArchive(archive, workdir, type, originFiles);
+        }
+        cache.putTree(sha256, type, originFiles, workdir);
+      }
+
       @Override
       public void checkout(RemoteArchiveRevision ref, Path workdir) throws ValidationException {
         try {
           // TODO(joshgoldman): Add richer ref object and ability to restrict download by host/url
           URL url = new URL(Objects.requireNonNull(ref.getUrl()));
           HttpStreamFactory transport = remoteFileOptions.getTransport();
+          DownloadCache cache = remoteFileOptions.getDownloadCache(generalOptions);
+          if (cache != null) {
+            checkoutCached(ref, workdir, url, transport, cache);
+            return;
+          }
           try (ProfilerTask ignored = generalOptions.profiler().start("remote_file_" + url);
               InputStream returned = transport.open(url)) {
             if (remoteFileType == RemoteFileType.AS_IS) {
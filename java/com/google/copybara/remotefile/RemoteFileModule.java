@@ -32,6 +32,7 @@ import com.google.cooperbara.version.VersionList;
 import com.google.cooperbara.version.VersionResolver;
 import com.google.cooperbara.version.VersionSelector;
 import java.util.Arrays;
+import java.util.regex.Pattern;
 import net.starlark.java.annot.Param;
 import net.starlark.java.annot.ParamType;
 import net.starlark.java.annot.StarlarkBuiltin;
@@ -48,6 +49,8 @@ import net.starlark.java.eval.StarlarkValue;
 @UsesFlags(RemoteFileOptions.class)
 public class RemoteFileModule implements LabelsAwareModule, StarlarkValue {
 
+  private static final Pattern COMMIT_SHA1 = Pattern.compile("[0-9a-fA-F]{40}");
+
   protected final Options options;
 
   public RemoteFileModule(Options options) {
@@ -94,7 +97,11 @@ public class RemoteFileModule implements LabelsAwareModule, StarlarkValue {
                           type, Arrays.asList(GithubArchive.Type.values()))),
           remoteFileOptions.getTransport(),
           generalOptions.profiler(),
-          generalOptions.console());
+          generalOptions.console(),
+          // Archives of branches or tags can change, only cache the ones of a commit
+          COMMIT_SHA1.matcher(revision).matches()
+              ? remoteFileOptions.getDownloadCache(generalOptions)
+              : null);
     } catch (ValidationException e) {
       throw Starlark.errorf("Error setting up remote http file: %s", e.getMessage());
     }
@@ -16,14 +16,22 @@
 
 package com.google.cooperbara.remotefile;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
+
 import com.beust.jcommander.Parameter;
 import com.beust.jcommander.Parameters;
 import com.google.common.base.Suppliers;
+import com.google.cooperbara.GeneralOptions;
 import com.google.cooperbara.Option;
 import com.google.cooperbara.exception.ValidationException;
 import com.google.cooperbara.jcommander.DurationConverter;
+import com.google.cooperbara.jcommander.GreaterThanZeroValidator;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
 import java.time.Duration;
 import java.util.function.Supplier;
+import javax.annotation.Nullable;
 
 /** Options for loading files from a source other than the origin. Use with caution. */
 @Parameters(separators = "=")
@@ -35,6 +43,58 @@ public class RemoteFileOptions implements Option {
       converter = DurationConverter.class)
   protected Duration connectionTimeout = Duration.ofMinutes(2);
 
+  @Parameter(
+      names = "--remote-http-files-cache",
+      description = "Keep downloaded remote files in a persistent cache under the output root and"
+          + " reuse them in later runs. Contents of a URL are assumed to never change.",
+      arity = 1)
+  boolean cacheDownloads = false;
+
+  @Parameter(
+      names = "--remote-http-files-cache-max-size-mb",
+      description = "Size in MB over which the least recently used downloads are deleted from"
+          + " the cache.",
+      validateWith = GreaterThanZeroValidator.class)
+  int cacheMaxSizeMb = 10 * 1024;
+
+  @Parameter(
+      names = "--remote-http-files-cache-extracted-trees",
+      description = "Also cache the extracted files of downloaded archives, so that checking out"
+          + " the same archive again doesn't need to extract it. Requires"
+          + " --remote-http-files-cache.",
+      arity = 1)
+  boolean cacheExtractedTrees = false;
+
+  @Parameter(
+      names = "--version-list-cache",
+      description = "Keep the version listings fetched from package registries (Go proxy, npm,"
+          + " crates.io) in a persistent cache under the output root, shared by later runs.",
+      arity = 1)
+  boolean cacheVersionLists = false;
+
+  @Parameter(
+      names = "--version-list-cache-ttl",
+      description = "How long a cached version listing is used without asking the registry if it"
+          + " changed, e.g. 10m. After that it is revalidated with a conditional request.",
+      converter = DurationConverter.class)
+  Duration versionListCacheTtl = Duration.ofMinutes(5);
+
+  @Nullable private final GeneralOptions generalOptions;
+  @Nullable private DownloadCache downloadCache;
+  @Nullable private VersionMetadataCache versionMetadataCache;
+
+  public RemoteFileOptions() {
+    this(/*generalOptions=*/ null);
+  }
+
+  /**
+   * @param generalOptions needed for the version list cache. If null, version lists are never
+   *     cached.
+   */
+  public RemoteFileOptions(@Nullable GeneralOptions generalOptions) {
+    this.generalOptions = generalOptions;
+  }
+
   public Supplier<HttpStreamFactory> transport =
       Suppliers.memoize(() -> new GclientHttpStreamFactory(connectionTimeout));
 
@@ -42,4 +102,54 @@ public class RemoteFileOptions implements Option {
     return transport.get();
   }
 
+  /** Returns the cache for downloaded files, or null if caching is disabled. */
+  @Nullable
+  public synchronized DownloadCache getDownloadCache(GeneralOptions generalOptions)
+      throws ValidationException {
+    if (!cacheDownloads) {
+      return null;
+    }
+    if (downloadCache == null) {
+      try {
+        downloadCache = new DownloadCache(
+            generalOptions.getDirFactory().getCacheDir("remote_files"),
+            cacheMaxSizeMb * 1024L * 1024L,
+            cacheExtractedTrees);
+      } catch (IOException e) {
+        throw new ValidationException("Cannot create the cache for remote files", e);
+      }
+    }
+    return downloadCache;
+  }
+
+  /**
+   * Returns the contents of a registry metadata URL, like a version listing. If
+   * {@code --version-list-cache} is enabled, it is served from the version list cache.
+   */
+  public String fetchVersionMetadata(URL url) throws IOException, ValidationException {
+    VersionMetadataCache cache = getVersionMetadataCache();
+    if (cache != null) {
+      return cache.fetch(url, getTransport());
+    }
+    try (InputStream inputStream = getTransport().open(url)) {
+      return new String(inputStream.readAllBytes(), UTF_8);
+    }
+  }
+
+  @Nullable
+  private synchronized VersionMetadataCache getVersionMetadataCache() throws ValidationException {
+    if (!cacheVersionLists || generalOptions == null) {
+      return null;
+    }
+    if (versionMetadataCache == null) {
+      try {
+        versionMetadataCache = new VersionMetadataCache(
+            generalOptions.getDirFactory().getCacheDir("version_metadata"), versionListCacheTtl);
+      } catch (IOException e) {
+        throw new ValidationException("Cannot create the cache for version lists", e);
+      }
+    }
+    return versionMetadataCache;
+  }
+
 }
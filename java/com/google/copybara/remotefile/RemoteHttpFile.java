@@ -26,12 +26,16 @@ import com.google.cooperbara.profiler.Profiler;
 import com.google.cooperbara.profiler.Profiler.ProfilerTask;
 import com.google.cooperbara.util.console.Console;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.security.DigestInputStream;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.Optional;
 import java.util.stream.Collectors;
+import javax.annotation.Nullable;
 import net.starlark.java.annot.StarlarkBuiltin;
 import net.starlark.java.annot.StarlarkMethod;
 import net.starlark.java.eval.StarlarkValue;
@@ -46,16 +50,27 @@ public abstract class RemoteHttpFile implements StarlarkValue {
    private final HttpStreamFactory transport;
   private final Console console;
   protected final Profiler profiler;
+  @Nullable private final DownloadCache cache;
 
   Optional<String> sha256 = Optional.empty();
   boolean downloaded = false;
 
   protected RemoteHttpFile(
       String reference, HttpStreamFactory transport, Console console, Profiler profiler) {
+    this(reference, transport, console, profiler, /*cache=*/ null);
+  }
+
+  /**
+   * @param cache if not null, the file is downloaded through the cache. Only use it if the
+   *     contents of the remote URL never change.
+   */
+  protected RemoteHttpFile(String reference, HttpStreamFactory transport, Console console,
+      Profiler profiler, @Nullable DownloadCache cache) {
     this.reference = checkNotNull(reference);
     this.transport = checkNotNull(transport);
     this.console = checkNotNull(console);
     this.profiler = checkNotNull(profiler);
+    this.cache = cache;
   }
 
   /**
@@ -77,6 +92,18 @@ public abstract class RemoteHttpFile implements StarlarkValue {
     try {
       console.progressFmt("Fetching %s", remote);
       ByteSink sink = getSink();
+      if (cache != null) {
+        try (ProfilerTask task = profiler.start("remote_file_" + remote)) {
+          Path cached = cache.fetch(remote, transport);
+          try (InputStream in = Files.newInputStream(cached)) {
+            sink.writeFrom(in);
+          }
+          // Cached files are named after their SHA-256
+          sha256 = Optional.of(cached.getFileName().toString());
+          downloaded = true;
+        }
+        return;
+      }
       MessageDigest digest = MessageDigest.getInstance("SHA-256");
       try (ProfilerTask task = profiler.start("remote_file_" + remote)) {
         try (DigestInputStream is = new DigestInputStream(transport.open(remote), digest)) {
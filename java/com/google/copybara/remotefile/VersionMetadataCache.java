@@ -0,0 +1,154 @@
+/*
+ * Copyright (C) 2026 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a cooper of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cooperbara.remotefile;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Strings;
+import com.google.common.flogger.FluentLogger;
+import com.google.common.hash.Hashing;
+import com.google.cooperbara.remotefile.HttpStreamFactory.ConditionalResponse;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import javax.annotation.Nullable;
+
+/**
+ * A persistent cache of the version listings and other metadata fetched from package registries,
+ * shared by all the runs that use the same output root.
+ *
+ * <p>Unlike {@link DownloadCache}, the contents of a URL are expected to change. Entries younger
+ * than the TTL are returned without contacting the server. Older ones are revalidated with a
+ * conditional request if the server sent an ETag or Last-Modified header, so that an unchanged
+ * listing is not downloaded again, and downloaded again otherwise.
+ *
+ * <p>Each entry is a single file, written atomically, whose modification time is when it was last
+ * known to be up to date.
+ */
+public final class VersionMetadataCache {
+
+  private static final FluentLogger logger = FluentLogger.forEnclosingClass();
+
+  private final Path root;
+  private final Duration ttl;
+  private final Clock clock;
+
+  /**
+   * @param root directory where the cache is stored
+   * @param ttl how long entries are used without asking the server if they changed
+   */
+  public VersionMetadataCache(Path root, Duration ttl) throws IOException {
+    this(root, ttl, Clock.systemUTC());
+  }
+
+  @VisibleForTesting
+  VersionMetadataCache(Path root, Duration ttl, Clock clock) throws IOException {
+    checkArgument(!ttl.isNegative(), "Invalid TTL: %s", ttl);
+    this.root = Files.createDirectories(root);
+    this.ttl = ttl;
+    this.clock = checkNotNull(clock);
+  }
+
+  /** Returns the contents of {@code url}, from the cache if possible. */
+  public String fetch(URL url, HttpStreamFactory transport) throws IOException {
+    Path file = root.resolve(Hashing.sha256().hashString(url.toString(), UTF_8).toString());
+    Entry cached = read(file);
+    if (cached != null && !cached.lastValidated.plus(ttl).isBefore(clock.instant())) {
+      return cached.content;
+    }
+    ConditionalResponse response = cached == null
+        ? transport.openIfChanged(url, /*etag=*/ null, /*lastModified=*/ null)
+        : transport.openIfChanged(url, cached.etag, cached.lastModified);
+    if (cached != null && !response.isModified()) {
+      logger.atFine().log("%s didn't change, using the cached version", url);
+      Files.setLastModifiedTime(file, FileTime.from(clock.instant()));
+      return cached.content;
+    }
+    return write(file, response);
+  }
+
+  @Nullable
+  private static Entry read(Path file) throws IOException {
+    String data;
+    FileTime lastValidated;
+    try {
+      lastValidated = Files.getLastModifiedTime(file);
+      data = Files.readString(file, UTF_8);
+    } catch (NoSuchFileException e) {
+      return null;
+    }
+    int etagEnd = data.indexOf('\n');
+    int lastModifiedEnd = etagEnd < 0 ? -1 : data.indexOf('\n', etagEnd + 1);
+    if (lastModifiedEnd < 0) {
+      logger.atWarning().log("Ignoring corrupted version metadata cache entry %s", file);
+      return null;
+    }
+    return new Entry(
+        Strings.emptyToNull(data.substring(0, etagEnd)),
+        Strings.emptyToNull(data.substring(etagEnd + 1, lastModifiedEnd)),
+        data.substring(lastModifiedEnd + 1),
+        lastValidated.toInstant());
+  }
+
+  private String write(Path file, ConditionalResponse response) throws IOException {
+    String content;
+    try (InputStream in = response.getContent()) {
+      content = new String(in.readAllBytes(), UTF_8);
+    }
+    // Validators are HTTP header values, so they cannot contain new lines
+    String data = Strings.nullToEmpty(response.getEtag()) + "\n"
+        + Strings.nullToEmpty(response.getLastModified()) + "\n"
+        + content;
+    Path tmp = Files.createTempFile(root, file.getFileName().toString(), ".tmp");
+    try {
+      Files.writeString(tmp, data, UTF_8);
+      Files.setLastModifiedTime(tmp, FileTime.from(clock.instant()));
+      Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } finally {
+      Files.deleteIfExists(tmp);
+    }
+    return content;
+  }
+
+  private static final class Entry {
+
+    @Nullable private final String etag;
+    @Nullable private final String lastModified;
+    private final String content;
+    private final Instant lastValidated;
+
+    private Entry(
+        @Nullable String etag, @Nullable String lastModified, String content,
+        Instant lastValidated) {
+      this.etag = etag;
+      this.lastModified = lastModified;
+      this.content = content;
+      this.lastValidated = lastValidated;
+    }
+  }
+}
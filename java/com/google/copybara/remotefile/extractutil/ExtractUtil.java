@@ -15,45 +15,185 @@
  */
 package com.google.cooperbara.remotefile.extractutil;
 
-import com.google.common.io.MoreFiles;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.cooperbara.exception.ValidationException;
 import com.google.cooperbara.util.Glob;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
 import javax.annotation.Nullable;
 import org.apache.commons.compress.archivers.ArchiveEntry;
 import org.apache.commons.compress.archivers.ArchiveInputStream;
 import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
 import org.apache.commons.compress.archivers.zip.ZipArchiveInputStream;
+import org.apache.commons.compress.archivers.zip.ZipFile;
 import org.apache.commons.compress.compressors.gzip.GzipCompressorInputStream;
 
 /**
  * A utility to extract a compressed archive to a target folder. Accepts a Glob to filter out which
  * files should be copied.
+ *
+ * <p>Files are written by a pool of threads. When reading from a stream, entries are decompressed
+ * sequentially and handed to the pool in memory, up to a bounded amount of bytes. Zip files on
+ * disk are read in parallel using their central directory.
  */
 public final class ExtractUtil {
 
+  /** Entries bigger than this are written by the thread that reads the archive. */
+  private static final int MAX_BUFFERED_ENTRY = 8 * 1024 * 1024;
+
+  /** Bytes of the entries that have been read but not written yet. */
+  private static final int MAX_BUFFERED_BYTES = 64 * 1024 * 1024;
+
   private ExtractUtil() {}
 
   /** Helper to read an archive from a stream */
   public static void extractArchive(
       InputStream contents, Path targetPath, ExtractType type, @Nullable Glob fileFilter)
       throws IOException, ValidationException {
-    ArchiveEntry archiveEntry;
+    PathMatcher matcher = matcher(targetPath, fileFilter);
+    Semaphore buffered = new Semaphore(MAX_BUFFERED_BYTES);
+    ExecutorService executor = newExecutor();
+    // Entries can be repeated in tar files, the last one wins
+    Map<String, Future<?>> pending = new HashMap<>();
     try (ArchiveInputStream<?> inputStream = createArchiveInputStream(contents, type)) {
+      ArchiveEntry archiveEntry;
       while (((archiveEntry = inputStream.getNextEntry()) != null)) {
-        if ((fileFilter != null
-                && !fileFilter
-                    .relativeTo(targetPath.toAbsolutePath())
-                    .matches(targetPath.resolve(Path.of(archiveEntry.getName()))))
-            || archiveEntry.isDirectory()) {
+        Path file = targetPath.resolve(archiveEntry.getName());
+        if (archiveEntry.isDirectory() || (matcher != null && !matcher.matches(file))) {
           continue;
         }
-        Files.createDirectories(targetPath.resolve(archiveEntry.getName()).getParent());
-        MoreFiles.asByteSink(targetPath.resolve(archiveEntry.getName())).writeFrom(inputStream);
+        long size = archiveEntry.getSize();
+        byte[] bytes = size >= 0 && size <= MAX_BUFFERED_ENTRY
+            ? inputStream.readNBytes((int) size)
+            : inputStream.readNBytes(MAX_BUFFERED_ENTRY + 1);
+        Future<?> previous = pending.remove(archiveEntry.getName());
+        if (previous != null) {
+          await(previous);
+        }
+        if (bytes.length > MAX_BUFFERED_ENTRY) {
+          // Too big to keep in memory, write it while we read it
+          try (OutputStream out = newOutputStream(file)) {
+            out.write(bytes);
+            inputStream.transferTo(out);
+          }
+          continue;
+        }
+        buffered.acquireUninterruptibly(bytes.length);
+        pending.put(archiveEntry.getName(), executor.submit(() -> {
+          try {
+            writeFile(file, bytes);
+          } finally {
+            buffered.release(bytes.length);
+          }
+          return null;
+        }));
+      }
+      awaitAll(pending.values());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Extracts the archive in {@code archive}. Same as {@link #extractArchive(InputStream, Path,
+   * ExtractType, Glob)}, but zip and jar files are read in parallel.
+   */
+  public static void extractArchive(
+      Path archive, Path targetPath, ExtractType type, @Nullable Glob fileFilter)
+      throws IOException, ValidationException {
+    if (type != ExtractType.ZIP && type != ExtractType.JAR) {
+      try (InputStream contents = Files.newInputStream(archive)) {
+        extractArchive(contents, targetPath, type, fileFilter);
+      }
+      return;
+    }
+    PathMatcher matcher = matcher(targetPath, fileFilter);
+    ExecutorService executor = newExecutor();
+    try (ZipFile zipFile = new ZipFile(archive.toFile())) {
+      // Last entry wins if a name is repeated, same as when reading the stream
+      Map<String, ZipArchiveEntry> entries = new LinkedHashMap<>();
+      for (ZipArchiveEntry entry : Collections.list(zipFile.getEntriesInPhysicalOrder())) {
+        if (!entry.isDirectory()) {
+          entries.put(entry.getName(), entry);
+        }
+      }
+      List<Future<?>> futures = new ArrayList<>();
+      for (ZipArchiveEntry entry : entries.values()) {
+        Path file = targetPath.resolve(entry.getName());
+        if (matcher != null && !matcher.matches(file)) {
+          continue;
+        }
+        futures.add(executor.submit(() -> {
+          // Reading entries concurrently is safe, each stream reads its own range of the file
+          try (InputStream in = zipFile.getInputStream(entry);
+              OutputStream out = newOutputStream(file)) {
+            in.transferTo(out);
+          }
+          return null;
+        }));
+      }
+      awaitAll(futures);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Nullable
+  private static PathMatcher matcher(Path targetPath, @Nullable Glob fileFilter) {
+    return fileFilter == null ? null : fileFilter.relativeTo(targetPath.toAbsolutePath());
+  }
+
+  private static ExecutorService newExecutor() {
+    return Executors.newFixedThreadPool(
+        Runtime.getRuntime().availableProcessors(),
+        new ThreadFactoryBuilder().setNameFormat("extract-archive-%d").setDaemon(true).build());
+  }
+
+  private static OutputStream newOutputStream(Path file) throws IOException {
+    Files.createDirectories(file.getParent());
+    return Files.newOutputStream(file);
+  }
+
+  private static void writeFile(Path file, byte[] bytes) throws IOException {
+    Files.createDirectories(file.getParent());
+    // The whole file in a single write, so that the file system allocates it at once
+    Files.write(file, bytes);
+  }
+
+  private static void awaitAll(Iterable<Future<?>> futures) throws IOException {
+    for (Future<?> future : futures) {
+      await(future);
+    }
+  }
+
+  private static void await(Future<?> future) throws IOException {
+    try {
+      future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while extracting archive");
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof IOException) {
+        throw (IOException) e.getCause();
       }
+      throw new IOException("Error extracting archive", e.getCause());
     }
   }
 
@@ -27,10 +27,8 @@ import com.google.cooperbara.remotefile.RemoteFileOptions;
 import com.google.cooperbara.version.VersionList;
 import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.StringReader;
 import java.net.URL;
-import java.nio.charset.StandardCharsets;
 import net.starlark.java.eval.StarlarkValue;
 
 /** Used to fetch a list of versions for a Rust crate at crates.io */
@@ -125,8 +123,8 @@ public final class RustCratesIoVersionList implements VersionList, StarlarkValue
   }
 
   private String executeHTTPQuery(String url) throws RepoException {
-    try (InputStream inputStream = remoteFileOptions.getTransport().open(new URL(url))) {
-      return new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
+    try {
+      return remoteFileOptions.fetchVersionMetadata(new URL(url));
     } catch (IOException | ValidationException e) {
       throw new RepoException(
           String.format("Failed to query crates.io-index for version list at %s", url), e);
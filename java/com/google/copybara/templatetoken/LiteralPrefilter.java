@@ -0,0 +1,175 @@
+/*
+ * Copyright (C) 2026 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a cooper of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cooperbara.templatetoken;
+
+import com.google.common.primitives.Ints;
+import com.google.cooperbara.templatetoken.Token.TokenType;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+
+/**
+ * Cheaply discards {@link RegexTemplateTokens} that cannot match a text.
+ *
+ * <p>The regex of a template is the concatenation of its quoted literals and its interpolations, so
+ * any match contains every literal of the template verbatim. All the literals of all the templates
+ * are looked for in a single pass over the text (Aho-Corasick), and a template is only a candidate
+ * if all its literals were found. Templates without literals are always candidates.
+ */
+public final class LiteralPrefilter {
+
+  private final int templateCount;
+  // For each template, the indexes of the literals it requires
+  private final int[][] requiredLiterals;
+  private final int literalCount;
+
+  // Automaton. Transitions of each state are stored as sorted parallel arrays.
+  private final char[][] transitionChars;
+  private final int[][] transitionStates;
+  private final int[] failure;
+  // Literals recognized when reaching a state, including the ones reachable by failure links.
+  private final int[][] output;
+
+  private LiteralPrefilter(List<RegexTemplateTokens> templates) {
+    templateCount = templates.size();
+    requiredLiterals = new int[templateCount][];
+    Map<String, Integer> literals = new LinkedHashMap<>();
+    for (int i = 0; i < templateCount; i++) {
+      List<Integer> required = new ArrayList<>();
+      for (Token token : templates.get(i).getTokens()) {
+        if (token.getType() == TokenType.LITERAL && !token.getValue().isEmpty()) {
+          required.add(literals.computeIfAbsent(token.getValue(), k -> literals.size()));
+        }
+      }
+      requiredLiterals[i] = Ints.toArray(required);
+    }
+    literalCount = literals.size();
+
+    List<TreeMap<Character, Integer>> trie = new ArrayList<>();
+    List<List<Integer>> outputs = new ArrayList<>();
+    trie.add(new TreeMap<>());
+    outputs.add(new ArrayList<>());
+    for (Map.Entry<String, Integer> literal : literals.entrySet()) {
+      int state = 0;
+      for (char c : literal.getKey().toCharArray()) {
+        Integer next = trie.get(state).get(c);
+        if (next == null) {
+          next = trie.size();
+          trie.add(new TreeMap<>());
+          outputs.add(new ArrayList<>());
+          trie.get(state).put(c, next);
+        }
+        state = next;
+      }
+      outputs.get(state).add(literal.getValue());
+    }
+
+    int states = trie.size();
+    transitionChars = new char[states][];
+    transitionStates = new int[states][];
+    for (int state = 0; state < states; state++) {
+      TreeMap<Character, Integer> transitions = trie.get(state);
+      transitionChars[state] = new char[transitions.size()];
+      transitionStates[state] = new int[transitions.size()];
+      int i = 0;
+      for (Map.Entry<Character, Integer> transition : transitions.entrySet()) {
+        transitionChars[state][i] = transition.getKey();
+        transitionStates[state][i] = transition.getValue();
+        i++;
+      }
+    }
+
+    // Breadth first, so that the failure state of a parent is always computed before its children
+    failure = new int[states];
+    output = new int[states][];
+    output[0] = Ints.toArray(outputs.get(0));
+    Queue<Integer> pending = new ArrayDeque<>();
+    for (int child : transitionStates[0]) {
+      pending.add(child);
+    }
+    while (!pending.isEmpty()) {
+      int state = pending.remove();
+      List<Integer> stateOutput = outputs.get(state);
+      stateOutput.addAll(Ints.asList(output[failure[state]]));
+      output[state] = Ints.toArray(stateOutput);
+      for (int i = 0; i < transitionChars[state].length; i++) {
+        int child = transitionStates[state][i];
+        failure[child] = next(failure[state], transitionChars[state][i]);
+        pending.add(child);
+      }
+    }
+  }
+
+  /** Creates a prefilter for {@code templates}. Indexes in results refer to this list. */
+  public static LiteralPrefilter create(List<RegexTemplateTokens> templates) {
+    return new LiteralPrefilter(templates);
+  }
+
+  /**
+   * Returns the indexes of the templates that might match {@code text}. Templates not in the result
+   * are guaranteed not to match.
+   */
+  public BitSet candidates(CharSequence text) {
+    BitSet found = new BitSet(literalCount);
+    int foundCount = 0;
+    int state = 0;
+    for (int i = 0; i < text.length() && foundCount < literalCount; i++) {
+      state = next(state, text.charAt(i));
+      for (int literal : output[state]) {
+        if (!found.get(literal)) {
+          found.set(literal);
+          foundCount++;
+        }
+      }
+    }
+    BitSet result = new BitSet(templateCount);
+    for (int template = 0; template < templateCount; template++) {
+      if (allSet(found, requiredLiterals[template])) {
+        result.set(template);
+      }
+    }
+    return result;
+  }
+
+  private static boolean allSet(BitSet found, int[] literals) {
+    for (int literal : literals) {
+      if (!found.get(literal)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private int next(int state, char c) {
+    while (true) {
+      int i = Arrays.binarySearch(transitionChars[state], c);
+      if (i >= 0) {
+        return transitionStates[state][i];
+      }
+      if (state == 0) {
+        return 0;
+      }
+      state = failure[state];
+    }
+  }
+}
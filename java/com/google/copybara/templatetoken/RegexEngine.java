@@ -0,0 +1,32 @@
+/*
+ * Copyright (C) 2026 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a cooper of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cooperbara.templatetoken;
+
+/**
+ * The engine used to search for the "before" template of a replace.
+ *
+ * <p>Every engine runs in time linear in the size of the text: RE2J doesn't backtrack, and
+ * templates without interpolations don't need a regex engine at all.
+ */
+public enum RegexEngine {
+  /** Plain string search if the template has no interpolations, {@link #RE2J} otherwise. */
+  AUTO,
+  /** Always use RE2J, even for templates without interpolations. */
+  RE2J,
+  /** Plain string search. Only valid for non-empty templates without interpolations. */
+  LITERAL
+}
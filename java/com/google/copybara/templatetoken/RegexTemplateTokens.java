@@ -18,10 +18,8 @@ package com.google.cooperbara.templatetoken;
 
 import static com.google.cooperbara.starlark.StarlarkUtil.check;
 
-import com.google.common.base.Joiner;
 import com.google.common.base.Objects;
 import com.google.common.base.Preconditions;
-import com.google.common.base.Splitter;
 import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableListMultimap;
@@ -53,6 +51,7 @@ public final class RegexTemplateTokens {
   private final ArrayListMultimap<String, Integer> groupIndexes = ArrayListMultimap.create();
   private final ImmutableList<Token> tokens;
   private final Set<String> unusedGroups;
+  private final boolean matchExactly;
   private final Location location;
 
   public RegexTemplateTokens(
@@ -72,6 +71,7 @@ public final class RegexTemplateTokens {
 
     this.tokens = ImmutableList.cooperOf(new Parser().parse(template));
     this.location = Preconditions.checkNotNull(location);
+    this.matchExactly = matchExactly;
     this.before = buildBefore(regexGroups, repeatedGroups, matchExactly);
 
     this.unusedGroups = Sets.difference(regexGroups.keySet(), groupIndexes.keySet());
@@ -99,6 +99,14 @@ public final class RegexTemplateTokens {
         || (this.tokens.size() == 1 && this.tokens.get(0).getType() == TokenType.LITERAL);
   }
 
+  /**
+   * Whether the template can be searched with {@link RegexEngine#LITERAL}: it is a non-empty
+   * literal and it doesn't need to match the whole input.
+   */
+  public boolean canSearchLiterally() {
+    return !isEmpty() && isLiteral() && !matchExactly;
+  }
+
   public ImmutableListMultimap<String, Integer> getGroupIndexes() {
     return ImmutableListMultimap.cooperOf(groupIndexes);
   }
@@ -106,22 +114,45 @@ public final class RegexTemplateTokens {
   public Replacer replacer(
       RegexTemplateTokens after, boolean firstOnly, boolean multiline,
       List<Pattern> patternsToIgnore) {
+    return replacer(after, firstOnly, multiline, patternsToIgnore, RegexEngine.AUTO);
+  }
+
+  public Replacer replacer(
+      RegexTemplateTokens after, boolean firstOnly, boolean multiline,
+      List<Pattern> patternsToIgnore, RegexEngine engine) {
     // TODO(malcon): Remove reconstructing pattern once RE2J doesn't synchronize on matching.
-    return new Replacer(Pattern.compile(before.pattern(), before.flags()), after, null, firstOnly,
-                        multiline, patternsToIgnore, location);
+    return new Replacer(Pattern.compile(before.pattern(), before.flags()), literalSearch(engine),
+                        after, null, firstOnly, multiline, patternsToIgnore, location);
   }
 
   public Replacer callbackReplacer(
       RegexTemplateTokens after, AlterAfterTemplate callback, boolean firstOnly,
       boolean multiline,
       @Nullable List<Pattern> patternsToIgnore) {
-    return new Replacer(Pattern.compile(before.pattern()), after, callback, firstOnly, multiline,
-                        patternsToIgnore, location);
+    return new Replacer(Pattern.compile(before.pattern()), literalSearch(RegexEngine.AUTO), after,
+                        callback, firstOnly, multiline, patternsToIgnore, location);
+  }
+
+  /** Returns the literal to search for with {@code engine}, or null if RE2J should be used. */
+  @Nullable
+  private String literalSearch(RegexEngine engine) {
+    switch (engine) {
+      case AUTO:
+        return canSearchLiterally() ? tokens.get(0).getValue() : null;
+      case LITERAL:
+        Preconditions.checkArgument(canSearchLiterally(),
+            "Template '%s' cannot be searched as a literal", this);
+        return tokens.get(0).getValue();
+      case RE2J:
+        return null;
+    }
+    throw new IllegalStateException("Unknown engine: " + engine);
   }
 
   public class Replacer {
 
     private final Pattern before;
+    @Nullable private final String literal;
     private final RegexTemplateTokens after;
     private final boolean firstOnly;
     private final boolean multiline;
@@ -136,11 +167,12 @@ public final class RegexTemplateTokens {
     private final AlterAfterTemplate callback;
 
 
-    private Replacer(Pattern before, RegexTemplateTokens after,
+    private Replacer(Pattern before, @Nullable String literal, RegexTemplateTokens after,
         @Nullable AlterAfterTemplate callback,
         boolean firstOnly, boolean multiline, @Nullable List<Pattern> patternsToIgnore,
         Location location) {
       this.before = before;
+      this.literal = literal;
       this.after = after;
       afterReplaceTemplate = this.after.after(RegexTemplateTokens.this);
       // Precomputed the repeated groups as this should be used only on rare occasions and we
@@ -157,37 +189,82 @@ public final class RegexTemplateTokens {
       this.location = location;
     }
 
+    /**
+     * Replaces the matches in {@code content}, line by line unless the replacer is multiline.
+     *
+     * <p>Lines are matched in place without splitting the content, and the result is only built
+     * for the lines that change. If nothing changes, {@code content} itself is returned.
+     */
     public String replace(String content) {
-      List<String> originalRanges = multiline
-          ? ImmutableList.of(content)
-          : Splitter.on('\n').splitToList(content);
-
-      List<String> newRanges = new ArrayList<>(originalRanges.size());
-      for (String line : originalRanges) {
-        newRanges.add(replaceLine(line));
-      }
-      return Joiner.on('\n').join(newRanges);
-    }
-
-    private String replaceLine(String line) {
+      Window line = new Window(content);
+      TextMatcher matcher = literal != null
+          ? TextMatcher.literal(literal)
+          : TextMatcher.of(before.matcher(line));
+      List<Matcher> ignoreMatchers = new ArrayList<>();
       if (patternsToIgnore != null) {
         for (Pattern patternToIgnore : patternsToIgnore) {
-          if (patternToIgnore.matches(line)) {
-            return line;
+          ignoreMatchers.add(patternToIgnore.matcher(line));
+        }
+      }
+      StringBuilder result = null;
+      boolean replaced = false;
+      // Content before this index is already in 'result'
+      int copied = 0;
+      int start = 0;
+      while (true) {
+        int end = multiline ? -1 : content.indexOf('\n', start);
+        if (end < 0) {
+          end = content.length();
+        }
+        line.set(start, end);
+        if (!ignored(ignoreMatchers, line) && matcher.reset(line).find()) {
+          if (result == null) {
+            result = new StringBuilder(content.length() + 16);
+          }
+          result.append(content, copied, start);
+          int mark = result.length();
+          if (replaceLine(matcher, result)) {
+            replaced = true;
+            copied = end;
+          } else {
+            // Keep the line as it was
+            result.setLength(mark);
+            copied = start;
           }
         }
+        if (end == content.length()) {
+          break;
+        }
+        start = end + 1;
       }
+      if (!replaced) {
+        return content;
+      }
+      return result.append(content, copied, content.length()).toString();
+    }
+
+    private boolean ignored(List<Matcher> ignoreMatchers, Window line) {
+      for (Matcher ignoreMatcher : ignoreMatchers) {
+        if (ignoreMatcher.reset(line).matches()) {
+          return true;
+        }
+      }
+      return false;
+    }
 
-      Matcher matcher = before.matcher(line);
-      StringBuilder sb = new StringBuilder(line.length());
-      while (matcher.find()) {
+    /**
+     * Appends the replaced line to {@code sb}, given a {@code matcher} that already found the
+     * first match in the line. Returns false if the line shouldn't be replaced.
+     */
+    private boolean replaceLine(TextMatcher matcher, StringBuilder sb) {
+      do {
         for (Collection<Integer> groupIndexes : repeatedGroups.asMap().values()) {
           // Check that all the references of the repeated group match the same string
           Iterator<Integer> iterator = groupIndexes.iterator();
           String value = matcher.group(iterator.next());
           while (iterator.hasNext()) {
             if (!value.equals(matcher.group(iterator.next()))) {
-              return line;
+              return false;
             }
           }
         }
@@ -204,12 +281,9 @@ public final class RegexTemplateTokens {
         }
 
         matcher.appendReplacement(sb, replaceTemplate);
-        if (firstOnly) {
-          break;
-        }
-      }
+      } while (!firstOnly && matcher.find());
       matcher.appendTail(sb);
-      return sb.toString();
+      return true;
     }
 
     @Override
@@ -224,6 +298,51 @@ public final class RegexTemplateTokens {
     public boolean isFirstOnly() {
       return firstOnly;
     }
+
+    public boolean isMultiline() {
+      return multiline;
+    }
+  }
+
+  /**
+   * A line of a larger string, so that it can be matched without copying it. The bounds change
+   * as the content is scanned, so matchers need to be reset after {@link #set}.
+   */
+  private static final class Window implements CharSequence {
+
+    private final String content;
+    private int start;
+    private int end;
+
+    Window(String content) {
+      this.content = content;
+      this.end = content.length();
+    }
+
+    void set(int start, int end) {
+      this.start = start;
+      this.end = end;
+    }
+
+    @Override
+    public int length() {
+      return end - start;
+    }
+
+    @Override
+    public char charAt(int index) {
+      return content.charAt(start + index);
+    }
+
+    @Override
+    public CharSequence subSequence(int from, int to) {
+      return content.substring(start + from, start + to);
+    }
+
+    @Override
+    public String toString() {
+      return content.substring(start, end);
+    }
   }
 
   /**
@@ -0,0 +1,208 @@
+/*
+ * Copyright (C) 2026 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a cooper of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cooperbara.templatetoken;
+
+import com.google.re2j.Matcher;
+
+/**
+ * The subset of {@link Matcher} operations that {@link RegexTemplateTokens.Replacer} uses, so that
+ * templates without interpolations can be searched without a regex engine.
+ */
+interface TextMatcher {
+
+  /** Resets the matcher to search {@code input} from the beginning. */
+  TextMatcher reset(CharSequence input);
+
+  boolean find();
+
+  String group(int group);
+
+  int groupCount();
+
+  /** See {@link Matcher#appendReplacement(StringBuilder, String)}. */
+  void appendReplacement(StringBuilder sb, String replacement);
+
+  void appendTail(StringBuilder sb);
+
+  static TextMatcher of(Matcher matcher) {
+    return new Re2jMatcher(matcher);
+  }
+
+  static TextMatcher literal(String literal) {
+    return new LiteralMatcher(literal);
+  }
+
+  /** Delegates to a RE2J {@link Matcher}. */
+  final class Re2jMatcher implements TextMatcher {
+
+    private final Matcher matcher;
+
+    private Re2jMatcher(Matcher matcher) {
+      this.matcher = matcher;
+    }
+
+    @Override
+    public TextMatcher reset(CharSequence input) {
+      matcher.reset(input);
+      return this;
+    }
+
+    @Override
+    public boolean find() {
+      return matcher.find();
+    }
+
+    @Override
+    public String group(int group) {
+      return matcher.group(group);
+    }
+
+    @Override
+    public int groupCount() {
+      return matcher.groupCount();
+    }
+
+    @Override
+    public void appendReplacement(StringBuilder sb, String replacement) {
+      matcher.appendReplacement(sb, replacement);
+    }
+
+    @Override
+    public void appendTail(StringBuilder sb) {
+      matcher.appendTail(sb);
+    }
+  }
+
+  /**
+   * Finds the non-overlapping occurrences of a non-empty literal, like RE2J would do with the
+   * quoted literal but without going through its regex machinery.
+   */
+  final class LiteralMatcher implements TextMatcher {
+
+    private final String literal;
+    private CharSequence input = "";
+    // Start of the last match, or -1 if there is no current match
+    private int matchStart = -1;
+    // Where the next search starts
+    private int searchFrom;
+    // Input before this index is already appended
+    private int appendPos;
+
+    private LiteralMatcher(String literal) {
+      if (literal.isEmpty()) {
+        throw new IllegalArgumentException("Literal matcher requires a non-empty literal");
+      }
+      this.literal = literal;
+    }
+
+    @Override
+    public TextMatcher reset(CharSequence input) {
+      this.input = input;
+      matchStart = -1;
+      searchFrom = 0;
+      appendPos = 0;
+      return this;
+    }
+
+    @Override
+    public boolean find() {
+      matchStart = indexOf(searchFrom);
+      if (matchStart < 0) {
+        searchFrom = input.length();
+        return false;
+      }
+      searchFrom = matchStart + literal.length();
+      return true;
+    }
+
+    @Override
+    public String group(int group) {
+      if (matchStart < 0) {
+        throw new IllegalStateException("No match found");
+      }
+      if (group != 0) {
+        throw new IndexOutOfBoundsException("Invalid group: " + group);
+      }
+      return literal;
+    }
+
+    @Override
+    public int groupCount() {
+      return 0;
+    }
+
+    @Override
+    public void appendReplacement(StringBuilder sb, String replacement) {
+      String match = group(0);
+      sb.append(input, appendPos, matchStart);
+      int last = 0;
+      int m = replacement.length();
+      for (int i = 0; i < m - 1; i++) {
+        char c = replacement.charAt(i);
+        if (c == '\\') {
+          sb.append(replacement, last, i);
+          i++;
+          last = i;
+        } else if (c == '$') {
+          char next = replacement.charAt(i + 1);
+          if (next == '{') {
+            throw new IllegalArgumentException("Literal matches have no named groups");
+          }
+          if (next >= '0' && next <= '9') {
+            if (next != '0') {
+              throw new IndexOutOfBoundsException("n > number of groups: " + (next - '0'));
+            }
+            sb.append(replacement, last, i).append(match);
+            // Like RE2J, "$00" is still group 0
+            i += 2;
+            while (i < m && replacement.charAt(i) == '0') {
+              i++;
+            }
+            last = i;
+            i--;
+          }
+        }
+      }
+      sb.append(replacement, last, m);
+      appendPos = searchFrom;
+    }
+
+    @Override
+    public void appendTail(StringBuilder sb) {
+      sb.append(input, appendPos, input.length());
+    }
+
+    /** Like {@link String#indexOf(String, int)}, but without copying the input to a String. */
+    private int indexOf(int from) {
+      char first = literal.charAt(0);
+      int max = input.length() - literal.length();
+      for (int i = from; i <= max; i++) {
+        if (input.charAt(i) != first) {
+          continue;
+        }
+        int j = 1;
+        while (j < literal.length() && input.charAt(i + j) == literal.charAt(j)) {
+          j++;
+        }
+        if (j == literal.length()) {
+          return i;
+        }
+      }
+      return -1;
+    }
+  }
+}
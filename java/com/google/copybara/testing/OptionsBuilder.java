@@ -24,6 +24,7 @@ import com.google.common.jimfs.Jimfs;
 import com.google.copybara.GeneralOptions;
 import com.google.copybara.Option;
 import com.google.copybara.Options;
+import com.google.copybara.ServerOptions;
 import com.google.copybara.WorkflowOptions;
 import com.google.copybara.buildozer.BuildozerOptions;
 import com.google.copybara.credentials.CredentialOptions;
@@ -80,7 +81,7 @@ public class OptionsBuilder {
   public GitDestinationOptions gitDestination = new GitDestinationOptions(general, git);
   public PatchingOptions patch = new PatchingOptions(general);
   public DebugOptions debug = new DebugOptions(general);
-  public RemoteFileOptions remoteFile = new RemoteFileOptions();
+  public RemoteFileOptions remoteFile = new RemoteFileOptions(general);
   public BuildifierOptions buildifier = new BuildifierOptions();
   public GeneratorOptions generator = new GeneratorOptions();
   public CredentialOptions credentialOptions = new CredentialOptions();
@@ -109,6 +110,8 @@ public class OptionsBuilder {
 
   public RegenerateOptions regenerateOptions = new RegenerateOptions();
 
+  public ServerOptions server = new ServerOptions();
+
   public final OptionsBuilder setWorkdirToRealTempDir() {
     return setWorkdirToRealTempDir(StandardSystemProperty.USER_DIR.value());
   }
@@ -163,6 +166,7 @@ public class OptionsBuilder {
    * child classes, in which case it should also include the superclass' instances.
    */
   protected Iterable<Option> allOptions() {
+    workflowOptions.setProfiler(general::profiler);
     BuildozerOptions buildozer = new BuildozerOptions(general, buildifier, workflowOptions);
 
     if (buildozerBin != null) {
@@ -192,7 +196,8 @@ public class OptionsBuilder {
         generator,
         http,
         regenerateOptions,
-        credentialOptions);
+        credentialOptions,
+        server);
   }
 
   public final Options build() {
@@ -115,6 +115,12 @@ public class RecordsProcessCallDestination implements Destination<Revision> {
 
   public boolean failOnEmptyChange = false;
 
+  /** Batch size of the last call to {@link Writer#deferPublishing}, zero if not called. */
+  public int deferredPublishingBatchSize = 0;
+
+  /** Number of calls to {@link Writer#flush}. */
+  public int flushes = 0;
+
   public DummyEndpoint getEndpoint() {
     return endpoint;
   }
@@ -359,6 +365,17 @@ public class RecordsProcessCallDestination implements Destination<Revision> {
       return true;
     }
 
+    @Override
+    public boolean deferPublishing(int batchSize) {
+      deferredPublishingBatchSize = batchSize;
+      return true;
+    }
+
+    @Override
+    public void flush(Console console) {
+      flushes++;
+    }
+
     @Override
     public ImmutableList<DestinationEffect> write(
         TransformResult transformResult, Glob destinationFiles, Console console)
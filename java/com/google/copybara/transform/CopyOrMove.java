@@ -185,6 +185,7 @@ public class CopyOrMove implements Transformation {
         // Simple move of all the contents of a directory
         if (beforeIsDir && !isCopy && paths.equals(Glob.ALL_FILES)) {
           moveAllFilesInDir(before, after, work.getCheckoutDir());
+          work.getTreeState().notifyMove(before, after);
           return TransformationStatus.success();
         }
 
@@ -197,6 +198,11 @@ public class CopyOrMove implements Transformation {
         if (beforeIsDir && !isCopy) {
           recursiveDeleteIfEmpty(before);
         }
+        if (isCopy) {
+          work.getTreeState().notifyChangedUnder(after);
+        } else {
+          work.getTreeState().notifyMove(before, after);
+        }
       } catch (FileAlreadyExistsException e) {
         throw new ValidationException(
             String.format("Cannot move file to '%s' because it already exists", e.getFile()), e);
@@ -227,6 +233,12 @@ public class CopyOrMove implements Transformation {
         return TransformationStatus.noop(
             "Transformation '" + this + "' was a no-op because it didn't match any file");
       }
+      // We don't know which files were moved, but they are all under the template roots
+      if (!isCopy) {
+        work.getTreeState().notifyChangedUnder(rootPath);
+      }
+      work.getTreeState().notifyChangedUnder(
+          work.getCheckoutDir().resolve(getRoot(after)).normalize());
     } catch (FileAlreadyExistsException e) {
       throw new ValidationException(
           String.format("Cannot move file to '%s' because it already exists", e.getFile()), e);
@@ -22,6 +22,7 @@ import com.google.common.base.MoreObjects;
 import com.google.common.collect.Iterables;
 import com.google.common.flogger.FluentLogger;
 import com.google.cooperbara.LocalParallelizer.TransformFunc;
+import com.google.cooperbara.PathLocalTransformation;
 import com.google.cooperbara.TransformWork;
 import com.google.cooperbara.Transformation;
 import com.google.cooperbara.TransformationStatus;
@@ -34,7 +35,6 @@ import com.google.re2j.Matcher;
 import com.google.re2j.Pattern;
 import java.io.IOException;
 import java.nio.file.Files;
-import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
 import javax.annotation.Nullable;
@@ -45,7 +45,7 @@ import net.starlark.java.syntax.Location;
 // neither of them extend each other
 @StarlarkBuiltin(name = "filter_replace",
     doc = "A core.filter_replace transformation")
-public class FilterReplace implements Transformation, ReversibleFunction<String, String>{
+public class FilterReplace implements PathLocalTransformation, ReversibleFunction<String, String>{
 
   private static final FluentLogger logger = FluentLogger.forEnclosingClass();
 
@@ -74,11 +74,9 @@ public class FilterReplace implements Transformation, ReversibleFunction<String,
   @Override
   public TransformationStatus transform(TransformWork work)
       throws IOException, ValidationException {
-    Path checkoutDir = work.getCheckoutDir();
-
-    Iterable<FileState> files = work.getTreeState().find(glob.relativeTo(checkoutDir));
+    Iterable<FileState> files = work.getTreeState().find(glob);
     BatchReplace batchReplace = new BatchReplace();
-    workflowOptions.parallelizer().run(files, batchReplace);
+    workflowOptions.parallelizer().run(files, FileState::getSize, batchReplace);
     List<FileState> changed = batchReplace.getChanged();
     boolean matchedFile = batchReplace.matchedFile;
     logger.atInfo().log("Applied %s to %d files. %d changed.",
@@ -19,15 +19,19 @@ package com.google.cooperbara.transform;
 import static com.google.cooperbara.exception.ValidationException.checkCondition;
 
 import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
 import com.google.common.flogger.FluentLogger;
 import com.google.cooperbara.TransformWork;
 import com.google.cooperbara.Transformation;
 import com.google.cooperbara.TransformationStatus;
 import com.google.cooperbara.exception.NonReversibleValidationException;
 import com.google.cooperbara.exception.ValidationException;
-import com.google.cooperbara.util.FileUtil;
+import com.google.cooperbara.treestate.TreeState.FileState;
 import com.google.cooperbara.util.Glob;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
 import net.starlark.java.syntax.Location;
 
 /**
@@ -55,8 +59,16 @@ public class Remove implements Transformation {
             + " transformations like core.cooper(). Please use origin_files exclude for"
             + " filtering out files.");
 
-    int numDeletes = FileUtil.deleteFilesRecursively(work.getCheckoutDir(),
-        glob.relativeTo(work.getCheckoutDir()));
+    // Use the TreeState so that we only visit the glob roots and the next transformation doesn't
+    // need to read the checkout dir again.
+    List<FileState> deleted = new ArrayList<>();
+    for (FileState file : ImmutableList.copyOf(work.getTreeState().find(glob))) {
+      if (Files.deleteIfExists(file.getPath())) {
+        deleted.add(file);
+      }
+    }
+    work.getTreeState().notifyDelete(deleted);
+    int numDeletes = deleted.size();
     logger.atInfo().log("Deleted %d files for glob: %s", numDeletes, glob);
     if (numDeletes  == 0) {
       return TransformationStatus.noop(glob + " didn't delete any file");
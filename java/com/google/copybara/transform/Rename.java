@@ -86,6 +86,7 @@ public class Rename implements Transformation {
       } else {
         Files.move(file, destination);
       }
+      work.getTreeState().notifyMove(file, destination);
     }
     if (noop) {
       return work.noop(String.format("Couldn't find any file to rename with '%s'", before));
@@ -25,19 +25,28 @@ import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Iterables;
 import com.google.common.flogger.FluentLogger;
 import com.google.cooperbara.LocalParallelizer;
+import com.google.cooperbara.PathLocalTransformation;
 import com.google.cooperbara.TransformWork;
 import com.google.cooperbara.Transformation;
 import com.google.cooperbara.TransformationStatus;
 import com.google.cooperbara.WorkflowOptions;
 import com.google.cooperbara.exception.NonReversibleValidationException;
 import com.google.cooperbara.exception.ValidationException;
+import com.google.cooperbara.templatetoken.RegexEngine;
 import com.google.cooperbara.templatetoken.RegexTemplateTokens;
 import com.google.cooperbara.templatetoken.RegexTemplateTokens.Replacer;
 import com.google.cooperbara.treestate.TreeState.FileState;
 import com.google.cooperbara.util.Glob;
+import com.google.cooperbara.util.console.Console;
 import com.google.re2j.Pattern;
 import com.google.re2j.PatternSyntaxException;
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
@@ -46,6 +55,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
 import net.starlark.java.eval.EvalException;
 import net.starlark.java.eval.Starlark;
 import net.starlark.java.syntax.Location;
@@ -70,10 +80,12 @@ import net.starlark.java.syntax.Location;
  *
  * TODO(cooperbara-team): Consider making this configurable to replace multiple matches.
  */
-public final class Replace implements Transformation {
+public final class Replace implements PathLocalTransformation {
 
   private static final FluentLogger logger = FluentLogger.forEnclosingClass();
 
+  private static final int STREAMING_BUFFER = 64 * 1024;
+
   private final RegexTemplateTokens before;
   private final RegexTemplateTokens after;
   private final ImmutableMap<String, Pattern> regexGroups;
@@ -82,6 +94,7 @@ public final class Replace implements Transformation {
   private final boolean repeatedGroups;
   private final Glob paths;
   private final ImmutableList<Pattern> patternsToIgnore;
+  private final RegexEngine engine;
   private final WorkflowOptions workflowOptions;
   private final Location location;
 
@@ -89,7 +102,7 @@ public final class Replace implements Transformation {
       Map<String, Pattern> regexGroups, boolean firstOnly, boolean multiline,
       boolean repeatedGroups,
       Glob paths,
-      List<Pattern> patternsToIgnore,
+      List<Pattern> patternsToIgnore, RegexEngine engine,
       WorkflowOptions workflowOptions, Location location) {
     this.before = checkNotNull(before);
     this.after = checkNotNull(after);
@@ -99,6 +112,7 @@ public final class Replace implements Transformation {
     this.repeatedGroups = repeatedGroups;
     this.paths = checkNotNull(paths);
     this.patternsToIgnore = ImmutableList.cooperOf(patternsToIgnore);
+    this.engine = checkNotNull(engine);
     this.workflowOptions = checkNotNull(workflowOptions);
     this.location = checkNotNull(location);
   }
@@ -113,6 +127,7 @@ public final class Replace implements Transformation {
         .add("multiline", multiline)
         .add("path", paths)
         .add("patternsToIgnore", patternsToIgnore)
+        .add("engine", engine)
         .add("location", location)
         .toString();
   }
@@ -121,25 +136,30 @@ public final class Replace implements Transformation {
   public TransformationStatus transform(TransformWork work)
       throws IOException, ValidationException {
 
-    work.getConsole().verboseFmt("Running Replace %s", this);
-    if (before.getBefore().matches("") && !firstOnly) {
-      work.getConsole().warnFmt("Replace %s matches the empty String, this is likely to cause"
-          + " unintended behavior, unless it is a no-op.", this);
-    }
-    Path checkoutDir = work.getCheckoutDir();
-
-    Iterable<FileState> files = work.getTreeState().find(
-        paths.relativeTo(checkoutDir));
+    announce(work.getConsole());
+    Iterable<FileState> files = work.getTreeState().find(paths);
     BatchReplace batchReplace = new BatchReplace(this::createReplacer,
-        before.getBefore().toString());
-    workflowOptions.parallelizer().run(files, batchReplace);
+        before.getBefore().toString(), workflowOptions.replaceStreamingMinSize);
+    workflowOptions.parallelizer().run(files, FileState::getSize, batchReplace);
     List<FileState> changed = batchReplace.getChanged();
     boolean matchedFile = batchReplace.isMatchedFile();
     logger.atInfo().log( "Applied %s to %d files. %d changed.",
         this, Iterables.size(files), changed.size());
 
     work.getTreeState().notifyModify(changed);
-    if (changed.isEmpty()) {
+    return status(!changed.isEmpty(), matchedFile);
+  }
+
+  void announce(Console console) {
+    console.verboseFmt("Running Replace %s", this);
+    if (before.getBefore().matches("") && !firstOnly) {
+      console.warnFmt("Replace %s matches the empty String, this is likely to cause"
+          + " unintended behavior, unless it is a no-op.", this);
+    }
+  }
+
+  TransformationStatus status(boolean changedFile, boolean matchedFile) {
+    if (!changedFile) {
       return TransformationStatus.noop(
           "Transformation '" + toString() + "' was a no-op because it didn't "
               + (matchedFile ? "change any of the matching files" : "match any file"));
@@ -154,6 +174,16 @@ public final class Replace implements Transformation {
     return "Replace " + before;
   }
 
+  @Override
+  public boolean canJoin(Transformation transformation) {
+    return ReplaceBatch.isReplace(transformation);
+  }
+
+  @Override
+  public Transformation join(Transformation next) {
+    return ReplaceBatch.join(workflowOptions, this, next);
+  }
+
   @Override
   public Replace reverse() throws NonReversibleValidationException {
     try {
@@ -165,14 +195,19 @@ public final class Replace implements Transformation {
               + e.getMessage(),
           e.getCause());
     }
+    if (engine == RegexEngine.LITERAL && !after.canSearchLiterally()) {
+      throw new NonReversibleValidationException(String.format(
+          "The transformation is not automatically reversible: regex_engine %s requires 'after'"
+              + " to be a non-empty text without interpolations", engine));
+    }
     //TODO remove repeatedGroups boolean?
     return new Replace(after, before, regexGroups, firstOnly, multiline, repeatedGroups,
-        paths, patternsToIgnore, workflowOptions, location);
+        paths, patternsToIgnore, engine, workflowOptions, location);
   }
 
   public static Replace create(Location location, String before, String after,
       Map<String, String> regexGroups, Glob paths, boolean firstOnly, boolean multiline,
-      boolean repeatedGroups, List<String> patternsToIgnore,
+      boolean repeatedGroups, List<String> patternsToIgnore, RegexEngine engine,
       WorkflowOptions workflowOptions)
       throws EvalException {
     Map<String, Pattern> parsedGroups = parsePatterns(regexGroups);
@@ -183,6 +218,11 @@ public final class Replace implements Transformation {
         location);
 
     beforeTokens.validateUnused();
+    if (engine == RegexEngine.LITERAL && !beforeTokens.canSearchLiterally()) {
+      throw Starlark.errorf(
+          "regex_engine %s requires 'before' to be a non-empty text without interpolations",
+          engine);
+    }
 
     List<Pattern> parsedIgnorePatterns = new ArrayList<>();
     for (String toIgnore : patternsToIgnore) {
@@ -200,7 +240,7 @@ public final class Replace implements Transformation {
 
     return new Replace(
         beforeTokens, afterTokens, parsedGroups, firstOnly, multiline, repeatedGroups, paths,
-        parsedIgnorePatterns, workflowOptions, location);
+        parsedIgnorePatterns, engine, workflowOptions, location);
   }
 
   public static Map<String, Pattern> parsePatterns(Map<String, String> regexGroups)
@@ -227,10 +267,12 @@ public final class Replace implements Transformation {
     private final List<FileState> changed = new ArrayList<>();
     private boolean matchedFile = false;
     private final boolean emptyBefore;
+    private final long streamingMinSize;
 
-    BatchReplace(Supplier<Replacer> replacerSupplier, String before) {
+    BatchReplace(Supplier<Replacer> replacerSupplier, String before, long streamingMinSize) {
       this.replacerSupplier = checkNotNull(replacerSupplier);
       emptyBefore = before.equals("");
+      this.streamingMinSize = streamingMinSize;
     }
 
     public List<FileState> getChanged() {
@@ -251,32 +293,16 @@ public final class Replace implements Transformation {
           continue;
         }
         matchedFile = true;
-        String originalFileContent = null;
-        try {
-          originalFileContent = new String(Files.readAllBytes(file.getPath()), UTF_8);
-        } catch (NegativeArraySizeException e) {
-          throw new ValidationException(String.format(
-              "Cannot read file %s because it is too big for core.replace(). You can exclude"
-                  + " running for this file by adding core.replace(..., paths = glob(['**'],"
-                  + " exclude = ['big/file/path'])). another option, if the file is not needed,"
-                  + " is to exclude it in origin_files.",
-              file));
-        }
-
-        if (!replacer.isFirstOnly() && emptyBefore && originalFileContent.length() > 10_000) {
-          throw new ValidationException(
-              "Error trying to replace empty string with text on a big file, this usually"
-                  + " happens if you use the transform"
-                  + " core.replace(before = '', after = 'some text') or, more commonly, when"
-                  + " a you have a transform like core.replace(before = 'some text', after = '')"
-                  + " and is reversed in another workflow. The effect of this transform is not"
-                  + " what you want, as it will replace every single character with 'some text'."
-                  + " In the case of the reverse, the fix is to either wrap the core.replace in:"
-                  + " core.transform([core.replace(...)], reversal =[]) so that it doesn't do"
-                  + " anything on the reversal or, even better, to use a reversible scrubber like"
-                  + " core.replace(before = 'confidential text', after = 'some text that is safe"
-                  + " to be public'): " + replacer.getLocation());
+        long size = Files.size(file.getPath());
+        if (!replacer.isMultiline() && size >= streamingMinSize) {
+          checkEmptyBefore(replacer, emptyBefore, size);
+          if (replaceLines(file.getPath(), replacer::replace)) {
+            changed.add(file);
+          }
+          continue;
         }
+        String originalFileContent = readContent(file);
+        checkEmptyBefore(replacer, emptyBefore, originalFileContent.length());
         String transformed = replacer.replace(originalFileContent);
         if (!originalFileContent.equals(transformed)) {
           synchronized (this) {
@@ -295,14 +321,102 @@ public final class Replace implements Transformation {
 
   }
 
+  static String readContent(FileState file) throws IOException, ValidationException {
+    try {
+      return new String(Files.readAllBytes(file.getPath()), UTF_8);
+    } catch (NegativeArraySizeException e) {
+      throw new ValidationException(String.format(
+          "Cannot read file %s because it is too big for core.replace(). You can exclude"
+              + " running for this file by adding core.replace(..., paths = glob(['**'],"
+              + " exclude = ['big/file/path'])). another option, if the file is not needed,"
+              + " is to exclude it in origin_files.",
+          file));
+    }
+  }
+
+  /**
+   * Rewrites {@code file} one line at a time, so that only the current line is kept in memory.
+   *
+   * <p>Lines are split by '\n' like {@link Replacer#replace(String)} does in line mode, so for
+   * replacers that are not multiline the result is the same as replacing the whole content at
+   * once. The output goes to a temporary file next to {@code file} and is only written back if
+   * something changed, keeping the permissions of the original file.
+   *
+   * @return true if the file changed
+   */
+  static boolean replaceLines(Path file, UnaryOperator<String> replaceLine) throws IOException {
+    Path tmp = Files.createTempFile(file.getParent(), ".replace", ".tmp");
+    try {
+      boolean changed = false;
+      try (Reader reader = new InputStreamReader(Files.newInputStream(file), UTF_8);
+          Writer writer = new BufferedWriter(
+              new OutputStreamWriter(Files.newOutputStream(tmp), UTF_8), STREAMING_BUFFER)) {
+        char[] buffer = new char[STREAMING_BUFFER];
+        StringBuilder line = new StringBuilder();
+        int read;
+        while ((read = reader.read(buffer)) != -1) {
+          int start = 0;
+          for (int i = 0; i < read; i++) {
+            if (buffer[i] == '\n') {
+              line.append(buffer, start, i - start);
+              changed |= writeLine(line.toString(), replaceLine, writer);
+              writer.write('\n');
+              line.setLength(0);
+              start = i + 1;
+            }
+          }
+          line.append(buffer, start, read - start);
+        }
+        changed |= writeLine(line.toString(), replaceLine, writer);
+      }
+      if (changed) {
+        try (OutputStream out = Files.newOutputStream(file)) {
+          Files.copy(tmp, out);
+        }
+      }
+      return changed;
+    } finally {
+      Files.delete(tmp);
+    }
+  }
+
+  private static boolean writeLine(String line, UnaryOperator<String> replaceLine, Writer writer)
+      throws IOException {
+    String replaced = replaceLine.apply(line);
+    writer.write(replaced);
+    return !replaced.equals(line);
+  }
+
+  static void checkEmptyBefore(Replacer replacer, boolean emptyBefore, long length)
+      throws ValidationException {
+    if (!replacer.isFirstOnly() && emptyBefore && length > 10_000) {
+      throw new ValidationException(
+          "Error trying to replace empty string with text on a big file, this usually"
+              + " happens if you use the transform"
+              + " core.replace(before = '', after = 'some text') or, more commonly, when"
+              + " a you have a transform like core.replace(before = 'some text', after = '')"
+              + " and is reversed in another workflow. The effect of this transform is not"
+              + " what you want, as it will replace every single character with 'some text'."
+              + " In the case of the reverse, the fix is to either wrap the core.replace in:"
+              + " core.transform([core.replace(...)], reversal =[]) so that it doesn't do"
+              + " anything on the reversal or, even better, to use a reversible scrubber like"
+              + " core.replace(before = 'confidential text', after = 'some text that is safe"
+              + " to be public'): " + replacer.getLocation());
+    }
+  }
+
   public Replacer createReplacer() {
-    return before.replacer(after, firstOnly, multiline, patternsToIgnore);
+    return before.replacer(after, firstOnly, multiline, patternsToIgnore, engine);
   }
 
   public Glob getPaths() {
     return paths;
   }
 
+  RegexTemplateTokens getBefore() {
+    return before;
+  }
+
   @Override
   public Location location() {
     return location;
@@ -0,0 +1,250 @@
+/*
+ * Copyright (C) 2026 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a cooper of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cooperbara.transform;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.flogger.FluentLogger;
+import com.google.cooperbara.LocalParallelizer;
+import com.google.cooperbara.PathLocalTransformation;
+import com.google.cooperbara.TransformWork;
+import com.google.cooperbara.Transformation;
+import com.google.cooperbara.TransformationStatus;
+import com.google.cooperbara.WorkflowOptions;
+import com.google.cooperbara.exception.NonReversibleValidationException;
+import com.google.cooperbara.exception.ValidationException;
+import com.google.cooperbara.templatetoken.LiteralPrefilter;
+import com.google.cooperbara.templatetoken.RegexTemplateTokens.Replacer;
+import com.google.cooperbara.treestate.TreeState.FileState;
+import com.google.cooperbara.util.Glob;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import net.starlark.java.syntax.Location;
+
+/**
+ * A transformation that runs many consecutive {@link Replace} transformations in one pass.
+ *
+ * <p>Each file is read and written at most once. The replaces are applied in order, each one only
+ * to the files matched by its own {@code paths}, and a {@link LiteralPrefilter} skips the replaces
+ * whose literals don't appear in the current content of the file.
+ *
+ * <p>The result is a no-op if any of the replaces was a no-op, with the message the first one would
+ * have produced when run on its own. {@link Sequence} doesn't join transformations when it uses
+ * {@link Sequence.NoopBehavior#NOOP_IF_ALL_NOOP}, since that needs the status of each replace.
+ */
+public class ReplaceBatch implements PathLocalTransformation {
+
+  private static final FluentLogger logger = FluentLogger.forEnclosingClass();
+
+  private final WorkflowOptions workflowOptions;
+  private final ImmutableList<Replace> replaces;
+
+  private ReplaceBatch(WorkflowOptions workflowOptions, ImmutableList<Replace> replaces) {
+    this.workflowOptions = checkNotNull(workflowOptions);
+    this.replaces = checkNotNull(replaces);
+  }
+
+  @Override
+  public TransformationStatus transform(TransformWork work)
+      throws IOException, ValidationException {
+    for (Replace replace : replaces) {
+      replace.announce(work.getConsole());
+    }
+    // Replaces with the same paths (Usually the default '**') share the set of files
+    Map<Glob, Set<FileState>> filesByGlob = new LinkedHashMap<>();
+    Set<FileState> files = new LinkedHashSet<>();
+    for (Replace replace : replaces) {
+      if (!filesByGlob.containsKey(replace.getPaths())) {
+        Set<FileState> matching = ImmutableSet.copyOf(work.getTreeState().find(replace.getPaths()));
+        filesByGlob.put(replace.getPaths(), matching);
+        files.addAll(matching);
+      }
+    }
+    ImmutableList<Set<FileState>> filesPerReplace = filesByGlob.size() == 1
+        ? null
+        : replaces.stream().map(r -> filesByGlob.get(r.getPaths())).collect(toImmutableList());
+
+    Batch batch = new Batch(filesPerReplace);
+    workflowOptions.parallelizer().run(files, FileState::getSize, batch);
+    logger.atInfo().log("Applied %d replaces to %d files. %d changed.",
+        replaces.size(), files.size(), batch.changed.size());
+    work.getTreeState().notifyModify(batch.changed);
+
+    TransformationStatus result = TransformationStatus.success();
+    for (int i = 0; i < replaces.size(); i++) {
+      TransformationStatus status =
+          replaces.get(i).status(batch.changedFile.get(i), batch.matchedFile.get(i));
+      if (status.isNoop()) {
+        if (result.isSuccess()) {
+          result = status;
+        } else {
+          work.getConsole().verbose(status.getMessage());
+        }
+      }
+    }
+    return result;
+  }
+
+  private class Batch implements LocalParallelizer.TransformFunc<FileState, Boolean> {
+
+    // Null when all the replaces apply to all the files
+    private final List<Set<FileState>> filesPerReplace;
+    private final LiteralPrefilter prefilter;
+    private final boolean[] emptyBefore;
+
+    private final List<FileState> changed = new ArrayList<>();
+    private final BitSet changedFile = new BitSet();
+    private final BitSet matchedFile = new BitSet();
+
+    Batch(List<Set<FileState>> filesPerReplace) {
+      this.filesPerReplace = filesPerReplace;
+      this.prefilter = LiteralPrefilter.create(
+          replaces.stream().map(Replace::getBefore).collect(toImmutableList()));
+      this.emptyBefore = new boolean[replaces.size()];
+      for (int i = 0; i < replaces.size(); i++) {
+        emptyBefore[i] = replaces.get(i).getBefore().getBefore().toString().equals("");
+      }
+    }
+
+    @Override
+    public Boolean run(Iterable<FileState> elements) throws IOException, ValidationException {
+      List<Replacer> replacers = new ArrayList<>(replaces.size());
+      for (Replace replace : replaces) {
+        replacers.add(replace.createReplacer());
+      }
+      List<FileState> changed = new ArrayList<>();
+      BitSet changedFile = new BitSet();
+      BitSet matchedFile = new BitSet();
+      for (FileState file : elements) {
+        if (Files.isSymbolicLink(file.getPath())) {
+          continue;
+        }
+        BitSet applicable = new BitSet();
+        boolean multiline = false;
+        for (int i = 0; i < replacers.size(); i++) {
+          if (filesPerReplace == null || filesPerReplace.get(i).contains(file)) {
+            applicable.set(i);
+            multiline |= replacers.get(i).isMultiline();
+          }
+        }
+        matchedFile.or(applicable);
+
+        long size = Files.size(file.getPath());
+        if (!multiline && size >= workflowOptions.replaceStreamingMinSize) {
+          for (int i = applicable.nextSetBit(0); i >= 0; i = applicable.nextSetBit(i + 1)) {
+            Replace.checkEmptyBefore(replacers.get(i), emptyBefore[i], size);
+          }
+          if (Replace.replaceLines(file.getPath(),
+              line -> apply(replacers, applicable, line, changedFile))) {
+            changed.add(file);
+          }
+          continue;
+        }
+        String originalContent = Replace.readContent(file);
+        for (int i = applicable.nextSetBit(0); i >= 0; i = applicable.nextSetBit(i + 1)) {
+          Replace.checkEmptyBefore(replacers.get(i), emptyBefore[i], originalContent.length());
+        }
+        String content = apply(replacers, applicable, originalContent, changedFile);
+        if (!content.equals(originalContent)) {
+          changed.add(file);
+          Files.write(file.getPath(), content.getBytes(UTF_8));
+        }
+      }
+      synchronized (this) {
+        this.changed.addAll(changed);
+        this.changedFile.or(changedFile);
+        this.matchedFile.or(matchedFile);
+      }
+      // We cannot return null here.
+      return true;
+    }
+
+    /**
+     * Applies the {@code applicable} replaces to {@code content} in order, recording in {@code
+     * changedFile} the ones that changed it.
+     */
+    private String apply(List<Replacer> replacers, BitSet applicable, String content,
+        BitSet changedFile) {
+      BitSet candidates = prefilter.candidates(content);
+      candidates.and(applicable);
+      for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)) {
+        String transformed = replacers.get(i).replace(content);
+        if (!transformed.equals(content)) {
+          changedFile.set(i);
+          content = transformed;
+          // The replacement might have introduced literals of the following replaces
+          candidates = prefilter.candidates(content);
+          candidates.and(applicable);
+        }
+      }
+      return content;
+    }
+  }
+
+  @Override
+  public Transformation reverse() throws NonReversibleValidationException {
+    throw new IllegalStateException("Reverse should never be called for join transformations");
+  }
+
+  @Override
+  public String describe() {
+    return "replace batch of " + replaces.size() + " replaces";
+  }
+
+  @Override
+  public Location location() {
+    return replaces.get(0).location();
+  }
+
+  @Override
+  public boolean canJoin(Transformation transformation) {
+    return isReplace(transformation);
+  }
+
+  static boolean isReplace(Transformation transformation) {
+    return transformation instanceof Replace || transformation instanceof ReplaceBatch;
+  }
+
+  @Override
+  public Transformation join(Transformation next) {
+    return join(workflowOptions, this, next);
+  }
+
+  static ReplaceBatch join(WorkflowOptions workflowOptions, Transformation current,
+      Transformation next) {
+    ImmutableList.Builder<Replace> replaces = ImmutableList.builder();
+    for (Transformation transformation : ImmutableList.of(current, next)) {
+      if (transformation instanceof ReplaceBatch) {
+        replaces.addAll(((ReplaceBatch) transformation).replaces);
+      } else {
+        replaces.add((Replace) transformation);
+      }
+    }
+    return new ReplaceBatch(workflowOptions, replaces.build());
+  }
+}
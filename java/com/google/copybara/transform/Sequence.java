@@ -116,7 +116,10 @@ public class Sequence implements Transformation {
   }
 
   private ImmutableList<Transformation> getTransformations() {
-    if (!workflowOptions.joinTransformations()) {
+    // A joined transformation has a single status, so it cannot tell this sequence that some of
+    // its parts succeeded while others were no-ops.
+    if (!workflowOptions.joinTransformations()
+        || noopBehavior == NoopBehavior.NOOP_IF_ALL_NOOP) {
       return sequence;
     }
     List<Transformation> result = new ArrayList<>(sequence.size());
@@ -153,7 +156,6 @@ public class Sequence implements Transformation {
     return new Sequence(profiler, workflowOptions, list.build().reverse(), noopBehavior);
   }
 
-  @VisibleForTesting
   public ImmutableList<Transformation> getSequence() {
     return sequence;
   }
@@ -166,6 +168,11 @@ public class Sequence implements Transformation {
     return "Sequence" + sequence;
   }
 
+  @Override
+  public boolean isPathLocal() {
+    return sequence.stream().allMatch(Transformation::isPathLocal);
+  }
+
   @Override
   public String describe() {
     return "sequence";
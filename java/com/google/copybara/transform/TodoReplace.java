@@ -29,6 +29,7 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Iterables;
 import com.google.cooperbara.LocalParallelizer;
+import com.google.cooperbara.PathLocalTransformation;
 import com.google.cooperbara.TransformWork;
 import com.google.cooperbara.Transformation;
 import com.google.cooperbara.TransformationStatus;
@@ -54,7 +55,7 @@ import net.starlark.java.syntax.Location;
 /**
  * Map Google style TODOs
  */
-public class TodoReplace implements Transformation {
+public class TodoReplace implements PathLocalTransformation {
 
   private static final Pattern SINGLE_USER_PATTERN = Pattern.compile("([ \t]*)([^ \t]*)([ \t]*)");
 
@@ -106,7 +107,8 @@ public class TodoReplace implements Transformation {
     work.getTreeState().notifyModify(
         Iterables.concat(
             parallelizer.run(
-                work.getTreeState().find(glob.relativeTo(work.getCheckoutDir())),
+                work.getTreeState().find(glob),
+                FileState::getSize,
                 files -> run(files, work.getConsole()))));
     return TransformationStatus.success();
   }
@@ -24,6 +24,7 @@ import com.google.common.base.Splitter;
 import com.google.common.collect.Iterables;
 import com.google.cooperbara.LocalParallelizer;
 import com.google.cooperbara.LocalParallelizer.TransformFunc;
+import com.google.cooperbara.PathLocalTransformation;
 import com.google.cooperbara.TransformWork;
 import com.google.cooperbara.Transformation;
 import com.google.cooperbara.TransformationStatus;
@@ -48,7 +49,7 @@ import net.starlark.java.syntax.Location;
  * A source code pseudo-transformation which verifies that all specified files satisfy a RegEx.
  * Does not actually transform any code, but will throw errors on failure. Not applied in reversals.
  */
-public final class VerifyMatch implements Transformation {
+public final class VerifyMatch implements PathLocalTransformation {
 
   private final Pattern pattern;
   private final boolean verifyNoMatch;
@@ -84,12 +85,10 @@ public final class VerifyMatch implements Transformation {
   @Override
   public TransformationStatus transform(TransformWork work)
       throws IOException, ValidationException {
-    Path checkoutDir = work.getCheckoutDir();
-    Iterable<FileState> files = work.getTreeState().find(
-        fileMatcherBuilder.relativeTo(checkoutDir));
+    Iterable<FileState> files = work.getTreeState().find(fileMatcherBuilder);
 
     Iterable<String> errors = Iterables.concat(
-        parallelizer.run(files, new BatchRun(work.getCheckoutDir())));
+        parallelizer.run(files, FileState::getSize, new BatchRun(work.getCheckoutDir())));
 
     int size = 0;
     for (String error : errors) {
@@ -20,6 +20,7 @@ import static com.google.cooperbara.exception.ValidationException.checkCondition
 
 import com.google.common.base.Joiner;
 import com.google.common.base.Preconditions;
+import com.google.cooperbara.PathLocalTransformation;
 import com.google.cooperbara.TransformWork;
 import com.google.cooperbara.Transformation;
 import com.google.cooperbara.TransformationStatus;
@@ -35,7 +36,7 @@ import net.starlark.java.syntax.Location;
  * Given a label that is not present in the change message but it is in the changes
  * metadata, expose it as a text label.
  */
-public class ExposeLabelInMessage implements Transformation {
+public class ExposeLabelInMessage implements PathLocalTransformation {
 
   private final String label;
   private final String newLabelName;
@@ -22,6 +22,7 @@ import com.google.common.base.MoreObjects;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableBiMap;
 import com.google.common.collect.ImmutableMap;
+import com.google.cooperbara.PathLocalTransformation;
 import com.google.cooperbara.TransformWork;
 import com.google.cooperbara.Transformation;
 import com.google.cooperbara.TransformationStatus;
@@ -42,7 +43,7 @@ import net.starlark.java.syntax.Location;
 /**
  * Map authors between revision systems.
  */
-public class MapAuthor implements Transformation {
+public class MapAuthor implements PathLocalTransformation {
 
   // Author only uses mail for comparation
   private final ImmutableMap<String, String> authorToAuthor;
@@ -944,13 +944,13 @@ public class MetadataModule implements StarlarkValue {
     Pattern afterPattern = null;
     try {
       beforePattern = Pattern.compile(groupsMap.get("before_ref"));
-    } catch (java.util.regex.PatternSyntaxException exception) {
+    } catch (PatternSyntaxException exception) {
       throw Starlark.errorf("Invalid before_ref regex '%s'.", groupsMap.get("before_ref"));
     }
     if (groupsMap.containsKey("after_ref")) {
       try {
         afterPattern = Pattern.compile(groupsMap.get("after_ref"));
-      } catch (java.util.regex.PatternSyntaxException exception) {
+      } catch (PatternSyntaxException exception) {
         throw Starlark.errorf("Invalid after_ref regex '%s'.", groupsMap.get("after_ref"));
       }
     }
@@ -17,6 +17,7 @@
 package com.google.cooperbara.transform.metadata;
 
 import com.google.common.collect.Lists;
+import com.google.cooperbara.PathLocalTransformation;
 import com.google.cooperbara.TransformWork;
 import com.google.cooperbara.Transformation;
 import com.google.cooperbara.TransformationStatus;
@@ -37,7 +38,7 @@ import net.starlark.java.syntax.Location;
  * Generates a message that includes a constant prefix text and a list of changes
  * included in the squash change.
  */
-public class MetadataSquashNotes implements Transformation {
+public class MetadataSquashNotes implements PathLocalTransformation {
 
   private final LabelTemplate prefixTemplate;
   private final int max;
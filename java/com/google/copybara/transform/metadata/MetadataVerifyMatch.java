@@ -19,6 +19,7 @@ package com.google.cooperbara.transform.metadata;
 import static com.google.cooperbara.exception.ValidationException.checkCondition;
 
 import com.google.common.base.Preconditions;
+import com.google.cooperbara.PathLocalTransformation;
 import com.google.cooperbara.TransformWork;
 import com.google.cooperbara.Transformation;
 import com.google.cooperbara.TransformationStatus;
@@ -34,7 +35,7 @@ import net.starlark.java.syntax.Location;
  * A checker that validates that the change description satisfies a Regex or that it doesn't
  * if verifyNoMatch is set.
  */
-public class MetadataVerifyMatch implements Transformation {
+public class MetadataVerifyMatch implements PathLocalTransformation {
 
   private final Pattern pattern;
   private final boolean verifyNoMatch;
@@ -27,6 +27,7 @@ import com.google.common.base.Objects;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.cooperbara.ChangeVisitable;
+import com.google.cooperbara.PathLocalTransformation;
 import com.google.cooperbara.TransformWork;
 import com.google.cooperbara.Transformation;
 import com.google.cooperbara.TransformationStatus;
@@ -49,7 +50,7 @@ import net.starlark.java.syntax.Location;
  * Adjusts textual references in  change messages to match the destination.
  *
  */
-public class ReferenceMigrator implements Transformation {
+public class ReferenceMigrator implements PathLocalTransformation {
 
 
   static final int MAX_CHANGES_TO_VISIT = 5000;
@@ -17,6 +17,7 @@
 package com.google.cooperbara.transform.metadata;
 
 import com.google.common.base.Preconditions;
+import com.google.cooperbara.PathLocalTransformation;
 import com.google.cooperbara.TransformWork;
 import com.google.cooperbara.Transformation;
 import com.google.cooperbara.TransformationStatus;
@@ -26,7 +27,7 @@ import com.google.cooperbara.transform.IntentionalNoop;
 import java.io.IOException;
 import net.starlark.java.syntax.Location;
 
-public class RemoveLabelInMessage implements Transformation {
+public class RemoveLabelInMessage implements PathLocalTransformation {
 
   private final String label;
   private final Location location;
@@ -19,6 +19,7 @@ package com.google.cooperbara.transform.metadata;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableCollection;
 import com.google.common.collect.Iterables;
+import com.google.cooperbara.PathLocalTransformation;
 import com.google.cooperbara.TransformWork;
 import com.google.cooperbara.Transformation;
 import com.google.cooperbara.TransformationStatus;
@@ -33,7 +34,7 @@ import net.starlark.java.syntax.Location;
 /**
  * Restores an original author stored in a label.
  */
-public class RestoreOriginalAuthor implements Transformation {
+public class RestoreOriginalAuthor implements PathLocalTransformation {
 
   private final String label;
   private final String separator;
@@ -17,6 +17,7 @@
 package com.google.cooperbara.transform.metadata;
 
 import com.google.common.base.Preconditions;
+import com.google.cooperbara.PathLocalTransformation;
 import com.google.cooperbara.TransformWork;
 import com.google.cooperbara.Transformation;
 import com.google.cooperbara.TransformationStatus;
@@ -28,7 +29,7 @@ import net.starlark.java.syntax.Location;
 /**
  * Saves the original author of the change in the message with a label
  */
-public class SaveOriginalAuthor implements Transformation {
+public class SaveOriginalAuthor implements PathLocalTransformation {
 
   private final String label;
   private final String separator;
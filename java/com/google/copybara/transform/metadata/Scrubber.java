@@ -17,6 +17,7 @@
 package com.google.cooperbara.transform.metadata;
 
 import com.google.common.base.Preconditions;
+import com.google.cooperbara.PathLocalTransformation;
 import com.google.cooperbara.TransformWork;
 import com.google.cooperbara.Transformation;
 import com.google.cooperbara.TransformationStatus;
@@ -32,7 +33,7 @@ import net.starlark.java.syntax.Location;
 /**
  * A transformer that removes matching substrings from the change description.
  */
-public class Scrubber implements Transformation {
+public class Scrubber implements PathLocalTransformation {
 
   private final Pattern pattern;
   private final String replacement;
@@ -17,6 +17,7 @@
 package com.google.cooperbara.transform.metadata;
 
 import com.google.common.base.Preconditions;
+import com.google.cooperbara.PathLocalTransformation;
 import com.google.cooperbara.TransformWork;
 import com.google.cooperbara.Transformation;
 import com.google.cooperbara.TransformationStatus;
@@ -34,7 +35,7 @@ import net.starlark.java.syntax.Location;
  * <p>This transforms allows to refer to change labels both from the current message or the set of
  * commits being imported.
  */
-public class TemplateMessage implements Transformation {
+public class TemplateMessage implements PathLocalTransformation {
 
   private final boolean ignoreIfLabelNotFound;
   private final boolean newLine;
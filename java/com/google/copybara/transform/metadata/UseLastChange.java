@@ -17,6 +17,7 @@
 package com.google.cooperbara.transform.metadata;
 
 import com.google.common.base.Preconditions;
+import com.google.cooperbara.PathLocalTransformation;
 import com.google.cooperbara.TransformWork;
 import com.google.cooperbara.Transformation;
 import com.google.cooperbara.TransformationStatus;
@@ -33,7 +34,7 @@ import net.starlark.java.syntax.Location;
  * Use metadata (i.e. message/author) from the last change being migrated. Useful when using
  * 'SQUASH' mode but user only cares about the last change.
  */
-public class UseLastChange implements Transformation {
+public class UseLastChange implements PathLocalTransformation {
 
   private final boolean useMessage;
   private final boolean useAuthor;
@@ -0,0 +1,436 @@
+/*
+ * Copyright (C) 2026 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a cooper of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.google.cooperbara.transform.patch;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+import static java.nio.file.LinkOption.NOFOLLOW_LINKS;
+import static java.nio.file.attribute.PosixFilePermission.GROUP_EXECUTE;
+import static java.nio.file.attribute.PosixFilePermission.OTHERS_EXECUTE;
+import static java.nio.file.attribute.PosixFilePermission.OWNER_EXECUTE;
+
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.cooperbara.transform.patch.UnifiedDiff.FilePatch;
+import com.google.cooperbara.transform.patch.UnifiedDiff.Hunk;
+import com.google.cooperbara.transform.patch.UnifiedDiff.UnsupportedPatchException;
+import com.google.cooperbara.util.FileUtil;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermission;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+import javax.annotation.Nullable;
+
+/**
+ * Applies a series of unified diffs to a directory in memory, without running {@code git apply}
+ * or GNU Patch.
+ *
+ * <p>Files are read when a patch first touches them, and written once by {@link #write()}, after
+ * all the patches of the series have been applied. Hunks are matched like {@code git apply}: all
+ * the context has to match, at the position in the header or at any offset from it. A hunk
+ * starting at the first line must match at the beginning of the file, and one without trailing
+ * context at the end, unless it has no context at all. With fuzz, up to that number of context
+ * lines can be ignored at each end of the hunk, and then the hunk can match anywhere.
+ */
+final class PatchApplier {
+
+  private static final ImmutableSet<PosixFilePermission> EXECUTE =
+      ImmutableSet.of(OWNER_EXECUTE, GROUP_EXECUTE, OTHERS_EXECUTE);
+
+  private final Path rootDir;
+  private final ImmutableList<Pattern> excludedPaths;
+  private final int strip;
+  private final boolean reverse;
+  private final int maxFuzz;
+  // Files read or changed by the patches, by path relative to rootDir
+  private final Map<String, FileState> files = new LinkedHashMap<>();
+
+  /**
+   * @param excludedPaths paths not to patch, as {@code git apply --exclude} globs
+   * @param strip number of leading path components to strip from the paths in the patches
+   * @param reverse whether to undo the patches instead of applying them
+   * @param maxFuzz maximum number of context lines that can be ignored at each end of a hunk
+   */
+  PatchApplier(Path rootDir, ImmutableList<String> excludedPaths, int strip, boolean reverse,
+      int maxFuzz) {
+    checkArgument(strip >= 0, "strip must be >= 0.");
+    checkArgument(maxFuzz >= 0, "maxFuzz must be >= 0.");
+    this.rootDir = checkNotNull(rootDir);
+    ImmutableList.Builder<Pattern> patterns = ImmutableList.builder();
+    for (String excludedPath : excludedPaths) {
+      patterns.add(globToRegex(excludedPath));
+    }
+    this.excludedPaths = patterns.build();
+    this.strip = strip;
+    this.reverse = reverse;
+    this.maxFuzz = maxFuzz;
+  }
+
+  /**
+   * Parses a patch, without the files in the excluded paths. Parsing all the patches before
+   * applying them allows falling back to other tools before changing anything.
+   *
+   * @throws IOException if the patch is malformed
+   * @throws UnsupportedPatchException if the patch has binary files, symlinks or submodules, or
+   *     copies files and has to be reversed
+   */
+  ImmutableList<FilePatch> parse(byte[] content) throws IOException, UnsupportedPatchException {
+    ImmutableList.Builder<FilePatch> result = ImmutableList.builder();
+    for (FilePatch patch : UnifiedDiff.parse(content, strip)) {
+      if (isExcluded(patch.path())) {
+        continue;
+      }
+      if (reverse && patch.copy) {
+        throw new UnsupportedPatchException("Cannot reverse the copy of " + patch.oldPath);
+      }
+      result.add(reverse ? patch.reverse() : patch);
+    }
+    return result.build();
+  }
+
+  /**
+   * Applies a parsed patch in memory, after the ones applied before.
+   *
+   * @throws IOException if a file cannot be read or the patch doesn't apply
+   */
+  void apply(ImmutableList<FilePatch> patch) throws IOException {
+    for (FilePatch filePatch : patch) {
+      applyFile(filePatch);
+    }
+  }
+
+  /** Writes the files changed by the applied patches. */
+  void write() throws IOException {
+    // Deletions first, a deleted file might be a directory now
+    for (Map.Entry<String, FileState> entry : files.entrySet()) {
+      if (entry.getValue().dirty && entry.getValue().content == null) {
+        Path file = rootDir.resolve(entry.getKey());
+        Files.deleteIfExists(file);
+        deleteEmptyParents(file);
+      }
+    }
+    for (Map.Entry<String, FileState> entry : files.entrySet()) {
+      FileState state = entry.getValue();
+      if (!state.dirty || state.content == null) {
+        continue;
+      }
+      Path file = rootDir.resolve(entry.getKey());
+      Files.createDirectories(file.getParent());
+      Files.write(file, state.content.toBytes());
+      if (state.modeChanged) {
+        setExecutable(file, state.executable);
+      }
+    }
+  }
+
+  private void applyFile(FilePatch patch) throws IOException {
+    String source = patch.oldPath;
+    String target = patch.newPath;
+    Content content;
+    boolean executable = false;
+    FileState from = null;
+    if (source == null) {
+      content = new Content(new ArrayList<>(), /*endsWithNewline=*/ true);
+    } else {
+      from = load(source);
+      if (from.content == null) {
+        throw new IOException(source + ": No such file or directory");
+      }
+      content = from.content.duplicate();
+      executable = from.executable;
+    }
+    String label = target != null ? target : source;
+    int offset = 0;
+    for (Hunk hunk : patch.hunks) {
+      // An empty range starts after the line in the header
+      int base = hunk.newLines().isEmpty() ? hunk.newStart : Math.max(hunk.newStart - 1, 0);
+      int position = applyHunk(content, hunk, Math.max(base + offset, 0));
+      if (position < 0) {
+        throw new IOException(String.format("patch failed: %s:%d", label, hunk.oldStart));
+      }
+      offset = position - base;
+    }
+
+    if (target == null) {
+      if (!content.lines.isEmpty()) {
+        throw new IOException(source + ": removal patch leaves file contents");
+      }
+      from.delete();
+      return;
+    }
+    FileState to = target.equals(source) ? from : load(target);
+    if (to != from && to.content != null) {
+      throw new IOException(target + ": already exists");
+    }
+    if (from != null && to != from && !patch.copy) {
+      from.delete();
+    }
+    to.content = content;
+    to.dirty = true;
+    if (patch.newExecutable != null) {
+      executable = patch.newExecutable;
+    }
+    // New files are created with the default permissions
+    to.modeChanged |= to != from || executable != to.executable;
+    to.executable = executable;
+  }
+
+  /**
+   * Applies a hunk at the closest position to {@code expected} where it matches. Returns the
+   * position of the first line of the hunk, or -1 if it doesn't match.
+   */
+  private int applyHunk(Content content, Hunk hunk, int expected) {
+    List<String> oldLines = hunk.oldLines();
+    List<String> newLines = hunk.newLines();
+    int leading = hunk.leadingContext();
+    int trailing = hunk.trailingContext();
+    for (int fuzz = 0; fuzz <= maxFuzz; fuzz++) {
+      if (fuzz > 0 && fuzz > leading && fuzz > trailing) {
+        // No more context to ignore
+        break;
+      }
+      int dropLeading = Math.min(fuzz, leading);
+      int dropTrailing = Math.min(fuzz, trailing);
+      Match match = new Match(content, oldLines.subList(dropLeading, oldLines.size() - dropTrailing),
+          // The end of file markers don't apply if the last lines are ignored
+          dropTrailing == 0, hunk.oldNoNewline);
+      int position;
+      if (fuzz == 0) {
+        // Without any context (diff -U0) the position in the header is all there is
+        boolean hasContext = leading + trailing > 0;
+        boolean atStart = hasContext && hunk.oldStart <= 1;
+        boolean atEnd = hasContext && trailing == 0;
+        position = match.find(expected, atStart, atEnd);
+      } else {
+        position = match.find(expected + dropLeading, /*atStart=*/ false, /*atEnd=*/ false);
+      }
+      if (position < 0) {
+        continue;
+      }
+      boolean atEndOfFile = position + match.lines.size() == content.lines.size();
+      content.lines.subList(position, position + match.lines.size()).clear();
+      content.lines.addAll(position,
+          newLines.subList(dropLeading, newLines.size() - dropTrailing));
+      if (atEndOfFile && dropTrailing == 0) {
+        content.endsWithNewline = !hunk.newNoNewline;
+      }
+      return position - dropLeading;
+    }
+    return -1;
+  }
+
+  private FileState load(String path) throws IOException {
+    FileState state = files.get(path);
+    if (state != null) {
+      return state;
+    }
+    Path file = resolve(path);
+    state = new FileState();
+    if (Files.isRegularFile(file, NOFOLLOW_LINKS)) {
+      state.content = Content.parse(Files.readAllBytes(file));
+      state.executable = Files.isExecutable(file);
+    } else if (Files.exists(file, NOFOLLOW_LINKS)) {
+      throw new IOException(path + ": not a regular file");
+    }
+    files.put(path, state);
+    return state;
+  }
+
+  private Path resolve(String path) throws IOException {
+    for (String component : Splitter.on('/').split(path)) {
+      if (component.isEmpty() || component.equals(".") || component.equals("..")) {
+        throw new IOException("Invalid path in the patch: " + path);
+      }
+    }
+    return rootDir.resolve(path);
+  }
+
+  private boolean isExcluded(String path) {
+    for (Pattern excluded : excludedPaths) {
+      if (excluded.matcher(path).matches()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private void deleteEmptyParents(Path file) throws IOException {
+    for (Path dir = file.getParent(); dir != null && dir.startsWith(rootDir)
+        && !dir.equals(rootDir); dir = dir.getParent()) {
+      try (DirectoryStream<Path> entries = Files.newDirectoryStream(dir)) {
+        if (entries.iterator().hasNext()) {
+          return;
+        }
+      }
+      Files.delete(dir);
+    }
+  }
+
+  private static void setExecutable(Path file, boolean executable) throws IOException {
+    if (executable) {
+      FileUtil.addPermissions(file, EXECUTE);
+    } else if (file.getFileSystem().supportedFileAttributeViews().contains("posix")) {
+      Set<PosixFilePermission> permissions = Files.getPosixFilePermissions(file);
+      permissions.removeAll(EXECUTE);
+      Files.setPosixFilePermissions(file, permissions);
+    } else if (!file.toFile().setExecutable(false)) {
+      throw new IOException("Could not remove 'executable' permission for file: " + file);
+    }
+  }
+
+  /**
+   * Converts a {@code git apply --exclude} glob to a regex. Like in git, '*' also matches '/'.
+   */
+  private static Pattern globToRegex(String glob) {
+    StringBuilder regex = new StringBuilder();
+    for (int i = 0; i < glob.length(); i++) {
+      char c = glob.charAt(i);
+      if (c == '*') {
+        regex.append(".*");
+      } else if (c == '?') {
+        regex.append('.');
+      } else if (c == '[' && glob.indexOf(']', i + 2) > 0) {
+        int end = glob.indexOf(']', i + 2);
+        String chars = glob.substring(i + 1, end);
+        regex.append('[');
+        if (chars.startsWith("!") || chars.startsWith("^")) {
+          regex.append('^');
+          chars = chars.substring(1);
+        }
+        regex.append(chars.replace("\\", "\\\\").replace("[", "\\[")).append(']');
+        i = end;
+      } else if (c == '\\' && i + 1 < glob.length()) {
+        regex.append(Pattern.quote(String.valueOf(glob.charAt(++i))));
+      } else {
+        regex.append(Pattern.quote(String.valueOf(c)));
+      }
+    }
+    return Pattern.compile(regex.toString(), Pattern.DOTALL);
+  }
+
+  /** Lines of a file, without the line terminators. */
+  private static final class Content {
+
+    final List<String> lines;
+    boolean endsWithNewline;
+
+    Content(List<String> lines, boolean endsWithNewline) {
+      this.lines = lines;
+      this.endsWithNewline = endsWithNewline;
+    }
+
+    static Content parse(byte[] bytes) {
+      String text = new String(bytes, ISO_8859_1);
+      List<String> lines = new ArrayList<>(Splitter.on('\n').splitToList(text));
+      boolean endsWithNewline = text.isEmpty() || text.endsWith("\n");
+      if (endsWithNewline) {
+        lines.remove(lines.size() - 1);
+      }
+      return new Content(lines, endsWithNewline);
+    }
+
+    Content duplicate() {
+      return new Content(new ArrayList<>(lines), endsWithNewline);
+    }
+
+    byte[] toBytes() {
+      String text = String.join("\n", lines);
+      if (endsWithNewline && !lines.isEmpty()) {
+        text += "\n";
+      }
+      return text.getBytes(ISO_8859_1);
+    }
+  }
+
+  /** The old side of a hunk, to be found in a file. */
+  private static final class Match {
+
+    private final Content content;
+    private final List<String> lines;
+    private final boolean checkEndOfFile;
+    private final boolean noNewlineAtEnd;
+
+    Match(Content content, List<String> lines, boolean checkEndOfFile, boolean noNewlineAtEnd) {
+      this.content = content;
+      this.lines = lines;
+      this.checkEndOfFile = checkEndOfFile;
+      this.noNewlineAtEnd = noNewlineAtEnd;
+    }
+
+    int find(int expected, boolean atStart, boolean atEnd) {
+      int last = content.lines.size() - lines.size();
+      if (last < 0) {
+        return -1;
+      }
+      if (atStart || atEnd) {
+        int position = atStart ? 0 : last;
+        return (!atStart || !atEnd || last == 0) && matches(position) ? position : -1;
+      }
+      int start = Math.min(expected, last);
+      for (int distance = 0; start - distance >= 0 || start + distance <= last; distance++) {
+        if (start + distance <= last && matches(start + distance)) {
+          return start + distance;
+        }
+        if (distance > 0 && start - distance >= 0 && matches(start - distance)) {
+          return start - distance;
+        }
+      }
+      return -1;
+    }
+
+    private boolean matches(int position) {
+      for (int i = 0; i < lines.size(); i++) {
+        if (!lines.get(i).equals(content.lines.get(position + i))) {
+          return false;
+        }
+      }
+      if (!checkEndOfFile || lines.isEmpty()) {
+        return true;
+      }
+      boolean atEndOfFile = position + lines.size() == content.lines.size();
+      if (noNewlineAtEnd) {
+        return atEndOfFile && !content.endsWithNewline;
+      }
+      return !atEndOfFile || content.endsWithNewline;
+    }
+  }
+
+  private static final class FileState {
+
+    // Null if the file doesn't exist
+    @Nullable Content content;
+    boolean executable;
+    boolean modeChanged;
+    // Whether the file needs to be written or deleted
+    boolean dirty;
+
+    void delete() {
+      content = null;
+      dirty = true;
+    }
+  }
+}
@@ -25,10 +25,14 @@ import com.google.cooperbara.Transformation;
 import com.google.cooperbara.TransformationStatus;
 import com.google.cooperbara.config.ConfigFile;
 import com.google.cooperbara.exception.ValidationException;
+import com.google.cooperbara.transform.patch.UnifiedDiff.FilePatch;
+import com.google.cooperbara.transform.patch.UnifiedDiff.UnsupportedPatchException;
 import com.google.cooperbara.util.InsideGitDirException;
 import com.google.cooperbara.util.console.Console;
 import java.io.IOException;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.stream.Collectors;
 import javax.annotation.Nullable;
 import net.starlark.java.syntax.Location;
@@ -80,6 +84,11 @@ public class PatchTransformation implements Transformation {
 
   public void patch(Console console, Path checkoutDir, @Nullable Path gitDir)
       throws ValidationException, InsideGitDirException {
+    PatchApplier applier =
+        options.newApplier(checkoutDir.resolve(directory), excludedPaths, strip, reverse, gitDir);
+    if (applier != null && patchInProcess(console, applier)) {
+      return;
+    }
     for (int i = 0; i < patches.size(); i++) {
       ConfigFile patch = patches.get(i);
       try {
@@ -92,14 +101,54 @@ public class PatchTransformation implements Transformation {
             reverse,
             gitDir);
       } catch (IOException ioException) {
-        String msg = String.format("Error applying patch %s: %s", patch.getIdentifier(),
-            ioException.getMessage());
-        console.error(msg);
-        throw new ValidationException(msg, ioException);
+        throw patchError(console, patch, ioException);
       }
     }
   }
 
+  /**
+   * Applies all the patches in memory and writes the result once. Returns false, without changing
+   * anything, if a patch is not supported by {@link PatchApplier}.
+   */
+  private boolean patchInProcess(Console console, PatchApplier applier)
+      throws ValidationException {
+    List<ImmutableList<FilePatch>> parsed = new ArrayList<>();
+    for (ConfigFile patch : patches) {
+      try {
+        parsed.add(applier.parse(patch.readContentBytes()));
+      } catch (UnsupportedPatchException e) {
+        console.verboseFmt("Patch %s cannot be applied in-process: %s", patch.getIdentifier(),
+            e.getMessage());
+        return false;
+      } catch (IOException ioException) {
+        throw patchError(console, patch, ioException);
+      }
+    }
+    for (int i = 0; i < patches.size(); i++) {
+      ConfigFile patch = patches.get(i);
+      console.infoFmt("Applying patch %d/%d: '%s'.", i + 1, patches.size(), patch.path());
+      try {
+        applier.apply(parsed.get(i));
+      } catch (IOException ioException) {
+        throw patchError(console, patch, ioException);
+      }
+    }
+    try {
+      applier.write();
+    } catch (IOException e) {
+      throw new ValidationException("Error writing the patched files: " + e.getMessage(), e);
+    }
+    return true;
+  }
+
+  private static ValidationException patchError(Console console, ConfigFile patch,
+      IOException ioException) {
+    String msg = String.format("Error applying patch %s: %s", patch.getIdentifier(),
+        ioException.getMessage());
+    console.error(msg);
+    return new ValidationException(msg, ioException);
+  }
+
   @Override
   public Transformation reverse() {
     return new PatchTransformation(
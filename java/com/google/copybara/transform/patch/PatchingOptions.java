@@ -74,6 +74,17 @@ public class PatchingOptions implements Option {
       arity = 1)
   public boolean useGitApply = true;
 
+  @Parameter(names = "--patch-in-process", description =
+      "Apply patch.apply patches in-process instead of running 'git apply' or GNU Patch for each"
+          + " one. Patches with binary files, symlinks or submodules still use the external tools.",
+      arity = 1)
+  public boolean inProcess = false;
+
+  @Parameter(names = "--patch-in-process-fuzz", description =
+      "Maximum number of context lines that can be ignored at each end of a hunk when applying"
+          + " patches in-process. See --patch-in-process.")
+  public int inProcessFuzz = 0;
+
   @Parameter(names = "--quilt-bin", description = "Path to quilt command")
   String quiltBin = "quilt";
 
@@ -100,6 +111,21 @@ public class PatchingOptions implements Option {
     }
   }
 
+  /**
+   * Returns an applier for patching {@code rootDir} in-process, or null if the patches need to be
+   * applied with {@link #patch}.
+   */
+  @Nullable
+  PatchApplier newApplier(Path rootDir, ImmutableList<String> excludedPaths, int stripSlashes,
+      boolean reverse, @Nullable Path gitDir) throws ValidationException {
+    // 3-way merges need the git repository
+    if (!inProcess || gitDir != null) {
+      return null;
+    }
+    checkCondition(inProcessFuzz >= 0, "--patch-in-process-fuzz must be >= 0");
+    return new PatchApplier(rootDir, excludedPaths, stripSlashes, reverse, inProcessFuzz);
+  }
+
   GeneralOptions getGeneralOptions() {
     return generalOptions;
   }
@@ -0,0 +1,473 @@
+/*
+ * Copyright (C) 2026 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a cooper of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.google.cooperbara.transform.patch;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableList;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javax.annotation.Nullable;
+
+/**
+ * A parsed unified diff, as generated by {@code diff -u} or {@code git diff}.
+ *
+ * <p>Lines are kept as ISO-8859-1 strings, so that they map one to one to the bytes of the patch
+ * and of the patched files, whatever their encoding. Line terminators other than {@code \n} are
+ * part of the line.
+ */
+final class UnifiedDiff {
+
+  private static final Pattern HUNK_HEADER =
+      Pattern.compile("@@ -(\\d+)(?:,(\\d+))? \\+(\\d+)(?:,(\\d+))? @@.*");
+  private static final String DEV_NULL = "/dev/null";
+  private static final String REGULAR = "100644";
+  private static final String EXECUTABLE = "100755";
+
+  /** Thrown for valid patches that use features not supported by {@link PatchApplier}. */
+  static final class UnsupportedPatchException extends Exception {
+    UnsupportedPatchException(String message) {
+      super(message);
+    }
+  }
+
+  /** The changes to a single file. */
+  static final class FilePatch {
+
+    /** Path before the change, null for new files. */
+    @Nullable final String oldPath;
+    /** Path after the change, null for deleted files. */
+    @Nullable final String newPath;
+    /** Whether the file is executable before the change, null if the patch doesn't say. */
+    @Nullable final Boolean oldExecutable;
+    /** Whether the file is executable after the change, null if the mode doesn't change. */
+    @Nullable final Boolean newExecutable;
+    /** For renames and copies, whether {@code oldPath} is kept. */
+    final boolean copy;
+    final ImmutableList<Hunk> hunks;
+
+    FilePatch(@Nullable String oldPath, @Nullable String newPath, @Nullable Boolean oldExecutable,
+        @Nullable Boolean newExecutable, boolean copy, ImmutableList<Hunk> hunks) {
+      this.oldPath = oldPath;
+      this.newPath = newPath;
+      this.oldExecutable = oldExecutable;
+      this.newExecutable = newExecutable;
+      this.copy = copy;
+      this.hunks = checkNotNull(hunks);
+    }
+
+    /** The path used for matching excluded paths, like {@code git apply --exclude}. */
+    String path() {
+      return newPath != null ? newPath : oldPath;
+    }
+
+    /**
+     * Returns the patch that undoes this one. The executable bit is only restored if the patch
+     * changed it or deleted the file.
+     */
+    FilePatch reverse() {
+      ImmutableList.Builder<Hunk> reversed = ImmutableList.builder();
+      for (Hunk hunk : hunks) {
+        reversed.add(hunk.reverse());
+      }
+      return new FilePatch(newPath, oldPath, newExecutable,
+          newExecutable != null || newPath == null ? oldExecutable : null, copy,
+          reversed.build());
+    }
+  }
+
+  /** A hunk of a {@link FilePatch}. */
+  static final class Hunk {
+
+    /** First line of the hunk before the change, 1-based. Zero if the old side is empty. */
+    final int oldStart;
+    /** First line of the hunk after the change, 1-based. Zero if the new side is empty. */
+    final int newStart;
+    /** Line kinds: ' ' for context, '-' for removed and '+' for added lines. */
+    final char[] kinds;
+    final String[] lines;
+    /** Whether the last line of the old side doesn't end with a newline. */
+    final boolean oldNoNewline;
+    /** Whether the last line of the new side doesn't end with a newline. */
+    final boolean newNoNewline;
+
+    Hunk(int oldStart, int newStart, char[] kinds, String[] lines, boolean oldNoNewline,
+        boolean newNoNewline) {
+      this.oldStart = oldStart;
+      this.newStart = newStart;
+      this.kinds = kinds;
+      this.lines = lines;
+      this.oldNoNewline = oldNoNewline;
+      this.newNoNewline = newNoNewline;
+    }
+
+    List<String> oldLines() {
+      return side('+');
+    }
+
+    List<String> newLines() {
+      return side('-');
+    }
+
+    private List<String> side(char skip) {
+      List<String> result = new ArrayList<>(lines.length);
+      for (int i = 0; i < lines.length; i++) {
+        if (kinds[i] != skip) {
+          result.add(lines[i]);
+        }
+      }
+      return result;
+    }
+
+    /** Number of context lines before the first change. */
+    int leadingContext() {
+      int count = 0;
+      while (count < kinds.length && kinds[count] == ' ') {
+        count++;
+      }
+      return count;
+    }
+
+    /** Number of context lines after the last change. */
+    int trailingContext() {
+      int count = 0;
+      while (count < kinds.length && kinds[kinds.length - 1 - count] == ' ') {
+        count++;
+      }
+      return count;
+    }
+
+    Hunk reverse() {
+      char[] reversed = new char[kinds.length];
+      for (int i = 0; i < kinds.length; i++) {
+        reversed[i] = kinds[i] == '+' ? '-' : kinds[i] == '-' ? '+' : ' ';
+      }
+      return new Hunk(newStart, oldStart, reversed, lines, newNoNewline, oldNoNewline);
+    }
+  }
+
+  private final List<String> lines;
+  private final int strip;
+  private int next;
+
+  private UnifiedDiff(List<String> lines, int strip) {
+    this.lines = lines;
+    this.strip = strip;
+  }
+
+  /**
+   * Parses the file patches of {@code content}, stripping {@code strip} leading components from
+   * the paths. Text outside of the file patches, like commit messages, is ignored.
+   *
+   * @throws IOException if the patch is malformed
+   * @throws UnsupportedPatchException if the patch has binary files, symlinks or submodules
+   */
+  static ImmutableList<FilePatch> parse(byte[] content, int strip)
+      throws IOException, UnsupportedPatchException {
+    String text = new String(content, ISO_8859_1);
+    List<String> lines = Splitter.on('\n').splitToList(text);
+    if (text.endsWith("\n")) {
+      lines = lines.subList(0, lines.size() - 1);
+    }
+    return new UnifiedDiff(lines, strip).parse();
+  }
+
+  private ImmutableList<FilePatch> parse() throws IOException, UnsupportedPatchException {
+    ImmutableList.Builder<FilePatch> result = ImmutableList.builder();
+    while (next < lines.size()) {
+      String line = lines.get(next);
+      if (line.startsWith("diff --git ")) {
+        result.add(parseGitPatch());
+      } else if (line.startsWith("--- ") && next + 1 < lines.size()
+          && lines.get(next + 1).startsWith("+++ ")) {
+        result.add(parseTraditionalPatch());
+      } else {
+        next++;
+      }
+    }
+    return result.build();
+  }
+
+  private FilePatch parseGitPatch() throws IOException, UnsupportedPatchException {
+    String headerPath = gitHeaderPath(lines.get(next).substring("diff --git ".length()));
+    int headerLine = next;
+    next++;
+    String oldPath = headerPath;
+    String newPath = headerPath;
+    String oldMode = null;
+    String newMode = null;
+    boolean copy = false;
+    boolean newFile = false;
+    boolean deletedFile = false;
+    while (next < lines.size()) {
+      String line = lines.get(next);
+      if (line.startsWith("old mode ")) {
+        oldMode = line.substring("old mode ".length()).trim();
+      } else if (line.startsWith("new mode ")) {
+        newMode = line.substring("new mode ".length()).trim();
+      } else if (line.startsWith("new file mode ")) {
+        newFile = true;
+        newMode = line.substring("new file mode ".length()).trim();
+      } else if (line.startsWith("deleted file mode ")) {
+        deletedFile = true;
+        oldMode = line.substring("deleted file mode ".length()).trim();
+      } else if (line.startsWith("rename from ") || line.startsWith("copy from ")) {
+        copy = line.startsWith("copy");
+        oldPath = extendedHeaderPath(line.substring(line.indexOf(" from ") + 6));
+      } else if (line.startsWith("rename to ") || line.startsWith("copy to ")) {
+        newPath = extendedHeaderPath(line.substring(line.indexOf(" to ") + 4));
+      } else if (line.startsWith("GIT binary patch") || line.startsWith("Binary files ")) {
+        throw new UnsupportedPatchException("Binary patch for " + headerPath);
+      } else if (!line.startsWith("index ") && !line.startsWith("similarity index ")
+          && !line.startsWith("dissimilarity index ")) {
+        break;
+      }
+      next++;
+    }
+    for (String mode : new String[] {oldMode, newMode}) {
+      if (mode != null && !mode.equals(REGULAR) && !mode.equals(EXECUTABLE)) {
+        throw new UnsupportedPatchException(
+            String.format("Unsupported file mode %s for %s", mode, headerPath));
+      }
+    }
+    ImmutableList<Hunk> hunks = ImmutableList.of();
+    if (next + 1 < lines.size() && lines.get(next).startsWith("--- ")
+        && lines.get(next + 1).startsWith("+++ ")) {
+      String minus = traditionalPath(lines.get(next).substring(4));
+      String plus = traditionalPath(lines.get(next + 1).substring(4));
+      next += 2;
+      oldPath = minus;
+      newPath = plus;
+      hunks = parseHunks();
+    }
+    if (newFile) {
+      oldPath = null;
+    }
+    if (deletedFile) {
+      newPath = null;
+    }
+    if (oldPath == null && newPath == null) {
+      throw new IOException("No file name in the patch at line " + (headerLine + 1));
+    }
+    return new FilePatch(oldPath, newPath, oldMode == null ? null : oldMode.equals(EXECUTABLE),
+        newMode == null || newMode.equals(oldMode) ? null : newMode.equals(EXECUTABLE),
+        copy, hunks);
+  }
+
+  private FilePatch parseTraditionalPatch() throws IOException {
+    int headerLine = next;
+    String oldPath = traditionalPath(lines.get(next).substring(4));
+    String newPath = traditionalPath(lines.get(next + 1).substring(4));
+    next += 2;
+    if (oldPath == null && newPath == null) {
+      throw new IOException("No file name in the patch at line " + (headerLine + 1));
+    }
+    if (oldPath != null && newPath != null) {
+      // Not a rename, the original file might have a different name (like 'file.orig'). Like git,
+      // use the name of the modified file, unless the original one is a prefix of it.
+      String path = newPath.startsWith(oldPath) ? oldPath : newPath;
+      oldPath = path;
+      newPath = path;
+    }
+    return new FilePatch(oldPath, newPath, null, null, /*copy=*/ false, parseHunks());
+  }
+
+  private ImmutableList<Hunk> parseHunks() throws IOException {
+    ImmutableList.Builder<Hunk> hunks = ImmutableList.builder();
+    while (next < lines.size() && lines.get(next).startsWith("@@ ")) {
+      Matcher header = HUNK_HEADER.matcher(lines.get(next));
+      if (!header.matches()) {
+        throw new IOException("Corrupt hunk header at line " + (next + 1));
+      }
+      int headerLine = next;
+      int oldStart = Integer.parseInt(header.group(1));
+      int oldCount = header.group(2) == null ? 1 : Integer.parseInt(header.group(2));
+      int newStart = Integer.parseInt(header.group(3));
+      int newCount = header.group(4) == null ? 1 : Integer.parseInt(header.group(4));
+      next++;
+      List<String> hunkLines = new ArrayList<>(oldCount + newCount);
+      StringBuilder kinds = new StringBuilder(oldCount + newCount);
+      boolean oldNoNewline = false;
+      boolean newNoNewline = false;
+      while (oldCount > 0 || newCount > 0) {
+        if (next >= lines.size()) {
+          throw new IOException("Truncated hunk starting at line " + (headerLine + 1));
+        }
+        String line = lines.get(next);
+        // Some tools remove the trailing space of empty context lines
+        char kind = line.isEmpty() ? ' ' : line.charAt(0);
+        if (kind == ' ') {
+          oldCount--;
+          newCount--;
+        } else if (kind == '-') {
+          oldCount--;
+        } else if (kind == '+') {
+          newCount--;
+        } else if (kind == '\\' && kinds.length() > 0) {
+          // '\ No newline at end of file', for the last line of one of the sides
+          oldNoNewline |= kinds.charAt(kinds.length() - 1) != '+';
+          newNoNewline |= kinds.charAt(kinds.length() - 1) != '-';
+          next++;
+          continue;
+        } else {
+          throw new IOException("Corrupt patch at line " + (next + 1));
+        }
+        if (oldCount < 0 || newCount < 0) {
+          throw new IOException("Corrupt patch at line " + (next + 1));
+        }
+        kinds.append(kind);
+        hunkLines.add(line.isEmpty() ? "" : line.substring(1));
+        next++;
+      }
+      if (next < lines.size() && lines.get(next).startsWith("\\") && kinds.length() > 0) {
+        char kind = kinds.charAt(kinds.length() - 1);
+        oldNoNewline |= kind != '+';
+        newNoNewline |= kind != '-';
+        next++;
+      }
+      hunks.add(new Hunk(oldStart, newStart, kinds.toString().toCharArray(),
+          hunkLines.toArray(new String[0]), oldNoNewline, newNoNewline));
+    }
+    return hunks.build();
+  }
+
+  /** Parses the path of a '---' or '+++' line. */
+  @Nullable
+  private String traditionalPath(String value) throws IOException {
+    String path;
+    if (value.startsWith("\"")) {
+      path = unquote(value);
+    } else {
+      int tab = value.indexOf('\t');
+      path = tab >= 0 ? value.substring(0, tab) : value.trim();
+    }
+    if (path.equals(DEV_NULL)) {
+      return null;
+    }
+    return stripPath(path, strip);
+  }
+
+  /** Parses the path of a 'rename from' like line, that doesn't have the a/ or b/ prefix. */
+  private String extendedHeaderPath(String value) throws IOException {
+    return stripPath(value.startsWith("\"") ? unquote(value) : value, Math.max(strip - 1, 0));
+  }
+
+  /**
+   * Returns the path of a 'diff --git a/path b/path' line. Both paths are the same unless the
+   * file is renamed or copied, and then the real paths are in the extended headers.
+   */
+  @Nullable
+  private String gitHeaderPath(String value) throws IOException {
+    if (value.startsWith("\"")) {
+      return stripPath(unquote(value), strip);
+    }
+    for (int i = value.indexOf(' '); i >= 0; i = value.indexOf(' ', i + 1)) {
+      String first = value.substring(0, i);
+      String second = value.substring(i + 1);
+      if (second.startsWith("\"")) {
+        return stripPath(first, strip);
+      }
+      String strippedFirst = stripOrNull(first, strip);
+      if (strippedFirst != null && strippedFirst.equals(stripOrNull(second, strip))) {
+        return toUtf8(strippedFirst);
+      }
+    }
+    // Renames with spaces in the paths, the extended headers have the paths
+    return null;
+  }
+
+  private static String stripPath(String path, int strip) throws IOException {
+    String stripped = stripOrNull(path, strip);
+    if (stripped == null) {
+      throw new IOException(
+          String.format("Cannot strip %d leading components from '%s'", strip, toUtf8(path)));
+    }
+    return toUtf8(stripped);
+  }
+
+  @Nullable
+  private static String stripOrNull(String path, int strip) {
+    String result = path;
+    for (int i = 0; i < strip; i++) {
+      int slash = result.indexOf('/');
+      if (slash < 0) {
+        return null;
+      }
+      result = result.substring(slash + 1);
+      // Repeated slashes count as one
+      while (result.startsWith("/")) {
+        result = result.substring(1);
+      }
+    }
+    return result.isEmpty() ? null : result;
+  }
+
+  private static int quotedEnd(String value) throws IOException {
+    for (int i = 1; i < value.length(); i++) {
+      if (value.charAt(i) == '\\') {
+        i++;
+      } else if (value.charAt(i) == '"') {
+        return i;
+      }
+    }
+    throw new IOException("Unterminated quoted path: " + value);
+  }
+
+  /** Unquotes a C-style quoted path, as written by git for paths with special characters. */
+  private static String unquote(String value) throws IOException {
+    int end = quotedEnd(value);
+    StringBuilder result = new StringBuilder(end);
+    for (int i = 1; i < end; i++) {
+      char c = value.charAt(i);
+      if (c != '\\') {
+        result.append(c);
+        continue;
+      }
+      char escaped = value.charAt(++i);
+      switch (escaped) {
+        case 'a': result.append('\u0007'); break;
+        case 'b': result.append('\b'); break;
+        case 'f': result.append('\f'); break;
+        case 'n': result.append('\n'); break;
+        case 'r': result.append('\r'); break;
+        case 't': result.append('\t'); break;
+        case 'v': result.append('\u000b'); break;
+        default:
+          if (escaped >= '0' && escaped <= '3' && i + 2 < end) {
+            // Octal byte
+            result.append((char) Integer.parseInt(value.substring(i, i + 3), 8));
+            i += 2;
+          } else {
+            result.append(escaped);
+          }
+      }
+    }
+    return result.toString();
+  }
+
+  /** Paths are bytes in the patch, decode them as UTF-8 to use them as file names. */
+  private static String toUtf8(String path) {
+    return new String(path.getBytes(ISO_8859_1), UTF_8);
+  }
+}
@@ -22,22 +22,38 @@ import com.google.common.base.Preconditions;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.cooperbara.util.CompiledGlob;
+import com.google.cooperbara.util.Glob;
 import java.io.IOException;
 import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
+import java.nio.file.LinkOption;
 import java.nio.file.Path;
 import java.nio.file.PathMatcher;
 import java.nio.file.SimpleFileVisitor;
 import java.nio.file.attribute.BasicFileAttributes;
-import java.util.HashMap;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import javax.annotation.Nullable;
 
 /**
  * An object that allows to do potentially cached filesystem lookups.
  *
  * <p>In particular, if a transform does lookups (using find) and then notifies the affected files,
  * the next transform gets a cached version of the TreeState.
+ *
+ * <p>The state is read lazily by subtree: lookups with a {@link Glob} only read the directories
+ * under its roots, and notifications of moved or removed files only invalidate the affected paths
+ * instead of the whole tree. Directories where the glob cannot match anything are not read at all,
+ * and the directories around them are only partially indexed.
  */
 public class TreeState {
 
@@ -48,15 +64,29 @@ public class TreeState {
    */
   public static class FileState {
     private final Path path;
+    private final long size;
 
     FileState(Path path) {
+      this(path, 0);
+    }
+
+    FileState(Path path, long size) {
       this.path = Preconditions.checkNotNull(path);
+      this.size = size;
     }
 
     public Path getPath() {
       return path;
     }
 
+    /**
+     * Size of the file when it was read from the filesystem, or 0 if unknown. It is not updated
+     * when the file is modified, so it is only good as an estimate of the cost of processing it.
+     */
+    public long getSize() {
+      return size;
+    }
+
     @Override
     public boolean equals(Object o) {
       if (this == o) {
@@ -81,9 +111,26 @@ public class TreeState {
   }
 
   private final Path checkoutDir;
-  private boolean isCached = false;
+  private final String separator;
   private boolean notified = false;
-  private Map<Path, FileState> files = new HashMap<>();
+
+  /**
+   * Files read from the filesystem, indexed by their path relative to the checkout dir. Sorted so
+   * that all the files under a directory are a contiguous range of keys.
+   *
+   * <p>Only the subtrees in {@code loadedRoots}, and partially read directories, are populated.
+   */
+  private final TreeMap<String, FileState> files = new TreeMap<>();
+
+  /**
+   * Set of directories (relative to checkout dir) that have been read completely. Directories that
+   * were only partially read, because a glob skipped some of their subdirectories, can have files
+   * in the index but they are not here. None of them is under another one.
+   */
+  private final Set<String> loadedRoots = new HashSet<>();
+
+  /** Files or directories notified as changed that need to be read again before any lookup. */
+  private final Set<String> stalePaths = new HashSet<>();
 
   private final LoadingCache<PathMatcher, List<FileState>> cachedMatches =
       CacheBuilder.newBuilder()
@@ -98,47 +145,262 @@ public class TreeState {
 
   public TreeState(Path checkoutDir) {
     this.checkoutDir = checkoutDir;
+    this.separator = checkoutDir.getFileSystem().getSeparator();
   }
 
   /** Find a a set of files in the checkout dir, using a {@link PathMatcher}. */
   public Iterable<FileState> find(PathMatcher pathMatcher) throws IOException {
-    if (!isCached) {
-      files = readFileSystem();
-      isCached = true;
-    }
+    refreshStalePaths();
+    ensureLoaded("", /*glob=*/ null);
     return cachedMatches.getUnchecked(pathMatcher);
   }
 
-  private Map<Path, FileState> readFileSystem() throws IOException {
-    Map<Path, FileState> result = new HashMap<>();
+  /**
+   * Find a set of files in the checkout dir that match {@code glob}.
+   *
+   * <p>Only the subtrees under the {@link Glob#roots()} are read and looked at, and the directories
+   * where the glob cannot match are skipped, so this is much cheaper than {@link
+   * #find(PathMatcher)} for globs like {@code foo/bar/**} or with excluded directories.
+   */
+  public Iterable<FileState> find(Glob glob) throws IOException {
+    ImmutableSet<String> roots = glob.roots();
+    CompiledGlob pathMatcher = glob.relativeTo(checkoutDir);
+    refreshStalePaths();
+    if (Glob.isEmptyRoot(roots)) {
+      // Still skip the directories that the glob excludes, like in glob(["**"], exclude = ["x/**"])
+      ensureLoaded("", pathMatcher);
+      return isLoaded("")
+          ? cachedMatches.getUnchecked(pathMatcher)
+          : filter(pathMatcher, files.values());
+    }
+    ImmutableList.Builder<FileState> result = ImmutableList.builder();
+    for (String root : roots) {
+      String key = toKey(root);
+      ensureLoaded(key, pathMatcher);
+      result.addAll(filter(pathMatcher, subtree(key).values()));
+    }
+    return result.build();
+  }
+
+  /**
+   * Like {@link #find(Glob)}, but the subtrees under the {@link Glob#roots()} are read again from
+   * the filesystem instead of trusting the cached state. For callers that cannot tell which files
+   * changed since the last lookup. The rest of the cached tree is kept.
+   */
+  public Iterable<FileState> reload(Glob glob) throws IOException {
+    refreshStalePaths();
+    ImmutableSet<String> roots = glob.roots();
+    for (String root : Glob.isEmptyRoot(roots) ? ImmutableSet.of("") : roots) {
+      String key = toKey(root);
+      loadedRoots.removeIf(loaded -> isUnder(loaded, key));
+      files.remove(key);
+      subtree(key).clear();
+      if (isLoaded(key)) {
+        // Part of a bigger directory that was read completely, so it has to be read completely
+        readFileSystem(key, /*glob=*/ null);
+      }
+    }
+    cachedMatches.invalidateAll();
+    return find(glob);
+  }
+
+  /**
+   * Reads {@code root} from the filesystem, unless it is already covered by a loaded root. If
+   * {@code glob} is not null, the directories where it cannot match are skipped. The directories
+   * under {@code root} that were already read completely are kept and not read again.
+   */
+  private void ensureLoaded(String root, @Nullable CompiledGlob glob) throws IOException {
+    if (isLoaded(root)) {
+      return;
+    }
+    loadedRoots.addAll(readFileSystem(root, glob));
+  }
+
+  private void refreshStalePaths() throws IOException {
+    if (stalePaths.isEmpty()) {
+      return;
+    }
+    for (String stale : stalePaths) {
+      if (!isLoaded(stale)) {
+        // Not read yet, or only partially read. Forget about anything read under it.
+        loadedRoots.removeIf(loaded -> isUnder(loaded, stale));
+        files.remove(stale);
+        subtree(stale).clear();
+        continue;
+      }
+      files.remove(stale);
+      subtree(stale).clear();
+      readFileSystem(stale, /*glob=*/ null);
+    }
+    stalePaths.clear();
+    cachedMatches.invalidateAll();
+  }
+
+  /**
+   * Reads the files under {@code relative} into the index, skipping the directories where {@code
+   * glob} cannot match anything. Directories under {@code relative} that are in {@code
+   * loadedRoots} are not read again: they are removed from it and returned as complete.
+   *
+   * @return the directories that were read completely: {@code relative} itself unless something
+   *     was skipped.
+   */
+  private List<String> readFileSystem(String relative, @Nullable CompiledGlob glob)
+      throws IOException {
+    Path start = relative.isEmpty() ? checkoutDir : checkoutDir.resolve(relative);
+    List<String> complete = new ArrayList<>();
+    complete.add(relative);
+    if (!Files.exists(start, LinkOption.NOFOLLOW_LINKS)) {
+      return complete;
+    }
+    Deque<DirectoryRead> visiting = new ArrayDeque<>();
     Files.walkFileTree(
-        checkoutDir,
+        start,
         new SimpleFileVisitor<Path>() {
+          @Override
+          public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+            if (!visiting.isEmpty()) {
+              String relativeDir = checkoutDir.relativize(dir).toString();
+              if (loadedRoots.remove(relativeDir)) {
+                // Added back when returning, unless its parent turns out to be complete too
+                visiting.peek().completeSubdirs.add(relativeDir);
+                return FileVisitResult.SKIP_SUBTREE;
+              }
+            }
+            if (glob == null || glob.mayMatchUnder(dir)) {
+              visiting.push(new DirectoryRead());
+              return FileVisitResult.CONTINUE;
+            }
+            if (visiting.isEmpty()) {
+              complete.clear();
+            } else {
+              visiting.peek().skipped = true;
+            }
+            return FileVisitResult.SKIP_SUBTREE;
+          }
+
           @Override
           public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
-            result.put(file, new FileState(file));
+            files.put(checkoutDir.relativize(file).toString(), new FileState(file, attrs.size()));
+            return FileVisitResult.CONTINUE;
+          }
+
+          @Override
+          public FileVisitResult postVisitDirectory(Path dir, IOException e) throws IOException {
+            if (e != null) {
+              throw e;
+            }
+            DirectoryRead read = visiting.pop();
+            List<String> readDirs = read.skipped
+                ? read.completeSubdirs
+                : ImmutableList.of(checkoutDir.relativize(dir).toString());
+            if (visiting.isEmpty()) {
+              complete.clear();
+              complete.addAll(readDirs);
+            } else {
+              visiting.peek().skipped |= read.skipped;
+              visiting.peek().completeSubdirs.addAll(readDirs);
+            }
             return FileVisitResult.CONTINUE;
           }
         });
-    return result;
+    return complete;
+  }
+
+  /** A directory being read by {@link #readFileSystem}. */
+  private static class DirectoryRead {
+    /** Whether any directory under it was skipped. */
+    boolean skipped;
+    final List<String> completeSubdirs = new ArrayList<>();
+  }
+
+  /** The files under directory {@code root}, as a live view of the index. */
+  private SortedMap<String, FileState> subtree(String root) {
+    if (root.isEmpty()) {
+      return files;
+    }
+    // All the keys that start with 'root/' sort between 'root/' and 'root0'.
+    return files.subMap(root + separator, root + (char) (separator.charAt(0) + 1));
+  }
+
+  private boolean isLoaded(String relative) {
+    if (loadedRoots.contains("")) {
+      return true;
+    }
+    // Look for 'relative' and its ancestors, as there can be many loaded roots
+    for (int i = relative.indexOf(separator); i >= 0; i = relative.indexOf(separator, i + 1)) {
+      if (loadedRoots.contains(relative.substring(0, i))) {
+        return true;
+      }
+    }
+    return loadedRoots.contains(relative);
+  }
+
+  private boolean isUnder(String relative, String ancestor) {
+    return ancestor.isEmpty()
+        || relative.equals(ancestor)
+        || relative.startsWith(ancestor + separator);
+  }
+
+  private String toKey(String globRoot) {
+    return separator.equals("/") ? globRoot : globRoot.replace("/", separator);
+  }
+
+  private String toKey(Path path) {
+    return checkoutDir.relativize(path.normalize()).toString();
   }
 
   /** Notify the {@link TreeState} that {@code paths} have been modified. */
   public void notifyModify(Iterable<FileState> paths) {
     notified = true;
     for (FileState path : paths) {
-      files.put(path.getPath(), path);
+      String key = toKey(path.getPath());
+      if (isLoaded(key)) {
+        files.put(key, path);
+      }
     }
   }
 
-  /** Not implemented for now. */
-  public void notifyAdd(Iterable<FileState> path) {
-    throw new UnsupportedOperationException("Not supported. Don't notify!");
+  /** Notify the {@link TreeState} that {@code paths} have been created. */
+  public void notifyAdd(Iterable<FileState> paths) {
+    notified = true;
+    for (FileState path : paths) {
+      String key = toKey(path.getPath());
+      if (isLoaded(key)) {
+        files.put(key, path);
+      }
+    }
+    cachedMatches.invalidateAll();
   }
 
-  /** Not implemented for now. */
-  public void notifyDelete(Iterable<FileState> path) {
-    throw new UnsupportedOperationException("Not supported. Don't notify!");
+  /** Notify the {@link TreeState} that {@code paths} have been deleted. */
+  public void notifyDelete(Iterable<FileState> paths) {
+    notified = true;
+    for (FileState path : paths) {
+      files.remove(toKey(path.getPath()));
+    }
+    cachedMatches.invalidateAll();
+  }
+
+  /**
+   * Notify the {@link TreeState} that the file or directory {@code before} has been moved to
+   * {@code after}.
+   *
+   * <p>Both paths are read again from the filesystem on the next lookup, but only if they were
+   * already cached. The rest of the cached tree is kept.
+   */
+  public void notifyMove(Path before, Path after) {
+    notifyChangedUnder(before);
+    notifyChangedUnder(after);
+  }
+
+  /**
+   * Notify the {@link TreeState} that an unknown set of files under {@code path} (a file or a
+   * directory) has changed. Useful for transformations that cannot tell the individual files they
+   * touched, but know where they were.
+   */
+  public void notifyChangedUnder(Path path) {
+    notified = true;
+    stalePaths.add(toKey(path));
   }
 
   public void notifyNoChange() {
@@ -146,12 +408,13 @@ public class TreeState {
   }
 
   public boolean isCached() {
-    return isCached;
+    return !loadedRoots.isEmpty();
   }
 
   public void clearCache() {
-    isCached = false;
-    files = new HashMap<>();
+    files.clear();
+    loadedRoots.clear();
+    stalePaths.clear();
     cachedMatches.invalidateAll();
     notified = false;
   }
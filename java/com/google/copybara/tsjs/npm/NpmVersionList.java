@@ -16,8 +16,6 @@
 
 package com.google.cooperbara.tsjs.npm;
 
-import static java.nio.charset.StandardCharsets.UTF_8;
-
 import com.google.api.client.json.gson.GsonFactory;
 import com.google.common.collect.ImmutableSet;
 import com.google.cooperbara.config.LabelsAwareModule;
@@ -26,7 +24,6 @@ import com.google.cooperbara.exception.ValidationException;
 import com.google.cooperbara.remotefile.RemoteFileOptions;
 import com.google.cooperbara.version.VersionList;
 import java.io.IOException;
-import java.io.InputStream;
 import java.net.URL;
 import java.util.Optional;
 import net.starlark.java.eval.StarlarkValue;
@@ -56,8 +53,8 @@ public class NpmVersionList implements VersionList, StarlarkValue, LabelsAwareMo
   }
 
   private String executeHttpQuery(String url) throws ValidationException {
-    try (InputStream inputStream = remoteFileOptions.getTransport().open(new URL(url))) {
-      return new String(inputStream.readAllBytes(), UTF_8);
+    try {
+      return remoteFileOptions.fetchVersionMetadata(new URL(url));
     } catch (IOException | ValidationException e) {
       // TODO can we detect a 404? this would indicate some form of validation problem with user
       // input, vs a repoexception for something probably broken with the registry itself.
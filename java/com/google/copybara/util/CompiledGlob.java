@@ -0,0 +1,600 @@
+/*
+ * Copyright (C) 2026 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a cooper of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cooperbara.util;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.collect.ImmutableList;
+import com.google.cooperbara.util.GlobAtom.AtomType;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.regex.Pattern;
+import javax.annotation.Nullable;
+
+/**
+ * A {@link PathMatcher} for a {@link Glob} relative to a directory, where all the include and
+ * exclude patterns of the glob are merged in a single automaton.
+ *
+ * <p>Paths are matched one segment at a time. The literal segments of the patterns are shared in a
+ * trie, so a glob with hundreds of file names costs a map lookup per segment instead of a regex
+ * per pattern, and the segments with wildcards are matched with a regex for that segment only.
+ * The same automaton tells file walkers if they can skip a directory, see {@link
+ * #mayMatchUnder(Path)}.
+ *
+ * <p>Matching is equivalent to the {@code glob:} syntax of {@link
+ * java.nio.file.FileSystem#getPathMatcher(String)}. File systems that don't use {@code /} as the
+ * separator use the file system matchers instead.
+ */
+public final class CompiledGlob implements PathMatcher {
+
+  private final Glob glob;
+  private final String prefix;
+  private final Automaton automaton;
+  @Nullable private final PathMatcher fileSystemMatcher;
+
+  CompiledGlob(Glob glob, Path root, Automaton automaton) {
+    this.glob = checkNotNull(glob);
+    this.automaton = checkNotNull(automaton);
+    String separator = root.getFileSystem().getSeparator();
+    String prefix = root.normalize().toString();
+    this.prefix = prefix.endsWith(separator) ? prefix : prefix + separator;
+    this.fileSystemMatcher = separator.equals("/") ? null : glob.fileSystemMatcher(root);
+  }
+
+  @Override
+  public boolean matches(Path path) {
+    if (fileSystemMatcher != null) {
+      return fileSystemMatcher.matches(path);
+    }
+    String path1 = path.toString();
+    return path1.length() > prefix.length()
+        && path1.startsWith(prefix)
+        && automaton.matches(path1.substring(prefix.length()));
+  }
+
+  /**
+   * Returns false if no path under directory {@code dir} can match this glob, so a file walker can
+   * skip it. It can return true for directories without matching files: for example, a directory
+   * {@code foo} for a {@code foo/*.java} glob.
+   */
+  public boolean mayMatchUnder(Path dir) {
+    if (fileSystemMatcher != null) {
+      return true;
+    }
+    String dir1 = dir.toString();
+    if (!dir1.endsWith("/")) {
+      dir1 += "/";
+    }
+    if (!dir1.startsWith(prefix)) {
+      // The directory can still contain the root of the glob
+      return prefix.startsWith(dir1);
+    }
+    return automaton.mayMatchUnder(dir1.substring(prefix.length()));
+  }
+
+  @Override
+  public String toString() {
+    return glob.toString();
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof CompiledGlob)) {
+      return false;
+    }
+    CompiledGlob that = (CompiledGlob) o;
+    return glob.equals(that.glob) && prefix.equals(that.prefix);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(glob, prefix);
+  }
+
+  /**
+   * The patterns of a {@link Glob}, independent of the directory they are relative to.
+   *
+   * <p>Each {@link GlobAtom} is a leaf of the automaton. Matching a path computes the set of
+   * leaves that match it, and then the {@link Formula} of the glob says if the path matches.
+   */
+  static final class Automaton {
+
+    private final Node start = new Node();
+    private int leaves;
+    private Formula formula;
+
+    private Automaton() {}
+
+    static Automaton of(Glob glob) {
+      Automaton automaton = new Automaton();
+      automaton.formula = glob.compile(automaton);
+      automaton.start.computeBelow();
+      return automaton;
+    }
+
+    /** Adds the pattern of {@code atom} to the automaton and returns its leaf id. */
+    int add(GlobAtom atom) {
+      int leaf = leaves++;
+      String pattern = atom.pattern();
+      Node node = start;
+      if (atom.getType() == AtomType.SINGLE_FILE) {
+        for (String segment : pattern.split("/", -1)) {
+          node = node.literals.computeIfAbsent(segment, s -> new Node());
+        }
+        node.accepts.set(leaf);
+        return leaf;
+      }
+      int from = 0;
+      while (true) {
+        int end = segmentEnd(pattern, from);
+        if (end < 0) {
+          // The rest of the pattern can match several segments, match it as a whole
+          node.tails.add(new Tail(Pattern.compile(toRegex(pattern.substring(from))), leaf));
+          return leaf;
+        }
+        node = node.next(pattern.substring(from, end));
+        if (end == pattern.length()) {
+          node.accepts.set(leaf);
+          return leaf;
+        }
+        from = end + 1;
+      }
+    }
+
+    boolean matches(String relative) {
+      BitSet matched = new BitSet(leaves);
+      List<Node> states = ImmutableList.of(start);
+      int from = 0;
+      while (!states.isEmpty()) {
+        for (Node node : states) {
+          for (Tail tail : node.tails) {
+            if (!matched.get(tail.leaf)
+                && tail.pattern.matcher(relative).region(from, relative.length()).matches()) {
+              matched.set(tail.leaf);
+            }
+          }
+        }
+        int end = relative.indexOf('/', from);
+        states = step(states, relative.substring(from, end < 0 ? relative.length() : end));
+        if (end < 0) {
+          for (Node node : states) {
+            matched.or(node.accepts);
+          }
+          break;
+        }
+        from = end + 1;
+      }
+      return formula.matches(matched);
+    }
+
+    /**
+     * Returns false if no path under {@code relativeDir} can match. The directory is either empty
+     * or ends with '/'.
+     */
+    boolean mayMatchUnder(String relativeDir) {
+      BitSet some = new BitSet(leaves);
+      BitSet all = new BitSet(leaves);
+      List<Node> states = ImmutableList.of(start);
+      int from = 0;
+      while (from < relativeDir.length() && !states.isEmpty()) {
+        for (Node node : states) {
+          for (Tail tail : node.tails) {
+            // Not worth checking if a regex could match some path with this prefix
+            some.set(tail.leaf);
+          }
+        }
+        int end = relativeDir.indexOf('/', from);
+        states = step(states, relativeDir.substring(from, end));
+        from = end + 1;
+      }
+      for (Node node : states) {
+        some.or(node.below);
+        if (node.loop) {
+          // Any path under the directory goes back to this node
+          all.or(node.accepts);
+        }
+        if (node.starStar != null) {
+          // Any path under the directory ends in the '**' node
+          all.or(node.starStar.accepts);
+        }
+      }
+      return formula.coverage(some, all) != Coverage.NONE;
+    }
+
+    private static List<Node> step(List<Node> states, String segment) {
+      List<Node> next = new ArrayList<>();
+      for (Node node : states) {
+        addState(next, node.literals.get(segment));
+        for (Wildcard wildcard : node.wildcards) {
+          if (wildcard.pattern.matcher(segment).matches()) {
+            addState(next, wildcard.target);
+          }
+        }
+        addState(next, node.starStar);
+        if (node.loop) {
+          addState(next, node);
+        }
+      }
+      return next;
+    }
+
+    private static void addState(List<Node> states, @Nullable Node node) {
+      if (node != null && !states.contains(node)) {
+        states.add(node);
+      }
+    }
+  }
+
+  /** A state of the automaton, reached after matching some path segments. */
+  private static final class Node {
+
+    private final Map<String, Node> literals = new HashMap<>();
+    private final List<Wildcard> wildcards = new ArrayList<>();
+    /** Node for a '**' segment, that matches one or more segments. */
+    @Nullable private Node starStar;
+    /** Whether any segment goes back to this node. */
+    private boolean loop;
+    /** Leaves that match a path that ends in this node. */
+    private final BitSet accepts = new BitSet();
+    private final List<Tail> tails = new ArrayList<>();
+    /** Leaves that can match a path that goes through this node and has more segments. */
+    private final BitSet below = new BitSet();
+
+    private Node next(String segment) {
+      if (segment.equals("**")) {
+        if (starStar == null) {
+          starStar = new Node();
+          starStar.loop = true;
+        }
+        return starStar;
+      }
+      if (isLiteral(segment)) {
+        return literals.computeIfAbsent(unescape(segment), s -> new Node());
+      }
+      String regex = toRegex(segment);
+      for (Wildcard wildcard : wildcards) {
+        if (wildcard.regex.equals(regex)) {
+          return wildcard.target;
+        }
+      }
+      Wildcard wildcard = new Wildcard(regex);
+      wildcards.add(wildcard);
+      return wildcard.target;
+    }
+
+    private void computeBelow() {
+      for (Node child : literals.values()) {
+        visitChild(child);
+      }
+      for (Wildcard wildcard : wildcards) {
+        visitChild(wildcard.target);
+      }
+      if (starStar != null) {
+        visitChild(starStar);
+      }
+      for (Tail tail : tails) {
+        below.set(tail.leaf);
+      }
+      if (loop) {
+        below.or(accepts);
+      }
+    }
+
+    private void visitChild(Node child) {
+      child.computeBelow();
+      below.or(child.accepts);
+      below.or(child.below);
+    }
+  }
+
+  private static final class Wildcard {
+    private final String regex;
+    private final Pattern pattern;
+    private final Node target = new Node();
+
+    private Wildcard(String regex) {
+      this.regex = regex;
+      this.pattern = Pattern.compile(regex);
+    }
+  }
+
+  private static final class Tail {
+    private final Pattern pattern;
+    private final int leaf;
+
+    private Tail(Pattern pattern, int leaf) {
+      this.pattern = pattern;
+      this.leaf = leaf;
+    }
+  }
+
+  /** Whether a glob matches all, some or none of the paths under a directory. */
+  enum Coverage {
+    NONE,
+    SOME,
+    ALL;
+
+    private Coverage or(Coverage other) {
+      return compareTo(other) >= 0 ? this : other;
+    }
+  }
+
+  /** How the leaves of a {@link Glob} tree combine: any of the includes, minus the exclude. */
+  static final class Formula {
+
+    private final int[] leaves;
+    private final ImmutableList<Formula> includes;
+    @Nullable private final Formula exclude;
+
+    Formula(int[] leaves, ImmutableList<Formula> includes, @Nullable Formula exclude) {
+      this.leaves = leaves;
+      this.includes = includes;
+      this.exclude = exclude;
+    }
+
+    private boolean matches(BitSet matched) {
+      return includes(matched) && (exclude == null || !exclude.matches(matched));
+    }
+
+    private boolean includes(BitSet matched) {
+      for (int leaf : leaves) {
+        if (matched.get(leaf)) {
+          return true;
+        }
+      }
+      for (Formula include : includes) {
+        if (include.matches(matched)) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    private Coverage coverage(BitSet some, BitSet all) {
+      Coverage included = Coverage.NONE;
+      for (int leaf : leaves) {
+        included = included.or(
+            all.get(leaf) ? Coverage.ALL : some.get(leaf) ? Coverage.SOME : Coverage.NONE);
+      }
+      for (Formula include : includes) {
+        included = included.or(include.coverage(some, all));
+      }
+      if (exclude == null || included == Coverage.NONE) {
+        return included;
+      }
+      switch (exclude.coverage(some, all)) {
+        case ALL:
+          return Coverage.NONE;
+        case NONE:
+          return included;
+        default:
+          return Coverage.SOME;
+      }
+    }
+  }
+
+  /**
+   * Returns the end of the path segment of {@code pattern} that starts at {@code from}, or -1 if
+   * the segment can match more than one path segment: it contains '**' but it is not exactly
+   * '**', or it has a '/' inside a group or escaped.
+   */
+  private static int segmentEnd(String pattern, int from) {
+    boolean inGroup = false;
+    int i = from;
+    while (i < pattern.length()) {
+      char c = pattern.charAt(i);
+      switch (c) {
+        case '\\':
+          if (i + 1 >= pattern.length() || pattern.charAt(i + 1) == '/') {
+            return -1;
+          }
+          i += 2;
+          break;
+        case '[':
+          i = classEnd(pattern, i + 1);
+          break;
+        case '{':
+          inGroup = true;
+          i++;
+          break;
+        case '}':
+          inGroup = false;
+          i++;
+          break;
+        case '*':
+          if (i + 1 < pattern.length() && pattern.charAt(i + 1) == '*') {
+            boolean wholeSegment = i == from
+                && (i + 2 == pattern.length() || pattern.charAt(i + 2) == '/');
+            if (!wholeSegment) {
+              return -1;
+            }
+            i += 2;
+          } else {
+            i++;
+          }
+          break;
+        case '/':
+          if (inGroup) {
+            return -1;
+          }
+          return i;
+        default:
+          i++;
+      }
+    }
+    return inGroup ? -1 : i;
+  }
+
+  /** Returns the index after the ']' that closes a class that starts at {@code i}. */
+  private static int classEnd(String pattern, int i) {
+    if (i < pattern.length() && (pattern.charAt(i) == '^' || pattern.charAt(i) == '!')) {
+      i++;
+    }
+    if (i < pattern.length() && pattern.charAt(i) == '-') {
+      i++;
+    }
+    while (i < pattern.length() && pattern.charAt(i) != ']') {
+      i++;
+    }
+    return i + 1;
+  }
+
+  private static boolean isLiteral(String segment) {
+    for (int i = 0; i < segment.length(); i++) {
+      switch (segment.charAt(i)) {
+        case '\\':
+          i++;
+          break;
+        case '*':
+        case '?':
+        case '[':
+        case '{':
+          return false;
+        default: // fall out
+      }
+    }
+    return true;
+  }
+
+  private static String unescape(String segment) {
+    if (segment.indexOf('\\') < 0) {
+      return segment;
+    }
+    StringBuilder sb = new StringBuilder(segment.length());
+    for (int i = 0; i < segment.length(); i++) {
+      char c = segment.charAt(i);
+      if (c == '\\') {
+        c = segment.charAt(++i);
+      }
+      sb.append(c);
+    }
+    return sb.toString();
+  }
+
+  private static final String REGEX_META_CHARS = ".^$+{[]|()";
+  private static final String GLOB_META_CHARS = "\\*?[{";
+
+  /**
+   * Translates a glob to a regex, like {@link java.nio.file.FileSystem#getPathMatcher(String)} does
+   * for 'glob:' patterns in file systems that use '/' as the separator. The glob was already
+   * validated by {@link GlobAtom#of}.
+   */
+  private static String toRegex(String glob) {
+    boolean inGroup = false;
+    StringBuilder regex = new StringBuilder();
+    int i = 0;
+    while (i < glob.length()) {
+      char c = glob.charAt(i++);
+      switch (c) {
+        case '\\':
+          char escaped = glob.charAt(i++);
+          if (GLOB_META_CHARS.indexOf(escaped) >= 0 || REGEX_META_CHARS.indexOf(escaped) >= 0) {
+            regex.append('\\');
+          }
+          regex.append(escaped);
+          break;
+        case '[':
+          // Don't match the separator in a class
+          regex.append("[[^/]&&[");
+          if (next(glob, i) == '^') {
+            regex.append("\\^");
+            i++;
+          } else {
+            if (next(glob, i) == '!') {
+              regex.append('^');
+              i++;
+            }
+            if (next(glob, i) == '-') {
+              regex.append('-');
+              i++;
+            }
+          }
+          boolean hasRangeStart = false;
+          while (i < glob.length()) {
+            c = glob.charAt(i++);
+            if (c == ']') {
+              break;
+            }
+            if (c == '\\' || c == '[' || (c == '&' && next(glob, i) == '&')) {
+              regex.append('\\');
+            }
+            regex.append(c);
+            if (c == '-') {
+              if (!hasRangeStart) {
+                break;
+              }
+              c = next(glob, i++);
+              if (c == 0 || c == ']') {
+                break;
+              }
+              regex.append(c);
+              hasRangeStart = false;
+            } else {
+              hasRangeStart = true;
+            }
+          }
+          regex.append("]]");
+          break;
+        case '{':
+          regex.append("(?:(?:");
+          inGroup = true;
+          break;
+        case '}':
+          if (inGroup) {
+            regex.append("))");
+            inGroup = false;
+          } else {
+            regex.append('}');
+          }
+          break;
+        case ',':
+          regex.append(inGroup ? ")|(?:" : ",");
+          break;
+        case '*':
+          if (next(glob, i) == '*') {
+            regex.append(".*");
+            i++;
+          } else {
+            regex.append("[^/]*");
+          }
+          break;
+        case '?':
+          regex.append("[^/]");
+          break;
+        default:
+          if (REGEX_META_CHARS.indexOf(c) >= 0) {
+            regex.append('\\');
+          }
+          regex.append(c);
+      }
+    }
+    return regex.toString();
+  }
+
+  private static char next(String glob, int i) {
+    return i < glob.length() ? glob.charAt(i) : 0;
+  }
+}
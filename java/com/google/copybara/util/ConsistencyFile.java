@@ -33,12 +33,9 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.OutputStreamWriter;
-import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
 import java.nio.file.InvalidPathException;
 import java.nio.file.Path;
-import java.nio.file.SimpleFileVisitor;
-import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -88,36 +85,33 @@ public class ConsistencyFile {
       Map<String, String> environment,
       boolean verbose)
       throws IOException, InsideGitDirException {
+    return generate(
+        baseline, destination, FileHasher.sequential(hashFunction), environment, verbose);
+  }
+
+  /**
+   * Same as {@link #generate(Path, Path, HashFunction, Map, boolean)}, but hashing the files of
+   * {@code destination} with {@code fileHasher}.
+   */
+  public static ConsistencyFile generate(
+      Path baseline,
+      Path destination,
+      FileHasher fileHasher,
+      Map<String, String> environment,
+      boolean verbose)
+      throws IOException, InsideGitDirException {
     byte[] diff = DiffUtil.diffWithIgnoreCrAtEol(baseline, destination, verbose, environment);
-    return new ConsistencyFile(computeFileHashes(destination, hashFunction), diff);
+    return new ConsistencyFile(fileHasher.hashTree(destination), diff);
   }
 
   public static ConsistencyFile generateNoDiff(Path contents, HashFunction hashFunction)
       throws IOException {
-    return new ConsistencyFile(computeFileHashes(contents, hashFunction), new byte[0]);
+    return generateNoDiff(contents, FileHasher.sequential(hashFunction));
   }
 
-  private static ImmutableMap<String, String> computeFileHashes(
-      Path directory, HashFunction hashFunction) throws IOException {
-    ImmutableMap.Builder<String, String> hashesBuilder = ImmutableMap.builder();
-    Files.walkFileTree(
-        directory,
-        new SimpleFileVisitor<>() {
-          @Override
-          public FileVisitResult visitFile(Path file, BasicFileAttributes attrs)
-              throws IOException {
-            if (Files.isSymbolicLink(file)) {
-              // skip symbolic links
-              // if they are materialized, then they will be hashed elsewhere
-              // the symbolic link itself will not be hashed
-              return FileVisitResult.CONTINUE;
-            }
-            HashCode hashCode = MoreFiles.asByteSource(file).hash(hashFunction);
-            hashesBuilder.put(directory.relativize(file).toString(), hashCode.toString());
-            return FileVisitResult.CONTINUE;
-          }
-        });
-    return hashesBuilder.buildKeepingLast();
+  public static ConsistencyFile generateNoDiff(Path contents, FileHasher fileHasher)
+      throws IOException {
+    return new ConsistencyFile(fileHasher.hashTree(contents), new byte[0]);
   }
 
   private static String mustReadLine(BufferedReader reader) throws IOException {
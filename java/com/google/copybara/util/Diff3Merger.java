@@ -0,0 +1,788 @@
+/*
+ * Copyright (C) 2026 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a cooper of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cooperbara.util;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.cooperbara.util.MergeImportTool.MergeResult;
+import com.google.cooperbara.util.MergeImportTool.MergeResultCode;
+import com.google.cooperbara.util.MergeImportTool.MergeRunner;
+import com.google.protobuf.ByteString;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A {@link MergeRunner} that merges files in process, producing the same output as {@code diff3
+ * -m}.
+ *
+ * <p>Lines are compared byte by byte, including their line terminator, so that the result does not
+ * depend on the encoding of the files. Conflicts use the diff3 markers and labels, and files that
+ * contain NUL bytes are reported as {@link MergeResultCode#TROUBLE}, like diff3 does for binary
+ * files.
+ */
+public final class Diff3Merger implements MergeRunner {
+
+  @Override
+  public MergeResult merge(Path lhs, Path rhs, Path baseline, Path workdir) throws IOException {
+    Merge merge = new Merge(lhs, rhs, baseline, workdir);
+    if (merge.isTrouble()) {
+      return MergeResult.create(ByteString.EMPTY, MergeResultCode.TROUBLE);
+    }
+    ByteString.Output output = ByteString.newOutput();
+    MergeResultCode result = merge.writeTo(output);
+    return MergeResult.create(output.toByteString(), result);
+  }
+
+  @Override
+  public MergeResultCode mergeInPlace(Path lhs, Path rhs, Path baseline, Path workdir)
+      throws IOException {
+    // All the contents are in memory at this point, so the result can be streamed over lhs
+    Merge merge = new Merge(lhs, rhs, baseline, workdir);
+    if (merge.isTrouble()) {
+      return MergeResultCode.TROUBLE;
+    }
+    try (OutputStream output = new BufferedOutputStream(Files.newOutputStream(lhs))) {
+      return merge.writeTo(output);
+    }
+  }
+
+  // Same labels as CommandLineDiffUtil, so that both strategies produce the same markers
+  private static String label(Path file, Path workdir) {
+    return workdir.getParent().relativize(file).toString();
+  }
+
+  /** A three way merge of 'mine' (lhs) and 'yours' (rhs), using 'old' (baseline) as the base. */
+  private static final class Merge {
+
+    private final Text mine;
+    private final Text old;
+    private final Text yours;
+    private final byte[] mineLabel;
+    private final byte[] oldLabel;
+    private final byte[] yoursLabel;
+
+    Merge(Path lhs, Path rhs, Path baseline, Path workdir) throws IOException {
+      mine = new Text(Files.readAllBytes(lhs));
+      old = new Text(Files.readAllBytes(baseline));
+      yours = new Text(Files.readAllBytes(rhs));
+      mineLabel = label(lhs, workdir).getBytes(UTF_8);
+      oldLabel = label(baseline, workdir).getBytes(UTF_8);
+      yoursLabel = label(rhs, workdir).getBytes(UTF_8);
+    }
+
+    /** diff3 gives up if any of the files it has to diff is binary. */
+    boolean isTrouble() {
+      return differentBinaries(old, mine) || differentBinaries(old, yours);
+    }
+
+    private static boolean differentBinaries(Text a, Text b) {
+      return (a.binary || b.binary) && !Arrays.equals(a.data, b.data);
+    }
+
+    /** Writes the merged contents and returns whether there were conflicts. */
+    MergeResultCode writeTo(OutputStream out) throws IOException {
+      LineTable lines = new LineTable();
+      lines.intern(old);
+      lines.intern(mine);
+      lines.intern(yours);
+      // Like diff3, diff each file against old and not the other way around. This matters for
+      // the alignment of ambiguous changes.
+      List<Block> blocks =
+          Block.merge(new Diff(mine.ids, old.ids).hunks(), new Diff(yours.ids, old.ids).hunks());
+
+      boolean conflicts = false;
+      int mineLine = 0;
+      for (Block block : blocks) {
+        boolean bothChanged = block.mineChanged && block.yoursChanged;
+        if (!block.yoursChanged) {
+          // Only changed in mine, that is already the base of the output
+          continue;
+        }
+        mine.writeLines(out, mineLine, block.mineStart);
+        if (bothChanged) {
+          conflicts = true;
+          if (block.sameChange(mine, yours)) {
+            writeMarker(out, "<<<<<<< ", oldLabel);
+          } else {
+            writeMarker(out, "<<<<<<< ", mineLabel);
+            mine.writeLines(out, block.mineStart, block.mineEnd);
+            writeMarker(out, "||||||| ", oldLabel);
+          }
+          old.writeLines(out, block.oldStart, block.oldEnd);
+          writeMarker(out, "=======", null);
+        }
+        yours.writeLines(out, block.yoursStart, block.yoursEnd);
+        if (bothChanged) {
+          writeMarker(out, ">>>>>>> ", yoursLabel);
+        }
+        mineLine = block.mineEnd;
+      }
+      mine.writeLines(out, mineLine, mine.lineCount);
+      return conflicts ? MergeResultCode.MERGE_CONFLICT : MergeResultCode.SUCCESS;
+    }
+
+    private static void writeMarker(OutputStream out, String marker, byte[] label)
+        throws IOException {
+      out.write(marker.getBytes(UTF_8));
+      if (label != null) {
+        out.write(label);
+      }
+      out.write('\n');
+    }
+  }
+
+  /** The contents of a file, split in lines that keep their terminator. */
+  private static final class Text {
+
+    private final byte[] data;
+    /** Offset of each line, plus the length of the data at the end. */
+    private final int[] starts;
+    private final int lineCount;
+    private final boolean binary;
+    private int[] ids;
+
+    Text(byte[] data) {
+      this.data = data;
+      int count = 0;
+      boolean binary = false;
+      for (byte b : data) {
+        if (b == '\n') {
+          count++;
+        } else if (b == 0) {
+          binary = true;
+        }
+      }
+      if (data.length > 0 && data[data.length - 1] != '\n') {
+        count++;
+      }
+      this.binary = binary;
+      lineCount = count;
+      starts = new int[count + 1];
+      int line = 0;
+      for (int i = 0; i < data.length; i++) {
+        if (data[i] == '\n') {
+          starts[++line] = i + 1;
+        }
+      }
+      starts[count] = data.length;
+    }
+
+    void writeLines(OutputStream out, int from, int to) throws IOException {
+      if (from < to) {
+        out.write(data, starts[from], starts[to] - starts[from]);
+      }
+    }
+  }
+
+  /** Assigns the same id to equal lines of all the texts, without copying their contents. */
+  private static final class LineTable {
+
+    private int[] slots = new int[1024];
+    private Text[] texts = new Text[512];
+    private int[] lines = new int[512];
+    private int[] hashes = new int[512];
+    private int size;
+
+    void intern(Text text) {
+      text.ids = new int[text.lineCount];
+      for (int line = 0; line < text.lineCount; line++) {
+        text.ids[line] = id(text, line);
+      }
+    }
+
+    private int id(Text text, int line) {
+      int start = text.starts[line];
+      int end = text.starts[line + 1];
+      int hash = 1;
+      for (int i = start; i < end; i++) {
+        hash = 31 * hash + text.data[i];
+      }
+      hash ^= hash >>> 16;
+      int mask = slots.length - 1;
+      for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+        int id = slots[slot] - 1;
+        if (id < 0) {
+          return add(slot, text, line, hash);
+        }
+        Text other = texts[id];
+        if (hashes[id] == hash
+            && Arrays.equals(
+                text.data, start, end,
+                other.data, other.starts[lines[id]], other.starts[lines[id] + 1])) {
+          return id;
+        }
+      }
+    }
+
+    private int add(int slot, Text text, int line, int hash) {
+      if (size == texts.length) {
+        texts = Arrays.copyOf(texts, size * 2);
+        lines = Arrays.copyOf(lines, size * 2);
+        hashes = Arrays.copyOf(hashes, size * 2);
+      }
+      int id = size++;
+      texts[id] = text;
+      lines[id] = line;
+      hashes[id] = hash;
+      slots[slot] = id + 1;
+      if (size * 2 > slots.length) {
+        slots = new int[slots.length * 2];
+        int mask = slots.length - 1;
+        for (int i = 0; i < size; i++) {
+          int s = hashes[i] & mask;
+          while (slots[s] != 0) {
+            s = (s + 1) & mask;
+          }
+          slots[s] = i + 1;
+        }
+      }
+      return id;
+    }
+  }
+
+  /**
+   * A line diff of two texts. This is a port of the algorithm and heuristics of GNU diff, so that
+   * ambiguous changes get the same hunks, and therefore the same conflicts, as with diff3.
+   */
+  private static final class Diff {
+
+    private final int[] a;
+    private final int[] b;
+    // Offset by one, with a zero sentinel at both ends
+    private final byte[] changedA;
+    private final byte[] changedB;
+    // The lines that were not discarded, and their index in a and b
+    private int[] xv;
+    private int[] yv;
+    private int[] xIndex;
+    private int[] yIndex;
+    // Furthest reaching points of the forward and backward searches, by diagonal
+    private int[] fd;
+    private int[] bd;
+    private int diagOffset;
+    private int tooExpensive;
+    // Result of diag()
+    private int xmid;
+    private int ymid;
+    private boolean loMinimal;
+    private boolean hiMinimal;
+
+    Diff(int[] a, int[] b) {
+      this.a = a;
+      this.b = b;
+      changedA = new byte[a.length + 2];
+      changedB = new byte[b.length + 2];
+    }
+
+    /**
+     * Returns the changed regions as {bStart, bEnd, aStart, aEnd} ranges, with exclusive ends.
+     */
+    List<int[]> hunks() {
+      discardConfusingLines();
+      int n = xv.length;
+      int m = yv.length;
+      diagOffset = m + 1;
+      fd = new int[n + m + 3];
+      bd = new int[n + m + 3];
+      // Roughly the square root of the input size, but at least 4096
+      int limit = 1;
+      for (int diags = n + m + 3; diags != 0; diags >>= 2) {
+        limit <<= 1;
+      }
+      tooExpensive = Math.max(4096, limit);
+      compareSeq(0, n, 0, m, false);
+      shiftBoundaries(a, changedA, changedB);
+      shiftBoundaries(b, changedB, changedA);
+
+      List<int[]> hunks = new ArrayList<>();
+      int i = 0;
+      int j = 0;
+      while (i < a.length || j < b.length) {
+        if (i < a.length && j < b.length && changedA[i + 1] == 0 && changedB[j + 1] == 0) {
+          i++;
+          j++;
+          continue;
+        }
+        int aStart = i;
+        int bStart = j;
+        while (changedA[i + 1] != 0) {
+          i++;
+        }
+        while (changedB[j + 1] != 0) {
+          j++;
+        }
+        hunks.add(new int[] {bStart, j, aStart, i});
+      }
+      return hunks;
+    }
+
+    /**
+     * Leaves out of the search the lines that cannot match any line of the other text, and the
+     * ones that match too many lines when they are surrounded by the former.
+     */
+    private void discardConfusingLines() {
+      int maxId = 0;
+      for (int id : a) {
+        maxId = Math.max(maxId, id);
+      }
+      for (int id : b) {
+        maxId = Math.max(maxId, id);
+      }
+      int[] countA = new int[maxId + 1];
+      int[] countB = new int[maxId + 1];
+      for (int id : a) {
+        countA[id]++;
+      }
+      for (int id : b) {
+        countB[id]++;
+      }
+      byte[] discardsA = discards(a, countB);
+      byte[] discardsB = discards(b, countA);
+      xIndex = kept(discardsA, changedA);
+      yIndex = kept(discardsB, changedB);
+      xv = new int[xIndex.length];
+      for (int i = 0; i < xIndex.length; i++) {
+        xv[i] = a[xIndex[i]];
+      }
+      yv = new int[yIndex.length];
+      for (int i = 0; i < yIndex.length; i++) {
+        yv[i] = b[yIndex[i]];
+      }
+    }
+
+    /**
+     * Returns 1 for the lines to discard. Lines without matches are always discarded, and lines
+     * with many matches only in the middle of a run of discarded lines.
+     */
+    private static byte[] discards(int[] lines, int[] otherCounts) {
+      int end = lines.length;
+      byte[] discards = new byte[end];
+      int many = 5;
+      for (int tem = end / 64; (tem >>= 2) > 0; ) {
+        many *= 2;
+      }
+      for (int i = 0; i < end; i++) {
+        int matches = otherCounts[lines[i]];
+        if (matches == 0) {
+          discards[i] = 1;
+        } else if (matches > many) {
+          discards[i] = 2;
+        }
+      }
+
+      for (int i = 0; i < end; i++) {
+        if (discards[i] == 2) {
+          // Provisional discards are cancelled unless they are in the middle of a run
+          discards[i] = 0;
+        } else if (discards[i] != 0) {
+          int j;
+          int provisional = 0;
+          for (j = i; j < end && discards[j] != 0; j++) {
+            if (discards[j] == 2) {
+              provisional++;
+            }
+          }
+          while (j > i && discards[j - 1] == 2) {
+            discards[--j] = 0;
+            provisional--;
+          }
+          int length = j - i;
+          if (provisional * 4 > length) {
+            // Too many provisionals, cancel all of them
+            while (j > i) {
+              if (discards[--j] == 2) {
+                discards[j] = 0;
+              }
+            }
+          } else {
+            // Cancel subruns of 'minimum' or more provisionals
+            int minimum = 1;
+            for (int tem = length >> 2; (tem >>= 2) > 0; ) {
+              minimum <<= 1;
+            }
+            minimum++;
+            int consec = 0;
+            for (j = 0; j < length; j++) {
+              if (discards[i + j] != 2) {
+                consec = 0;
+              } else if (minimum == ++consec) {
+                j -= consec;
+              } else if (minimum < consec) {
+                discards[i + j] = 0;
+              }
+            }
+            // Cancel provisionals at the start, until 3 non provisionals in a row or the first
+            // non provisional at least 8 lines in
+            consec = 0;
+            for (j = 0; j < length; j++) {
+              if (j >= 8 && discards[i + j] == 1) {
+                break;
+              }
+              if (discards[i + j] == 2) {
+                consec = 0;
+                discards[i + j] = 0;
+              } else if (discards[i + j] == 0) {
+                consec = 0;
+              } else {
+                consec++;
+              }
+              if (consec == 3) {
+                break;
+              }
+            }
+            i += length - 1;
+            // Same from the end
+            consec = 0;
+            for (j = 0; j < length; j++) {
+              if (j >= 8 && discards[i - j] == 1) {
+                break;
+              }
+              if (discards[i - j] == 2) {
+                consec = 0;
+                discards[i - j] = 0;
+              } else if (discards[i - j] == 0) {
+                consec = 0;
+              } else {
+                consec++;
+              }
+              if (consec == 3) {
+                break;
+              }
+            }
+          }
+        }
+      }
+      return discards;
+    }
+
+    /** Marks the discarded lines as changed and returns the indexes of the rest. */
+    private static int[] kept(byte[] discards, byte[] changed) {
+      int[] kept = new int[discards.length];
+      int count = 0;
+      for (int i = 0; i < discards.length; i++) {
+        if (discards[i] == 0) {
+          kept[count++] = i;
+        } else {
+          changed[i + 1] = 1;
+        }
+      }
+      return Arrays.copyOf(kept, count);
+    }
+
+    private void compareSeq(int xoff, int xlim, int yoff, int ylim, boolean findMinimal) {
+      while (xoff < xlim && yoff < ylim && xv[xoff] == yv[yoff]) {
+        xoff++;
+        yoff++;
+      }
+      while (xoff < xlim && yoff < ylim && xv[xlim - 1] == yv[ylim - 1]) {
+        xlim--;
+        ylim--;
+      }
+      if (xoff == xlim) {
+        while (yoff < ylim) {
+          changedB[yIndex[yoff++] + 1] = 1;
+        }
+      } else if (yoff == ylim) {
+        while (xoff < xlim) {
+          changedA[xIndex[xoff++] + 1] = 1;
+        }
+      } else {
+        diag(xoff, xlim, yoff, ylim, findMinimal);
+        int x = xmid;
+        int y = ymid;
+        boolean hi = hiMinimal;
+        compareSeq(xoff, x, yoff, y, loMinimal);
+        compareSeq(x, xlim, y, ylim, hi);
+      }
+    }
+
+    /**
+     * Finds the midpoint of the shortest edit script between the ranges, searching forward from
+     * the start and backward from the end until both searches meet (Myers' linear space
+     * algorithm). If that gets too expensive, settles for the point that made the most progress.
+     */
+    private void diag(int xoff, int xlim, int yoff, int ylim, boolean findMinimal) {
+      int o = diagOffset;
+      int dmin = xoff - ylim;
+      int dmax = xlim - yoff;
+      int fmid = xoff - yoff;
+      int bmid = xlim - ylim;
+      int fmin = fmid;
+      int fmax = fmid;
+      int bmin = bmid;
+      int bmax = bmid;
+      boolean odd = ((fmid - bmid) & 1) != 0;
+      fd[o + fmid] = xoff;
+      bd[o + bmid] = xlim;
+      for (int c = 1; ; c++) {
+        if (fmin > dmin) {
+          fd[o + --fmin - 1] = -1;
+        } else {
+          fmin++;
+        }
+        if (fmax < dmax) {
+          fd[o + ++fmax + 1] = -1;
+        } else {
+          fmax--;
+        }
+        for (int d = fmax; d >= fmin; d -= 2) {
+          int tlo = fd[o + d - 1];
+          int thi = fd[o + d + 1];
+          int x = tlo < thi ? thi : tlo + 1;
+          int y = x - d;
+          while (x < xlim && y < ylim && xv[x] == yv[y]) {
+            x++;
+            y++;
+          }
+          fd[o + d] = x;
+          if (odd && bmin <= d && d <= bmax && bd[o + d] <= x) {
+            setMid(x, y, true, true);
+            return;
+          }
+        }
+
+        if (bmin > dmin) {
+          bd[o + --bmin - 1] = Integer.MAX_VALUE;
+        } else {
+          bmin++;
+        }
+        if (bmax < dmax) {
+          bd[o + ++bmax + 1] = Integer.MAX_VALUE;
+        } else {
+          bmax--;
+        }
+        for (int d = bmax; d >= bmin; d -= 2) {
+          int tlo = bd[o + d - 1];
+          int thi = bd[o + d + 1];
+          int x = tlo < thi ? tlo : thi - 1;
+          int y = x - d;
+          while (xoff < x && yoff < y && xv[x - 1] == yv[y - 1]) {
+            x--;
+            y--;
+          }
+          bd[o + d] = x;
+          if (!odd && fmin <= d && d <= fmax && x <= fd[o + d]) {
+            setMid(x, y, true, true);
+            return;
+          }
+        }
+
+        if (!findMinimal && c >= tooExpensive) {
+          // Forward diagonal that maximizes x + y
+          int fxybest = -1;
+          int fxbest = 0;
+          for (int d = fmax; d >= fmin; d -= 2) {
+            int x = Math.min(fd[o + d], xlim);
+            int y = x - d;
+            if (ylim < y) {
+              x = ylim + d;
+              y = ylim;
+            }
+            if (fxybest < x + y) {
+              fxybest = x + y;
+              fxbest = x;
+            }
+          }
+          // Backward diagonal that minimizes x + y
+          int bxybest = Integer.MAX_VALUE;
+          int bxbest = 0;
+          for (int d = bmax; d >= bmin; d -= 2) {
+            int x = Math.max(xoff, bd[o + d]);
+            int y = x - d;
+            if (y < yoff) {
+              x = yoff + d;
+              y = yoff;
+            }
+            if (x + y < bxybest) {
+              bxybest = x + y;
+              bxbest = x;
+            }
+          }
+          if ((xlim + ylim) - bxybest < fxybest - (xoff + yoff)) {
+            setMid(fxbest, fxybest - fxbest, true, false);
+          } else {
+            setMid(bxbest, bxybest - bxbest, false, true);
+          }
+          return;
+        }
+      }
+    }
+
+    private void setMid(int x, int y, boolean loMinimal, boolean hiMinimal) {
+      this.xmid = x;
+      this.ymid = y;
+      this.loMinimal = loMinimal;
+      this.hiMinimal = hiMinimal;
+    }
+
+    /**
+     * Slides runs of changed lines over equal lines, merging them with adjacent runs where
+     * possible and otherwise aligning them with the changes of the other text. This is a port of
+     * GNU diff's shift_boundaries.
+     */
+    private static void shiftBoundaries(int[] lines, byte[] changed, byte[] otherChanged) {
+      int end = lines.length;
+      int i = 0;
+      int j = 0;
+      while (true) {
+        // Find the next run of changes, keeping track of the corresponding line in the other text
+        while (i < end && changed[i + 1] == 0) {
+          while (otherChanged[1 + j++] != 0) {}
+          i++;
+        }
+        if (i == end) {
+          break;
+        }
+        int start = i;
+        while (changed[1 + ++i] != 0) {}
+        while (otherChanged[1 + j] != 0) {
+          j++;
+        }
+        int runLength;
+        int corresponding;
+        do {
+          runLength = i - start;
+          // Move the run back while the previous line is equal to its last line
+          while (start != 0 && lines[start - 1] == lines[i - 1]) {
+            changed[1 + --start] = 1;
+            changed[1 + --i] = 0;
+            while (changed[start] != 0) {
+              start--;
+            }
+            while (otherChanged[1 + --j] != 0) {}
+          }
+          corresponding = otherChanged[j] != 0 ? i : end;
+          // Then move it forward while its first line is equal to the next one
+          while (i != end && lines[start] == lines[i]) {
+            changed[1 + start++] = 0;
+            changed[1 + i++] = 1;
+            while (changed[1 + i] != 0) {
+              i++;
+            }
+            while (otherChanged[1 + ++j] != 0) {
+              corresponding = i;
+            }
+          }
+        } while (runLength != i - start);
+        // Move the run back to where it matches a change of the other text, if any
+        while (corresponding < i) {
+          changed[1 + --start] = 1;
+          changed[1 + --i] = 0;
+          while (otherChanged[1 + --j] != 0) {}
+        }
+      }
+    }
+  }
+
+  /**
+   * A region of the merge where mine, yours or both changed, made of the overlapping hunks of the
+   * two diffs from old.
+   */
+  private static final class Block {
+
+    private int oldStart;
+    private int oldEnd;
+    private int mineStart;
+    private int mineEnd;
+    private int yoursStart;
+    private int yoursEnd;
+    private boolean mineChanged;
+    private boolean yoursChanged;
+
+    boolean sameChange(Text mine, Text yours) {
+      return Arrays.equals(
+          mine.ids, mineStart, mineEnd, yours.ids, yoursStart, yoursEnd);
+    }
+
+    /**
+     * Combines the hunks of the diffs of mine and yours against old. Hunks that overlap or touch
+     * in old end up in the same block, like diff3 does.
+     */
+    static List<Block> merge(List<int[]> mineHunks, List<int[]> yoursHunks) {
+      List<Block> blocks = new ArrayList<>();
+      int mineIndex = 0;
+      int yoursIndex = 0;
+      // Difference between the line numbers of mine/yours and old after the last block
+      int mineDelta = 0;
+      int yoursDelta = 0;
+      while (mineIndex < mineHunks.size() || yoursIndex < yoursHunks.size()) {
+        boolean highIsMine =
+            yoursIndex == yoursHunks.size()
+                || (mineIndex < mineHunks.size()
+                    && mineHunks.get(mineIndex)[0] <= yoursHunks.get(yoursIndex)[0]);
+        int firstMine = mineIndex;
+        int firstYours = yoursIndex;
+        int oldStart;
+        int highWater;
+        if (highIsMine) {
+          oldStart = mineHunks.get(mineIndex)[0];
+          highWater = mineHunks.get(mineIndex++)[1];
+        } else {
+          oldStart = yoursHunks.get(yoursIndex)[0];
+          highWater = yoursHunks.get(yoursIndex++)[1];
+        }
+        while (true) {
+          int[] other;
+          if (highIsMine && yoursIndex < yoursHunks.size()
+              && yoursHunks.get(yoursIndex)[0] <= highWater) {
+            other = yoursHunks.get(yoursIndex++);
+          } else if (!highIsMine && mineIndex < mineHunks.size()
+              && mineHunks.get(mineIndex)[0] <= highWater) {
+            other = mineHunks.get(mineIndex++);
+          } else {
+            break;
+          }
+          if (other[1] > highWater) {
+            highWater = other[1];
+            highIsMine = !highIsMine;
+          }
+        }
+        Block block = new Block();
+        block.oldStart = oldStart;
+        block.oldEnd = highWater;
+        block.mineChanged = mineIndex > firstMine;
+        if (block.mineChanged) {
+          int[] first = mineHunks.get(firstMine);
+          int[] last = mineHunks.get(mineIndex - 1);
+          mineDelta = last[3] - last[1];
+          block.mineStart = oldStart + first[2] - first[0];
+        } else {
+          block.mineStart = oldStart + mineDelta;
+        }
+        block.mineEnd = highWater + mineDelta;
+        block.yoursChanged = yoursIndex > firstYours;
+        if (block.yoursChanged) {
+          int[] first = yoursHunks.get(firstYours);
+          int[] last = yoursHunks.get(yoursIndex - 1);
+          yoursDelta = last[3] - last[1];
+          block.yoursStart = oldStart + first[2] - first[0];
+        } else {
+          block.yoursStart = oldStart + yoursDelta;
+        }
+        block.yoursEnd = highWater + yoursDelta;
+        blocks.add(block);
+      }
+      return blocks;
+    }
+  }
+}
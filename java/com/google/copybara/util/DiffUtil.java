@@ -38,7 +38,10 @@ import com.google.errorprone.annotations.CheckReturnValue;
 import com.google.cooperbara.shell.Command;
 import com.google.cooperbara.shell.CommandException;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -61,6 +64,38 @@ public class DiffUtil {
     return new FoldersDiff(verbose, environment).run(one.getParent(), one, other);
   }
 
+  /**
+   * Calculates the diff between two directory trees, only looking at {@code files}.
+   *
+   * <p>The files are staged in {@code scratch}, under folders with the same names as {@code one}
+   * and {@code other}, so that the output is the same as the one {@link #diff} would produce for
+   * those files. This is useful when the differing files are already known and the trees are too
+   * big to be diffed in full.
+   *
+   * <p>Returns the diff as an encoding-independent {@code byte[]}.
+   */
+  public static byte[] diffOnly(Path one, Path other, Iterable<String> files, Path scratch,
+      boolean verbose, Map<String, String> environment)
+      throws IOException, InsideGitDirException {
+    Path stagedOne = Files.createDirectories(scratch.resolve(one.getFileName().toString()));
+    Path stagedOther = Files.createDirectories(scratch.resolve(other.getFileName().toString()));
+    for (String file : files) {
+      stageFile(one, stagedOne, file);
+      stageFile(other, stagedOther, file);
+    }
+    return diff(stagedOne, stagedOther, verbose, environment);
+  }
+
+  private static void stageFile(Path from, Path to, String file) throws IOException {
+    Path source = from.resolve(file);
+    if (!Files.exists(source, LinkOption.NOFOLLOW_LINKS)) {
+      return;
+    }
+    Path dest = to.resolve(file);
+    Files.createDirectories(dest.getParent());
+    Files.copy(source, dest, LinkOption.NOFOLLOW_LINKS, StandardCopyOption.COPY_ATTRIBUTES);
+  }
+
   /**
    * Calculates the diff between two sibling directory trees while setting --ignore-cr-at-eol.
    *
@@ -20,6 +20,7 @@ import com.google.common.base.Preconditions;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import javax.annotation.Nullable;
 
 /**
  * A supplier of output directories under a given root.
@@ -31,12 +32,24 @@ import java.nio.file.Path;
  */
 public class DirFactory {
   @VisibleForTesting public static final String TMP = "temp";
+  private static final String ISOLATED_TMP = "temp-isolated";
   private static final String CACHE = "cache";
 
   private final Path rootPath;
+  @Nullable private final String isolatedTmpName;
 
   public DirFactory(Path rootPath) {
+    this(rootPath, /*isolatedTmpName=*/ null);
+  }
+
+  /**
+   * Creates a factory whose temp directories are under their own directory, if {@code
+   * isolatedTmpName} is not null. Cleaning them up doesn't affect other invocations running
+   * concurrently with the same root, that still share the cache.
+   */
+  public DirFactory(Path rootPath, @Nullable String isolatedTmpName) {
     this.rootPath = Preconditions.checkNotNull(rootPath);
+    this.isolatedTmpName = isolatedTmpName;
   }
 
   /** Get the cache directory for {@code name} */
@@ -60,6 +73,8 @@ public class DirFactory {
   }
 
   public Path getTmpRoot() {
-    return rootPath.resolve(TMP);
+    return isolatedTmpName == null
+        ? rootPath.resolve(TMP)
+        : rootPath.resolve(ISOLATED_TMP).resolve(isolatedTmpName);
   }
 }
@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) 2026 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a cooper of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cooperbara.util;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.hash.HashFunction;
+import com.google.common.io.MoreFiles;
+import com.google.cooperbara.LocalParallelizer;
+import com.google.cooperbara.exception.ValidationException;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hashes the files of a tree in parallel.
+ *
+ * <p>Files are split in batches of similar total size, so that a few large files don't leave the
+ * other threads idle.
+ */
+public final class FileHasher {
+
+  private final HashFunction hashFunction;
+  private final LocalParallelizer parallelizer;
+
+  public FileHasher(HashFunction hashFunction, LocalParallelizer parallelizer) {
+    this.hashFunction = checkNotNull(hashFunction);
+    this.parallelizer = checkNotNull(parallelizer);
+  }
+
+  /** A hasher that uses the calling thread. */
+  public static FileHasher sequential(HashFunction hashFunction) {
+    return new FileHasher(hashFunction, new LocalParallelizer(1, Integer.MAX_VALUE));
+  }
+
+  public HashFunction getHashFunction() {
+    return hashFunction;
+  }
+
+  /**
+   * Returns the hashes of all the files under {@code root}, keyed by relative path. Symlinks are
+   * skipped.
+   */
+  public ImmutableMap<String, String> hashTree(Path root) throws IOException {
+    List<HashedFile> files = new ArrayList<>();
+    Files.walkFileTree(root, new SimpleFileVisitor<>() {
+      @Override
+      public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+        // If symlinks are materialized, the target is hashed elsewhere
+        if (!attrs.isSymbolicLink()) {
+          files.add(new HashedFile(root.relativize(file).toString(), attrs.size()));
+        }
+        return FileVisitResult.CONTINUE;
+      }
+    });
+
+    List<ImmutableMap<String, String>> batches;
+    try {
+      batches = parallelizer.run(files, f -> f.size, elements -> {
+        ImmutableMap.Builder<String, String> hashes = ImmutableMap.builder();
+        for (HashedFile file : elements) {
+          hashes.put(file.path,
+              MoreFiles.asByteSource(root.resolve(file.path)).hash(hashFunction).toString());
+        }
+        return hashes.buildOrThrow();
+      });
+    } catch (ValidationException e) {
+      throw new IllegalStateException("Unexpected exception hashing files", e);
+    }
+
+    ImmutableMap.Builder<String, String> result = ImmutableMap.builder();
+    batches.forEach(result::putAll);
+    return result.buildOrThrow();
+  }
+
+  private static final class HashedFile {
+
+    private final String path;
+    private final long size;
+
+    private HashedFile(String path, long size) {
+      this.path = path;
+      this.size = size;
+    }
+  }
+}
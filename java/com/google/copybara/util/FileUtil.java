@@ -130,6 +130,11 @@ public final class FileUtil {
     checkArgument(Files.isDirectory(from), "%s (from) is not a directory", from);
     checkArgument(Files.isDirectory(to), "%s (to) is not a directory", to);
 
+    PathMatcher originPathMatcher = glob.relativeTo(from.normalize());
+    // The PathMatcher matches destination files so that it can work with
+    // absolute symlink materialization (We create a new CopyVisitor with the
+    // resolved symlink as origin.
+    PathMatcher destPathMatcher = glob.relativeTo(to.normalize());
     // Optimization to skip folders that will be skipped. This works well for huge file trees
     // where we have a very specific Glob ( foo/bar/**).
     for (String root : glob.roots()) {
@@ -140,12 +145,7 @@ public final class FileUtil {
       Files.walkFileTree(
           rootElement,
           new CopyVisitor(rootElement, to.resolve(root), symlinkStrategy,
-              glob.relativeTo(from.normalize()),
-              // The PathMatcher matches destination files so that it can work with
-              // absolute symlink materialization (We create a new CopyVisitor with the
-              // resolved symlink as origin.
-              glob.relativeTo(to.normalize()),
-              validator));
+              originPathMatcher, destPathMatcher, validator));
     }
   }
 
@@ -189,6 +189,11 @@ public final class FileUtil {
     // Normalize so that the patchMatcher works
     Files.walkFileTree(path.normalize(), new SimpleFileVisitor<Path>() {
 
+      @Override
+      public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+        return canSkip(pathMatcher, dir) ? FileVisitResult.SKIP_SUBTREE : FileVisitResult.CONTINUE;
+      }
+
       @Override
       public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
         if (pathMatcher.matches(file)) {
@@ -214,10 +219,11 @@ public final class FileUtil {
     AtomicInteger counter = new AtomicInteger();
     // Optimization to only visit folders that match the Glob. This avoids needless work for huge
     // file trees where only a specific subset will be matched by the Glob (e.g., foo/bar/**).
+    PathMatcher pathMatcher = glob.relativeTo(path);
     for (String root : glob.roots()) {
       Path rootPath = path.resolve(root);
       if (Files.exists(rootPath)) {
-        counter.addAndGet(deleteFilesRecursively(rootPath, glob.relativeTo(path)));
+        counter.addAndGet(deleteFilesRecursively(rootPath, pathMatcher));
       }
     }
     return counter.get();
@@ -238,6 +244,14 @@ public final class FileUtil {
     }
   }
 
+  /**
+   * Returns true if a file walk can skip directory {@code dir} because {@code pathMatcher} cannot
+   * match anything under it. Only {@link CompiledGlob} matchers know that.
+   */
+  static boolean canSkip(PathMatcher pathMatcher, Path dir) {
+    return pathMatcher instanceof CompiledGlob && !((CompiledGlob) pathMatcher).mayMatchUnder(dir);
+  }
+
   /**
    * A {@link PathMatcher} that returns true if any of the delegate {@code pathMatchers} returns
    * true.
@@ -312,6 +326,14 @@ public final class FileUtil {
       this.additonalValidator = additionalValidator;
     }
 
+    @Override
+    public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+      Path destDir = to.resolve(from.relativize(dir).toString()).normalize();
+      return canSkip(destPathMatcher, destDir)
+          ? FileVisitResult.SKIP_SUBTREE
+          : FileVisitResult.CONTINUE;
+    }
+
     @Override
     public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
       // using from...toString to allow crossing from one filesystem into another
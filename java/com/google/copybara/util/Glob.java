@@ -60,6 +60,7 @@ public class Glob implements StarlarkValue, HasBinary {
   protected final ImmutableList<GlobAtom> include;
   private final ImmutableList<Glob> globInclude;
   @Nullable private final Glob exclude;
+  @Nullable private volatile CompiledGlob.Automaton automaton;
 
   Glob(Iterable<GlobAtom> include, Iterable<Glob> globInclude, @Nullable Glob exclude) {
     this.include = ImmutableList.cooperOf(Preconditions.checkNotNull(include));
@@ -149,56 +150,48 @@ public class Glob implements StarlarkValue, HasBinary {
     return false;
   }
 
-  public PathMatcher relativeTo(Path path) {
-    ImmutableList.Builder<PathMatcher> includeList = ImmutableList.builder();
-    for (GlobAtom path1 : include) {
-      includeList.add(path1.matcher(path));
-    }
-    for (Glob g : globInclude) {
-      includeList.add(g.relativeTo(path));
+  /**
+   * Returns a {@link PathMatcher} for this glob relative to {@code path}. The patterns are compiled
+   * once per glob, so this is cheap to call several times.
+   */
+  public CompiledGlob relativeTo(Path path) {
+    CompiledGlob.Automaton result = automaton;
+    if (result == null) {
+      result = CompiledGlob.Automaton.of(this);
+      automaton = result;
     }
-    PathMatcher excludeMatcher =
-        (exclude == null) ? FileUtil.anyPathMatcher(ImmutableList.of()) : exclude.relativeTo(path);
-    return new GlobPathMatcher(FileUtil.anyPathMatcher(includeList.build()), excludeMatcher);
+    return new CompiledGlob(this, path, result);
   }
 
-  private class GlobPathMatcher implements PathMatcher {
-
-    private final PathMatcher includeMatcher;
-    private final PathMatcher excludeMatcher;
-
-    GlobPathMatcher(PathMatcher includeMatcher, PathMatcher excludeMatcher) {
-      this.includeMatcher = includeMatcher;
-      this.excludeMatcher = excludeMatcher;
+  /** Adds the atoms of this glob to {@code automaton} and returns how to combine their matches. */
+  CompiledGlob.Formula compile(CompiledGlob.Automaton automaton) {
+    int[] leaves = new int[include.size()];
+    for (int i = 0; i < leaves.length; i++) {
+      leaves[i] = automaton.add(include.get(i));
     }
-
-    @Override
-    public boolean matches(Path path) {
-      return includeMatcher.matches(path) && !excludeMatcher.matches(path);
-    }
-
-    @Override
-    public String toString() {
-      return Glob.this.toString();
+    ImmutableList.Builder<CompiledGlob.Formula> includes = ImmutableList.builder();
+    for (Glob g : globInclude) {
+      includes.add(g.compile(automaton));
     }
+    return new CompiledGlob.Formula(
+        leaves, includes.build(), exclude == null ? null : exclude.compile(automaton));
+  }
 
-    @Override
-    public boolean equals(Object o) {
-      if (this == o) {
-        return true;
-      }
-      if (!(o instanceof GlobPathMatcher)) {
-        return false;
-      }
-      GlobPathMatcher that = (GlobPathMatcher) o;
-      return Objects.equals(this.includeMatcher, that.includeMatcher)
-          && Objects.equals(this.excludeMatcher, that.excludeMatcher);
+  /**
+   * A matcher that uses the {@link java.nio.file.FileSystem} glob matchers, for the file systems
+   * that {@link CompiledGlob} doesn't support.
+   */
+  PathMatcher fileSystemMatcher(Path path) {
+    ImmutableList.Builder<PathMatcher> includeList = ImmutableList.builder();
+    for (GlobAtom path1 : include) {
+      includeList.add(path1.matcher(path));
     }
-
-    @Override
-    public int hashCode() {
-      return Objects.hash(includeMatcher, excludeMatcher);
+    for (Glob g : globInclude) {
+      includeList.add(g.fileSystemMatcher(path));
     }
+    PathMatcher includeMatcher = FileUtil.anyPathMatcher(includeList.build());
+    PathMatcher excludeMatcher = exclude == null ? null : exclude.fileSystemMatcher(path);
+    return p -> includeMatcher.matches(p) && (excludeMatcher == null || !excludeMatcher.matches(p));
   }
 
   /**
@@ -35,6 +35,7 @@ import java.io.OutputStream;
 import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.PathMatcher;
 import java.nio.file.Paths;
 import java.nio.file.SimpleFileVisitor;
 import java.nio.file.attribute.BasicFileAttributes;
@@ -101,6 +102,7 @@ public final class MergeImportTool {
     maybeDebugFolder(originWorkdir, "current");
     maybeDebugFolder(baselineWorkdir, "baseline");
     maybeDebugFolder(destinationWorkdir, "destination");
+    PathMatcher pathMatcher = matcher.relativeTo(Paths.get(""));
     SimpleFileVisitor<Path> originWorkdirFileVisitor =
         new SimpleFileVisitor<>() {
           @Override
@@ -112,10 +114,7 @@ public final class MergeImportTool {
             Path baselineFile = baselineWorkdir.resolve(relativeFile);
             Path destinationFile = destinationWorkdir.resolve(relativeFile);
             Path relativizedFile = packagePath.relativize(relativeFile);
-            boolean match =
-                matcher
-                    .relativeTo(Paths.get(""))
-                    .matches(Path.of("/".concat(relativizedFile.toString())));
+            boolean match = pathMatcher.matches(Path.of("/".concat(relativizedFile.toString())));
 
             // All 3 files must be present to merge
             if (!Files.exists(destinationFile) || !Files.exists(baselineFile) || !match) {
@@ -244,18 +243,15 @@ public final class MergeImportTool {
         if (!Files.exists(destinationFile) || !Files.exists(baselineFile)) {
           continue;
         }
-        MergeResult output =
-            mergeRunner.merge(file, destinationFile, baselineFile, diffToolWorkdir);
+        MergeResultCode result =
+            mergeRunner.mergeInPlace(file, destinationFile, baselineFile, diffToolWorkdir);
         visitedSet.add(relativeFile);
-        if (output.result() == MergeResultCode.MERGE_CONFLICT) {
+        if (result == MergeResultCode.MERGE_CONFLICT) {
           mergeErrorPaths.add(file);
         }
-        if (output.result() == MergeResultCode.TROUBLE) {
+        if (result == MergeResultCode.TROUBLE) {
           troublePaths.add(file);
         }
-
-        OutputStream outputStream = Files.newOutputStream(file);
-        output.fileContents().writeTo(outputStream);
       }
 
       return OperationResults.create(
@@ -325,6 +321,21 @@ public final class MergeImportTool {
   /** MergeRunner is called by MergeImportTool to merge one file. */
   public interface MergeRunner {
     MergeResult merge(Path lhs, Path rhs, Path baseline, Path workdir) throws IOException;
+
+    /**
+     * Merges the files and replaces the contents of {@code lhs} with the result. {@code lhs} is
+     * left untouched if the result is {@link MergeResultCode#TROUBLE}.
+     */
+    default MergeResultCode mergeInPlace(Path lhs, Path rhs, Path baseline, Path workdir)
+        throws IOException {
+      MergeResult output = merge(lhs, rhs, baseline, workdir);
+      if (output.result() != MergeResultCode.TROUBLE) {
+        try (OutputStream outputStream = Files.newOutputStream(lhs)) {
+          output.fileContents().writeTo(outputStream);
+        }
+      }
+      return output.result();
+    }
   }
 
   private static boolean compareFileContents(Path file1, Path file2) throws IOException {
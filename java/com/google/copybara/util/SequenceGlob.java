@@ -16,13 +16,8 @@
 
 package com.google.cooperbara.util;
 
-import static com.google.common.collect.ImmutableSet.toImmutableSet;
-
 import com.google.common.collect.ImmutableList;
-import com.google.common.collect.ImmutableSet;
 import com.google.cooperbara.util.GlobAtom.AtomType;
-import java.nio.file.Path;
-import java.nio.file.PathMatcher;
 import net.starlark.java.eval.EvalException;
 import net.starlark.java.eval.StarlarkList;
 
@@ -38,13 +33,6 @@ class SequenceGlob extends Glob {
     return toStringList(include);
   }
 
-  @Override
-  public PathMatcher relativeTo(Path path) {
-    ImmutableSet<Path> matcher =
-        include.stream().map(GlobAtom::pattern).map(path::resolve).collect(toImmutableSet());
-    return matcher::contains;
-  }
-
   public static SequenceGlob ofStarlarkList(StarlarkList<?> patterns) throws EvalException {
     ImmutableList.Builder<GlobAtom> atoms = ImmutableList.builder();
     for (Object pattern : patterns) {
@@ -0,0 +1,174 @@
+/*
+ * Copyright (C) 2026 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a cooper of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cooperbara.util;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.collect.ImmutableSortedSet;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import com.google.common.io.MoreFiles;
+import com.google.cooperbara.util.DiffUtil.DiffFile;
+import com.google.cooperbara.util.DiffUtil.DiffFile.Operation;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Objects;
+import java.util.TreeMap;
+import javax.annotation.Nullable;
+
+/**
+ * A content-addressed listing of the files under a directory.
+ *
+ * <p>Two manifests can be compared in-process, which is much cheaper than keeping a cooper of a
+ * tree around and running {@code git diff} over it when the trees are expected to be equal. Regular
+ * files are recorded by executable bit and content hash, and symlinks by their target. Directories
+ * are not recorded, matching what {@code git diff} reports.
+ */
+public final class TreeManifest {
+
+  private static final HashFunction HASH_FUNCTION = Hashing.sha256();
+
+  private final ImmutableSortedMap<String, Entry> entries;
+
+  private TreeManifest(ImmutableSortedMap<String, Entry> entries) {
+    this.entries = checkNotNull(entries);
+  }
+
+  /**
+   * Computes the manifest of {@code root}.
+   *
+   * <p>Symlinks that escape {@code root} are not allowed and fail the same way as
+   * {@link FileUtil.CopySymlinkStrategy#FAIL_OUTSIDE_SYMLINKS} does.
+   *
+   * @param ignoreFiles optional glob, relative to {@code root}, of files to leave out of the
+   *     manifest.
+   */
+  public static TreeManifest create(Path root, @Nullable Glob ignoreFiles) throws IOException {
+    PathMatcher rootMatcher = Glob.ALL_FILES.relativeTo(root.normalize());
+    PathMatcher ignoreMatcher = ignoreFiles == null ? null : ignoreFiles.relativeTo(root);
+    TreeMap<String, Entry> entries = new TreeMap<>();
+    Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+      @Override
+      public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+        if (ignoreMatcher != null && ignoreMatcher.matches(file)) {
+          return FileVisitResult.CONTINUE;
+        }
+        String relative = root.relativize(file).toString();
+        if (attrs.isSymbolicLink()) {
+          FileUtil.ResolvedSymlink resolved = FileUtil.resolveSymlink(rootMatcher, file);
+          if (!resolved.isAllUnderRoot()) {
+            throw new AbsoluteSymlinksNotAllowed(
+                String.format("Symlink '%s' is absolute or escaped the root: '%s'.",
+                    file, resolved.getRegularFile()),
+                file, resolved.getRegularFile());
+          }
+          entries.put(relative,
+              new Entry(/*symlink=*/ true, /*executable=*/ false,
+                  Files.readSymbolicLink(file).toString()));
+        } else if (attrs.isRegularFile()) {
+          entries.put(relative,
+              new Entry(/*symlink=*/ false, Files.isExecutable(file),
+                  MoreFiles.asByteSource(file).hash(HASH_FUNCTION).toString()));
+        }
+        return FileVisitResult.CONTINUE;
+      }
+    });
+    return new TreeManifest(ImmutableSortedMap.copyOfSorted(entries));
+  }
+
+  /** Number of files and symlinks in the manifest. */
+  public int size() {
+    return entries.size();
+  }
+
+  /**
+   * Returns the files that differ between this manifest and {@code other}, sorted by path.
+   *
+   * <p>Operations are expressed from the point of view of this manifest: a file only present in
+   * {@code other} is an {@link Operation#ADD}.
+   */
+  public ImmutableList<DiffFile> diff(TreeManifest other) {
+    ImmutableList.Builder<DiffFile> result = ImmutableList.builder();
+    for (String path : ImmutableSortedSet.<String>naturalOrder()
+        .addAll(entries.keySet())
+        .addAll(other.entries.keySet())
+        .build()) {
+      Entry mine = entries.get(path);
+      Entry theirs = other.entries.get(path);
+      if (mine == null) {
+        result.add(new DiffFile(path, Operation.ADD));
+      } else if (theirs == null) {
+        result.add(new DiffFile(path, Operation.DELETE));
+      } else if (!mine.equals(theirs)) {
+        result.add(new DiffFile(path, Operation.MODIFIED));
+      }
+    }
+    return result.build();
+  }
+
+  @Override
+  public String toString() {
+    return MoreObjects.toStringHelper(this).add("entries", entries).toString();
+  }
+
+  /** A file or symlink in the manifest. */
+  private static final class Entry {
+
+    private final boolean symlink;
+    private final boolean executable;
+    // Content hash for regular files, target for symlinks
+    private final String content;
+
+    private Entry(boolean symlink, boolean executable, String content) {
+      this.symlink = symlink;
+      this.executable = executable;
+      this.content = checkNotNull(content);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Entry)) {
+        return false;
+      }
+      Entry entry = (Entry) o;
+      return symlink == entry.symlink
+          && executable == entry.executable
+          && content.equals(entry.content);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(symlink, executable, content);
+    }
+
+    @Override
+    public String toString() {
+      return (symlink ? "-> " : executable ? "x " : "") + content;
+    }
+  }
+}
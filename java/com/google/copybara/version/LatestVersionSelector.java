@@ -32,10 +32,14 @@ import com.google.re2j.Matcher;
 import com.google.re2j.Pattern;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Optional;
+import java.util.Set;
 import java.util.TreeMap;
 import javax.annotation.Nullable;
 import net.starlark.java.eval.EvalException;
@@ -52,6 +56,11 @@ public class LatestVersionSelector implements VersionSelector {
   private final TreeMap<Integer, VersionElementType> groupTypes;
   private final RegexTemplateTokens template;
 
+  // Versions of the refs seen in the last call to select, so that only the refs added since then
+  // need to be parsed, and the latest one is the last key of the index.
+  private final Map<String, Optional<List<Object>>> parsedRefs = new HashMap<>();
+  private final TreeMap<List<Object>, Set<String>> index = new TreeMap<>(this::compareVersions);
+
   public LatestVersionSelector(
       String format, Map<String, Pattern> groups, TreeMap<Integer, VersionElementType> groupTypes,
       Location location)
@@ -124,26 +133,7 @@ public class LatestVersionSelector implements VersionSelector {
       throws ValidationException, RepoException {
     ImmutableSet<String> refs = versionList.list();
 
-    ImmutableListMultimap<String, Integer> groupIndexes = template.getGroupIndexes();
-    List<Object> latest = new ArrayList<>();
-    String latestRef = null;
-    for (String ref : refs) {
-      Matcher matcher = template.getBefore().matcher(ref);
-      if (!matcher.matches()) {
-        continue;
-      }
-      List<Object> objs = new ArrayList<>();
-      for (Entry<Integer, VersionElementType> groups : groupTypes
-          .entrySet()) {
-        String var = groups.getValue().varName(groups.getKey());
-        String val = matcher.group(Iterables.getLast(groupIndexes.get(var)));
-        objs.add(groups.getValue().convert(val, groups.getKey()));
-      }
-      if (isAfter(latest, objs)) {
-        latest = objs;
-        latestRef = ref;
-      }
-    }
+    String latestRef = latest(refs);
     if (latestRef == null) {
       console.warnFmt("version_selector didn't match any version for '%s'",
           template.getBefore().pattern());
@@ -152,18 +142,72 @@ public class LatestVersionSelector implements VersionSelector {
     return Optional.ofNullable(latestRef);
   }
 
-  private boolean isAfter(List<Object> old, List<Object> newer) {
-    if (old.isEmpty()) {
-      return true;
+  /**
+   * Updates the index with the refs added and removed since the previous call and returns the
+   * latest version in {@code refs}, or null if none matches. Ties are resolved in favor of the
+   * first one in {@code refs}.
+   */
+  @Nullable
+  private synchronized String latest(ImmutableSet<String> refs) throws ValidationException {
+    Iterator<Entry<String, Optional<List<Object>>>> it = parsedRefs.entrySet().iterator();
+    while (it.hasNext()) {
+      Entry<String, Optional<List<Object>>> e = it.next();
+      if (!refs.contains(e.getKey())) {
+        it.remove();
+        e.getValue().ifPresent(version -> removeFromIndex(version, e.getKey()));
+      }
+    }
+    for (String ref : refs) {
+      if (parsedRefs.containsKey(ref)) {
+        continue;
+      }
+      Optional<List<Object>> version = parse(ref);
+      parsedRefs.put(ref, version);
+      version.ifPresent(v -> index.computeIfAbsent(v, k -> new HashSet<>()).add(ref));
     }
+    if (index.isEmpty()) {
+      return null;
+    }
+    Set<String> candidates = index.lastEntry().getValue();
+    if (candidates.size() == 1) {
+      return Iterables.getOnlyElement(candidates);
+    }
+    return Iterables.find(refs, candidates::contains);
+  }
+
+  private Optional<List<Object>> parse(String ref) throws ValidationException {
+    Matcher matcher = template.getBefore().matcher(ref);
+    if (!matcher.matches()) {
+      return Optional.empty();
+    }
+    ImmutableListMultimap<String, Integer> groupIndexes = template.getGroupIndexes();
+    List<Object> objs = new ArrayList<>();
+    for (Entry<Integer, VersionElementType> groups : groupTypes
+        .entrySet()) {
+      String var = groups.getValue().varName(groups.getKey());
+      String val = matcher.group(Iterables.getLast(groupIndexes.get(var)));
+      objs.add(groups.getValue().convert(val, groups.getKey()));
+    }
+    return Optional.of(objs);
+  }
+
+  private void removeFromIndex(List<Object> version, String ref) {
+    Set<String> sameVersion = index.get(version);
+    sameVersion.remove(ref);
+    if (sameVersion.isEmpty()) {
+      index.remove(version);
+    }
+  }
+
+  private int compareVersions(List<Object> old, List<Object> newer) {
     Preconditions.checkArgument(old.size() == newer.size());
     for (int i = 0; i < old.size(); i++) {
       int comp = compareElement(old.get(i), newer.get(i));
       if (comp != 0) {
-        return comp < 0;
+        return comp;
       }
     }
-    return false; // Everything equal
+    return 0; // Everything equal
   }
 
   @SuppressWarnings("unchecked")
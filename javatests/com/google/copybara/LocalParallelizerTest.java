@@ -0,0 +1,94 @@
+/*
+ * Copyright (C) 2026 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.copybara;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.assertThrows;
+
+import com.google.common.base.Ticker;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
+import com.google.copybara.exception.ValidationException;
+import com.google.copybara.profiler.Profiler;
+import com.google.copybara.profiler.RecordingListener;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class LocalParallelizerTest {
+
+  private static final ImmutableList<Integer> ELEMENTS =
+      IntStream.range(0, 100).boxed().collect(ImmutableList.toImmutableList());
+
+  @Test
+  public void testResultsKeepTheInputOrder() throws Exception {
+    List<List<Integer>> results =
+        new LocalParallelizer(4, 10).run(ELEMENTS, ImmutableList::copyOf);
+
+    assertThat(results.size()).isGreaterThan(1);
+    assertThat(Iterables.concat(results)).containsExactlyElementsIn(ELEMENTS).inOrder();
+  }
+
+  @Test
+  public void testExpensiveElementsGetTheirOwnBatch() throws Exception {
+    List<List<Integer>> results = new LocalParallelizer(4, 10)
+        .run(ELEMENTS, e -> e == 50 ? 1_000_000 : 1, ImmutableList::copyOf);
+
+    assertThat(results).contains(ImmutableList.of(50));
+    assertThat(Iterables.concat(results)).containsExactlyElementsIn(ELEMENTS).inOrder();
+  }
+
+  @Test
+  public void testSmallListsRunInOneBatch() throws Exception {
+    List<List<Integer>> results =
+        new LocalParallelizer(4, 1000).run(ELEMENTS, ImmutableList::copyOf);
+
+    assertThat(results).containsExactly(ELEMENTS);
+  }
+
+  @Test
+  public void testExceptionsArePropagated() {
+    LocalParallelizer parallelizer = new LocalParallelizer(4, 10);
+
+    assertThrows(IOException.class, () -> parallelizer.run(ELEMENTS, elements -> {
+      throw new IOException("Failed");
+    }));
+    assertThrows(ValidationException.class, () -> parallelizer.run(ELEMENTS, elements -> {
+      throw new ValidationException("Failed");
+    }));
+  }
+
+  @Test
+  public void testBatchesAreProfiled() throws Exception {
+    Profiler profiler = new Profiler(Ticker.systemTicker());
+    RecordingListener listener = new RecordingListener();
+    profiler.init(ImmutableList.of(listener));
+
+    List<List<Integer>> results =
+        new LocalParallelizer(4, 10, () -> profiler).run(ELEMENTS, ImmutableList::copyOf);
+
+    List<String> descriptions = new ArrayList<>();
+    listener.getCompletedTasks().forEach(t -> descriptions.add(t.getDescription()));
+    assertThat(descriptions).hasSize(results.size());
+    assertThat(descriptions.get(0)).startsWith(Profiler.ROOT_NAME + "/batch_0");
+  }
+}
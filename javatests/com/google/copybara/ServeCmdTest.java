@@ -0,0 +1,191 @@
+/*
+ * Copyright (C) 2026 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.google.copybara;
+
+import static com.google.common.truth.Truth.assertThat;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertThrows;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.CharStreams;
+import com.google.copybara.exception.CommandLineException;
+import com.google.copybara.testing.OptionsBuilder;
+import com.google.copybara.util.ExitCode;
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class ServeCmdTest {
+
+  private OptionsBuilder options;
+  private Path workdir;
+  private Path serveFile;
+  private ExecutorService executor;
+
+  @Before
+  public void setup() throws Exception {
+    workdir = Files.createTempDirectory("ServeCmdTest");
+    serveFile = workdir.resolve("serve.json");
+    options = new OptionsBuilder();
+    options.server.serveFile = serveFile.toString();
+    options.server.threads = 1;
+    executor = Executors.newCachedThreadPool();
+  }
+
+  @After
+  public void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void testServe() throws Exception {
+    Future<ExitCode> server = startServer(new ServeCmd((id, args, output, programCache) -> {
+      output.println("Running " + id + ": " + args);
+      return args.contains("noop") ? ExitCode.NO_OP : ExitCode.SUCCESS;
+    }));
+    if (serveFile.getFileSystem().supportedFileAttributeViews().contains("posix")) {
+      assertThat(PosixFilePermissions.toString(Files.getPosixFilePermissions(serveFile)))
+          .isEqualTo("rw-------");
+    }
+
+    assertThat(send("migrate", "copy.bara.sky"))
+        .containsExactly("Running 1: [migrate, copy.bara.sky]", "exit-code: 0")
+        .inOrder();
+    assertThat(send("migrate", "noop"))
+        .containsExactly("Running 2: [migrate, noop]", "exit-code: 4")
+        .inOrder();
+
+    JsonObject stats = stats();
+    assertThat(stats.get("received").getAsInt()).isEqualTo(2);
+    assertThat(stats.get("queued").getAsInt()).isEqualTo(0);
+    assertThat(stats.getAsJsonObject("finished").get("SUCCESS").getAsInt()).isEqualTo(1);
+    assertThat(stats.getAsJsonObject("finished").get("NO_OP").getAsInt()).isEqualTo(1);
+
+    assertThat(send(ServeCmd.SHUTDOWN)).containsExactly("Shutting down", "exit-code: 0");
+    assertThat(server.get(1, TimeUnit.MINUTES)).isEqualTo(ExitCode.SUCCESS);
+    assertThat(Files.exists(serveFile)).isFalse();
+  }
+
+  @Test
+  public void testServe_queued() throws Exception {
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    Future<ExitCode> server = startServer(new ServeCmd((id, args, output, programCache) -> {
+      started.countDown();
+      try {
+        release.await();
+      } catch (InterruptedException e) {
+        throw new AssertionError(e);
+      }
+      output.println("Done " + id);
+      return ExitCode.SUCCESS;
+    }));
+    Future<List<String>> first = executor.submit(() -> send("migrate"));
+    started.await();
+    Future<List<String>> second = executor.submit(() -> send("migrate"));
+    // One thread, so the second command waits for the first one
+    JsonObject stats = stats();
+    while (stats.get("queued").getAsInt() == 0) {
+      Thread.sleep(10);
+      stats = stats();
+    }
+    assertThat(stats.get("running").getAsInt()).isEqualTo(1);
+    assertThat(stats.get("queued").getAsInt()).isEqualTo(1);
+
+    release.countDown();
+    assertThat(first.get()).containsExactly("Done 1", "exit-code: 0").inOrder();
+    assertThat(second.get()).containsExactly("Done 2", "exit-code: 0").inOrder();
+    send(ServeCmd.SHUTDOWN);
+    assertThat(server.get(1, TimeUnit.MINUTES)).isEqualTo(ExitCode.SUCCESS);
+  }
+
+  @Test
+  public void testServe_wrongToken() throws Exception {
+    Future<ExitCode> server = startServer(new ServeCmd((id, args, output, programCache) -> {
+      throw new AssertionError("Shouldn't run");
+    }));
+    List<String> reply = sendRaw(new Gson().toJson(
+        Map.of("token", "wrong", "args", ImmutableList.of("migrate"))));
+    assertThat(reply.get(0)).contains("Wrong token");
+    assertThat(reply.get(1)).isEqualTo("exit-code: 1");
+    send(ServeCmd.SHUTDOWN);
+    assertThat(server.get(1, TimeUnit.MINUTES)).isEqualTo(ExitCode.SUCCESS);
+  }
+
+  @Test
+  public void testServe_requiresServeFile() {
+    options.server.serveFile = null;
+    ServeCmd cmd = new ServeCmd((id, args, output, programCache) -> ExitCode.SUCCESS);
+    CommandLineException e = assertThrows(CommandLineException.class,
+        () -> cmd.run(new CommandEnv(workdir, options.build(), ImmutableList.of())));
+    assertThat(e).hasMessageThat().contains("--serve-file is required");
+  }
+
+  private Future<ExitCode> startServer(ServeCmd cmd) throws Exception {
+    CommandEnv commandEnv = new CommandEnv(workdir, options.build(), ImmutableList.of());
+    Future<ExitCode> server = executor.submit(() -> cmd.run(commandEnv));
+    while (!Files.exists(serveFile) || Files.size(serveFile) == 0) {
+      assertThat(server.isDone()).isFalse();
+      Thread.sleep(10);
+    }
+    return server;
+  }
+
+  private JsonObject stats() throws Exception {
+    List<String> reply = send(ServeCmd.STATS);
+    assertThat(reply.get(1)).isEqualTo("exit-code: 0");
+    return JsonParser.parseString(reply.get(0)).getAsJsonObject();
+  }
+
+  private List<String> send(String... args) throws Exception {
+    JsonObject serverInfo = JsonParser.parseString(Files.readString(serveFile)).getAsJsonObject();
+    return sendRaw(new Gson().toJson(Map.of(
+        "token", serverInfo.get("token").getAsString(),
+        "args", ImmutableList.copyOf(args))));
+  }
+
+  private List<String> sendRaw(String request) throws Exception {
+    JsonObject serverInfo = JsonParser.parseString(Files.readString(serveFile)).getAsJsonObject();
+    try (Socket socket =
+        new Socket(InetAddress.getLoopbackAddress(), serverInfo.get("port").getAsInt())) {
+      PrintStream output = new PrintStream(socket.getOutputStream(), /*autoFlush=*/ true, UTF_8);
+      output.println(request);
+      return CharStreams.readLines(new InputStreamReader(socket.getInputStream(), UTF_8));
+    }
+  }
+}
@@ -621,6 +621,66 @@ public class TransformWorkTest {
 
   }
 
+  @Test
+  public void testReadAndWritePaths() throws Exception {
+    FileSystem fileSystem = Jimfs.newFileSystem();
+    Path base = fileSystem.getPath("testReadAndWritePaths");
+    writeFile(base, "folder/file1.txt", "foo");
+    writeFile(base, "folder/file2.txt", "bar");
+
+    Files.createDirectories(workdir.resolve("folder"));
+    origin.addChange(0, base, "message", /*matchesGlob=*/true);
+
+    runWorkflow("test", ""
+        + "def test(ctx):\n"
+        + "    paths = sorted(ctx.list(glob(['folder/**'])))\n"
+        + "    contents = [c + '!' for c in ctx.read_paths(paths)]\n"
+        + "    ctx.write_paths(paths + [ctx.new_path('other/file.txt')], contents + ['baz'])");
+
+    assertThat(destination.processed.get(0).getWorkdir())
+        .containsExactly(
+            "folder/file1.txt", "foo!",
+            "folder/file2.txt", "bar!",
+            "other/file.txt", "baz");
+  }
+
+  @Test
+  public void testWritePathsDifferentSizes() throws Exception {
+    FileSystem fileSystem = Jimfs.newFileSystem();
+    Path base = fileSystem.getPath("testWritePathsDifferentSizes");
+    writeFile(base, "folder/file.txt", "foo");
+    origin.addChange(0, base, "message", /*matchesGlob=*/true);
+
+    ValidationException e = assertThrows(ValidationException.class, () -> runWorkflow("test", ""
+        + "def test(ctx):\n"
+        + "    ctx.write_paths([ctx.new_path('a'), ctx.new_path('b')], ['a'])"));
+    assertThat(e).hasMessageThat()
+        .contains("'paths' and 'contents' need to have the same size, but got 2 paths and 1");
+  }
+
+  @Test
+  public void testListSeesChangesInTheSameTransform() throws Exception {
+    FileSystem fileSystem = Jimfs.newFileSystem();
+    Path base = fileSystem.getPath("testListSeesChangesInTheSameTransform");
+    touchFile(base, "folder/file1.txt");
+    touchFile(base, "folder/file2.txt");
+
+    Files.createDirectories(workdir.resolve("folder"));
+    origin.addChange(0, base, "message", /*matchesGlob=*/true);
+
+    runWorkflow("test", ""
+        + "def test(ctx):\n"
+        + "    before = [f.path for f in sorted(ctx.list(glob(['folder/**'])))]\n"
+        + "    ctx.new_path('folder/file1.txt').remove()\n"
+        + "    ctx.write_path(ctx.new_path('folder/sub/file3.txt'), '')\n"
+        + "    after = [f.path for f in sorted(ctx.list(glob(['folder/**'])))]\n"
+        + "    ctx.set_message(' '.join(before) + '\\n' + ' '.join(after))");
+
+    assertThat(destination.processed.get(0).getChangesSummary()).isEqualTo(""
+        + "folder/file1.txt folder/file2.txt\n"
+        + "folder/file2.txt folder/sub/file3.txt");
+  }
+
   @Test
   public void testTreeStateRestored() throws IOException, ValidationException, RepoException {
     FileSystem fileSystem = Jimfs.newFileSystem();
@@ -694,6 +694,80 @@ public class WorkflowTest {
         () -> iterativeWorkflow(/*previousRef=*/ null).run(workdir, ImmutableList.of()));
   }
 
+  @Test
+  public void testIterativeModeIncremental() throws Exception {
+    origin.singleFileChange(0, "zero", "a.txt", "0");
+    origin.singleFileChange(1, "one", "b.txt", "1");
+    origin.singleFileChange(2, "two", "a.txt", "2");
+    origin.singleFileChange(3, "three", "c.txt", "3");
+    origin.singleFileChange(4, "four", "a.txt", "4");
+    options.workflowOptions.iterativeIncremental = true;
+
+    iterativeWorkflow(/*previousRef=*/ "0").run(workdir, ImmutableList.of("4"));
+
+    assertThat(destination.processed).hasSize(4);
+    ProcessedChange last = Iterables.getLast(destination.processed);
+    assertThat(last.numFiles()).isEqualTo(3);
+    assertThat(last.getContent("a.txt")).isEqualTo(PREFIX + "4");
+    assertThat(last.getContent("b.txt")).isEqualTo(PREFIX + "1");
+    assertThat(last.getContent("c.txt")).isEqualTo(PREFIX + "3");
+    assertThat(destination.processed.get(1).getContent("a.txt")).isEqualTo(PREFIX + "2");
+    // Only the first change is migrated from scratch
+    console()
+        .assertThat()
+        .timesInLog(3, MessageType.VERBOSE,
+            "Reusing the workdir of the previous change. 1 files changed.");
+  }
+
+  @Test
+  public void testIterativeModePipeline() throws Exception {
+    for (int timestamp = 0; timestamp < 5; timestamp++) {
+      origin.addSimpleChange(timestamp);
+    }
+    options.workflowOptions.iterativePipeline = true;
+    options.workflowOptions.iterativePushBatch = 3;
+
+    iterativeWorkflow(/*previousRef=*/ "0").run(workdir, ImmutableList.of("4"));
+
+    assertThat(destination.processed).hasSize(4);
+    assertThat(destination.deferredPublishingBatchSize).isEqualTo(3);
+    assertThat(destination.flushes).isEqualTo(1);
+  }
+
+  @Test
+  public void testIterativeModePipeline_flushesOnFailure() throws Exception {
+    for (int timestamp = 0; timestamp < 5; timestamp++) {
+      origin.addSimpleChange(timestamp);
+    }
+    RecordsProcessCallDestination failing =
+        new RecordsProcessCallDestination() {
+          @Override
+          public Writer<Revision> newWriter(WriterContext writerContext) {
+            return new WriterImpl(writerContext.isDryRun()) {
+              @Override
+              public ImmutableList<DestinationEffect> write(
+                  TransformResult transformResult, Glob destinationFiles, Console console)
+                  throws ValidationException, RepoException, IOException {
+                if (processed.size() == 2) {
+                  throw new ValidationException("Your change is wrong!");
+                }
+                return super.write(transformResult, destinationFiles, console);
+              }
+            };
+          }
+        };
+    options.testingOptions.destination = failing;
+    options.workflowOptions.iterativePipeline = true;
+
+    ValidationException e = assertThrows(ValidationException.class,
+        () -> iterativeWorkflow(/*previousRef=*/ "0").run(workdir, ImmutableList.of("4")));
+
+    assertThat(e).hasMessageThat().isEqualTo("Your change is wrong!");
+    // The changes migrated before the failure are still published
+    assertThat(failing.processed).hasSize(2);
+    assertThat(failing.flushes).isEqualTo(1);
+  }
+
   @Test
   public void testIterativeModeProducesNoop() throws Exception {
     assertThat(checkIterativeModeWithError(new EmptyChangeException("This was an empty change!")))
@@ -3321,6 +3395,52 @@ public class WorkflowTest {
                 + "workflow.");
   }
 
+  @Test
+  public void reversibleCheckAbsoluteSymlinkError() throws Exception {
+    Path someRoot = Files.createTempDirectory("someRoot");
+    Path originPath = someRoot.resolve("origin");
+    Files.createDirectories(originPath);
+
+    GitRepository origin = GitRepository.newRepo(/*verbose*/ true, originPath, getGitEnv()).init();
+    String primaryBranch = origin.getPrimaryBranch();
+
+    String config = "core.workflow(\n"
+        + "    name = 'default',\n"
+        + String.format("    origin = git.origin( url = 'file://%s', ref = '%s'),\n",
+        origin.getWorkTree(), primaryBranch)
+        + "    destination = testing.destination(),\n"
+        + "    authoring = " + authoring + ",\n"
+        + "    origin_files = glob(['included/**']),\n"
+        + "    reversible_check = True,\n"
+        + "    mode = '" + WorkflowMode.SQUASH + "',\n"
+        + ")\n";
+
+    Migration workflow = loadConfig(config).getMigration("default");
+
+    Path included = originPath.resolve("included");
+    Files.createDirectory(included);
+    Files.write(originPath.resolve("included/foo.txt"), "a".getBytes(UTF_8));
+
+    // Unlike a relative symlink, the target exists when the checkout is walked
+    Path fileOutsideCheckout = someRoot.resolve("file_outside_checkout");
+    Files.write(fileOutsideCheckout, "THE CONTENT".getBytes(UTF_8));
+    Files.createSymbolicLink(included.resolve("symlink"), fileOutsideCheckout.toAbsolutePath());
+
+    origin.add().files("included/foo.txt").run();
+    origin.add().files("included/symlink").run();
+    origin.commit("Foo <foo@bara.com>", ZonedDateTime.now(ZoneId.systemDefault()), "A commit");
+
+    ValidationException expected =
+        assertThrows(ValidationException.class, () -> workflow.run(workdir, ImmutableList.of()));
+    assertThat(expected.getMessage())
+        .matches(
+            ""
+                + "Failed to perform reversible check of transformations due to symlink '.*"
+                + "included/symlink' that points outside the checkout dir. Consider removing this"
+                + " symlink from your origin_files or, alternatively, set reversible_check = False"
+                + " in your workflow.");
+  }
+
   @Test
   public void reversibleCheckFiles() throws Exception {
     Path someRoot = Files.createTempDirectory("someRoot");
@@ -0,0 +1,138 @@
+/*
+ * Copyright (C) 2026 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.copybara.benchmarks;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compares JMH results in JSON format ({@code -rf json}) with the checked-in baseline.
+ *
+ * <p>Usage: {@code BaselineComparison <baseline.json> <results.json> [max_regression_percent]}.
+ * Exits with a non-zero code if a benchmark is slower than its baseline by more than the allowed
+ * percentage (10% by default) and by more than the error of both measurements, or if no benchmark
+ * could be compared, for example because the baseline is empty.
+ */
+public final class BaselineComparison {
+
+  private BaselineComparison() {}
+
+  public static void main(String[] args) throws IOException {
+    if (args.length < 2 || args.length > 3) {
+      System.err.println(
+          "Usage: BaselineComparison <baseline.json> <results.json> [max_regression_percent]");
+      System.exit(2);
+    }
+    Map<String, Score> baseline = read(Path.of(args[0]));
+    Map<String, Score> results = read(Path.of(args[1]));
+    double maxRegression = args.length == 3 ? Double.parseDouble(args[2]) / 100 : 0.10;
+    if (baseline.isEmpty()) {
+      System.err.printf("Baseline %s has no results. Record one by running all the benchmarks"
+          + " with '-rf json' and replacing it with the output.%n", args[0]);
+      System.exit(1);
+    }
+    if (results.isEmpty()) {
+      System.err.printf("Results %s have no benchmarks%n", args[1]);
+      System.exit(1);
+    }
+
+    int regressions = 0;
+    int compared = 0;
+    for (Map.Entry<String, Score> entry : results.entrySet()) {
+      Score result = entry.getValue();
+      Score base = baseline.get(entry.getKey());
+      if (base == null) {
+        System.out.printf("NEW        %s: %s%n", entry.getKey(), result);
+        continue;
+      }
+      if (!base.unit.equals(result.unit)) {
+        System.out.printf("SKIPPED    %s: unit changed from %s to %s%n",
+            entry.getKey(), base.unit, result.unit);
+        continue;
+      }
+      compared++;
+      double change = (result.score - base.score) / base.score;
+      boolean regression = change > maxRegression
+          && result.score - result.error > base.score + base.error;
+      if (regression) {
+        regressions++;
+      }
+      System.out.printf("%-10s %s: %s -> %s (%+.1f%%)%n",
+          regression ? "REGRESSION" : "OK", entry.getKey(), base, result, change * 100);
+    }
+    if (compared == 0) {
+      System.out.println("No benchmark could be compared with the baseline");
+      System.exit(1);
+    }
+    if (regressions > 0) {
+      System.out.printf("%d benchmark(s) regressed by more than %.0f%%%n",
+          regressions, maxRegression * 100);
+      System.exit(1);
+    }
+  }
+
+  /** Reads a JMH JSON report, keyed by benchmark name and parameters. */
+  private static Map<String, Score> read(Path file) throws IOException {
+    Map<String, Score> scores = new TreeMap<>();
+    for (JsonElement element : JsonParser.parseString(Files.readString(file, UTF_8))
+        .getAsJsonArray()) {
+      JsonObject run = element.getAsJsonObject();
+      StringBuilder key = new StringBuilder(run.get("benchmark").getAsString());
+      if (run.has("params")) {
+        for (Map.Entry<String, JsonElement> param :
+            new TreeMap<>(run.getAsJsonObject("params").asMap()).entrySet()) {
+          key.append(' ').append(param.getKey()).append('=').append(param.getValue().getAsString());
+        }
+      }
+      JsonObject metric = run.getAsJsonObject("primaryMetric");
+      JsonElement error = metric.get("scoreError");
+      scores.put(key.toString(), new Score(
+          metric.get("score").getAsDouble(),
+          // JMH reports "NaN" when there are not enough iterations to compute the error
+          error.isJsonPrimitive() && error.getAsJsonPrimitive().isNumber()
+              ? error.getAsDouble() : 0,
+          metric.get("scoreUnit").getAsString()));
+    }
+    return scores;
+  }
+
+  private static final class Score {
+
+    private final double score;
+    private final double error;
+    private final String unit;
+
+    private Score(double score, double error, String unit) {
+      this.score = score;
+      this.error = error;
+      this.unit = unit;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("%.3f +- %.3f %s", score, error, unit);
+    }
+  }
+}
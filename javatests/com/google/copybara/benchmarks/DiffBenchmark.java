@@ -0,0 +1,149 @@
+/*
+ * Copyright (C) 2026 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.copybara.benchmarks;
+
+import static com.google.copybara.util.FileUtil.CopySymlinkStrategy.FAIL_OUTSIDE_SYMLINKS;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.hash.Hashing;
+import com.google.copybara.util.CommandLineDiffUtil;
+import com.google.copybara.util.ConsistencyFile;
+import com.google.copybara.util.Diff3Merger;
+import com.google.copybara.util.DiffUtil;
+import com.google.copybara.util.DiffUtil.DiffFile;
+import com.google.copybara.util.FileUtil;
+import com.google.copybara.util.Glob;
+import com.google.copybara.util.MergeImportTool;
+import com.google.copybara.util.console.LogConsole;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for comparing and merging trees, as done by merge imports.
+ *
+ * <p>These shell out to {@code git} and {@code diff3}, so they measure the whole pipeline and not
+ * just the Java side. {@code mergeImportBuiltinDiff3} does the same merge without running diff3.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+public class DiffBenchmark {
+
+  private static final String DIFF3_BIN = "/usr/bin/diff3";
+
+  @Param({"1000", "10000"})
+  public int fileCount;
+
+  @Param({"SMALL", "MIXED"})
+  public String sizes;
+
+  private final Map<String, String> environment = System.getenv();
+  private Path root;
+  private Path baseline;
+  private Path destination;
+  private Path pristineOrigin;
+  private Path origin;
+  private Path diffToolWorkdir;
+  private MergeImportTool mergeImportTool;
+  private MergeImportTool builtinMergeImportTool;
+
+  @Setup(Level.Trial)
+  public void createTrees() throws Exception {
+    root = Files.createTempDirectory("DiffBenchmark");
+    baseline = Files.createDirectories(root.resolve("baseline"));
+    ImmutableList<String> paths =
+        SyntheticTree.write(baseline, fileCount, 4, SyntheticTree.Sizes.valueOf(sizes), 42);
+    // Destination-only changes in one in twenty files, origin changes in one in thirty
+    destination = Files.createDirectories(root.resolve("destination"));
+    FileUtil.copyFilesRecursively(baseline, destination, FAIL_OUTSIDE_SYMLINKS);
+    SyntheticTree.modify(destination, paths, 20, 1);
+    pristineOrigin = Files.createDirectories(root.resolve("pristine_origin"));
+    FileUtil.copyFilesRecursively(baseline, pristineOrigin, FAIL_OUTSIDE_SYMLINKS);
+    SyntheticTree.modify(pristineOrigin, paths, 30, 2);
+
+    mergeImportTool = new MergeImportTool(
+        LogConsole.writeOnlyConsole(System.err, /*verbose=*/ false),
+        new CommandLineDiffUtil(DIFF3_BIN, environment, /*debugPattern=*/ null),
+        Runtime.getRuntime().availableProcessors(),
+        /*debugMergeImport=*/ null);
+    builtinMergeImportTool = new MergeImportTool(
+        LogConsole.writeOnlyConsole(System.err, /*verbose=*/ false),
+        new Diff3Merger(),
+        Runtime.getRuntime().availableProcessors(),
+        /*debugMergeImport=*/ null);
+  }
+
+  @Setup(Level.Invocation)
+  public void resetOrigin() throws Exception {
+    origin = root.resolve("origin");
+    diffToolWorkdir = root.resolve("diff_tool");
+    for (Path dir : ImmutableList.of(origin, diffToolWorkdir)) {
+      if (Files.exists(dir)) {
+        FileUtil.deleteRecursively(dir);
+      }
+    }
+    FileUtil.copyFilesRecursively(pristineOrigin, Files.createDirectories(origin),
+        FAIL_OUTSIDE_SYMLINKS);
+    Files.createDirectories(diffToolWorkdir);
+  }
+
+  @TearDown(Level.Trial)
+  public void deleteTrees() throws Exception {
+    FileUtil.deleteRecursively(root);
+  }
+
+  @Benchmark
+  public ConsistencyFile consistencyFileGenerate() throws Exception {
+    return ConsistencyFile.generate(baseline, destination, Hashing.sha256(), environment,
+        /*verbose=*/ false);
+  }
+
+  @Benchmark
+  public ImmutableList<DiffFile> diffFiles() throws Exception {
+    return DiffUtil.diffFiles(baseline, destination, /*verbose=*/ false, environment);
+  }
+
+  @Benchmark
+  public ImmutableList<String> mergeImport() throws Exception {
+    return mergeImportTool.mergeImport(
+        origin, destination, baseline, diffToolWorkdir, Glob.ALL_FILES, Path.of(""));
+  }
+
+  @Benchmark
+  public ImmutableList<String> mergeImportBuiltinDiff3() throws Exception {
+    return builtinMergeImportTool.mergeImport(
+        origin, destination, baseline, diffToolWorkdir, Glob.ALL_FILES, Path.of(""));
+  }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright (C) 2026 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.copybara.benchmarks;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.collect.ImmutableList;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ * Generates synthetic repository trees for the benchmarks.
+ *
+ * <p>Trees are deterministic for a given seed, so that results of different runs are comparable.
+ * File contents look like source code: most lines are unique, and some of them contain the tokens
+ * the benchmarks look for ({@code com.example.internal}, {@code TODO(user)}).
+ */
+final class SyntheticTree {
+
+  /** Distribution of the file sizes. */
+  enum Sizes {
+    /** All files around 2KB. */
+    SMALL(2 * 1024, 0),
+    /** Mostly small files, with one in a hundred around 512KB. */
+    MIXED(2 * 1024, 512 * 1024),
+    /** All files around 64KB. */
+    LARGE(64 * 1024, 0);
+
+    private final int typical;
+    private final int outlier;
+
+    Sizes(int typical, int outlier) {
+      this.typical = typical;
+      this.outlier = outlier;
+    }
+
+    int next(Random random) {
+      int size = outlier > 0 && random.nextInt(100) == 0 ? outlier : typical;
+      // +-50%
+      return size / 2 + random.nextInt(size);
+    }
+  }
+
+  private static final String[] EXTENSIONS = {".java", ".txt", ".md", ".proto", ".bzl"};
+
+  private SyntheticTree() {}
+
+  /**
+   * Writes {@code fileCount} files under {@code root}, spread over directories nested up to
+   * {@code depth} levels, and returns their relative paths.
+   */
+  static ImmutableList<String> write(Path root, int fileCount, int depth, Sizes sizes, long seed)
+      throws IOException {
+    Random random = new Random(seed);
+    ImmutableList.Builder<String> paths = ImmutableList.builder();
+    for (int i = 0; i < fileCount; i++) {
+      StringBuilder path = new StringBuilder();
+      int levels = random.nextInt(depth + 1);
+      for (int level = 0; level < levels; level++) {
+        // Few directories at the top, more at the bottom
+        path.append("dir").append(level).append('_').append(random.nextInt(2 + level * 4))
+            .append('/');
+      }
+      path.append("file").append(i).append(EXTENSIONS[random.nextInt(EXTENSIONS.length)]);
+      Path file = root.resolve(path.toString());
+      Files.createDirectories(file.getParent());
+      writeContent(file, sizes.next(random), random);
+      paths.add(path.toString());
+    }
+    return paths.build();
+  }
+
+  /**
+   * Rewrites one in {@code every} of {@code paths} under {@code root} with different content.
+   */
+  static void modify(Path root, ImmutableList<String> paths, int every, long seed)
+      throws IOException {
+    Random random = new Random(seed);
+    for (int i = 0; i < paths.size(); i += every) {
+      Path file = root.resolve(paths.get(i));
+      StringBuilder content = new StringBuilder(Files.readString(file, UTF_8));
+      // Change a line in the middle, so that merges of changes at both ends succeed
+      int middle = content.indexOf("\n", content.length() / 2);
+      content.insert(middle + 1, "modified line " + random.nextLong() + "\n");
+      Files.writeString(file, content, UTF_8);
+    }
+  }
+
+  private static void writeContent(Path file, int size, Random random) throws IOException {
+    try (Writer writer = Files.newBufferedWriter(file, UTF_8)) {
+      int written = 0;
+      int line = 0;
+      while (written < size) {
+        String text;
+        switch (random.nextInt(20)) {
+          case 0:
+            text = "import com.example.internal.Class" + random.nextInt(1000) + ";";
+            break;
+          case 1:
+            text = "  // TODO(user): fix line " + line;
+            break;
+          default:
+            text = "  int value" + line + " = " + random.nextInt() + "; // filler text";
+        }
+        writer.write(text);
+        writer.write('\n');
+        written += text.length() + 1;
+        line++;
+      }
+    }
+  }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright (C) 2026 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.copybara.benchmarks;
+
+import static com.google.copybara.util.FileUtil.CopySymlinkStrategy.FAIL_OUTSIDE_SYMLINKS;
+
+import com.google.copybara.Transformation;
+import com.google.copybara.TransformationStatus;
+import com.google.copybara.testing.OptionsBuilder;
+import com.google.copybara.testing.SkylarkTestExecutor;
+import com.google.copybara.testing.TransformWorks;
+import com.google.copybara.util.FileUtil;
+import com.google.copybara.util.console.Console;
+import com.google.copybara.util.console.LogConsole;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Benchmarks for the transformations that touch every file of the checkout. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class TransformBenchmark {
+
+  @Param({"1000", "10000"})
+  public int fileCount;
+
+  @Param({"4"})
+  public int depth;
+
+  @Param({"SMALL", "MIXED"})
+  public String sizes;
+
+  private Path root;
+  private Path pristine;
+  private Path checkoutDir;
+  private Console console;
+  private Transformation replace;
+  private Transformation replaceSequence;
+  private Transformation move;
+
+  @Setup(Level.Trial)
+  public void createTree() throws Exception {
+    root = Files.createTempDirectory("TransformBenchmark");
+    pristine = Files.createDirectories(root.resolve("pristine"));
+    SyntheticTree.write(pristine, fileCount, depth, SyntheticTree.Sizes.valueOf(sizes), 42);
+
+    console = LogConsole.writeOnlyConsole(System.err, /*verbose=*/ false);
+    SkylarkTestExecutor skylark = new SkylarkTestExecutor(new OptionsBuilder().setConsole(console));
+    replace = skylark.eval("r", ""
+        + "r = core.replace(\n"
+        + "    before = 'com.example.internal',\n"
+        + "    after = 'com.example.external',\n"
+        + ")");
+    replaceSequence = skylark.eval("r", ""
+        + "r = core.transform([\n"
+        + "    core.replace(before = 'com.example.internal', after = 'com.example.external'),\n"
+        + "    core.replace(before = 'TODO(user)', after = 'TODO(someone)'),\n"
+        + "    core.replace(\n"
+        + "        before = 'value${n} =',\n"
+        + "        after = 'renamed${n} =',\n"
+        + "        regex_groups = {'n': '[0-9]+'},\n"
+        + "    ),\n"
+        + "])");
+    move = skylark.eval("m", "m = core.move('', 'third_party/project')");
+  }
+
+  @Setup(Level.Invocation)
+  public void resetCheckout() throws Exception {
+    checkoutDir = root.resolve("checkout");
+    if (Files.exists(checkoutDir)) {
+      FileUtil.deleteRecursively(checkoutDir);
+    }
+    FileUtil.copyFilesRecursively(pristine, Files.createDirectories(checkoutDir),
+        FAIL_OUTSIDE_SYMLINKS);
+  }
+
+  @TearDown(Level.Trial)
+  public void deleteTree() throws Exception {
+    FileUtil.deleteRecursively(root);
+  }
+
+  @Benchmark
+  public TransformationStatus replace() throws Exception {
+    return replace.transform(TransformWorks.of(checkoutDir, "message", console));
+  }
+
+  @Benchmark
+  public TransformationStatus replaceSequence() throws Exception {
+    return replaceSequence.transform(TransformWorks.of(checkoutDir, "message", console));
+  }
+
+  @Benchmark
+  public TransformationStatus move() throws Exception {
+    return move.transform(TransformWorks.of(checkoutDir, "message", console));
+  }
+}
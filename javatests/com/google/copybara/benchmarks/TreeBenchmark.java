@@ -0,0 +1,101 @@
+/*
+ * Copyright (C) 2026 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.copybara.benchmarks;
+
+import static com.google.common.collect.ImmutableList.toImmutableList;
+
+import com.google.common.collect.ImmutableList;
+import com.google.copybara.treestate.TreeState;
+import com.google.copybara.treestate.TreeState.FileState;
+import com.google.copybara.util.FileUtil;
+import com.google.copybara.util.Glob;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Benchmarks for finding the files of a tree that match a glob. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class TreeBenchmark {
+
+  @Param({"10000", "100000"})
+  public int fileCount;
+
+  @Param({"2", "8"})
+  public int depth;
+
+  private Path root;
+  private ImmutableList<Path> files;
+  private Glob glob;
+
+  @Setup(Level.Trial)
+  public void createTree() throws Exception {
+    root = Files.createTempDirectory("TreeBenchmark");
+    // Contents are irrelevant here, keep the tree small on disk
+    files = SyntheticTree.write(root, fileCount, depth, SyntheticTree.Sizes.SMALL, 42).stream()
+        .map(root::resolve)
+        .collect(toImmutableList());
+    // A typical origin_files: some roots, a few extensions and exclusions
+    glob = Glob.createGlob(
+        ImmutableList.of("**/*.java", "**/*.proto", "dir0_1/**", "dir0_0/dir1_3/**"),
+        ImmutableList.of("**/*.md", "dir0_1/dir1_2/**"));
+  }
+
+  @TearDown(Level.Trial)
+  public void deleteTree() throws Exception {
+    FileUtil.deleteRecursively(root);
+  }
+
+  @Benchmark
+  public int globRelativeToMatch() {
+    PathMatcher matcher = glob.relativeTo(root);
+    int matches = 0;
+    for (Path file : files) {
+      if (matcher.matches(file)) {
+        matches++;
+      }
+    }
+    return matches;
+  }
+
+  @Benchmark
+  public int treeStateFind() throws Exception {
+    int matches = 0;
+    for (FileState unused : new TreeState(root).find(glob)) {
+      matches++;
+    }
+    return matches;
+  }
+}
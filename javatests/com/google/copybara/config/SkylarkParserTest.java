@@ -17,6 +17,7 @@
 package com.google.copybara.config;
 
 import static com.google.common.truth.Truth.assertThat;
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.junit.Assert.assertThrows;
 import static org.junit.Assert.fail;
 
@@ -386,6 +387,36 @@ public class SkylarkParserTest {
     parser.evalProgramFails(content, ".*trying to mutate a frozen list.*");
   }
 
+  @Test
+  public void testProgramCache() throws Exception {
+    ProgramCache programCache = new ProgramCache(/*maxSize=*/ 10);
+    SkylarkParser cachingParser = new SkylarkParser(
+        parser.createModuleSet().getStaticModules(), StarlarkMode.STRICT, programCache);
+    ImmutableMap<String, byte[]> files = ImmutableMap.of(
+        "copy.bara.sky", ("load('foo', 'name')\n" + NON_IMPORTANT_WORKFLOW.replace(
+            "name = \"not_used\"", "name = name")).getBytes(UTF_8),
+        "foo.bara.sky", "name = 'cached'\n".getBytes(UTF_8));
+    for (int i = 0; i < 2; i++) {
+      // A new module set each time, like different invocations
+      Config config = cachingParser.loadConfig(
+          new MapConfigFile(files, "copy.bara.sky"), parser.createModuleSet(), console);
+      assertThat(config.getMigrations().keySet()).containsExactly("cached");
+    }
+    assertThat(programCache.size()).isEqualTo(2);
+    assertThat(programCache.stats().hitCount()).isEqualTo(2);
+
+    Config changed = cachingParser.loadConfig(
+        new MapConfigFile(
+            ImmutableMap.<String, byte[]>builder()
+                .put("copy.bara.sky", files.get("copy.bara.sky"))
+                .put("foo.bara.sky", "name = 'changed'\n".getBytes(UTF_8))
+                .build(),
+            "copy.bara.sky"),
+        parser.createModuleSet(), console);
+    assertThat(changed.getMigrations().keySet()).containsExactly("changed");
+    assertThat(programCache.size()).isEqualTo(3);
+  }
+
   @StarlarkBuiltin(
       name = "mock_labels_aware_module",
       doc = "LabelsAwareModule for testing purposes",
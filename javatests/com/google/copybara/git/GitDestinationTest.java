@@ -68,6 +68,7 @@ import com.google.copybara.util.console.testing.TestingConsole;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
 import java.time.Instant;
 import java.time.ZoneId;
 import java.time.ZoneOffset;
@@ -801,6 +802,108 @@ public class GitDestinationTest {
     assertThat(entry.getFiles()).containsExactly("sub/tools/foo/other");
   }
 
+  @Test
+  public void testDirectTree_excludes() throws Exception {
+    options.gitDestination.directTree = true;
+    fetch = primaryBranch;
+    push = primaryBranch;
+    GitTestUtil.writeFile(workdir, "sub/foo", "unrelated");
+    GitTestUtil.writeFile(workdir, "sub/tools/foo/other", "some content");
+    GitTestUtil.writeFile(workdir, "sub/tools/foo/same", "same content");
+    GitTestUtil.writeFile(workdir, "sub/tools/foo/deleted", "deleted content");
+    repo().withWorkTree(workdir).add().all().run();
+    repo().withWorkTree(workdir).simpleCommand("commit", "-m", "first commit");
+
+    Files.delete(workdir.resolve("sub/foo"));
+    Files.delete(workdir.resolve("sub/tools/foo/deleted"));
+    GitTestUtil.writeFile(workdir, "sub/tools/foo/other", "other content");
+    GitTestUtil.writeFile(workdir, "sub/tools/foo/bar/new", "new content");
+    Files.setPosixFilePermissions(workdir.resolve("sub/tools/foo/bar/new"),
+        PosixFilePermissions.fromString("rwxr-xr-x"));
+    destinationFiles = Glob.createGlob(ImmutableList.of("sub/tools/foo/**"), ImmutableList.of());
+    process(newWriter(), new DummyRevision("origin_ref"));
+    GitLogEntry entry = repo().log("HEAD").includeFiles(true).withLimit(1).run().get(0);
+    assertThat(entry.getFiles()).containsExactly(
+        "sub/tools/foo/other", "sub/tools/foo/deleted", "sub/tools/foo/bar/new");
+    assertThat(git("--git-dir", repoGitDir.toString(), "ls-tree", "-r", primaryBranch))
+        .contains("100755 blob");
+    assertThatCheckout(repo(), primaryBranch)
+        .containsFile("sub/foo", "unrelated")
+        .containsFile("sub/tools/foo/other", "other content")
+        .containsFile("sub/tools/foo/same", "same content")
+        .containsFile("sub/tools/foo/bar/new", "new content")
+        .containsNoMoreFiles();
+  }
+
+  @Test
+  public void testDirectTree_emptyChange() throws Exception {
+    options.gitDestination.directTree = true;
+    fetch = primaryBranch;
+    push = primaryBranch;
+    Files.write(workdir.resolve("excluded"), "some content".getBytes(UTF_8));
+    repo().withWorkTree(workdir).add().files("excluded").run();
+    repo().withWorkTree(workdir).simpleCommand("commit", "-m", "first commit");
+
+    Files.delete(workdir.resolve("excluded"));
+
+    destinationFiles = Glob.createGlob(ImmutableList.of("**"), ImmutableList.of("excluded"));
+    EmptyChangeException thrown =
+        assertThrows(
+            EmptyChangeException.class,
+            () -> process(newWriter(), new DummyRevision("origin_ref")));
+    assertThat(thrown).hasMessageThat().contains("empty change");
+  }
+
+  @Test
+  public void testDirectTree_gitattributesFallback() throws Exception {
+    options.gitDestination.directTree = true;
+    fetch = primaryBranch;
+    push = primaryBranch;
+    GitTestUtil.writeFile(workdir, ".gitattributes", "*.txt text eol=lf\n");
+    GitTestUtil.writeFile(workdir, "foo.txt", "windows\r\n");
+    process(newWriter(), new DummyRevision("origin_ref"));
+    assertThatCheckout(repo(), primaryBranch)
+        .containsFile(".gitattributes", "*.txt text eol=lf\n")
+        .containsFile("foo.txt", "windows\n")
+        .containsNoMoreFiles();
+  }
+
+  @Test
+  public void testDeferredPush() throws Exception {
+    fetch = primaryBranch;
+    push = primaryBranch;
+    Files.write(workdir.resolve("test.txt"), "one".getBytes(UTF_8));
+    process(firstCommitWriter(), new DummyRevision("first"));
+
+    Writer<GitRevision> writer = newWriter();
+    assertThat(writer.deferPublishing(/*batchSize=*/ 2)).isTrue();
+    Files.write(workdir.resolve("test.txt"), "two".getBytes(UTF_8));
+    process(writer, new DummyRevision("second"));
+    // Waits for the second commit of the batch
+    assertCommitHasOrigin(primaryBranch, "first");
+
+    Files.write(workdir.resolve("test.txt"), "three".getBytes(UTF_8));
+    process(writer, new DummyRevision("third"));
+    Files.write(workdir.resolve("test.txt"), "four".getBytes(UTF_8));
+    process(writer, new DummyRevision("fourth"));
+    writer.flush(console);
+
+    assertCommitCount(4, primaryBranch);
+    assertCommitHasOrigin(primaryBranch, "fourth");
+    assertCommitHasOrigin(primaryBranch + "~1", "third");
+    assertCommitHasOrigin(primaryBranch + "~2", "second");
+    assertThatCheckout(repo(), primaryBranch)
+        .containsFile("test.txt", "four")
+        .containsNoMoreFiles();
+  }
+
+  @Test
+  public void testDeferredPush_notSupportedInDryRun() throws Exception {
+    fetch = primaryBranch;
+    push = primaryBranch;
+    assertThat(newWriter(/*dryRun=*/ true).deferPublishing(/*batchSize=*/ 1)).isFalse();
+  }
+
   @Test
   public void processFetchRefDoesntExist() throws Exception {
     fetch = "testPullFromRef";
@@ -0,0 +1,125 @@
+/*
+ * Copyright (C) 2026 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.copybara.git;
+
+import static com.google.common.truth.Truth.assertThat;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertThrows;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class GitLogStreamTest {
+
+  @Test
+  public void testSplitsEntries() throws Exception {
+    GitLogStream stream = new GitLogStream("\0--".getBytes(UTF_8), 10);
+    stream.write("first\0--second".getBytes(UTF_8));
+    stream.write("\0--third".getBytes(UTF_8));
+    stream.finish(/*success=*/ true);
+
+    assertThat(readAll(stream)).containsExactly("first", "second", "third").inOrder();
+  }
+
+  @Test
+  public void testSeparatorSplitBetweenWrites() throws Exception {
+    GitLogStream stream = new GitLogStream("\0--".getBytes(UTF_8), 10);
+    for (byte b : "a\0--b\0-c\0--\0--d".getBytes(UTF_8)) {
+      stream.write(b);
+    }
+    stream.finish(/*success=*/ true);
+
+    assertThat(readAll(stream)).containsExactly("a", "b\0-c", "", "d").inOrder();
+  }
+
+  @Test
+  public void testEmptyOutput() throws Exception {
+    GitLogStream stream = new GitLogStream("\0--".getBytes(UTF_8), 10);
+    stream.finish(/*success=*/ true);
+
+    assertThat(readAll(stream)).isEmpty();
+  }
+
+  @Test
+  public void testFailedCommandDiscardsPartialEntry() throws Exception {
+    GitLogStream stream = new GitLogStream("\0--".getBytes(UTF_8), 10);
+    stream.write("first\0--partial".getBytes(UTF_8));
+    stream.finish(/*success=*/ false);
+
+    assertThat(readAll(stream)).containsExactly("first");
+  }
+
+  @Test
+  public void testWriterBlocksUntilRead() throws Exception {
+    GitLogStream stream = new GitLogStream("\0".getBytes(UTF_8), 1);
+    CountDownLatch written = new CountDownLatch(1);
+    Thread writer = new Thread(() -> {
+      try {
+        stream.write("a\0b\0c\0".getBytes(UTF_8));
+        written.countDown();
+        stream.finish(/*success=*/ true);
+      } catch (IOException | InterruptedException e) {
+        throw new AssertionError(e);
+      }
+    });
+    writer.start();
+    // Only one entry fits in the queue
+    assertThat(written.await(100, TimeUnit.MILLISECONDS)).isFalse();
+
+    assertThat(readAll(stream)).containsExactly("a", "b", "c").inOrder();
+    writer.join();
+  }
+
+  @Test
+  public void testCancelFailsWriter() throws Exception {
+    GitLogStream stream = new GitLogStream("\0".getBytes(UTF_8), 1);
+    AtomicBoolean failed = new AtomicBoolean();
+    Thread writer = new Thread(() -> {
+      try {
+        for (int i = 0; i < 100; i++) {
+          stream.write((i + "\0").getBytes(UTF_8));
+        }
+      } catch (IOException e) {
+        failed.set(true);
+      }
+    });
+    writer.start();
+    assertThat(new String(stream.next(), UTF_8)).isEqualTo("0");
+    stream.cancel();
+    writer.join();
+
+    assertThat(failed.get()).isTrue();
+    assertThrows(IOException.class, () -> stream.write(1));
+  }
+
+  private static List<String> readAll(GitLogStream stream) throws InterruptedException {
+    List<String> entries = new ArrayList<>();
+    byte[] entry;
+    while ((entry = stream.next()) != null) {
+      entries.add(new String(entry, UTF_8));
+    }
+    return entries;
+  }
+}
@@ -47,6 +47,7 @@ import com.google.copybara.git.GitRepository.StatusFile;
 import com.google.copybara.git.GitRepository.TreeElement;
 import com.google.copybara.testing.git.GitTestUtil;
 import com.google.copybara.util.CommandOutput;
+import com.google.copybara.util.Glob;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
@@ -62,6 +63,7 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Random;
 import java.util.stream.Collectors;
 import org.junit.Before;
 import org.junit.Test;
@@ -575,6 +577,34 @@ public class GitRepositoryTest {
     assertThat(paged.toString()).isEqualTo(singlePage.toString());
   }
 
+  @Test
+  public void testLogStream() throws Exception {
+    createGraphOfCommits();
+    ImmutableList<GitLogEntry> all = repository.log(defaultBranch)
+        .includeFiles(true)
+        .firstParent(false)
+        .run();
+    List<GitLogEntry> streamed = new ArrayList<>();
+    repository.log(defaultBranch)
+        .includeFiles(true)
+        .firstParent(false)
+        .stream(e -> {
+          streamed.add(e);
+          return streamed.size() < 5;
+        });
+    assertThat(streamed.toString()).isEqualTo(all.subList(0, 5).toString());
+  }
+
+  @Test
+  public void testLogStream_consumerFailure() throws Exception {
+    createGraphOfCommits();
+    RepoException e = assertThrows(RepoException.class, () ->
+        repository.log(defaultBranch).stream(entry -> {
+          throw new RepoException("Failed for " + entry.getCommit().getSha1());
+        }));
+    assertThat(e).hasMessageThat().startsWith("Failed for ");
+  }
+
   @Test
   public void testPagination_batchFeatureMergeCommit() throws Exception {
     createGraphOfCommits();
@@ -1423,6 +1453,55 @@ public class GitRepositoryTest {
     assertThat(repository.readFile("refs/heads/" + defaultBranch, "foo.txt")).isEqualTo("Hello");
   }
 
+  @Test
+  public void testReadFile_afterIdleProcessesAreClosed() throws Exception {
+    singleFileCommit("test", "foo.txt", "Hello");
+    assertThat(repository.readFile("refs/heads/" + defaultBranch, "foo.txt")).isEqualTo("Hello");
+
+    GitObjectReader.closeIdle(Duration.ZERO);
+
+    assertThat(repository.readFile("refs/heads/" + defaultBranch, "foo.txt")).isEqualTo("Hello");
+    assertThat(repository.withWorkTree(workdir).readFile("refs/heads/" + defaultBranch, "foo.txt"))
+        .isEqualTo("Hello");
+  }
+
+  @Test
+  public void testReadFile_missing() throws Exception {
+    singleFileCommit("test", "foo.txt", "Hello");
+    RepoException e = assertThrows(RepoException.class,
+        () -> repository.readFile("refs/heads/" + defaultBranch, "bar.txt"));
+    assertThat(e).hasMessageThat().contains("Cannot read file 'bar.txt'");
+  }
+
+  @Test
+  public void testCheckoutBinaryFiles() throws Exception {
+    byte[] binary = new byte[256 * 1024];
+    new Random(42).nextBytes(binary);
+    Files.createDirectories(workdir.resolve("dir"));
+    Files.write(workdir.resolve("dir/binary.dat"), binary);
+    Files.write(workdir.resolve("text.txt"), "\u00e1 text\r\n".getBytes(UTF_8));
+    repository.add().all().run();
+    repository.simpleCommand("commit", "-m", "message");
+
+    Path dest = Files.createTempDirectory("dest");
+    Files.createDirectories(dest.resolve("dir"));
+    repository.checkout(Glob.ALL_FILES, dest, repository.resolveReference("HEAD"));
+
+    assertThat(Files.readAllBytes(dest.resolve("dir/binary.dat"))).isEqualTo(binary);
+    assertThat(Files.readString(dest.resolve("text.txt"))).isEqualTo("\u00e1 text\r\n");
+  }
+
+  @Test
+  public void testParseRefSeesNewCommits() throws Exception {
+    GitRevision first = simpleChange(repository, "foo.txt", "1", "message_a");
+    assertThat(repository.parseRef("HEAD")).isEqualTo(first.getSha1());
+    GitRevision second = simpleChange(repository, "foo.txt", "2", "message_b");
+    assertThat(repository.parseRef("HEAD")).isEqualTo(second.getSha1());
+    assertThat(repository.parseRef("HEAD~1")).isEqualTo(first.getSha1());
+    assertThat(repository.resolveReference(second.getSha1())).isEqualTo(second);
+    assertThrows(CannotResolveRevisionException.class, () -> repository.parseRef("missing"));
+  }
+
   @Test
   public void testEmptyCommitNoBaseline() throws Exception {
     GitRepository bare = GitRepository
@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2026 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.google.copybara.git.github.api;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.assertThrows;
+import static org.mockito.Mockito.mock;
+
+import com.google.common.testing.FakeTicker;
+import com.google.copybara.exception.ValidationException;
+import com.google.copybara.git.GitCredential.UserPassword;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class CredentialCacheTest {
+
+  private final FakeTicker ticker = new FakeTicker();
+  private final AtomicInteger loads = new AtomicInteger();
+  private CredentialCache cache;
+
+  @Before
+  public void setup() {
+    cache = new CredentialCache(Duration.ofMinutes(5), ticker);
+  }
+
+  @Test
+  public void testCachedUntilExpired() throws Exception {
+    UserPassword first = cache.get(this::load);
+    assertThat(cache.get(this::load)).isSameInstanceAs(first);
+    assertThat(loads.get()).isEqualTo(1);
+
+    ticker.advance(Duration.ofMinutes(5));
+    assertThat(cache.get(this::load)).isNotSameInstanceAs(first);
+    assertThat(loads.get()).isEqualTo(2);
+  }
+
+  @Test
+  public void testInvalidate() throws Exception {
+    UserPassword first = cache.get(this::load);
+    cache.invalidate();
+    assertThat(cache.get(this::load)).isNotSameInstanceAs(first);
+    assertThat(loads.get()).isEqualTo(2);
+  }
+
+  @Test
+  public void testFailuresAreCached() throws Exception {
+    CredentialCache.Loader failing = () -> {
+      loads.incrementAndGet();
+      throw new ValidationException("No credentials");
+    };
+    assertThrows(ValidationException.class, () -> cache.get(failing));
+    assertThrows(ValidationException.class, () -> cache.get(failing));
+    assertThat(loads.get()).isEqualTo(1);
+  }
+
+  @Test
+  public void testZeroTtl() throws Exception {
+    cache = new CredentialCache(Duration.ZERO, ticker);
+    UserPassword unused = cache.get(this::load);
+    unused = cache.get(this::load);
+    assertThat(loads.get()).isEqualTo(2);
+  }
+
+  private UserPassword load() {
+    loads.incrementAndGet();
+    return mock(UserPassword.class);
+  }
+}
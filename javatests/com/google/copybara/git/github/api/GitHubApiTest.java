@@ -16,6 +16,7 @@
 
 package com.google.copybara.git.github.api;
 
+import static com.google.common.truth.Truth.assertThat;
 import static com.google.common.truth.Truth.assertWithMessage;
 import static com.google.copybara.git.GitRepository.newBareRepo;
 import static com.google.copybara.testing.git.GitTestUtil.getGitEnv;
@@ -28,6 +29,7 @@ import com.google.api.client.http.LowLevelHttpResponse;
 import com.google.api.client.testing.http.MockHttpTransport;
 import com.google.api.client.testing.http.MockLowLevelHttpRequest;
 import com.google.api.client.testing.http.MockLowLevelHttpResponse;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.copybara.git.GitRepository;
 import com.google.copybara.git.github.api.testing.AbstractGitHubApiTest;
@@ -135,6 +137,37 @@ public class GitHubApiTest extends AbstractGitHubApiTest {
     testGetPull();
   }
 
+  @Test
+  public void testFollowingPages() {
+    PaginatedList<String> page = new PaginatedList<String>().withPaginationInfo(
+        "https://api.github.com",
+        "<https://api.github.com/repos/foo/pulls?page=2&per_page=100>; rel=\"next\", "
+            + "<https://api.github.com/repos/foo/pulls?page=9&per_page=100>; rel=\"last\"");
+
+    assertThat(GitHubApi.followingPages(page, 3)).containsExactly(
+        "/repos/foo/pulls?page=2&per_page=100",
+        "/repos/foo/pulls?page=3&per_page=100",
+        "/repos/foo/pulls?page=4&per_page=100").inOrder();
+    assertThat(GitHubApi.followingPages(page, 100)).hasSize(8);
+    assertThat(GitHubApi.followingPages(page, 0)).isNull();
+  }
+
+  @Test
+  public void testFollowingPages_unknown() {
+    // Cursor based pagination
+    PaginatedList<String> page = new PaginatedList<String>().withPaginationInfo(
+        "https://api.github.com",
+        "<https://api.github.com/orgs/foo/installations?after=abc>; rel=\"next\"");
+    assertThat(GitHubApi.followingPages(page, 3)).isNull();
+
+    // Links that differ in more than the page number
+    page = new PaginatedList<String>().withPaginationInfo(
+        "https://api.github.com",
+        "<https://api.github.com/repos/foo/pulls?page=2&since=1>; rel=\"next\", "
+            + "<https://api.github.com/repos/foo/pulls?page=9&since=2>; rel=\"last\"");
+    assertThat(GitHubApi.followingPages(page, 3)).isNull();
+  }
+
   @Override
   public void trainMockPost(String apiPath, Predicate<String> requestValidator, byte[] response) {
     String path = String.format("POST https://api.github.com%s", apiPath);
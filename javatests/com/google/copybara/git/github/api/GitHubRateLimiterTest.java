@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) 2026 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.google.copybara.git.github.api;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.copybara.testing.FakeClock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class GitHubRateLimiterTest {
+
+  private static final Instant START = Instant.ofEpochSecond(1_000_000);
+
+  private final FakeClock clock = new FakeClock(START);
+  private final List<Duration> sleeps = new ArrayList<>();
+  private GitHubRateLimiter limiter;
+
+  @Before
+  public void setup() {
+    limiter = new GitHubRateLimiter(Duration.ofMinutes(1), clock, duration -> {
+      sleeps.add(duration);
+      clock.advance(duration);
+    });
+  }
+
+  @Test
+  public void testNoWaitWithTokensLeft() throws Exception {
+    assertThat(limiter.onResponse(200, "2", reset(30), null, 0)).isFalse();
+    limiter.acquire();
+    limiter.acquire();
+    assertThat(sleeps).isEmpty();
+  }
+
+  @Test
+  public void testWaitsForResetWhenTokensRunOut() throws Exception {
+    assertThat(limiter.onResponse(200, "1", reset(30), null, 0)).isFalse();
+    limiter.acquire();
+    assertThat(sleeps).isEmpty();
+    limiter.acquire();
+    assertThat(sleeps).containsExactly(Duration.ofSeconds(30));
+    // The window was reset, no more waiting until GitHub says otherwise
+    limiter.acquire();
+    assertThat(sleeps).hasSize(1);
+  }
+
+  @Test
+  public void testDoesNotWaitLongerThanMax() throws Exception {
+    assertThat(limiter.onResponse(200, "0", reset(3600), null, 0)).isFalse();
+    limiter.acquire();
+    assertThat(sleeps).isEmpty();
+  }
+
+  @Test
+  public void testRetryAfter() throws Exception {
+    assertThat(limiter.onResponse(403, "100", reset(3600), "10", 0)).isTrue();
+    limiter.acquire();
+    assertThat(sleeps).containsExactly(Duration.ofSeconds(10));
+  }
+
+  @Test
+  public void testPrimaryLimitRejection() throws Exception {
+    assertThat(limiter.onResponse(403, "0", reset(20), null, 0)).isTrue();
+    limiter.acquire();
+    assertThat(sleeps).containsExactly(Duration.ofSeconds(20));
+  }
+
+  @Test
+  public void testNotRetried() throws Exception {
+    // Permission error
+    assertThat(limiter.onResponse(403, "100", reset(20), null, 0)).isFalse();
+    // Too long
+    assertThat(limiter.onResponse(429, "0", reset(3600), null, 0)).isFalse();
+    // Too many attempts
+    assertThat(limiter.onResponse(429, null, null, "1", GitHubRateLimiter.MAX_RETRIES)).isFalse();
+  }
+
+  private static String reset(int seconds) {
+    return Long.toString(START.getEpochSecond() + seconds);
+  }
+}
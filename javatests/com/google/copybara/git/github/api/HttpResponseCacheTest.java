@@ -0,0 +1,128 @@
+/*
+ * Copyright (C) 2026 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.copybara.git.github.api;
+
+import static com.google.common.truth.Truth.assertThat;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.collect.ImmutableListMultimap;
+import com.google.copybara.git.github.api.HttpResponseCache.Entry;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public final class HttpResponseCacheTest {
+
+  private static final Instant START = Instant.parse("2026-01-01T00:00:00Z");
+
+  @Rule public final TemporaryFolder tmp = new TemporaryFolder();
+
+  private Path dir;
+
+  @Before
+  public void setup() throws Exception {
+    dir = tmp.getRoot().toPath().resolve("responses");
+  }
+
+  @Test
+  public void testGet() throws Exception {
+    HttpResponseCache cache = cacheAt(START);
+    cache.put("foo", entry("\"v1\"", "foo"));
+
+    Entry entry = cache.get("foo");
+    assertThat(entry.getEtag()).isEqualTo("\"v1\"");
+    assertThat(new String(entry.getContent(), UTF_8)).isEqualTo("foo");
+    assertThat(cache.get("bar")).isNull();
+  }
+
+  @Test
+  public void testUnusedEntriesExpire() throws Exception {
+    cacheAt(START).put("foo", entry("\"v1\"", "foo"));
+    cacheAt(START).put("bar", entry("\"v1\"", "bar"));
+
+    assertThat(cacheAt(START.plus(Duration.ofDays(6))).get("foo")).isNotNull();
+    HttpResponseCache later = cacheAt(START.plus(Duration.ofDays(8)));
+    assertThat(Files.exists(dir.resolve("bar"))).isFalse();
+    assertThat(later.get("foo")).isNotNull();
+  }
+
+  @Test
+  public void testLeastRecentlyUsedAreEvicted() throws Exception {
+    String content = "x".repeat(400);
+    cacheAt(START).put("a", entry("\"a\"", content));
+    cacheAt(START.plusSeconds(1)).put("b", entry("\"b\"", content));
+    assertThat(cacheAt(START.plusSeconds(2)).get("a")).isNotNull();
+
+    cacheAt(START.plusSeconds(3)).put("c", entry("\"c\"", content));
+
+    HttpResponseCache cache = cacheAt(START.plusSeconds(4));
+    assertThat(cache.get("a")).isNotNull();
+    assertThat(cache.get("b")).isNull();
+    assertThat(cache.get("c")).isNotNull();
+  }
+
+  @Test
+  public void testOnlyReadableByOwner() throws Exception {
+    cacheAt(START).put("foo", entry("\"v1\"", "foo"));
+
+    assertThat(PosixFilePermissions.toString(Files.getPosixFilePermissions(dir)))
+        .isEqualTo("rwx------");
+    assertThat(PosixFilePermissions.toString(Files.getPosixFilePermissions(dir.resolve("foo"))))
+        .isEqualTo("rw-------");
+  }
+
+  @Test
+  public void testKeysUseSecretOfTheCache() throws Exception {
+    String key = cacheAt(START).key("https://example.com", ImmutableListMultimap.of(), null);
+
+    assertThat(cacheAt(START).key("https://example.com", ImmutableListMultimap.of(), null))
+        .isEqualTo(key);
+    HttpResponseCache other = new HttpResponseCache(
+        tmp.newFolder("other").toPath(), 1000, Duration.ofDays(7),
+        Clock.fixed(START, ZoneOffset.UTC));
+    assertThat(other.key("https://example.com", ImmutableListMultimap.of(), null))
+        .isNotEqualTo(key);
+    assertThat(PosixFilePermissions.toString(Files.getPosixFilePermissions(dir.resolve(".secret"))))
+        .isEqualTo("rw-------");
+    // The secret is not an entry, so it doesn't expire
+    cacheAt(START.plus(Duration.ofDays(8)));
+    assertThat(cacheAt(START).key("https://example.com", ImmutableListMultimap.of(), null))
+        .isEqualTo(key);
+  }
+
+  /** A cache that fits two entries of the LRU test, with a week of max age. */
+  private HttpResponseCache cacheAt(Instant now) throws IOException {
+    return new HttpResponseCache(
+        dir, /*maxSizeBytes=*/ 1000, Duration.ofDays(7), Clock.fixed(now, ZoneOffset.UTC));
+  }
+
+  private static Entry entry(String etag, String content) {
+    return new Entry(etag, /*lastModified=*/ null, /*link=*/ null, UTF_8, content.getBytes(UTF_8));
+  }
+}
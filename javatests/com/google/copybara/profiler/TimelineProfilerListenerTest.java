@@ -0,0 +1,133 @@
+/*
+ * Copyright (C) 2026 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.copybara.profiler;
+
+import static com.google.common.truth.Truth.assertThat;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.testing.FakeTicker;
+import com.google.copybara.profiler.Profiler.ProfilerTask;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class TimelineProfilerListenerTest {
+
+  @Rule public final TemporaryFolder tmpFolder = new TemporaryFolder();
+
+  private FakeTicker ticker;
+  private Profiler profiler;
+  private Path traceFile;
+
+  @Before
+  public void setUp() throws Exception {
+    ticker = new FakeTicker().setAutoIncrementStep(1, TimeUnit.MILLISECONDS);
+    profiler = new Profiler(ticker);
+    traceFile = tmpFolder.getRoot().toPath().resolve("out/trace.json");
+    profiler.init(ImmutableList.of(new TimelineProfilerListener(traceFile, /*jfrEvents=*/ true)));
+  }
+
+  @Test
+  public void testChromeTrace() throws Exception {
+    try (ProfilerTask ignored = profiler.start("migrate", profiler.taskType("workflow"))) {
+      try (ProfilerTask ignored2 = profiler.start("transforms")) {
+        ticker.advance(5, TimeUnit.MILLISECONDS);
+      }
+    }
+    assertThat(Files.exists(traceFile)).isFalse();
+    profiler.stop();
+
+    Map<String, JsonObject> tasks = readTasks();
+    assertThat(tasks.keySet())
+        .containsExactly("//copybara", "//copybara/migrate", "//copybara/migrate/transforms");
+    JsonObject transforms = tasks.get("//copybara/migrate/transforms");
+    assertThat(transforms.get("name").getAsString()).isEqualTo("transforms");
+    assertThat(transforms.get("ph").getAsString()).isEqualTo("X");
+    // Root task starts at 0ms, each read of the ticker advances it 1ms
+    assertThat(transforms.get("ts").getAsDouble()).isEqualTo(2000.0);
+    assertThat(transforms.get("dur").getAsDouble()).isEqualTo(6000.0);
+    assertThat(transforms.get("tid").getAsLong()).isEqualTo(Thread.currentThread().getId());
+    assertThat(transforms.getAsJsonObject("args").has("cpu_time_ms")).isTrue();
+    assertThat(transforms.getAsJsonObject("args").has("allocated_bytes")).isTrue();
+    JsonObject migrate = tasks.get("//copybara/migrate");
+    assertThat(migrate.get("cat").getAsString()).isEqualTo("workflow");
+    assertThat(migrate.getAsJsonObject("args").get("type").getAsString()).isEqualTo("workflow");
+  }
+
+  @Test
+  public void testSimpleTaskInOtherThread() throws Exception {
+    Thread worker = new Thread(() -> {}, "worker-thread");
+    try (ProfilerTask ignored = profiler.start("parallel")) {
+      worker.start();
+      worker.join();
+      profiler.simpleTask("batch_0", 10_000_000, 15_000_000, worker);
+    }
+    profiler.stop();
+
+    JsonObject batch = readTasks().get("//copybara/parallel/batch_0");
+    assertThat(batch.get("ts").getAsDouble()).isEqualTo(10000.0);
+    assertThat(batch.get("dur").getAsDouble()).isEqualTo(5000.0);
+    assertThat(batch.get("tid").getAsLong()).isEqualTo(worker.getId());
+    // Not measured, since the listener didn't see the batch running
+    assertThat(batch.getAsJsonObject("args").has("cpu_time_ms")).isFalse();
+    assertThat(batch.getAsJsonObject("args").has("allocated_bytes")).isFalse();
+    assertThat(threadNames()).containsEntry(worker.getId(), "worker-thread");
+  }
+
+  private Map<String, JsonObject> readTasks() throws Exception {
+    Map<String, JsonObject> tasks = new HashMap<>();
+    for (JsonElement element : traceEvents()) {
+      JsonObject event = element.getAsJsonObject();
+      if (event.get("ph").getAsString().equals("X")) {
+        tasks.put(event.getAsJsonObject("args").get("path").getAsString(), event);
+      }
+    }
+    return tasks;
+  }
+
+  private Map<Long, String> threadNames() throws Exception {
+    Map<Long, String> threads = new HashMap<>();
+    for (JsonElement element : traceEvents()) {
+      JsonObject event = element.getAsJsonObject();
+      if (event.get("ph").getAsString().equals("M")) {
+        threads.put(event.get("tid").getAsLong(),
+            event.getAsJsonObject("args").get("name").getAsString());
+      }
+    }
+    return threads;
+  }
+
+  private JsonArray traceEvents() throws Exception {
+    return JsonParser.parseString(Files.readString(traceFile, UTF_8))
+        .getAsJsonObject()
+        .getAsJsonArray("traceEvents");
+  }
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright (C) 2026 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.copybara.remotefile;
+
+import static com.google.common.truth.Truth.assertThat;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.hash.Hashing;
+import com.google.copybara.remotefile.extractutil.ExtractType;
+import com.google.copybara.testing.FakeClock;
+import com.google.copybara.util.Glob;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+
+@RunWith(JUnit4.class)
+public final class DownloadCacheTest {
+
+  @Rule public final MockitoRule mockito = MockitoJUnit.rule();
+  @Rule public final TemporaryFolder tmp = new TemporaryFolder();
+
+  @Mock private HttpStreamFactory transport;
+
+  private final FakeClock clock = new FakeClock(Instant.parse("2026-01-01T00:00:00Z"));
+  private Path root;
+
+  @Before
+  public void setup() throws Exception {
+    root = tmp.newFolder("cache").toPath();
+    when(transport.open(any()))
+        .thenAnswer(invocation -> new ByteArrayInputStream(
+            ("contents of " + invocation.getArgument(0)).getBytes(UTF_8)));
+  }
+
+  @Test
+  public void testFetchDownloadsOnce() throws Exception {
+    DownloadCache cache = new DownloadCache(root, 1024 * 1024, /*cacheTrees=*/ false, clock);
+    URL url = new URL("https://example.com/foo.zip");
+
+    assertThat(isCached(cache, url)).isFalse();
+    Path first = cache.fetch(url, transport);
+    Path second = cache.fetch(url, transport);
+
+    assertThat(second.toString()).isEqualTo(first.toString());
+    assertThat(Files.readString(first, UTF_8)).isEqualTo("contents of " + url);
+    assertThat(first.getFileName().toString())
+        .isEqualTo(Hashing.sha256().hashString("contents of " + url, UTF_8).toString());
+    verify(transport, times(1)).open(url);
+  }
+
+  @Test
+  public void testCacheIsShared() throws Exception {
+    URL url = new URL("https://example.com/foo.zip");
+    new DownloadCache(root, 1024 * 1024, /*cacheTrees=*/ false, clock).fetch(url, transport);
+
+    DownloadCache other = new DownloadCache(root, 1024 * 1024, /*cacheTrees=*/ false, clock);
+
+    assertThat(isCached(other, url)).isTrue();
+    other.fetch(url, transport);
+    verify(transport, times(1)).open(url);
+  }
+
+  @Test
+  public void testLeastRecentlyUsedIsEvicted() throws Exception {
+    // Each download is 37 bytes, the cache fits two of them
+    DownloadCache cache = new DownloadCache(root, 100, /*cacheTrees=*/ false, clock);
+    URL a = new URL("https://example.com/a.zip");
+    URL b = new URL("https://example.com/b.zip");
+    URL c = new URL("https://example.com/c.zip");
+
+    cache.fetch(a, transport);
+    clock.advance(Duration.ofMinutes(1));
+    cache.fetch(b, transport);
+    clock.advance(Duration.ofMinutes(1));
+    // a is now more recently used than b
+    assertThat(isCached(cache, a)).isTrue();
+    clock.advance(Duration.ofMinutes(1));
+    cache.fetch(c, transport);
+
+    assertThat(isCached(cache, a)).isTrue();
+    assertThat(isCached(cache, b)).isFalse();
+    assertThat(isCached(cache, c)).isTrue();
+  }
+
+  @Test
+  public void testSizeIsKeptInIndex() throws Exception {
+    // Each download is 37 bytes
+    DownloadCache cache = new DownloadCache(root, 1024 * 1024, /*cacheTrees=*/ false, clock);
+
+    cache.fetch(new URL("https://example.com/a.zip"), transport);
+    cache.fetch(new URL("https://example.com/b.zip"), transport);
+    cache.fetch(new URL("https://example.com/b.zip"), transport);
+    assertThat(Files.readString(root.resolve("size"), UTF_8)).isEqualTo("74");
+
+    // A broken index is computed again
+    Files.writeString(root.resolve("size"), "broken", UTF_8);
+    cache.fetch(new URL("https://example.com/c.zip"), transport);
+    assertThat(Files.readString(root.resolve("size"), UTF_8)).isEqualTo("111");
+  }
+
+  @Test
+  public void testTrees() throws Exception {
+    DownloadCache cache = new DownloadCache(root, 1024 * 1024, /*cacheTrees=*/ true, clock);
+    Glob glob = Glob.createGlob(ImmutableList.of("**"));
+    Path extracted = tmp.newFolder("extracted").toPath();
+    Files.createDirectories(extracted.resolve("dir"));
+    Files.writeString(extracted.resolve("dir/file.txt"), "hello", UTF_8);
+
+    Path workdir = tmp.newFolder("workdir").toPath();
+    assertThat(cache.checkoutTree("abcd", ExtractType.ZIP, glob, workdir)).isFalse();
+    cache.putTree("abcd", ExtractType.ZIP, glob, extracted);
+
+    assertThat(cache.checkoutTree("abcd", ExtractType.ZIP, glob, workdir)).isTrue();
+    assertThat(Files.readString(workdir.resolve("dir/file.txt"), UTF_8)).isEqualTo("hello");
+    // Different type or glob are different trees
+    Path other = tmp.newFolder("other").toPath();
+    assertThat(cache.checkoutTree("abcd", ExtractType.TAR, glob, other)).isFalse();
+    assertThat(
+            cache.checkoutTree(
+                "abcd", ExtractType.ZIP, Glob.createGlob(ImmutableList.of("dir/**")), other))
+        .isFalse();
+  }
+
+  @Test
+  public void testTreesDisabled() throws Exception {
+    DownloadCache cache = new DownloadCache(root, 1024 * 1024, /*cacheTrees=*/ false, clock);
+    Path extracted = tmp.newFolder("extracted").toPath();
+    Files.writeString(extracted.resolve("file.txt"), "hello", UTF_8);
+
+    cache.putTree("abcd", ExtractType.ZIP, Glob.ALL_FILES, extracted);
+
+    assertThat(
+            cache.checkoutTree(
+                "abcd", ExtractType.ZIP, Glob.ALL_FILES, tmp.newFolder("workdir").toPath()))
+        .isFalse();
+  }
+
+  // Paths are both Comparable and Iterable, so they cannot be used as Truth subjects
+  private static boolean isCached(DownloadCache cache, URL url) throws IOException {
+    return cache.get(url) != null;
+  }
+}
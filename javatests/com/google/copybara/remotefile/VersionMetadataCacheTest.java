@@ -0,0 +1,146 @@
+/*
+ * Copyright (C) 2026 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.copybara.remotefile;
+
+import static com.google.common.truth.Truth.assertThat;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.copybara.remotefile.HttpStreamFactory.ConditionalResponse;
+import com.google.copybara.testing.FakeClock;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import javax.annotation.Nullable;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public final class VersionMetadataCacheTest {
+
+  @Rule public final TemporaryFolder tmp = new TemporaryFolder();
+
+  private final FakeClock clock = new FakeClock(Instant.parse("2026-01-01T00:00:00Z"));
+  private final FakeRegistry registry = new FakeRegistry();
+  private VersionMetadataCache cache;
+  private URL url;
+
+  @Before
+  public void setup() throws Exception {
+    Path root = tmp.newFolder("cache").toPath();
+    cache = new VersionMetadataCache(root, Duration.ofMinutes(5), clock);
+    url = new URL("https://proxy.golang.org/example.com/foo/@v/list");
+  }
+
+  @Test
+  public void testFreshEntriesAreNotRevalidated() throws Exception {
+    registry.content = "v1.0.0\n";
+    assertThat(cache.fetch(url, registry)).isEqualTo("v1.0.0\n");
+
+    registry.content = "v1.0.0\nv1.1.0\n";
+    clock.advance(Duration.ofMinutes(5));
+    assertThat(cache.fetch(url, registry)).isEqualTo("v1.0.0\n");
+    assertThat(registry.requests).isEqualTo(1);
+  }
+
+  @Test
+  public void testNotModifiedKeepsTheEntry() throws Exception {
+    registry.content = "v1.0.0\n";
+    registry.etag = "\"1\"";
+    cache.fetch(url, registry);
+
+    clock.advance(Duration.ofMinutes(6));
+    assertThat(cache.fetch(url, registry)).isEqualTo("v1.0.0\n");
+    assertThat(registry.requests).isEqualTo(2);
+    assertThat(registry.notModified).isEqualTo(1);
+
+    // Revalidating makes the entry fresh again
+    clock.advance(Duration.ofMinutes(4));
+    assertThat(cache.fetch(url, registry)).isEqualTo("v1.0.0\n");
+    assertThat(registry.requests).isEqualTo(2);
+  }
+
+  @Test
+  public void testModifiedReplacesTheEntry() throws Exception {
+    registry.content = "v1.0.0\n";
+    registry.etag = "\"1\"";
+    cache.fetch(url, registry);
+
+    registry.content = "v1.0.0\nv1.1.0\n";
+    registry.etag = "\"2\"";
+    clock.advance(Duration.ofMinutes(6));
+    assertThat(cache.fetch(url, registry)).isEqualTo("v1.0.0\nv1.1.0\n");
+    assertThat(registry.notModified).isEqualTo(0);
+
+    clock.advance(Duration.ofMinutes(6));
+    assertThat(cache.fetch(url, registry)).isEqualTo("v1.0.0\nv1.1.0\n");
+    assertThat(registry.notModified).isEqualTo(1);
+  }
+
+  @Test
+  public void testWithoutValidators() throws Exception {
+    HttpStreamFactory plain =
+        u -> new ByteArrayInputStream(("contents of " + u).getBytes(UTF_8));
+    assertThat(cache.fetch(url, plain)).isEqualTo("contents of " + url);
+    clock.advance(Duration.ofMinutes(6));
+    assertThat(cache.fetch(url, plain)).isEqualTo("contents of " + url);
+  }
+
+  @Test
+  public void testEntriesArePersistent() throws Exception {
+    registry.content = "v1.0.0\n";
+    cache.fetch(url, registry);
+
+    VersionMetadataCache other =
+        new VersionMetadataCache(tmp.getRoot().toPath().resolve("cache"), Duration.ofMinutes(5),
+            clock);
+    assertThat(other.fetch(url, registry)).isEqualTo("v1.0.0\n");
+    assertThat(registry.requests).isEqualTo(1);
+  }
+
+  /** A registry that answers conditional requests by comparing the ETag. */
+  private static final class FakeRegistry implements HttpStreamFactory {
+
+    private String content = "";
+    @Nullable private String etag;
+    private int requests;
+    private int notModified;
+
+    @Override
+    public InputStream open(URL url) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public ConditionalResponse openIfChanged(
+        URL url, @Nullable String etag, @Nullable String lastModified) {
+      requests++;
+      if (etag != null && etag.equals(this.etag)) {
+        notModified++;
+        return ConditionalResponse.notModified();
+      }
+      return ConditionalResponse.changed(
+          new ByteArrayInputStream(content.getBytes(UTF_8)), this.etag, /*lastModified=*/ null);
+    }
+  }
+}
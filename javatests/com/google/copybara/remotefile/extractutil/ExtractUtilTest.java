@@ -27,6 +27,8 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -97,4 +99,64 @@ public final class ExtractUtilTest {
     // test that files not matching the glob have been filtered out
     assertThat(Files.exists(outputPath.resolve(testFilenameA))).isFalse();
   }
+
+  @Test
+  public void testExtractArchiveFromPath() throws Exception {
+    Path outputPath = testFolder.resolve("output");
+    ExtractUtil.extractArchive(
+        testZip,
+        outputPath,
+        ExtractType.ZIP,
+        Glob.createGlob(ImmutableList.of("*.md"), ImmutableList.of()));
+
+    assertThat(MoreFiles.asByteSource(outputPath.resolve(testFilenameB)).asCharSource(UTF_8).read())
+        .isEqualTo(testFileContentsB);
+    assertThat(Files.exists(outputPath.resolve(testFilenameA))).isFalse();
+  }
+
+  @Test
+  public void testExtractManyFiles() throws Exception {
+    Path zip = testFolder.resolve("many.zip");
+    try (ZipOutputStream zipOs = new ZipOutputStream(Files.newOutputStream(zip))) {
+      for (int i = 0; i < 500; i++) {
+        zipOs.putNextEntry(new ZipEntry(String.format("dir%d/file%d.txt", i % 7, i)));
+        zipOs.write(("content " + i).repeat(i).getBytes(UTF_8));
+        zipOs.closeEntry();
+      }
+    }
+
+    Path fromPath = testFolder.resolve("from_path");
+    ExtractUtil.extractArchive(zip, fromPath, ExtractType.ZIP, null);
+    Path fromStream = testFolder.resolve("from_stream");
+    try (InputStream is = Files.newInputStream(zip)) {
+      ExtractUtil.extractArchive(is, fromStream, ExtractType.ZIP, null);
+    }
+
+    for (int i = 0; i < 500; i++) {
+      String file = String.format("dir%d/file%d.txt", i % 7, i);
+      assertThat(Files.readString(fromPath.resolve(file), UTF_8))
+          .isEqualTo(("content " + i).repeat(i));
+      assertThat(Files.readString(fromStream.resolve(file), UTF_8))
+          .isEqualTo(("content " + i).repeat(i));
+    }
+  }
+
+  @Test
+  public void testExtractTarWithRepeatedEntry() throws Exception {
+    Path tar = testFolder.resolve("test.tar");
+    try (TarArchiveOutputStream tarOs = new TarArchiveOutputStream(Files.newOutputStream(tar))) {
+      for (String content : ImmutableList.of("first", "second", "third")) {
+        TarArchiveEntry entry = new TarArchiveEntry("dir/file.txt");
+        entry.setSize(content.length());
+        tarOs.putArchiveEntry(entry);
+        tarOs.write(content.getBytes(UTF_8));
+        tarOs.closeArchiveEntry();
+      }
+    }
+
+    Path outputPath = testFolder.resolve("output");
+    ExtractUtil.extractArchive(tar, outputPath, ExtractType.TAR, null);
+
+    assertThat(Files.readString(outputPath.resolve("dir/file.txt"), UTF_8)).isEqualTo("third");
+  }
 }
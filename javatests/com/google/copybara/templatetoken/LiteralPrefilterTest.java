@@ -0,0 +1,70 @@
+/*
+ * Copyright (C) 2026 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.copybara.templatetoken;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.re2j.Pattern;
+import java.util.BitSet;
+import net.starlark.java.eval.EvalException;
+import net.starlark.java.syntax.Location;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class LiteralPrefilterTest {
+
+  private static final ImmutableMap<String, Pattern> GROUPS =
+      ImmutableMap.of("x", Pattern.compile("[a-z]+"));
+
+  @Test
+  public void testLiterals() throws EvalException {
+    LiteralPrefilter prefilter = LiteralPrefilter.create(ImmutableList.of(
+        template("foo"), template("bar"), template("he"), template("she"), template("hers")));
+
+    assertThat(indexes(prefilter.candidates("ushers"))).containsExactly(2, 3, 4);
+    assertThat(indexes(prefilter.candidates("a foobar"))).containsExactly(0, 1);
+    assertThat(indexes(prefilter.candidates(""))).isEmpty();
+  }
+
+  @Test
+  public void testAllLiteralsAreRequired() throws EvalException {
+    LiteralPrefilter prefilter = LiteralPrefilter.create(ImmutableList.of(
+        template("foo${x}bar"), template("foo${x}baz")));
+
+    assertThat(indexes(prefilter.candidates("barfoo baz"))).containsExactly(1);
+  }
+
+  @Test
+  public void testTemplatesWithoutLiteralsAlwaysMatch() throws EvalException {
+    LiteralPrefilter prefilter = LiteralPrefilter.create(ImmutableList.of(
+        template("${x}"), template(""), template("foo")));
+
+    assertThat(indexes(prefilter.candidates("bar"))).containsExactly(0, 1);
+  }
+
+  private static RegexTemplateTokens template(String template) throws EvalException {
+    return new RegexTemplateTokens(template, GROUPS, /*repeatedGroups=*/ false, Location.BUILTIN);
+  }
+
+  private static ImmutableList<Integer> indexes(BitSet bitSet) {
+    return bitSet.stream().boxed().collect(ImmutableList.toImmutableList());
+  }
+}
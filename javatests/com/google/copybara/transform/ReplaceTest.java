@@ -17,13 +17,16 @@
 package com.google.copybara.transform;
 
 import static com.google.common.truth.Truth.assertThat;
+import static com.google.common.truth.Truth.assertWithMessage;
 import static com.google.copybara.testing.FileSubjects.assertThatPath;
 import static java.nio.charset.StandardCharsets.UTF_8;
 
+import com.google.common.collect.ImmutableList;
 import com.google.common.jimfs.Jimfs;
 import com.google.copybara.Transformation;
 import com.google.copybara.TransformationStatus;
 import com.google.copybara.exception.ValidationException;
+import com.google.copybara.templatetoken.RegexTemplateTokens.Replacer;
 import com.google.copybara.testing.FileSubjects;
 import com.google.copybara.testing.OptionsBuilder;
 import com.google.copybara.testing.SkylarkTestExecutor;
@@ -186,6 +189,60 @@ public final class ReplaceTest {
   }
 
 
+  @Test
+  public void testReplacerOnlyRewritesChangedLines() throws Exception {
+    Replace transformation = eval("core.replace(\n"
+        + "  before = '${x}-${x}',\n"
+        + "  after = '${x}',\n"
+        + "  regex_groups = {'x': '[a-z]+'},\n"
+        + "  repeated_groups = True,\n"
+        + "  ignore = ['#.*'],\n"
+        + ")");
+    Replacer replacer = transformation.createReplacer();
+
+    String unchanged = "#foo-foo\nfoo-bar\n\nno match";
+    assertThat(replacer.replace(unchanged)).isSameInstanceAs(unchanged);
+    assertThat(replacer.replace("#foo-foo\nfoo-foo\nfoo-bar\nbar-bar baz-baz\n"))
+        .isEqualTo("#foo-foo\nfoo\nfoo-bar\nbar baz\n");
+  }
+
+  @Test
+  public void testRegexEngines() throws Exception {
+    String content = "a.b $$ a.b\naxb\\\n";
+    for (String engine : ImmutableList.of("AUTO", "RE2J", "LITERAL")) {
+      Replace transformation = eval("core.replace(\n"
+          + "  before = 'a.b',\n"
+          + "  after = '$$1\\\\',\n"
+          + "  regex_engine = '" + engine + "',\n"
+          + ")");
+      assertWithMessage(engine).that(transformation.createReplacer().replace(content))
+          .isEqualTo("$1\\ $$ $1\\\naxb\\\n");
+    }
+  }
+
+  @Test
+  public void testLiteralEngineRequiresLiteralBefore() throws Exception {
+    skylark.evalFails("core.replace(\n"
+            + "  before = 'foo${x}',\n"
+            + "  after = 'bar${x}',\n"
+            + "  regex_groups = {'x': '[a-z]+'},\n"
+            + "  regex_engine = 'LITERAL',\n"
+            + ")",
+        "regex_engine LITERAL requires 'before' to be a non-empty text without interpolations");
+    skylark.evalFails("core.replace(\n"
+            + "  before = 'foo',\n"
+            + "  after = 'bar',\n"
+            + "  regex_engine = 'DFA',\n"
+            + ")",
+        "Invalid value 'DFA' for field 'regex_engine'");
+    skylark.evalFails("core.reverse([core.replace(\n"
+            + "  before = 'foo',\n"
+            + "  after = '',\n"
+            + "  regex_engine = 'LITERAL',\n"
+            + ")])",
+        "regex_engine LITERAL requires 'after' to be a non-empty text");
+  }
+
   @Test
   public void testWithGlob() throws Exception {
     Replace transformation = eval("core.replace(\n"
@@ -540,6 +597,110 @@ public final class ReplaceTest {
         .matches(".*BEFORE.*lulz.*was a no-op because it didn't match any file");
   }
 
+  @Test
+  public void testStreamingReplace() throws Exception {
+    options.workflowOptions.replaceStreamingMinSize = 0;
+    Replace transformation = eval("core.replace(\n"
+        + "  before = 'foo${x}',\n"
+        + "  after  = 'bar${x}',\n"
+        + "  regex_groups = {'x': '[0-9]+'},\n"
+        + ")");
+    writeFile(checkoutDir.resolve("file1.txt"), "foo1 foo2\r\nfoo\nfoo3\n");
+    writeFile(checkoutDir.resolve("file2.txt"), "no\nmatch");
+    writeFile(checkoutDir.resolve("file3.txt"), "foo4");
+
+    transform(transformation);
+
+    assertThatPath(checkoutDir)
+        .containsFile("file1.txt", "bar1 bar2\r\nfoo\nbar3\n")
+        .containsFile("file2.txt", "no\nmatch")
+        .containsFile("file3.txt", "bar4")
+        .containsNoMoreFiles();
+  }
+
+  @Test
+  public void testStreamingJoinedReplaces() throws Exception {
+    options.workflowOptions.replaceStreamingMinSize = 0;
+    writeFile(checkoutDir.resolve("file.txt"), "foo\nother foo\n");
+    transform(eval("core.transform([\n"
+        + "    core.replace(before = 'foo', after = 'bar\\nbaz'),\n"
+        + "    core.replace(before = 'baz', after = 'qux', first_only = True),\n"
+        + "])"));
+
+    assertThatPath(checkoutDir).containsFile("file.txt", "bar\nqux\nother bar\nqux\n");
+  }
+
+  @Test
+  public void testJoinedReplacesApplyInOrder() throws Exception {
+    Transformation transformation = eval("core.transform([\n"
+        + "    core.replace(before = 'foo', after = 'bar'),\n"
+        + "    core.replace(before = 'bar', after = 'baz'),\n"
+        + "    core.replace(before = 'baz', after = 'qux', paths = glob(['**.java'])),\n"
+        + "])");
+    writeFile(checkoutDir.resolve("file.txt"), "foo\nother");
+    writeFile(checkoutDir.resolve("file.java"), "foo");
+    Path untouched = writeFile(checkoutDir.resolve("untouched.txt"), "nothing to replace");
+    BasicFileAttributes before = Files.readAttributes(untouched, BasicFileAttributes.class);
+
+    TransformationStatus status = transform(transformation);
+
+    assertThat(status.isSuccess()).isTrue();
+    assertThatPath(checkoutDir)
+        .containsFile("file.txt", "baz\nother")
+        .containsFile("file.java", "qux")
+        .containsFile("untouched.txt", "nothing to replace");
+    assertThat(Files.readAttributes(untouched, BasicFileAttributes.class).lastModifiedTime())
+        .isEqualTo(before.lastModifiedTime());
+  }
+
+  @Test
+  public void testJoinedReplacesReportFirstNoop() throws Exception {
+    writeFile(checkoutDir.resolve("file.txt"), "foo");
+    TransformationStatus status = transform(eval("core.transform([\n"
+        + "    core.replace(before = 'foo', after = 'bar'),\n"
+        + "    core.replace(before = 'not_found', after = 'lulz'),\n"
+        + "    core.replace(before = 'other', after = 'lulz', paths = glob(['bad_path/**'])),\n"
+        + "])"));
+
+    assertThat(status.isNoop()).isTrue();
+    assertThat(status.getMessage())
+        .matches(".*not_found.*lulz.*was a no-op because it didn't change any of the matching"
+            + " files");
+    assertThatPath(checkoutDir).containsFile("file.txt", "bar");
+  }
+
+  @Test
+  public void testReplacesInNoopIfAllNoopSequence() throws Exception {
+    writeFile(checkoutDir.resolve("file.txt"), "foo");
+    TransformationStatus status = transform(eval("core.transform([\n"
+        + "    core.replace(before = 'foo', after = 'bar'),\n"
+        + "    core.replace(before = 'not_found', after = 'lulz'),\n"
+        + "], noop_behavior = 'NOOP_IF_ALL_NOOP')"));
+
+    assertThat(status.isSuccess()).isTrue();
+    assertThatPath(checkoutDir).containsFile("file.txt", "bar");
+
+    status = transform(eval("core.transform([\n"
+        + "    core.replace(before = 'not_found', after = 'lulz'),\n"
+        + "    core.replace(before = 'other', after = 'lulz'),\n"
+        + "], noop_behavior = 'NOOP_IF_ALL_NOOP')"));
+
+    assertThat(status.isNoop()).isTrue();
+  }
+
+  @Test
+  public void testJoinedReplacesWithRegexGroups() throws Exception {
+    writeFile(checkoutDir.resolve("file.txt"), "before: abc\nnothing\n");
+    transform(eval("core.transform([\n"
+        + "    core.replace(before = 'before: ${x}', after = 'after: ${x}',\n"
+        + "                 regex_groups = {'x': '[a-z]+'}),\n"
+        + "    core.replace(before = '${x}: abc', after = '${x}: def',\n"
+        + "                 regex_groups = {'x': '[a-z]+'}),\n"
+        + "], ignore_noop = True)"));
+
+    assertThatPath(checkoutDir).containsFile("file.txt", "after: def\nnothing\n");
+  }
+
   @Test
   public void useDollarSignInAfter() throws Exception {
     Replace replace = eval("core.replace(\n"
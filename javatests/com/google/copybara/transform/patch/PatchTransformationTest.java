@@ -290,4 +290,151 @@ public class PatchTransformationTest {
             Location.BUILTIN);
     assertThat(transform.describe()).isEqualTo("Patch.apply: diff.patch, diff.patch");
   }
+
+  @Test
+  public void testInProcess() throws Exception {
+    options.patch.inProcess = true;
+    Files.write(checkoutDir.resolve("test.txt"), "foo\n".getBytes(UTF_8));
+    Files.createDirectories(checkoutDir.resolve("excluded"));
+    Files.write(checkoutDir.resolve("excluded/file2.txt"), "other".getBytes(UTF_8));
+    inProcessTransformation(/*reverse=*/ false, patchFile)
+        .transform(TransformWorks.of(checkoutDir, "testmsg", console));
+    assertThatPath(checkoutDir)
+        .containsFile("test.txt", "bar\n")
+        .containsFile("excluded/file2.txt", "other")
+        .containsNoMoreFiles();
+  }
+
+  @Test
+  public void testInProcess_reverse() throws Exception {
+    options.patch.inProcess = true;
+    Files.write(checkoutDir.resolve("test.txt"), "bar\n".getBytes(UTF_8));
+    inProcessTransformation(/*reverse=*/ true, patchFile)
+        .transform(TransformWorks.of(checkoutDir, "testmsg", console));
+    assertThatPath(checkoutDir)
+        .containsFile("test.txt", "foo\n")
+        .containsNoMoreFiles();
+  }
+
+  @Test
+  public void testInProcess_series() throws Exception {
+    options.patch.inProcess = true;
+    Files.write(checkoutDir.resolve("file.txt"), "a\nb\nc\nd\ne\nf\ng\nh\n".getBytes(UTF_8));
+    Files.write(checkoutDir.resolve("old.txt"), "old\n".getBytes(UTF_8));
+    ImmutableMap<String, byte[]> configFiles = ImmutableMap.of(
+        "first.patch", (""
+            + "diff --git a/file.txt b/file.txt\n"
+            + "--- a/file.txt\n"
+            + "+++ b/file.txt\n"
+            + "@@ -1,3 +1,4 @@\n"
+            + "+first\n"
+            + " a\n"
+            + " b\n"
+            + " c\n"
+            + "diff --git a/old.txt b/new.txt\n"
+            + "old mode 100644\n"
+            + "new mode 100755\n"
+            + "similarity index 100%\n"
+            + "rename from old.txt\n"
+            + "rename to new.txt\n").getBytes(UTF_8),
+        // Line numbers don't take the first patch into account
+        "second.patch", (""
+            + "diff --git a/file.txt b/file.txt\n"
+            + "--- a/file.txt\n"
+            + "+++ b/file.txt\n"
+            + "@@ -5,3 +5,3 @@\n"
+            + " e\n"
+            + "-f\n"
+            + "+second\n"
+            + " g\n").getBytes(UTF_8));
+    inProcessTransformation(/*reverse=*/ false,
+        new MapConfigFile(configFiles, "first.patch"),
+        new MapConfigFile(configFiles, "second.patch"))
+        .transform(TransformWorks.of(checkoutDir, "testmsg", console));
+    assertThatPath(checkoutDir)
+        .containsFile("file.txt", "first\na\nb\nc\nd\ne\nsecond\ng\nh\n")
+        .containsFile("new.txt", "old\n")
+        .containsNoMoreFiles();
+    assertThat(Files.isExecutable(checkoutDir.resolve("new.txt"))).isTrue();
+  }
+
+  @Test
+  public void testInProcess_fuzz() throws Exception {
+    options.patch.inProcess = true;
+    options.patch.inProcessFuzz = 1;
+    Files.write(checkoutDir.resolve("test.txt"), "a\nb\nfoo\nchanged\n".getBytes(UTF_8));
+    ConfigFile patch = new MapConfigFile(ImmutableMap.of("fuzz.patch", (""
+        + "--- a/test.txt\n"
+        + "+++ b/test.txt\n"
+        + "@@ -1,4 +1,4 @@\n"
+        + " a\n"
+        + " b\n"
+        + "-foo\n"
+        + "+bar\n"
+        + " c\n").getBytes(UTF_8)), "fuzz.patch");
+    inProcessTransformation(/*reverse=*/ false, patch)
+        .transform(TransformWorks.of(checkoutDir, "testmsg", console));
+    assertThatPath(checkoutDir)
+        .containsFile("test.txt", "a\nb\nbar\nchanged\n")
+        .containsNoMoreFiles();
+  }
+
+  @Test
+  public void testInProcess_failureDoesNotWrite() throws Exception {
+    options.patch.inProcess = true;
+    Files.write(checkoutDir.resolve("test.txt"), "foo\n".getBytes(UTF_8));
+    ConfigFile bad = new MapConfigFile(ImmutableMap.of("bad.patch", (""
+        + "--- a/test.txt\n"
+        + "+++ b/test.txt\n"
+        + "@@ -1 +1 @@\n"
+        + "-baz\n"
+        + "+qux\n").getBytes(UTF_8)), "bad.patch");
+    ValidationException thrown = assertThrows(ValidationException.class,
+        () -> inProcessTransformation(/*reverse=*/ false, patchFile, bad)
+            .transform(TransformWorks.of(checkoutDir, "testmsg", console)));
+    assertThat(thrown).hasMessageThat()
+        .isEqualTo("Error applying patch bad.patch: patch failed: test.txt:1");
+    // The first patch applied, but nothing was written
+    assertThatPath(checkoutDir)
+        .containsFile("test.txt", "foo\n")
+        .containsNoMoreFiles();
+  }
+
+  @Test
+  public void testInProcess_unsupportedFallsBack() throws Exception {
+    options.patch.inProcess = true;
+    options.patch.useGitApply = true;
+    Files.write(checkoutDir.resolve("test.txt"), "foo\n".getBytes(UTF_8));
+    ConfigFile symlink = new MapConfigFile(ImmutableMap.of("symlink.patch", (""
+        + "diff --git a/link b/link\n"
+        + "new file mode 120000\n"
+        + "index 0000000..30d74d2\n"
+        + "--- /dev/null\n"
+        + "+++ b/link\n"
+        + "@@ -0,0 +1 @@\n"
+        + "+test.txt\n"
+        + "\\ No newline at end of file\n").getBytes(UTF_8)), "symlink.patch");
+    new PatchTransformation(
+            ImmutableList.of(symlink),
+            ImmutableList.of(),
+            patchingOptions,
+            /* reverse= */ false,
+            /* strip= */ 1,
+            /* directory= */ "",
+            Location.BUILTIN)
+        .transform(TransformWorks.of(checkoutDir, "testmsg", console));
+    assertThat(Files.readSymbolicLink(checkoutDir.resolve("link")).toString())
+        .isEqualTo("test.txt");
+  }
+
+  private PatchTransformation inProcessTransformation(boolean reverse, ConfigFile... patches) {
+    return new PatchTransformation(
+        ImmutableList.copyOf(patches),
+        excludedFromPatch,
+        patchingOptions,
+        reverse,
+        /* strip= */ 1,
+        /* directory= */ "",
+        Location.BUILTIN);
+  }
 }
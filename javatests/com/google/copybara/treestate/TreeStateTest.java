@@ -18,12 +18,15 @@ package com.google.copybara.treestate;
 
 import static com.google.common.truth.Truth.assertThat;
 
+import com.google.common.collect.ImmutableList;
 import com.google.common.jimfs.Jimfs;
+import com.google.copybara.treestate.TreeState.FileState;
 import com.google.copybara.util.Glob;
 import java.io.IOException;
 import java.nio.file.FileSystem;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.List;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -104,4 +107,137 @@ public class TreeStateTest {
     treeState.maybeClearCache();
     assertThat(treeState.isCached()).isFalse();
   }
+
+  @Test
+  public void testFindGlobOnlyLooksAtRoots() throws IOException {
+    writeFile("foo/bar/one.txt");
+    writeFile("foo/two.txt");
+    writeFile("foo-bar/three.txt");
+    writeFile("baz/four.txt");
+    TreeState treeState = new TreeState(checkoutDir);
+
+    assertThat(paths(treeState.find(Glob.createGlob(ImmutableList.of("foo/**")))))
+        .containsExactly("foo/bar/one.txt", "foo/two.txt");
+    assertThat(treeState.isCached()).isTrue();
+
+    // Files outside of the roots are not known until they are requested
+    writeFile("baz/five.txt");
+    assertThat(paths(treeState.find(Glob.ALL_FILES.relativeTo(checkoutDir))))
+        .containsExactly(
+            "foo/bar/one.txt", "foo/two.txt", "foo-bar/three.txt", "baz/four.txt",
+            "baz/five.txt");
+  }
+
+  @Test
+  public void testNotifyAddAndDelete() throws IOException {
+    writeFile("foo/one.txt");
+    writeFile("foo/two.txt");
+    TreeState treeState = new TreeState(checkoutDir);
+    Glob glob = Glob.createGlob(ImmutableList.of("foo/**"));
+    List<FileState> files = ImmutableList.copyOf(treeState.find(glob));
+
+    Path added = writeFile("foo/three.txt");
+    treeState.notifyAdd(ImmutableList.of(new FileState(added)));
+    Files.delete(checkoutDir.resolve("foo/one.txt"));
+    treeState.notifyDelete(
+        files.stream()
+            .filter(f -> f.getPath().endsWith("one.txt"))
+            .collect(ImmutableList.toImmutableList()));
+    treeState.maybeClearCache();
+
+    assertThat(treeState.isCached()).isTrue();
+    assertThat(paths(treeState.find(glob))).containsExactly("foo/two.txt", "foo/three.txt");
+  }
+
+  @Test
+  public void testNotifyMove() throws IOException {
+    writeFile("foo/one.txt");
+    writeFile("foo/sub/two.txt");
+    writeFile("bar/three.txt");
+    TreeState treeState = new TreeState(checkoutDir);
+    treeState.find(Glob.ALL_FILES.relativeTo(checkoutDir));
+
+    Files.createDirectories(checkoutDir.resolve("baz"));
+    Files.move(checkoutDir.resolve("foo/sub"), checkoutDir.resolve("baz/sub"));
+    treeState.notifyMove(checkoutDir.resolve("foo/sub"), checkoutDir.resolve("baz/sub"));
+    treeState.maybeClearCache();
+
+    assertThat(treeState.isCached()).isTrue();
+    assertThat(paths(treeState.find(Glob.ALL_FILES.relativeTo(checkoutDir))))
+        .containsExactly("foo/one.txt", "baz/sub/two.txt", "bar/three.txt");
+  }
+
+  @Test
+  public void testNotifyChangedUnderNotLoadedPath() throws IOException {
+    writeFile("foo/one.txt");
+    writeFile("bar/two.txt");
+    TreeState treeState = new TreeState(checkoutDir);
+    Glob foo = Glob.createGlob(ImmutableList.of("foo/**"));
+    treeState.find(foo);
+
+    writeFile("foo/three.txt");
+    writeFile("bar/four.txt");
+    treeState.notifyChangedUnder(checkoutDir.resolve("foo"));
+    treeState.maybeClearCache();
+
+    assertThat(paths(treeState.find(foo))).containsExactly("foo/one.txt", "foo/three.txt");
+    assertThat(paths(treeState.find(Glob.createGlob(ImmutableList.of("bar/**")))))
+        .containsExactly("bar/two.txt", "bar/four.txt");
+  }
+
+  @Test
+  public void testFindGlobSkipsExcludedDirectories() throws IOException {
+    writeFile("foo/one.txt");
+    writeFile("foo/testdata/two.txt");
+    writeFile("foo/sub/three.txt");
+    TreeState treeState = new TreeState(checkoutDir);
+
+    assertThat(
+            paths(treeState.find(
+                Glob.createGlob(ImmutableList.of("foo/**"), ImmutableList.of("foo/testdata/**")))))
+        .containsExactly("foo/one.txt", "foo/sub/three.txt");
+
+    // 'foo/sub' was read completely, so it is cached
+    writeFile("foo/sub/four.txt");
+    assertThat(paths(treeState.find(Glob.createGlob(ImmutableList.of("foo/sub/**")))))
+        .containsExactly("foo/sub/three.txt");
+
+    // 'foo' was not, so it is read again, except for 'foo/sub'
+    assertThat(paths(treeState.find(Glob.createGlob(ImmutableList.of("foo/**")))))
+        .containsExactly("foo/one.txt", "foo/testdata/two.txt", "foo/sub/three.txt");
+  }
+
+  @Test
+  public void testFindGlobWithoutRootsSkipsExcludedDirectories() throws IOException {
+    writeFile("one.txt");
+    writeFile("foo/two.txt");
+    writeFile("third_party/lib/three.txt");
+    TreeState treeState = new TreeState(checkoutDir);
+    Glob glob = Glob.createGlob(ImmutableList.of("**"), ImmutableList.of("third_party/**"));
+
+    assertThat(paths(treeState.find(glob))).containsExactly("one.txt", "foo/two.txt");
+
+    // 'foo' was read completely, so it is cached, but 'third_party' was never read
+    writeFile("foo/four.txt");
+    writeFile("third_party/lib/five.txt");
+    assertThat(paths(treeState.find(glob))).containsExactly("one.txt", "foo/two.txt");
+    assertThat(paths(treeState.find(Glob.createGlob(ImmutableList.of("foo/**")))))
+        .containsExactly("foo/two.txt");
+    assertThat(paths(treeState.find(Glob.createGlob(ImmutableList.of("third_party/**")))))
+        .containsExactly("third_party/lib/three.txt", "third_party/lib/five.txt");
+  }
+
+  private Path writeFile(String path) throws IOException {
+    Path file = checkoutDir.resolve(path);
+    Files.createDirectories(file.getParent());
+    return Files.writeString(file, path);
+  }
+
+  private ImmutableList<String> paths(Iterable<FileState> files) {
+    ImmutableList.Builder<String> result = ImmutableList.builder();
+    for (FileState file : files) {
+      result.add(checkoutDir.relativize(file.getPath()).toString());
+    }
+    return result.build();
+  }
 }
@@ -0,0 +1,206 @@
+/*
+ * Copyright (C) 2026 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.copybara.util;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.common.truth.Truth.assertWithMessage;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.copybara.util.MergeImportTool.MergeResult;
+import com.google.copybara.util.MergeImportTool.MergeResultCode;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public final class Diff3MergerTest {
+
+  @Rule public final TemporaryFolder tmpFolder = new TemporaryFolder();
+  private Path left;
+  private Path right;
+  private Path baseline;
+  private Path workdir;
+  private Diff3Merger underTest;
+  private CommandLineDiffUtil diff3;
+
+  @Before
+  public void setUp() throws Exception {
+    Path rootPath = tmpFolder.getRoot().toPath();
+    left = Files.createDirectories(rootPath.resolve("left"));
+    right = Files.createDirectories(rootPath.resolve("right"));
+    baseline = Files.createDirectories(rootPath.resolve("baseline"));
+    workdir = Files.createDirectories(rootPath.resolve("workdir"));
+    underTest = new Diff3Merger();
+    diff3 = new CommandLineDiffUtil("/usr/bin/diff3", null, null);
+  }
+
+  @Test
+  public void testSimpleMerge() throws Exception {
+    MergeResult output = merge("a\nb\nc", "foo\na\nb\nc", "a\nb\nc\nbar");
+
+    assertThat(output.result()).isEqualTo(MergeResultCode.SUCCESS);
+    assertThat(output.fileContents().toString(UTF_8)).isEqualTo("foo\na\nb\nc\nbar");
+  }
+
+  @Test
+  public void testConflict() throws Exception {
+    MergeResult output = merge("1\n2\n3\n4\n", "1\nX\n3\n4\n", "1\n2\nY\n4\n");
+
+    assertThat(output.result()).isEqualTo(MergeResultCode.MERGE_CONFLICT);
+    assertThat(output.fileContents().toString(UTF_8))
+        .isEqualTo(
+            "1\n"
+                + "<<<<<<< left/file.txt\n"
+                + "X\n"
+                + "3\n"
+                + "||||||| baseline/file.txt\n"
+                + "2\n"
+                + "3\n"
+                + "=======\n"
+                + "2\n"
+                + "Y\n"
+                + ">>>>>>> right/file.txt\n"
+                + "4\n");
+  }
+
+  @Test
+  public void testSameChangeInBothIsAConflict() throws Exception {
+    MergeResult output = merge("a\nb\nc\n", "a\nB\nc\n", "a\nB\nc\n");
+
+    assertThat(output.result()).isEqualTo(MergeResultCode.MERGE_CONFLICT);
+    assertThat(output.fileContents().toString(UTF_8))
+        .isEqualTo(
+            "a\n<<<<<<< baseline/file.txt\nb\n=======\nB\n>>>>>>> right/file.txt\nc\n");
+  }
+
+  @Test
+  public void testBinaryFile() throws Exception {
+    MergeResult output = merge("", "1\n", "a\u0000b");
+
+    assertThat(output.result()).isEqualTo(MergeResultCode.TROUBLE);
+    assertThat(output.fileContents().isEmpty()).isTrue();
+  }
+
+  @Test
+  public void testMergeInPlace() throws Exception {
+    writeFiles("a\nb\nc\nd\n", "a\nB\nc\nd\n", "a\nb\nc\nD\n");
+
+    MergeResultCode result =
+        underTest.mergeInPlace(
+            left.resolve("file.txt"),
+            right.resolve("file.txt"),
+            baseline.resolve("file.txt"),
+            workdir);
+
+    assertThat(result).isEqualTo(MergeResultCode.SUCCESS);
+    assertThat(Files.readString(left.resolve("file.txt"))).isEqualTo("a\nB\nc\nD\n");
+  }
+
+  @Test
+  public void testMergeInPlaceKeepsBinaryFile() throws Exception {
+    writeFiles("a\n", "a\u0000\n", "b\n");
+
+    MergeResultCode result =
+        underTest.mergeInPlace(
+            left.resolve("file.txt"),
+            right.resolve("file.txt"),
+            baseline.resolve("file.txt"),
+            workdir);
+
+    assertThat(result).isEqualTo(MergeResultCode.TROUBLE);
+    assertThat(Files.readString(left.resolve("file.txt"))).isEqualTo("a\u0000\n");
+  }
+
+  @Test
+  public void testSameOutputAsDiff3() throws Exception {
+    Random random = new Random(42);
+    for (int i = 0; i < 300; i++) {
+      String base = randomText(random, 1 + random.nextInt(30));
+      String mine = mutate(random, base);
+      String yours = mutate(random, base);
+      writeFiles(base, mine, yours);
+
+      MergeResult expected = merge(diff3);
+      MergeResult actual = merge(underTest);
+
+      String message = String.format("base:\n%s\nmine:\n%s\nyours:\n%s", base, mine, yours);
+      assertWithMessage(message).that(actual.result()).isEqualTo(expected.result());
+      assertWithMessage(message)
+          .that(actual.fileContents().toString(UTF_8))
+          .isEqualTo(expected.fileContents().toString(UTF_8));
+    }
+  }
+
+  /** Lines from a small alphabet, so that there are many repeated lines. */
+  private static String randomText(Random random, int lines) {
+    StringBuilder text = new StringBuilder();
+    for (int i = 0; i < lines; i++) {
+      text.append((char) ('a' + random.nextInt(5))).append('\n');
+    }
+    if (random.nextInt(10) == 0) {
+      text.setLength(text.length() - 1);
+    }
+    return text.toString();
+  }
+
+  private static String mutate(Random random, String text) {
+    StringBuilder result = new StringBuilder();
+    for (String line : text.split("(?<=\n)")) {
+      switch (random.nextInt(10)) {
+        case 0:
+          break;
+        case 1:
+          result.append(randomText(random, 1 + random.nextInt(2)));
+          break;
+        case 2:
+          result.append(line).append(randomText(random, 1));
+          break;
+        default:
+          result.append(line);
+      }
+    }
+    return result.toString();
+  }
+
+  private MergeResult merge(String baselineContent, String leftContent, String rightContent)
+      throws IOException {
+    writeFiles(baselineContent, leftContent, rightContent);
+    return merge(underTest);
+  }
+
+  private MergeResult merge(MergeImportTool.MergeRunner runner) throws IOException {
+    return runner.merge(
+        left.resolve("file.txt"),
+        right.resolve("file.txt"),
+        baseline.resolve("file.txt"),
+        workdir);
+  }
+
+  private void writeFiles(String baselineContent, String leftContent, String rightContent)
+      throws IOException {
+    Files.writeString(baseline.resolve("file.txt"), baselineContent, UTF_8);
+    Files.writeString(left.resolve("file.txt"), leftContent, UTF_8);
+    Files.writeString(right.resolve("file.txt"), rightContent, UTF_8);
+  }
+}
@@ -105,6 +105,29 @@ public class DiffUtilTest {
     assertThat(DiffUtil.diffFiles(left, right, VERBOSE, testEnv)).isEmpty();
   }
 
+  @Test
+  public void diffOnly() throws Exception {
+    writeFile(left, "file1.txt", "foo\n");
+    writeFile(left, "file2.txt", "bar\n");
+    writeFile(left, "b/file3.txt", "baz\n");
+    writeFile(right, "file1.txt", "foo-right\n");
+    writeFile(right, "file2.txt", "bar-right\n");
+    writeFile(right, "b/file3.txt", "baz\n");
+    writeFile(right, "b/file4.txt", "new\n");
+
+    String diffContents =
+        new String(
+            DiffUtil.diffOnly(
+                left, right, ImmutableList.of("file1.txt", "b/file4.txt"),
+                createDir(rootPath, "scratch"), VERBOSE, testEnv),
+            StandardCharsets.UTF_8);
+
+    assertThat(diffContents).contains("--- a/left/file1.txt");
+    assertThat(diffContents).contains("+++ b/right/b/file4.txt");
+    assertThat(diffContents).doesNotContain("file2.txt");
+    assertThat(diffContents).doesNotContain("file3.txt");
+  }
+
   @Test
   public void crAtEolDiff() throws Exception {
     writeFile(left, "file1.txt", "foo\r\n");
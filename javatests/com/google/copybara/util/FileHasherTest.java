@@ -0,0 +1,73 @@
+/*
+ * Copyright (C) 2026 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.copybara.util;
+
+import static com.google.common.truth.Truth.assertThat;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.hash.Hashing;
+import com.google.copybara.LocalParallelizer;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public final class FileHasherTest {
+
+  // Hash value produced by: 'echo -n 'hello' | sha256sum
+  private static final String HELLO_HASH =
+      "2cf24dba5fb0a30e26e83b2ac5b9e29e1b161e5c1fa7425e73043362938b9824";
+
+  @Rule public final TemporaryFolder tmpFolder = new TemporaryFolder();
+
+  private Path tree;
+
+  @Before
+  public void setUp() throws IOException {
+    tree = tmpFolder.newFolder("tree").toPath();
+  }
+
+  @Test
+  public void testHashTree() throws IOException {
+    for (int i = 0; i < 50; i++) {
+      write("dir" + (i % 3) + "/file" + i + ".txt", "hello");
+    }
+    Files.createSymbolicLink(tree.resolve("link"), Paths.get("dir0/file0.txt"));
+
+    ImmutableMap<String, String> hashes =
+        new FileHasher(Hashing.sha256(), new LocalParallelizer(4, 1)).hashTree(tree);
+
+    assertThat(hashes).hasSize(50);
+    assertThat(hashes).containsEntry("dir2/file5.txt", HELLO_HASH);
+    assertThat(hashes).doesNotContainKey("link");
+    assertThat(hashes).isEqualTo(FileHasher.sequential(Hashing.sha256()).hashTree(tree));
+  }
+
+  private Path write(String path, String content) throws IOException {
+    Path file = tree.resolve(path);
+    Files.createDirectories(file.getParent());
+    return Files.write(file, content.getBytes(UTF_8));
+  }
+}
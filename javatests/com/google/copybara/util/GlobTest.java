@@ -430,6 +430,48 @@ public class GlobTest {
         .isEqualTo(createPathMatcher("glob(['foo/**'], exclude=['bar/**'])"));
   }
 
+  @Test
+  public void compiledGlobMatchesLikeFileSystemGlobs() throws Exception {
+    ImmutableList<String> patterns = ImmutableList.of(
+        "foo/*.java", "**.java", "**/*.java", "foo/**", "foo/**/bar", "{foo,bar/baz}/*",
+        "[!f]*/?", "foo\\*/a", "*/{a,b*}/**");
+    ImmutableList<String> paths = ImmutableList.of(
+        "foo/A.java", "A.java", "foo/bar/A.java", "foo/bar", "foo/x/bar", "bar/baz/a", "bar/a",
+        "baz/a", "baz/ab", "foo*/a", "foox/a", "x/a/y", "x/b/y/z", "x/c/y");
+    for (String pattern : patterns) {
+      PathMatcher expected =
+          workdir.getFileSystem().getPathMatcher("glob:" + workdir + "/" + pattern);
+      PathMatcher matcher = createGlob(ImmutableList.of(pattern)).relativeTo(workdir);
+      for (String path : paths) {
+        assertWithMessage(pattern + " / " + path)
+            .that(matcher.matches(workdir.resolve(path)))
+            .isEqualTo(expected.matches(workdir.resolve(path)));
+      }
+    }
+  }
+
+  @Test
+  public void compiledGlobMayMatchUnder() throws Exception {
+    CompiledGlob matcher =
+        parseGlob("glob(['foo/*.java', 'bar/**', 'baz/**/BUILD', 'qux/**.txt'],"
+            + " exclude = ['bar/testdata/**']) + ['single/file']")
+            .relativeTo(workdir);
+
+    assertThat(matcher.mayMatchUnder(workdir)).isTrue();
+    assertThat(matcher.mayMatchUnder(workdir.getParent())).isTrue();
+    assertThat(matcher.mayMatchUnder(workdir.resolve("foo"))).isTrue();
+    assertThat(matcher.mayMatchUnder(workdir.resolve("foo/sub"))).isFalse();
+    assertThat(matcher.mayMatchUnder(workdir.resolve("bar/sub/sub"))).isTrue();
+    assertThat(matcher.mayMatchUnder(workdir.resolve("bar/testdata"))).isFalse();
+    assertThat(matcher.mayMatchUnder(workdir.resolve("bar/testdata/sub"))).isFalse();
+    assertThat(matcher.mayMatchUnder(workdir.resolve("baz/sub/sub"))).isTrue();
+    assertThat(matcher.mayMatchUnder(workdir.resolve("qux/sub"))).isTrue();
+    assertThat(matcher.mayMatchUnder(workdir.resolve("single"))).isTrue();
+    assertThat(matcher.mayMatchUnder(workdir.resolve("single/file"))).isFalse();
+    assertThat(matcher.mayMatchUnder(workdir.resolve("other"))).isFalse();
+    assertThat(matcher.mayMatchUnder(workdir.resolveSibling("other"))).isFalse();
+  }
+
   private PathMatcher createPathMatcher(String expression)
       throws ValidationException {
     return parseGlob(expression).relativeTo(workdir);
@@ -0,0 +1,132 @@
+/*
+ * Copyright (C) 2026 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.copybara.util;
+
+import static com.google.common.truth.Truth.assertThat;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertThrows;
+
+import com.google.common.collect.ImmutableList;
+import com.google.copybara.util.DiffUtil.DiffFile;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFilePermission;
+import java.util.Set;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class TreeManifestTest {
+
+  private Path one;
+  private Path other;
+
+  @Before
+  public void setup() throws Exception {
+    Path root = Files.createTempDirectory("TreeManifestTest");
+    one = Files.createDirectories(root.resolve("one"));
+    other = Files.createDirectories(root.resolve("other"));
+  }
+
+  @Test
+  public void testEqualTrees() throws Exception {
+    write(one, "foo.txt", "foo");
+    write(one, "dir/bar.txt", "bar");
+    write(other, "foo.txt", "foo");
+    write(other, "dir/bar.txt", "bar");
+    Files.createDirectories(other.resolve("empty"));
+
+    TreeManifest manifest = TreeManifest.create(one, null);
+    assertThat(manifest.size()).isEqualTo(2);
+    assertThat(manifest.diff(TreeManifest.create(other, null))).isEmpty();
+  }
+
+  @Test
+  public void testDifferences() throws Exception {
+    write(one, "same.txt", "same");
+    write(one, "modified.txt", "foo");
+    write(one, "deleted.txt", "deleted");
+    write(other, "same.txt", "same");
+    write(other, "modified.txt", "bar");
+    write(other, "added.txt", "added");
+
+    assertThat(describe(TreeManifest.create(one, null).diff(TreeManifest.create(other, null))))
+        .containsExactly("added.txt ADD", "deleted.txt DELETE", "modified.txt MODIFIED")
+        .inOrder();
+  }
+
+  @Test
+  public void testExecutableBitIsADifference() throws Exception {
+    write(one, "run.sh", "echo");
+    Path script = write(other, "run.sh", "echo");
+    Set<PosixFilePermission> permissions = Files.getPosixFilePermissions(script);
+    permissions.add(PosixFilePermission.OWNER_EXECUTE);
+    Files.setPosixFilePermissions(script, permissions);
+
+    assertThat(describe(TreeManifest.create(one, null).diff(TreeManifest.create(other, null))))
+        .containsExactly("run.sh MODIFIED");
+  }
+
+  @Test
+  public void testSymlinks() throws Exception {
+    write(one, "target.txt", "foo");
+    write(one, "other_target.txt", "foo");
+    Files.createSymbolicLink(one.resolve("link"), Paths.get("target.txt"));
+    write(other, "target.txt", "foo");
+    write(other, "other_target.txt", "foo");
+    Files.createSymbolicLink(other.resolve("link"), Paths.get("other_target.txt"));
+
+    assertThat(describe(TreeManifest.create(one, null).diff(TreeManifest.create(other, null))))
+        .containsExactly("link MODIFIED");
+  }
+
+  @Test
+  public void testSymlinkOutsideRootFails() throws Exception {
+    write(one.getParent(), "outside.txt", "foo");
+    Files.createSymbolicLink(one.resolve("link"), Paths.get("../outside.txt"));
+
+    assertThrows(AbsoluteSymlinksNotAllowed.class, () -> TreeManifest.create(one, null));
+  }
+
+  @Test
+  public void testIgnoreFiles() throws Exception {
+    write(one, "foo.txt", "foo");
+    write(one, "ignored/foo.txt", "foo");
+    write(other, "foo.txt", "foo");
+    write(other, "ignored/foo.txt", "bar");
+    Glob ignore = Glob.createGlob(ImmutableList.of("ignored/**"));
+
+    assertThat(TreeManifest.create(one, ignore).diff(TreeManifest.create(other, ignore)))
+        .isEmpty();
+  }
+
+  private static ImmutableList<String> describe(ImmutableList<DiffFile> files) {
+    return files.stream()
+        .map(f -> f.getName() + " " + f.getOperation())
+        .collect(ImmutableList.toImmutableList());
+  }
+
+  private static Path write(Path root, String path, String content) throws IOException {
+    Path file = root.resolve(path);
+    Files.createDirectories(file.getParent());
+    return Files.write(file, content.getBytes(UTF_8));
+  }
+}
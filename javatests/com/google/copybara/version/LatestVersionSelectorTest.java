@@ -164,6 +164,24 @@ public class LatestVersionSelectorTest {
         "1.9.12");
   }
 
+  @Test
+  public void testVersionListChangesBetweenCalls() throws Exception {
+    VersionSelector v = skylark.eval("v", ""
+        + "v = core.latest_version("
+        + "  format = 'v${n0}.${n1}',"
+        + "  regex_groups = {'n0' : '[0-9]+', 'n1' : '[0-9]+'})");
+
+    assertThat(v.select(() -> ImmutableSet.of("v1.0", "v1.2", "foo"), null, console))
+        .hasValue("v1.2");
+    assertThat(v.select(() -> ImmutableSet.of("v1.0", "v1.2", "v1.10", "foo"), null, console))
+        .hasValue("v1.10");
+    assertThat(v.select(() -> ImmutableSet.of("v1.0", "v1.2"), null, console))
+        .hasValue("v1.2");
+    assertThat(v.select(() -> ImmutableSet.of("foo"), null, console)).isEmpty();
+    assertThat(v.select(() -> ImmutableSet.of("v1.0", "v2.0"), null, console))
+        .hasValue("v2.0");
+  }
+
   private void runTest(String arguments, ImmutableSet<String> versionList,
       String requestedRef, @Nullable String expected) throws ValidationException, RepoException {
     VersionSelector v = skylark.eval("v", "v = core.latest_version(" + arguments + ")");